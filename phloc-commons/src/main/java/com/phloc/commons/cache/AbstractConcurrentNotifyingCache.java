@@ -0,0 +1,1200 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.cache;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.OverrideOnDemand;
+import com.phloc.commons.annotations.VisibleForTesting;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.collections.IEvictionPolicy;
+import com.phloc.commons.collections.LRUEvictionPolicy;
+import com.phloc.commons.collections.WTinyLFUEvictionPolicy;
+import com.phloc.commons.concurrent.IExecutorServiceFactory;
+import com.phloc.commons.concurrent.ManagedExecutorService;
+import com.phloc.commons.jmx.JMXUtils;
+import com.phloc.commons.state.EChange;
+import com.phloc.commons.stats.IStatisticsHandlerCache;
+import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.StatisticsManager;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * A self-filling cache based on a {@link ConcurrentHashMap}. In contrast to
+ * {@link AbstractNotifyingCache} there is no global lock: lookups of existing
+ * values are lock free and the value for a key that is not yet cached is
+ * computed at most once, without blocking the lookup or computation of other
+ * keys. Only threads requesting the same key wait for a running computation.
+ * <p>
+ * Optionally the cache can be bounded, and the values can be referenced softly
+ * or weakly (see {@link ECacheValueReference}). If the maximum size is
+ * exceeded, the least recently used entries are evicted by default - override
+ * {@link #createEvictionPolicy()} to use a different strategy like
+ * {@link WTinyLFUEvictionPolicy}. Adding and removing values of a bounded
+ * cache is serialized by a lock. Reads only record the accessed key in a
+ * bounded buffer that is applied to the eviction policy later on, so lookups
+ * of a bounded cache are lock free as well. If the buffer is full, accesses
+ * are not recorded.
+ * <p>
+ * Additionally values can expire after write and/or after access and can be
+ * refreshed asynchronously (see {@link CacheExpirySettings}). Expired values
+ * are removed by a timer wheel that is advanced as part of the cache
+ * operations or explicitly via {@link #cleanUp()}. Values that need a refresh
+ * are still returned while the new value is computed in the background, so
+ * readers never wait for a refresh. A value that expired while its refresh is
+ * running is still returned until the refresh is done.
+ * <p>
+ * Note: <code>null</code> keys cannot be stored in the underlying map. For a
+ * <code>null</code> key the value is computed on each request and is not
+ * cached.
+ * 
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        Cache key type
+ * @param <VALUETYPE>
+ *        Cache value type
+ */
+@ThreadSafe
+public abstract class AbstractConcurrentNotifyingCache <KEYTYPE, VALUETYPE> implements ISimpleCache <KEYTYPE, VALUETYPE>
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (AbstractConcurrentNotifyingCache.class);
+  private static final int TIMER_WHEEL_BUCKETS = 512;
+  /** The maximum number of reads buffered for the eviction policy */
+  private static final int READ_BUFFER_MAX_SIZE = 256;
+  /** The number of buffered reads that triggers applying them */
+  private static final int READ_BUFFER_DRAIN_THRESHOLD = 64;
+
+  private static interface IEntry <VALUETYPE>
+  {
+    /**
+     * @return The value of this entry. May be <code>null</code> if the value
+     *         was garbage collected.
+     */
+    @Nullable
+    VALUETYPE getValue ();
+  }
+
+  /**
+   * Entry for a value that is currently computed.
+   */
+  private static final class LoadingEntry <VALUETYPE> implements IEntry <VALUETYPE>
+  {
+    private final FutureTask <VALUETYPE> m_aTask;
+    private final Thread m_aLoadingThread = Thread.currentThread ();
+
+    LoadingEntry (@Nonnull final Callable <VALUETYPE> aCallable)
+    {
+      m_aTask = new FutureTask <VALUETYPE> (aCallable);
+    }
+
+    void load ()
+    {
+      m_aTask.run ();
+    }
+
+    @Nullable
+    public VALUETYPE getValue ()
+    {
+      if (m_aLoadingThread == Thread.currentThread () && !m_aTask.isDone ())
+        throw new IllegalStateException ("Recursive cache lookup of the value currently being computed");
+
+      boolean bInterrupted = false;
+      try
+      {
+        while (true)
+        {
+          try
+          {
+            return m_aTask.get ();
+          }
+          catch (final InterruptedException ex)
+          {
+            // Wait uninterruptibly but restore the interrupted state afterwards
+            bInterrupted = true;
+          }
+          catch (final ExecutionException ex)
+          {
+            final Throwable aCause = ex.getCause ();
+            if (aCause instanceof RuntimeException)
+              throw (RuntimeException) aCause;
+            if (aCause instanceof Error)
+              throw (Error) aCause;
+            throw new IllegalStateException ("Failed to compute the value to cache", aCause);
+          }
+        }
+      }
+      finally
+      {
+        if (bInterrupted)
+          Thread.currentThread ().interrupt ();
+      }
+    }
+  }
+
+  /**
+   * Soft reference that knows its entry, so that garbage collected values can
+   * be removed from the map.
+   */
+  private static final class SoftValueReference <VALUETYPE> extends SoftReference <VALUETYPE>
+  {
+    private final ValueEntry <?, VALUETYPE> m_aEntry;
+
+    SoftValueReference (@Nonnull final ValueEntry <?, VALUETYPE> aEntry,
+                        @Nonnull final VALUETYPE aValue,
+                        @Nonnull final ReferenceQueue <? super VALUETYPE> aQueue)
+    {
+      super (aValue, aQueue);
+      m_aEntry = aEntry;
+    }
+  }
+
+  /**
+   * Weak reference that knows its entry, so that garbage collected values can
+   * be removed from the map.
+   */
+  private static final class WeakValueReference <VALUETYPE> extends WeakReference <VALUETYPE>
+  {
+    private final ValueEntry <?, VALUETYPE> m_aEntry;
+
+    WeakValueReference (@Nonnull final ValueEntry <?, VALUETYPE> aEntry,
+                        @Nonnull final VALUETYPE aValue,
+                        @Nonnull final ReferenceQueue <? super VALUETYPE> aQueue)
+    {
+      super (aValue, aQueue);
+      m_aEntry = aEntry;
+    }
+  }
+
+  /**
+   * Entry for a computed value.
+   */
+  private static final class ValueEntry <KEYTYPE, VALUETYPE> implements IEntry <VALUETYPE>
+  {
+    private final KEYTYPE m_aKey;
+    private final VALUETYPE m_aStrongValue;
+    private final Reference <VALUETYPE> m_aValueRef;
+    private final long m_nWriteNanos;
+    private volatile long m_nAccessNanos;
+    private final AtomicBoolean m_aRefreshing = new AtomicBoolean (false);
+    // The handle of the expiry in the timer wheel
+    private volatile TimerWheel.Timeout <ValueEntry <KEYTYPE, VALUETYPE>> m_aTimeout;
+
+    ValueEntry (@Nonnull final KEYTYPE aKey,
+                @Nonnull final VALUETYPE aValue,
+                @Nonnull final ECacheValueReference eValueReference,
+                @Nonnull final ReferenceQueue <VALUETYPE> aQueue,
+                final long nNowNanos)
+    {
+      m_aKey = aKey;
+      switch (eValueReference)
+      {
+        case SOFT:
+          m_aStrongValue = null;
+          m_aValueRef = new SoftValueReference <VALUETYPE> (this, aValue, aQueue);
+          break;
+        case WEAK:
+          m_aStrongValue = null;
+          m_aValueRef = new WeakValueReference <VALUETYPE> (this, aValue, aQueue);
+          break;
+        default:
+          m_aStrongValue = aValue;
+          m_aValueRef = null;
+          break;
+      }
+      m_nWriteNanos = nNowNanos;
+      m_nAccessNanos = nNowNanos;
+    }
+
+    @Nonnull
+    KEYTYPE getKey ()
+    {
+      return m_aKey;
+    }
+
+    @Nullable
+    public VALUETYPE getValue ()
+    {
+      return m_aValueRef != null ? m_aValueRef.get () : m_aStrongValue;
+    }
+
+    long getWriteNanos ()
+    {
+      return m_nWriteNanos;
+    }
+
+    long getAccessNanos ()
+    {
+      return m_nAccessNanos;
+    }
+
+    void setAccessNanos (final long nAccessNanos)
+    {
+      m_nAccessNanos = nAccessNanos;
+    }
+
+    boolean startRefresh ()
+    {
+      return m_aRefreshing.compareAndSet (false, true);
+    }
+
+    void endRefresh ()
+    {
+      m_aRefreshing.set (false);
+    }
+
+    boolean isRefreshing ()
+    {
+      return m_aRefreshing.get ();
+    }
+
+    @Nullable
+    TimerWheel.Timeout <ValueEntry <KEYTYPE, VALUETYPE>> getTimeout ()
+    {
+      return m_aTimeout;
+    }
+
+    void setTimeout (@Nonnull final TimerWheel.Timeout <ValueEntry <KEYTYPE, VALUETYPE>> aTimeout)
+    {
+      m_aTimeout = aTimeout;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return String.valueOf (getValue ());
+    }
+  }
+
+  private final String m_sCacheName;
+  private final ECacheValueReference m_eValueReference;
+  private final int m_nMaxSize;
+  private final long m_nExpireAfterWriteNanos;
+  private final long m_nExpireAfterAccessNanos;
+  private final long m_nRefreshAfterWriteNanos;
+  private final IExecutorServiceFactory m_aRefreshExecutorServiceFactory;
+  /** access statistics */
+  protected final IStatisticsHandlerCache m_aCacheAccessStats;
+  private final IStatisticsHandlerCounter m_aCacheRemoveStats;
+  private final IStatisticsHandlerCounter m_aCacheClearStats;
+  private final IStatisticsHandlerCounter m_aCacheExpireStats;
+  private final IStatisticsHandlerCounter m_aCacheRefreshStats;
+  private final ConcurrentMap <KEYTYPE, IEntry <VALUETYPE>> m_aCache = new ConcurrentHashMap <KEYTYPE, IEntry <VALUETYPE>> ();
+  /** The number of computed values in the cache */
+  private final AtomicInteger m_aSize = new AtomicInteger (0);
+  /**
+   * Serializes all changes of computed values of a bounded cache, so that the
+   * eviction policy tracks exactly the keys of the computed values.
+   */
+  private final Lock m_aEvictionLock = new ReentrantLock ();
+  @GuardedBy ("m_aEvictionLock")
+  private IEvictionPolicy <KEYTYPE> m_aEvictionPolicy;
+  /** Keys read since the last drain - only used if bounded */
+  private final ConcurrentLinkedQueue <KEYTYPE> m_aReadBuffer;
+  private final AtomicInteger m_aReadBufferSize = new AtomicInteger (0);
+  /** Queue for garbage collected soft and weak values */
+  private final ReferenceQueue <VALUETYPE> m_aReferenceQueue = new ReferenceQueue <VALUETYPE> ();
+  /** The timer wheel for expiry - only used if expiry is enabled */
+  private final TimerWheel <ValueEntry <KEYTYPE, VALUETYPE>> m_aTimerWheel;
+  @GuardedBy ("this")
+  private ExecutorService m_aRefreshExecutor;
+  @GuardedBy ("this")
+  private boolean m_bRefreshExecutorShutdown = false;
+
+  /**
+   * Constructor for an unbounded cache with strongly referenced values.
+   * 
+   * @param sCacheName
+   *        Name of the cache. May neither be <code>null</code> nor empty.
+   */
+  public AbstractConcurrentNotifyingCache (@Nonnull @Nonempty final String sCacheName)
+  {
+    this (sCacheName, ECacheValueReference.STRONG, CGlobal.INDEFINITE_ENTRIES);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param sCacheName
+   *        Name of the cache. May neither be <code>null</code> nor empty.
+   * @param eValueReference
+   *        How the values should be referenced. May not be <code>null</code>.
+   * @param nMaxSize
+   *        The maximum number of values to be cached. Pass
+   *        {@link CGlobal#INDEFINITE_ENTRIES} or any other value &le; 0 for an
+   *        unbounded cache.
+   */
+  public AbstractConcurrentNotifyingCache (@Nonnull @Nonempty final String sCacheName,
+                                           @Nonnull final ECacheValueReference eValueReference,
+                                           @CheckForSigned final int nMaxSize)
+  {
+    this (sCacheName, eValueReference, nMaxSize, null);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param sCacheName
+   *        Name of the cache. May neither be <code>null</code> nor empty.
+   * @param eValueReference
+   *        How the values should be referenced. May not be <code>null</code>.
+   * @param nMaxSize
+   *        The maximum number of values to be cached. Pass
+   *        {@link CGlobal#INDEFINITE_ENTRIES} or any other value &le; 0 for an
+   *        unbounded cache.
+   * @param aExpirySettings
+   *        The expiry and refresh settings to use. The settings are copied.
+   *        May be <code>null</code> to never expire values.
+   */
+  public AbstractConcurrentNotifyingCache (@Nonnull @Nonempty final String sCacheName,
+                                           @Nonnull final ECacheValueReference eValueReference,
+                                           @CheckForSigned final int nMaxSize,
+                                           @Nullable final CacheExpirySettings aExpirySettings)
+  {
+    m_sCacheName = ValueEnforcer.notEmpty (sCacheName, "cacheName");
+    m_eValueReference = ValueEnforcer.notNull (eValueReference, "ValueReference");
+    m_nMaxSize = nMaxSize > 0 ? nMaxSize : CGlobal.INDEFINITE_ENTRIES;
+    m_aReadBuffer = nMaxSize > 0 ? new ConcurrentLinkedQueue <KEYTYPE> () : null;
+    if (aExpirySettings != null)
+    {
+      m_nExpireAfterWriteNanos = aExpirySettings.getExpireAfterWriteNanos ();
+      m_nExpireAfterAccessNanos = aExpirySettings.getExpireAfterAccessNanos ();
+      m_nRefreshAfterWriteNanos = aExpirySettings.getRefreshAfterWriteNanos ();
+      m_aRefreshExecutorServiceFactory = aExpirySettings.getRefreshExecutorServiceFactory ();
+      if (aExpirySettings.isExpiryEnabled ())
+        m_aTimerWheel = new TimerWheel <ValueEntry <KEYTYPE, VALUETYPE>> (aExpirySettings.getTickNanos (),
+                                                                          TIMER_WHEEL_BUCKETS,
+                                                                          getCurrentNanoTime ());
+      else
+        m_aTimerWheel = null;
+    }
+    else
+    {
+      m_nExpireAfterWriteNanos = 0;
+      m_nExpireAfterAccessNanos = 0;
+      m_nRefreshAfterWriteNanos = 0;
+      m_aRefreshExecutorServiceFactory = null;
+      m_aTimerWheel = null;
+    }
+    final String sStatsPrefix = AbstractCache.STATISTICS_PREFIX + sCacheName;
+    m_aCacheAccessStats = StatisticsManager.getCacheHandler (sStatsPrefix + "$access");
+    m_aCacheRemoveStats = StatisticsManager.getCounterHandler (sStatsPrefix + "$remove");
+    m_aCacheClearStats = StatisticsManager.getCounterHandler (sStatsPrefix + "$clear");
+    m_aCacheExpireStats = m_aTimerWheel != null ? StatisticsManager.getCounterHandler (sStatsPrefix + "$expire")
+                                                : null;
+    m_aCacheRefreshStats = m_nRefreshAfterWriteNanos > 0 ? StatisticsManager.getCounterHandler (sStatsPrefix +
+                                                                                                "$refresh") : null;
+    if (AbstractCache.isJMXEnabled ())
+      JMXUtils.exposeMBeanWithAutoName (new SimpleCache (this), sCacheName);
+  }
+
+  @Nonnull
+  @Nonempty
+  public final String getName ()
+  {
+    return m_sCacheName;
+  }
+
+  /**
+   * @return How the values of this cache are referenced. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final ECacheValueReference getValueReference ()
+  {
+    return m_eValueReference;
+  }
+
+  /**
+   * @return <code>true</code> if this cache has a maximum size,
+   *         <code>false</code> if it is unbounded.
+   */
+  public final boolean hasMaxSize ()
+  {
+    return m_nMaxSize > 0;
+  }
+
+  /**
+   * @return The maximum number of entries in this cache or
+   *         {@link CGlobal#INDEFINITE_ENTRIES} if the cache is unbounded.
+   */
+  @CheckForSigned
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * This abstract method is invoked, once a new value needs to be put into the
+   * cache. It is invoked at most once concurrently per key, and other keys can
+   * be looked up and computed while it runs. It must not look up the same key
+   * in this cache.
+   * 
+   * @param aKey
+   *        The key for which the value to cache is required. May be
+   *        <code>null</code>able or not - depends upon the implementation.
+   * @return The value to be cached. May not be <code>null</code>.
+   */
+  @Nonnull
+  protected abstract VALUETYPE getValueToCache (KEYTYPE aKey);
+
+  /**
+   * Create the eviction policy to be used if this cache has a maximum size.
+   * This method is called only once when the policy is first needed. All calls
+   * to the policy are serialized by the cache.
+   * 
+   * @return The eviction policy to use. May be <code>null</code> to evict the
+   *         least recently used entries.
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected IEvictionPolicy <KEYTYPE> createEvictionPolicy ()
+  {
+    return null;
+  }
+
+  /**
+   * This method is invoked asynchronously to compute the new value of an entry
+   * that needs a refresh. While this method runs, the old value is still
+   * returned by the cache. By default {@link #getValueToCache(Object)} is
+   * invoked.
+   * 
+   * @param aKey
+   *        The key for which the value is to be refreshed. Never
+   *        <code>null</code>.
+   * @param aOldValue
+   *        The previous value. Never <code>null</code>.
+   * @return The new value to be cached. May not be <code>null</code>.
+   */
+  @Nonnull
+  @OverrideOnDemand
+  protected VALUETYPE getValueToRefresh (@Nonnull final KEYTYPE aKey, @Nonnull final VALUETYPE aOldValue)
+  {
+    return getValueToCache (aKey);
+  }
+
+  /**
+   * Get the current time as the base for expiry and refresh. This method is
+   * also called from the constructor and must therefore not rely on fields of
+   * derived classes.
+   * 
+   * @return The current time in nano seconds as in {@link System#nanoTime()}.
+   */
+  @OverrideOnDemand
+  protected long getCurrentNanoTime ()
+  {
+    return System.nanoTime ();
+  }
+
+  private boolean _isTimed ()
+  {
+    return m_aTimerWheel != null || m_nRefreshAfterWriteNanos > 0;
+  }
+
+  private boolean _isExpired (@Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aEntry, final long nNowNanos)
+  {
+    if (m_nExpireAfterWriteNanos > 0 && nNowNanos - aEntry.getWriteNanos () >= m_nExpireAfterWriteNanos)
+      return true;
+    if (m_nExpireAfterAccessNanos > 0 && nNowNanos - aEntry.getAccessNanos () >= m_nExpireAfterAccessNanos)
+      return true;
+    return false;
+  }
+
+  private long _getExpirationNanos (@Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    long ret = Long.MAX_VALUE;
+    if (m_nExpireAfterWriteNanos > 0)
+      ret = aEntry.getWriteNanos () + m_nExpireAfterWriteNanos;
+    if (m_nExpireAfterAccessNanos > 0)
+      ret = Math.min (ret, aEntry.getAccessNanos () + m_nExpireAfterAccessNanos);
+    return ret;
+  }
+
+  @Nonnull
+  @GuardedBy ("m_aEvictionLock")
+  private IEvictionPolicy <KEYTYPE> _getEvictionPolicy ()
+  {
+    if (m_aEvictionPolicy == null)
+    {
+      m_aEvictionPolicy = createEvictionPolicy ();
+      if (m_aEvictionPolicy == null)
+        m_aEvictionPolicy = new LRUEvictionPolicy <KEYTYPE> ();
+    }
+    return m_aEvictionPolicy;
+  }
+
+  /**
+   * Apply all buffered reads to the eviction policy.
+   */
+  @GuardedBy ("m_aEvictionLock")
+  private void _drainReadBuffer ()
+  {
+    final IEvictionPolicy <KEYTYPE> aPolicy = _getEvictionPolicy ();
+    KEYTYPE aKey;
+    while ((aKey = m_aReadBuffer.poll ()) != null)
+    {
+      m_aReadBufferSize.decrementAndGet ();
+      aPolicy.onAccess (aKey);
+    }
+  }
+
+  /**
+   * Record the read access of a computed value for the eviction policy.
+   * 
+   * @param aKey
+   *        The read key
+   */
+  private void _onRead (@Nonnull final KEYTYPE aKey)
+  {
+    if (m_aReadBuffer == null)
+      return;
+
+    // Lossy - if the buffer is full the access is not recorded
+    if (m_aReadBufferSize.get () < READ_BUFFER_MAX_SIZE)
+    {
+      m_aReadBuffer.offer (aKey);
+      m_aReadBufferSize.incrementAndGet ();
+    }
+    // Never wait for the lock when reading
+    if (m_aReadBufferSize.get () >= READ_BUFFER_DRAIN_THRESHOLD && m_aEvictionLock.tryLock ())
+    {
+      try
+      {
+        _drainReadBuffer ();
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+  }
+
+  /**
+   * Schedule the expiry of the passed computed value in the timer wheel.
+   * 
+   * @param aEntry
+   *        The entry to schedule
+   * @param nDeadlineNanos
+   *        The absolute expiration time
+   */
+  private void _scheduleExpiry (@Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aEntry, final long nDeadlineNanos)
+  {
+    final TimerWheel.Timeout <ValueEntry <KEYTYPE, VALUETYPE>> aTimeout = m_aTimerWheel.schedule (aEntry, nDeadlineNanos);
+    aEntry.setTimeout (aTimeout);
+    // The entry may have been removed before the handle was set - the removing
+    // thread then did not see the handle
+    if (m_aCache.get (aEntry.getKey ()) != aEntry)
+      m_aTimerWheel.cancel (aTimeout);
+  }
+
+  /**
+   * Cancel the scheduled expiry of a computed value that was removed from or
+   * replaced in the cache, so that the timer wheel does not reference it until
+   * its expiration time.
+   * 
+   * @param aEntry
+   *        The removed entry. May be a loading entry.
+   */
+  @SuppressWarnings ("unchecked")
+  private void _cancelExpiry (@Nullable final IEntry <VALUETYPE> aEntry)
+  {
+    if (m_aTimerWheel != null && aEntry instanceof ValueEntry <?, ?>)
+    {
+      final TimerWheel.Timeout <ValueEntry <KEYTYPE, VALUETYPE>> aTimeout = ((ValueEntry <KEYTYPE, VALUETYPE>) aEntry).getTimeout ();
+      if (aTimeout != null)
+        m_aTimerWheel.cancel (aTimeout);
+    }
+  }
+
+  /**
+   * Remove the passed computed value from the cache.
+   * 
+   * @param aEntry
+   *        The entry to remove
+   * @return <code>true</code> if the entry was removed, <code>false</code> if
+   *         it was already removed or replaced.
+   */
+  private boolean _removeEntry (@Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    final KEYTYPE aKey = aEntry.getKey ();
+    if (m_aReadBuffer == null)
+    {
+      if (!m_aCache.remove (aKey, aEntry))
+        return false;
+      m_aSize.decrementAndGet ();
+    }
+    else
+    {
+      m_aEvictionLock.lock ();
+      try
+      {
+        if (!m_aCache.remove (aKey, aEntry))
+          return false;
+        m_aSize.decrementAndGet ();
+        _getEvictionPolicy ().onRemove (aKey);
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+    _cancelExpiry (aEntry);
+    return true;
+  }
+
+  /**
+   * Remove all entries whose values were garbage collected.
+   */
+  @SuppressWarnings ("unchecked")
+  private void _expungeStaleEntries ()
+  {
+    Reference <? extends VALUETYPE> aRef;
+    while ((aRef = m_aReferenceQueue.poll ()) != null)
+    {
+      final Object aEntry = aRef instanceof SoftValueReference <?> ? ((SoftValueReference <?>) aRef).m_aEntry
+                                                                   : ((WeakValueReference <?>) aRef).m_aEntry;
+      _removeEntry ((ValueEntry <KEYTYPE, VALUETYPE>) aEntry);
+    }
+  }
+
+  /**
+   * Remove all expired entries that are due according to the timer wheel.
+   * 
+   * @param nNowNanos
+   *        Current time
+   */
+  private void _expireEntries (final long nNowNanos)
+  {
+    if (m_aTimerWheel != null && m_aTimerWheel.isAdvanceNeeded (nNowNanos))
+      m_aTimerWheel.advance (nNowNanos, new INonThrowingRunnableWithParameter <ValueEntry <KEYTYPE, VALUETYPE>> ()
+      {
+        public void run (@Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aEntry)
+        {
+          if (m_aCache.get (aEntry.getKey ()) != aEntry)
+          {
+            // Already removed or replaced
+            return;
+          }
+          if (_isExpired (aEntry, nNowNanos) && !aEntry.isRefreshing ())
+          {
+            if (_removeEntry (aEntry))
+              m_aCacheExpireStats.increment ();
+          }
+          else
+          {
+            // Accessed in the meantime or currently refreshing
+            _scheduleExpiry (aEntry, Math.max (_getExpirationNanos (aEntry), nNowNanos + m_nRefreshAfterWriteNanos));
+          }
+        }
+      });
+  }
+
+  /**
+   * Evict entries chosen by the eviction policy until the maximum size is no
+   * longer exceeded.
+   */
+  @GuardedBy ("m_aEvictionLock")
+  private void _evictIfNecessary ()
+  {
+    final IEvictionPolicy <KEYTYPE> aPolicy = _getEvictionPolicy ();
+    while (m_aSize.get () > m_nMaxSize)
+    {
+      final KEYTYPE aVictim = aPolicy.getVictim ();
+      if (aVictim == null)
+        break;
+      final IEntry <VALUETYPE> aEntry = m_aCache.get (aVictim);
+      if (aEntry instanceof ValueEntry <?, ?> && m_aCache.remove (aVictim, aEntry))
+      {
+        m_aSize.decrementAndGet ();
+        _cancelExpiry (aEntry);
+      }
+    }
+  }
+
+  /**
+   * Replace the loading entry of the passed key with the computed value. If
+   * the key was removed in the meantime, the value is not cached.
+   */
+  private void _replaceLoadingEntry (@Nonnull final KEYTYPE aKey,
+                                     @Nonnull final LoadingEntry <VALUETYPE> aLoadingEntry,
+                                     @Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aValueEntry)
+  {
+    if (m_aReadBuffer == null)
+    {
+      if (!m_aCache.replace (aKey, aLoadingEntry, aValueEntry))
+        return;
+      m_aSize.incrementAndGet ();
+    }
+    else
+    {
+      m_aEvictionLock.lock ();
+      try
+      {
+        if (!m_aCache.replace (aKey, aLoadingEntry, aValueEntry))
+          return;
+        m_aSize.incrementAndGet ();
+        _drainReadBuffer ();
+        _getEvictionPolicy ().onInsert (aKey);
+        _evictIfNecessary ();
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+
+    if (m_aTimerWheel != null)
+      _scheduleExpiry (aValueEntry, _getExpirationNanos (aValueEntry));
+  }
+
+  /**
+   * Replace the passed computed value with its refreshed value. For a bounded
+   * cache this happens under the eviction lock, so that an entry evicted
+   * concurrently is never replaced.
+   * 
+   * @return <code>true</code> if the entry was replaced, <code>false</code> if
+   *         it was removed or replaced in the meantime.
+   */
+  private boolean _replaceRefreshedEntry (@Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aOldEntry,
+                                          @Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aNewEntry)
+  {
+    final KEYTYPE aKey = aOldEntry.getKey ();
+    if (m_aReadBuffer == null)
+      return m_aCache.replace (aKey, aOldEntry, aNewEntry);
+
+    m_aEvictionLock.lock ();
+    try
+    {
+      // The key stays tracked by the eviction policy
+      return m_aCache.replace (aKey, aOldEntry, aNewEntry);
+    }
+    finally
+    {
+      m_aEvictionLock.unlock ();
+    }
+  }
+
+  @Nonnull
+  private VALUETYPE _load (@Nonnull final KEYTYPE aKey, @Nonnull final LoadingEntry <VALUETYPE> aLoadingEntry)
+  {
+    aLoadingEntry.load ();
+
+    final VALUETYPE aValue;
+    try
+    {
+      aValue = aLoadingEntry.getValue ();
+    }
+    catch (final RuntimeException ex)
+    {
+      // Allow for a new try
+      m_aCache.remove (aKey, aLoadingEntry);
+      throw ex;
+    }
+    catch (final Error ex)
+    {
+      m_aCache.remove (aKey, aLoadingEntry);
+      throw ex;
+    }
+
+    // Just a consistency check
+    if (aValue == null)
+    {
+      m_aCache.remove (aKey, aLoadingEntry);
+      throw new IllegalStateException ("The value to cache was null for key '" + aKey + "'");
+    }
+
+    // Replace the loading entry with the final entry
+    final long nNowNanos = _isTimed () ? getCurrentNanoTime () : 0;
+    final ValueEntry <KEYTYPE, VALUETYPE> aValueEntry = new ValueEntry <KEYTYPE, VALUETYPE> (aKey,
+                                                                                            aValue,
+                                                                                            m_eValueReference,
+                                                                                            m_aReferenceQueue,
+                                                                                            nNowNanos);
+    _replaceLoadingEntry (aKey, aLoadingEntry, aValueEntry);
+    return aValue;
+  }
+
+  @Nonnull
+  private synchronized ExecutorService _getRefreshExecutor ()
+  {
+    if (m_bRefreshExecutorShutdown)
+      throw new RejectedExecutionException ("The refresh executor was shut down");
+    if (m_aRefreshExecutor == null)
+      m_aRefreshExecutor = m_aRefreshExecutorServiceFactory.getExecutorService (1);
+    return m_aRefreshExecutor;
+  }
+
+  /**
+   * Shutdown the current refresh executor, if it was created, without waiting
+   * for running refreshes. Its threads end after the running refreshes.
+   */
+  private void _releaseRefreshExecutor ()
+  {
+    final ExecutorService aES;
+    synchronized (this)
+    {
+      aES = m_aRefreshExecutor;
+      m_aRefreshExecutor = null;
+    }
+    if (aES != null)
+      aES.shutdown ();
+  }
+
+  /**
+   * Start the asynchronous refresh of the passed entry.
+   */
+  private void _refreshAsync (@Nonnull final ValueEntry <KEYTYPE, VALUETYPE> aEntry,
+                              @Nonnull final VALUETYPE aOldValue)
+  {
+    final KEYTYPE aKey = aEntry.getKey ();
+    try
+    {
+      _getRefreshExecutor ().execute (new Runnable ()
+      {
+        public void run ()
+        {
+          try
+          {
+            final VALUETYPE aNewValue = getValueToRefresh (aKey, aOldValue);
+            if (aNewValue == null)
+              throw new IllegalStateException ("The refreshed value was null for key '" + aKey + "'");
+
+            final ValueEntry <KEYTYPE, VALUETYPE> aNewEntry = new ValueEntry <KEYTYPE, VALUETYPE> (aKey,
+                                                                                                  aNewValue,
+                                                                                                  m_eValueReference,
+                                                                                                  m_aReferenceQueue,
+                                                                                                  getCurrentNanoTime ());
+            // Fails if the entry was removed in the meantime
+            if (_replaceRefreshedEntry (aEntry, aNewEntry))
+            {
+              m_aCacheRefreshStats.increment ();
+              _cancelExpiry (aEntry);
+              if (m_aTimerWheel != null)
+                _scheduleExpiry (aNewEntry, _getExpirationNanos (aNewEntry));
+            }
+          }
+          catch (final RuntimeException ex)
+          {
+            s_aLogger.error ("Failed to refresh cache '" + m_sCacheName + "' value for key '" + aKey + "'", ex);
+          }
+          finally
+          {
+            aEntry.endRefresh ();
+          }
+        }
+      });
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      aEntry.endRefresh ();
+      s_aLogger.warn ("Failed to schedule refresh of cache '" + m_sCacheName + "' value for key '" + aKey + "'");
+    }
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public VALUETYPE getFromCache (@Nullable final KEYTYPE aKey)
+  {
+    if (aKey == null)
+    {
+      // Cannot be stored in the map
+      final VALUETYPE aValue = getValueToCache (null);
+      if (aValue == null)
+        throw new IllegalStateException ("The value to cache was null for key 'null'");
+      m_aCacheAccessStats.cacheMiss ();
+      return aValue;
+    }
+
+    final boolean bTimed = _isTimed ();
+    final long nNowNanos = bTimed ? getCurrentNanoTime () : 0;
+    if (bTimed)
+      _expireEntries (nNowNanos);
+
+    while (true)
+    {
+      final IEntry <VALUETYPE> aEntry = m_aCache.get (aKey);
+      if (aEntry instanceof LoadingEntry <?>)
+      {
+        // Concurrent computation of the same key
+        final VALUETYPE aValue = aEntry.getValue ();
+        m_aCacheAccessStats.cacheHit ();
+        return aValue;
+      }
+
+      if (aEntry != null)
+      {
+        @SuppressWarnings ("unchecked")
+        final ValueEntry <KEYTYPE, VALUETYPE> aValueEntry = (ValueEntry <KEYTYPE, VALUETYPE>) aEntry;
+        final VALUETYPE aValue = aValueEntry.getValue ();
+        if (aValue == null)
+        {
+          // Value was garbage collected
+          _removeEntry (aValueEntry);
+          continue;
+        }
+
+        if (bTimed)
+        {
+          if (_isExpired (aValueEntry, nNowNanos) && !aValueEntry.isRefreshing ())
+          {
+            // Remove and compute again
+            if (_removeEntry (aValueEntry))
+              m_aCacheExpireStats.increment ();
+            continue;
+          }
+
+          if (m_nExpireAfterAccessNanos > 0)
+            aValueEntry.setAccessNanos (nNowNanos);
+          if (m_nRefreshAfterWriteNanos > 0 &&
+              nNowNanos - aValueEntry.getWriteNanos () >= m_nRefreshAfterWriteNanos &&
+              aValueEntry.startRefresh ())
+            _refreshAsync (aValueEntry, aValue);
+        }
+
+        _onRead (aKey);
+        m_aCacheAccessStats.cacheHit ();
+        return aValue;
+      }
+
+      // No value in the cache - try to become the computing thread
+      final LoadingEntry <VALUETYPE> aLoadingEntry = new LoadingEntry <VALUETYPE> (new Callable <VALUETYPE> ()
+      {
+        public VALUETYPE call ()
+        {
+          return getValueToCache (aKey);
+        }
+      });
+      if (m_aCache.putIfAbsent (aKey, aLoadingEntry) == null)
+      {
+        _expungeStaleEntries ();
+        m_aCacheAccessStats.cacheMiss ();
+        return _load (aKey, aLoadingEntry);
+      }
+      // Another thread was faster - wait for it
+    }
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange removeFromCache (@Nullable final KEYTYPE aKey)
+  {
+    if (aKey == null)
+      return EChange.UNCHANGED;
+
+    final IEntry <VALUETYPE> aEntry;
+    if (m_aReadBuffer == null)
+    {
+      aEntry = m_aCache.remove (aKey);
+      if (aEntry instanceof ValueEntry <?, ?>)
+        m_aSize.decrementAndGet ();
+    }
+    else
+    {
+      m_aEvictionLock.lock ();
+      try
+      {
+        aEntry = m_aCache.remove (aKey);
+        if (aEntry instanceof ValueEntry <?, ?>)
+        {
+          m_aSize.decrementAndGet ();
+          _getEvictionPolicy ().onRemove (aKey);
+        }
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+    if (aEntry == null)
+      return EChange.UNCHANGED;
+    _cancelExpiry (aEntry);
+    m_aCacheRemoveStats.increment ();
+    return EChange.CHANGED;
+  }
+
+  private boolean _removeAll ()
+  {
+    boolean bChanged = false;
+    for (final Map.Entry <KEYTYPE, IEntry <VALUETYPE>> aEntry : m_aCache.entrySet ())
+      if (m_aCache.remove (aEntry.getKey (), aEntry.getValue ()))
+      {
+        if (aEntry.getValue () instanceof ValueEntry <?, ?>)
+          m_aSize.decrementAndGet ();
+        _cancelExpiry (aEntry.getValue ());
+        bChanged = true;
+      }
+    return bChanged;
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange clearCache ()
+  {
+    final boolean bChanged;
+    if (m_aReadBuffer == null)
+      bChanged = _removeAll ();
+    else
+    {
+      m_aEvictionLock.lock ();
+      try
+      {
+        bChanged = _removeAll ();
+        _drainReadBuffer ();
+        _getEvictionPolicy ().onClear ();
+      }
+      finally
+      {
+        m_aEvictionLock.unlock ();
+      }
+    }
+    // Running refreshes of the removed values are useless - a new executor is
+    // created upon the next refresh
+    _releaseRefreshExecutor ();
+    if (!bChanged)
+      return EChange.UNCHANGED;
+    m_aCacheClearStats.increment ();
+    return EChange.CHANGED;
+  }
+
+  /**
+   * Remove all expired values and all values that were garbage collected.
+   * This happens automatically as part of the other cache operations, but may
+   * be called periodically for caches that are rarely used.
+   */
+  public void cleanUp ()
+  {
+    _expungeStaleEntries ();
+    if (m_aTimerWheel != null)
+      _expireEntries (getCurrentNanoTime ());
+  }
+
+  /**
+   * Shutdown the executor service used for asynchronous refreshing, if it was
+   * created, and wait until all running refreshes are finished. Afterwards no
+   * more refreshes are performed. The executor is also shut down by
+   * {@link #clearCache()}, but in that case a new one is created upon the next
+   * refresh.
+   */
+  public void shutdownRefreshExecutor ()
+  {
+    final ExecutorService aES;
+    synchronized (this)
+    {
+      aES = m_aRefreshExecutor;
+      m_aRefreshExecutor = null;
+      m_bRefreshExecutorShutdown = true;
+    }
+    if (aES != null)
+      new ManagedExecutorService (aES).shutdownAndWaitUntilAllTasksAreFinished ();
+  }
+
+  /**
+   * @return The number of keys tracked by the eviction policy. Always 0 for
+   *         unbounded caches.
+   */
+  @VisibleForTesting
+  @Nonnegative
+  final int getEvictionTrackedKeyCount ()
+  {
+    if (m_aReadBuffer == null)
+      return 0;
+    m_aEvictionLock.lock ();
+    try
+    {
+      return _getEvictionPolicy ().getTrackedKeyCount ();
+    }
+    finally
+    {
+      m_aEvictionLock.unlock ();
+    }
+  }
+
+  /**
+   * @return The number of handles held by the timer wheel, including those of
+   *         cancelled expiries that were not yet purged. Always 0 if expiry is
+   *         disabled.
+   */
+  @VisibleForTesting
+  @Nonnegative
+  final int getTimerWheelHandleCount ()
+  {
+    return m_aTimerWheel == null ? 0 : m_aTimerWheel.getHandleCount ();
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    _expungeStaleEntries ();
+    return Math.max (m_aSize.get (), 0);
+  }
+
+  public boolean isEmpty ()
+  {
+    return size () == 0;
+  }
+
+  /**
+   * @return Whether or not the cache has any content
+   */
+  public boolean isNotEmpty ()
+  {
+    return size () > 0;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("cacheName", m_sCacheName)
+                                       .append ("valueReference", m_eValueReference)
+                                       .append ("maxSize", m_nMaxSize)
+                                       .append ("expireAfterWriteNanos", m_nExpireAfterWriteNanos)
+                                       .append ("expireAfterAccessNanos", m_nExpireAfterAccessNanos)
+                                       .append ("refreshAfterWriteNanos", m_nRefreshAfterWriteNanos)
+                                       .append ("content", m_aCache)
+                                       .toString ();
+  }
+}
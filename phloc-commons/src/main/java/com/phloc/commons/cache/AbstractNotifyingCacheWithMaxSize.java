@@ -21,15 +21,21 @@ import java.util.Map;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.OverrideOnDemand;
+import com.phloc.commons.collections.IEvictionPolicy;
+import com.phloc.commons.collections.WTinyLFUEvictionPolicy;
 import com.phloc.commons.string.ToStringGenerator;
 
 /**
  * A caching class that has the ability to fill itself with the abstract
  * getValueToCache(Object) method and has an upper limit of elements that can
- * reside in the cache.
+ * reside in the cache. By default the least recently used elements are
+ * evicted - override {@link #createEvictionPolicy()} to use a different
+ * strategy like {@link WTinyLFUEvictionPolicy}.
  * 
  * @author Philip Helger
  * @param <KEYTYPE>
@@ -58,6 +64,20 @@ public abstract class AbstractNotifyingCacheWithMaxSize <KEYTYPE, VALUETYPE> ext
     return m_nMaxSize;
   }
 
+  /**
+   * Create the eviction policy to be used for the cache. This method is called
+   * only once when the underlying map is created.
+   * 
+   * @return The eviction policy to use. May be <code>null</code> to evict the
+   *         least recently used elements.
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected IEvictionPolicy <KEYTYPE> createEvictionPolicy ()
+  {
+    return null;
+  }
+
   /**
    * @return A special map to hold the cache objects with a maximum size. Never
    *         <code>null</code>.
@@ -66,7 +86,7 @@ public abstract class AbstractNotifyingCacheWithMaxSize <KEYTYPE, VALUETYPE> ext
   @Nonnull
   protected final Map <KEYTYPE, VALUETYPE> createCache ()
   {
-    return new LoggingLRUCache <KEYTYPE, VALUETYPE> (getName (), m_nMaxSize);
+    return new LoggingLRUCache <KEYTYPE, VALUETYPE> (getName (), m_nMaxSize, createEvictionPolicy ());
   }
 
   @Override
@@ -0,0 +1,220 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.cache;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.concurrent.IExecutorServiceFactory;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * Settings for time based expiry and refresh of the values of an
+ * {@link AbstractConcurrentNotifyingCache}. All durations are disabled by
+ * default.
+ * <ul>
+ * <li>Expire after write: a value is removed after the given duration since it
+ * was computed.</li>
+ * <li>Expire after access: a value is removed after the given duration since
+ * it was last read.</li>
+ * <li>Refresh after write: a value that is older than the given duration is
+ * still returned, but a new value is computed asynchronously in the
+ * background. This requires an {@link IExecutorServiceFactory}.</li>
+ * </ul>
+ * 
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public class CacheExpirySettings
+{
+  /** The default tick duration of the expiry timer wheel */
+  public static final long DEFAULT_TICK_MILLIS = 1000;
+
+  private long m_nExpireAfterWriteNanos = 0;
+  private long m_nExpireAfterAccessNanos = 0;
+  private long m_nRefreshAfterWriteNanos = 0;
+  private IExecutorServiceFactory m_aRefreshExecutorServiceFactory;
+  private long m_nTickNanos = TimeUnit.MILLISECONDS.toNanos (DEFAULT_TICK_MILLIS);
+
+  public CacheExpirySettings ()
+  {}
+
+  /**
+   * Expire values a fixed duration after they were computed.
+   * 
+   * @param nDuration
+   *        The duration. Pass 0 to disable. Must be &ge; 0.
+   * @param eUnit
+   *        The time unit of the duration. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public final CacheExpirySettings setExpireAfterWrite (@Nonnegative final long nDuration,
+                                                        @Nonnull final TimeUnit eUnit)
+  {
+    ValueEnforcer.isGE0 (nDuration, "Duration");
+    ValueEnforcer.notNull (eUnit, "Unit");
+    m_nExpireAfterWriteNanos = eUnit.toNanos (nDuration);
+    return this;
+  }
+
+  /**
+   * @return The expire after write duration in nano seconds. 0 if disabled.
+   */
+  @Nonnegative
+  public long getExpireAfterWriteNanos ()
+  {
+    return m_nExpireAfterWriteNanos;
+  }
+
+  /**
+   * Expire values a fixed duration after they were last read.
+   * 
+   * @param nDuration
+   *        The duration. Pass 0 to disable. Must be &ge; 0.
+   * @param eUnit
+   *        The time unit of the duration. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public final CacheExpirySettings setExpireAfterAccess (@Nonnegative final long nDuration,
+                                                         @Nonnull final TimeUnit eUnit)
+  {
+    ValueEnforcer.isGE0 (nDuration, "Duration");
+    ValueEnforcer.notNull (eUnit, "Unit");
+    m_nExpireAfterAccessNanos = eUnit.toNanos (nDuration);
+    return this;
+  }
+
+  /**
+   * @return The expire after access duration in nano seconds. 0 if disabled.
+   */
+  @Nonnegative
+  public long getExpireAfterAccessNanos ()
+  {
+    return m_nExpireAfterAccessNanos;
+  }
+
+  /**
+   * @return <code>true</code> if any kind of expiry is enabled.
+   */
+  public boolean isExpiryEnabled ()
+  {
+    return m_nExpireAfterWriteNanos > 0 || m_nExpireAfterAccessNanos > 0;
+  }
+
+  /**
+   * Asynchronously refresh values a fixed duration after they were computed.
+   * Until the new value is available, the old value is returned.
+   * 
+   * @param nDuration
+   *        The duration. Pass 0 to disable. Must be &ge; 0.
+   * @param eUnit
+   *        The time unit of the duration. May not be <code>null</code>.
+   * @param aExecutorServiceFactory
+   *        The factory for the executor service that performs the refresh. It
+   *        is called once with a single parallel task. May be <code>null</code>
+   *        only if the duration is 0.
+   * @return this
+   */
+  @Nonnull
+  public final CacheExpirySettings setRefreshAfterWrite (@Nonnegative final long nDuration,
+                                                         @Nonnull final TimeUnit eUnit,
+                                                         @Nullable final IExecutorServiceFactory aExecutorServiceFactory)
+  {
+    ValueEnforcer.isGE0 (nDuration, "Duration");
+    ValueEnforcer.notNull (eUnit, "Unit");
+    if (nDuration > 0)
+      ValueEnforcer.notNull (aExecutorServiceFactory, "ExecutorServiceFactory");
+    m_nRefreshAfterWriteNanos = eUnit.toNanos (nDuration);
+    m_aRefreshExecutorServiceFactory = aExecutorServiceFactory;
+    return this;
+  }
+
+  /**
+   * @return The refresh after write duration in nano seconds. 0 if disabled.
+   */
+  @Nonnegative
+  public long getRefreshAfterWriteNanos ()
+  {
+    return m_nRefreshAfterWriteNanos;
+  }
+
+  /**
+   * @return The executor service factory used for refreshing. May be
+   *         <code>null</code>.
+   */
+  @Nullable
+  public IExecutorServiceFactory getRefreshExecutorServiceFactory ()
+  {
+    return m_aRefreshExecutorServiceFactory;
+  }
+
+  /**
+   * @return <code>true</code> if asynchronous refresh is enabled.
+   */
+  public boolean isRefreshEnabled ()
+  {
+    return m_nRefreshAfterWriteNanos > 0;
+  }
+
+  /**
+   * Set the resolution of the timer wheel that removes expired values. Values
+   * are removed at most one tick after they expired.
+   * 
+   * @param nDuration
+   *        The tick duration. Must be &gt; 0.
+   * @param eUnit
+   *        The time unit of the duration. May not be <code>null</code>.
+   * @return this
+   */
+  @Nonnull
+  public final CacheExpirySettings setTick (@Nonnegative final long nDuration, @Nonnull final TimeUnit eUnit)
+  {
+    ValueEnforcer.isGT0 (nDuration, "Duration");
+    ValueEnforcer.notNull (eUnit, "Unit");
+    m_nTickNanos = eUnit.toNanos (nDuration);
+    return this;
+  }
+
+  /**
+   * @return The tick duration of the timer wheel in nano seconds. Always &gt;
+   *         0.
+   */
+  @Nonnegative
+  public long getTickNanos ()
+  {
+    return m_nTickNanos;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("expireAfterWriteNanos", m_nExpireAfterWriteNanos)
+                                       .append ("expireAfterAccessNanos", m_nExpireAfterAccessNanos)
+                                       .append ("refreshAfterWriteNanos", m_nRefreshAfterWriteNanos)
+                                       .append ("refreshExecutorServiceFactory", m_aRefreshExecutorServiceFactory)
+                                       .append ("tickNanos", m_nTickNanos)
+                                       .toString ();
+  }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.cache;
+
+/**
+ * Defines how the values of a cache are referenced and therefore whether they
+ * may be reclaimed by the garbage collector while being cached.
+ * 
+ * @author Philip Helger
+ */
+public enum ECacheValueReference
+{
+  /** The values are strongly referenced and never garbage collected */
+  STRONG,
+  /**
+   * The values are softly referenced and may be garbage collected if memory
+   * is low
+   */
+  SOFT,
+  /**
+   * The values are weakly referenced and may be garbage collected as soon as
+   * they are no longer referenced elsewhere
+   */
+  WEAK
+}
@@ -21,6 +21,7 @@ import java.util.Map;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import org.slf4j.Logger;
@@ -28,6 +29,7 @@ import org.slf4j.LoggerFactory;
 
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.collections.IEvictionPolicy;
 import com.phloc.commons.collections.LRUCache;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.string.ToStringGenerator;
@@ -50,7 +52,14 @@ public final class LoggingLRUCache <KEYTYPE, VALUETYPE> extends LRUCache <KEYTYP
 
   public LoggingLRUCache (@Nonnull @Nonempty final String sCacheName, @Nonnegative final int nMaxSize)
   {
-    super (nMaxSize);
+    this (sCacheName, nMaxSize, null);
+  }
+
+  public LoggingLRUCache (@Nonnull @Nonempty final String sCacheName,
+                          @Nonnegative final int nMaxSize,
+                          @Nullable final IEvictionPolicy <KEYTYPE> aEvictionPolicy)
+  {
+    super (nMaxSize, aEvictionPolicy);
     m_sCacheName = ValueEnforcer.notEmpty (sCacheName, "CacheName");
   }
 
@@ -25,15 +25,15 @@ import com.phloc.commons.state.EChange;
 
 /**
  * Implementation of the {@link SimpleCacheMBean} interface. Is a wrapper around
- * an {@link AbstractCache}.
+ * an {@link ISimpleCache}.
  * 
  * @author Philip Helger
  */
 final class SimpleCache implements SimpleCacheMBean
 {
-  private final AbstractCache <?, ?> m_aCache;
+  private final ISimpleCache <?, ?> m_aCache;
 
-  public SimpleCache (@Nonnull final AbstractCache <?, ?> aCache)
+  public SimpleCache (@Nonnull final ISimpleCache <?, ?> aCache)
   {
     m_aCache = ValueEnforcer.notNull (aCache, "Cache");
   }
@@ -0,0 +1,345 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.cache;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.VisibleForTesting;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+
+/**
+ * A hashed timer wheel. Elements are scheduled with a deadline into one of a
+ * fixed number of buckets, each covering one tick. Advancing the wheel only
+ * visits the buckets of the ticks that passed, so scheduling and expiring are
+ * O(1) per element independent of the number of elements. Elements whose
+ * deadline is more than one rotation away stay in their bucket until the
+ * respective round is reached.
+ * <p>
+ * Scheduling is lock free. Advancing is done by at most one thread at a time -
+ * concurrent calls simply return. An element that is scheduled into a bucket
+ * while the advancing thread passes that bucket is additionally put into an
+ * overdue queue that is processed by the next advance, so that it is not
+ * delayed by a complete rotation. The callback is invoked at most once per
+ * scheduled element.
+ * <p>
+ * A scheduled element can be cancelled via the handle returned by
+ * {@link #schedule(Object, long)}. Cancelling releases the element
+ * immediately. The handles of cancelled elements are purged from the buckets
+ * as soon as they outnumber the scheduled elements, so that the wheel does not
+ * grow with elements that are removed long before their deadline.
+ * 
+ * @author Philip Helger
+ * @param <ELEMENTTYPE>
+ *        The element type
+ */
+@ThreadSafe
+final class TimerWheel <ELEMENTTYPE>
+{
+  /**
+   * The handle of a scheduled element.
+   * 
+   * @param <ELEMENTTYPE>
+   *        The element type
+   */
+  static final class Timeout <ELEMENTTYPE>
+  {
+    @SuppressWarnings ("rawtypes")
+    private static final AtomicIntegerFieldUpdater <Timeout> s_aDone = AtomicIntegerFieldUpdater.newUpdater (Timeout.class,
+                                                                                                          "m_nDone");
+
+    // Reset upon cancellation, so that the element can be garbage collected
+    private volatile ELEMENTTYPE m_aElement;
+    private final long m_nDeadlineNanos;
+    private volatile int m_nDone = 0;
+
+    Timeout (@Nonnull final ELEMENTTYPE aElement, final long nDeadlineNanos)
+    {
+      m_aElement = aElement;
+      m_nDeadlineNanos = nDeadlineNanos;
+    }
+
+    /**
+     * @return <code>true</code> if this timeout was neither expired nor
+     *         cancelled before. Only the first invocation returns
+     *         <code>true</code>.
+     */
+    boolean markDone ()
+    {
+      return s_aDone.compareAndSet (this, 0, 1);
+    }
+
+    boolean isDone ()
+    {
+      return m_nDone != 0;
+    }
+  }
+
+  /** The minimum number of cancelled elements that triggers a purge */
+  private static final int MIN_PURGE_THRESHOLD = 64;
+
+  private final long m_nTickNanos;
+  private final Queue <Timeout <ELEMENTTYPE>> [] m_aBuckets;
+  /** Elements that are already due or may have been missed by an advance */
+  private final Queue <Timeout <ELEMENTTYPE>> m_aOverdue = new ConcurrentLinkedQueue <Timeout <ELEMENTTYPE>> ();
+  private final int m_nBucketMask;
+  private final Lock m_aAdvanceLock = new ReentrantLock ();
+  private final long m_nStartNanos;
+  /**
+   * The next tick to be processed - relative to the start time. It is
+   * increased before the bucket of a tick is processed.
+   */
+  private volatile long m_nNextTick = 0;
+  /** The number of scheduled elements that are neither expired nor cancelled */
+  private final AtomicInteger m_aScheduledCount = new AtomicInteger (0);
+  /** The number of cancelled elements since the last purge */
+  private final AtomicInteger m_aCancelledCount = new AtomicInteger (0);
+
+  TimerWheel (@Nonnegative final long nTickNanos, @Nonnegative final int nBucketCount, final long nStartNanos)
+  {
+    ValueEnforcer.isGT0 (nTickNanos, "TickNanos");
+    ValueEnforcer.isGT0 (nBucketCount, "BucketCount");
+    m_nTickNanos = nTickNanos;
+    // Bucket count must be a power of 2
+    final int nRealBucketCount = Math.max (Integer.highestOneBit (nBucketCount - 1) << 1, 1);
+    @SuppressWarnings ("unchecked")
+    final Queue <Timeout <ELEMENTTYPE>> [] aBuckets = (Queue <Timeout <ELEMENTTYPE>> []) new Queue <?> [nRealBucketCount];
+    for (int i = 0; i < aBuckets.length; ++i)
+      aBuckets[i] = new ConcurrentLinkedQueue <Timeout <ELEMENTTYPE>> ();
+    m_aBuckets = aBuckets;
+    m_nBucketMask = aBuckets.length - 1;
+    m_nStartNanos = nStartNanos;
+  }
+
+  private long _getTick (final long nNanos)
+  {
+    return (nNanos - m_nStartNanos) / m_nTickNanos;
+  }
+
+  /**
+   * Schedule an element.
+   * 
+   * @param aElement
+   *        The element to schedule. May not be <code>null</code>.
+   * @param nDeadlineNanos
+   *        The absolute deadline in nano seconds, based on the same time source
+   *        as the start time.
+   * @return The handle to cancel the scheduled element. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  Timeout <ELEMENTTYPE> schedule (@Nonnull final ELEMENTTYPE aElement, final long nDeadlineNanos)
+  {
+    final Timeout <ELEMENTTYPE> aTimeout = new Timeout <ELEMENTTYPE> (aElement, nDeadlineNanos);
+    m_aScheduledCount.incrementAndGet ();
+    final long nTick = _getTick (nDeadlineNanos);
+    if (nTick < m_nNextTick)
+    {
+      // Elements with a deadline in the past are handled with the next advance
+      m_aOverdue.offer (aTimeout);
+      return aTimeout;
+    }
+
+    m_aBuckets[(int) (nTick & m_nBucketMask)].offer (aTimeout);
+    // If an advance processed the bucket concurrently, the element may have
+    // been missed - so handle it with the next advance as well
+    if (nTick < m_nNextTick)
+      m_aOverdue.offer (aTimeout);
+    return aTimeout;
+  }
+
+  /**
+   * Cancel a scheduled element. The callback is not invoked for it.
+   * 
+   * @param aTimeout
+   *        The handle returned by {@link #schedule(Object, long)}. May not be
+   *        <code>null</code>.
+   * @return <code>true</code> if the element was cancelled,
+   *         <code>false</code> if it was already expired or cancelled.
+   */
+  boolean cancel (@Nonnull final Timeout <ELEMENTTYPE> aTimeout)
+  {
+    if (!aTimeout.markDone ())
+      return false;
+    aTimeout.m_aElement = null;
+    m_aScheduledCount.decrementAndGet ();
+    if (m_aCancelledCount.incrementAndGet () > Math.max (m_aScheduledCount.get (), MIN_PURGE_THRESHOLD) &&
+        m_aAdvanceLock.tryLock ())
+    {
+      try
+      {
+        _purgeCancelled ();
+      }
+      finally
+      {
+        m_aAdvanceLock.unlock ();
+      }
+    }
+    return true;
+  }
+
+  private static <ELEMENTTYPE> void _purgeCancelled (@Nonnull final Queue <Timeout <ELEMENTTYPE>> aQueue)
+  {
+    final Iterator <Timeout <ELEMENTTYPE>> it = aQueue.iterator ();
+    while (it.hasNext ())
+      if (it.next ().isDone ())
+        it.remove ();
+  }
+
+  /**
+   * Remove the handles of all cancelled elements from the buckets. The costs
+   * are linear to the number of handles, but the purge only happens after at
+   * least as many elements were cancelled.
+   */
+  private void _purgeCancelled ()
+  {
+    m_aCancelledCount.set (0);
+    for (final Queue <Timeout <ELEMENTTYPE>> aBucket : m_aBuckets)
+      _purgeCancelled (aBucket);
+    _purgeCancelled (m_aOverdue);
+  }
+
+  private int _processBucket (@Nonnull final Queue <Timeout <ELEMENTTYPE>> aBucket,
+                              final long nNowNanos,
+                              @Nonnull final List <Timeout <ELEMENTTYPE>> aLater,
+                              @Nonnull final INonThrowingRunnableWithParameter <ELEMENTTYPE> aCallback)
+  {
+    int ret = 0;
+    Timeout <ELEMENTTYPE> aTimeout;
+    while ((aTimeout = aBucket.poll ()) != null)
+    {
+      if (aTimeout.isDone ())
+      {
+        // Cancelled or already expired via the overdue queue
+        continue;
+      }
+      if (aTimeout.m_nDeadlineNanos <= nNowNanos)
+      {
+        final ELEMENTTYPE aElement = aTimeout.m_aElement;
+        if (aTimeout.markDone ())
+        {
+          m_aScheduledCount.decrementAndGet ();
+          aCallback.run (aElement);
+          ++ret;
+        }
+      }
+      else
+        aLater.add (aTimeout);
+    }
+    return ret;
+  }
+
+  /**
+   * @param nNowNanos
+   *        The current time in nano seconds.
+   * @return <code>true</code> if at least one more tick is completely in the
+   *         past since the last advance.
+   */
+  boolean isAdvanceNeeded (final long nNowNanos)
+  {
+    return _getTick (nNowNanos) > m_nNextTick;
+  }
+
+  private void _reschedule (@Nonnull final Timeout <ELEMENTTYPE> aTimeout)
+  {
+    // Deadline is in the future and therefore not before the next tick
+    final long nTick = Math.max (_getTick (aTimeout.m_nDeadlineNanos), m_nNextTick);
+    m_aBuckets[(int) (nTick & m_nBucketMask)].offer (aTimeout);
+  }
+
+  /**
+   * Process all buckets of the ticks that are completely in the past. For all
+   * elements with a deadline &le; the current time the callback is invoked.
+   * Therefore elements are expired at most one tick late.
+   * 
+   * @param nNowNanos
+   *        The current time in nano seconds.
+   * @param aCallback
+   *        The callback to invoke for each expired element. May not be
+   *        <code>null</code>.
+   * @return The number of expired elements.
+   */
+  @Nonnegative
+  int advance (final long nNowNanos, @Nonnull final INonThrowingRunnableWithParameter <ELEMENTTYPE> aCallback)
+  {
+    if (!m_aAdvanceLock.tryLock ())
+    {
+      // Another thread is already advancing
+      return 0;
+    }
+
+    int ret = 0;
+    try
+    {
+      final long nNowTick = _getTick (nNowNanos);
+      final List <Timeout <ELEMENTTYPE>> aLater = new ArrayList <Timeout <ELEMENTTYPE>> ();
+
+      // After one rotation all buckets were visited
+      final long nFirstTick = Math.max (m_nNextTick, nNowTick - m_nBucketMask);
+      for (long nTick = nFirstTick; nTick < nNowTick; ++nTick)
+      {
+        // Publish the progress before the bucket is processed, so that
+        // concurrent schedule calls notice that they may be too late
+        m_nNextTick = nTick + 1;
+        final Queue <Timeout <ELEMENTTYPE>> aBucket = m_aBuckets[(int) (nTick & m_nBucketMask)];
+        ret += _processBucket (aBucket, nNowNanos, aLater, aCallback);
+        // Put back the elements for a later round
+        for (final Timeout <ELEMENTTYPE> aLaterTimeout : aLater)
+          aBucket.offer (aLaterTimeout);
+        aLater.clear ();
+      }
+
+      // Handle all elements that were scheduled too late
+      ret += _processBucket (m_aOverdue, nNowNanos, aLater, aCallback);
+      for (final Timeout <ELEMENTTYPE> aLaterTimeout : aLater)
+        _reschedule (aLaterTimeout);
+    }
+    finally
+    {
+      m_aAdvanceLock.unlock ();
+    }
+    return ret;
+  }
+
+  /**
+   * @return The number of handles currently held by the wheel, including the
+   *         handles of cancelled elements that were not yet purged. Expensive -
+   *         for testing only.
+   */
+  @VisibleForTesting
+  @Nonnegative
+  int getHandleCount ()
+  {
+    int ret = m_aOverdue.size ();
+    for (final Queue <Timeout <ELEMENTTYPE>> aBucket : m_aBuckets)
+      ret += aBucket.size ();
+    return ret;
+  }
+}
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.collections;
+
+import java.util.Arrays;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+
+/**
+ * A count-min sketch that estimates the access frequency of objects with 4
+ * bit counters. 16 counters are packed into a single long. Every object is
+ * mapped onto 4 counters and the minimum of them is the estimated frequency.
+ * To keep the sketch adaptive, all counters are halved after a certain number
+ * of increments ("aging").
+ * 
+ * @author Philip Helger
+ */
+@NotThreadSafe
+final class FrequencySketch
+{
+  /** The maximum value of a single counter */
+  static final int MAX_FREQUENCY = 15;
+
+  private static final long [] SEEDS = { 0xc3a5c85c97cb3127L,
+                                        0xb492b66fbe98f273L,
+                                        0x9ae16a3b2f90404fL,
+                                        0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+
+  private final long [] m_aTable;
+  private final int m_nTableMask;
+  private final int m_nSampleSize;
+  private int m_nSize;
+
+  /**
+   * Constructor
+   * 
+   * @param nMaxElements
+   *        The maximum number of elements in the cache using this sketch. Must
+   *        be &ge; 0.
+   */
+  FrequencySketch (@Nonnegative final int nMaxElements)
+  {
+    ValueEnforcer.isGE0 (nMaxElements, "MaxElements");
+    // Table length must be a power of 2
+    final int nTableLength = Integer.highestOneBit (Math.max (Math.min (nMaxElements, 1 << 30) - 1, 8)) << 1;
+    m_aTable = new long [nTableLength];
+    m_nTableMask = nTableLength - 1;
+    // Age after 10 times the number of elements
+    final long nSampleSize = 10L * Math.max (nMaxElements, 1);
+    m_nSampleSize = (int) Math.min (nSampleSize, Integer.MAX_VALUE);
+  }
+
+  private static long _hash (final int nItem, final int nIndex)
+  {
+    long h = (nItem + SEEDS[nIndex]) * SEEDS[nIndex];
+    h += h >>> 32;
+    return h;
+  }
+
+  private static int _spread (@Nullable final Object aObj)
+  {
+    int h = aObj == null ? 0 : aObj.hashCode ();
+    h = ((h >>> 16) ^ h) * 0x45d9f3b;
+    h = ((h >>> 16) ^ h) * 0x45d9f3b;
+    return (h >>> 16) ^ h;
+  }
+
+  /**
+   * Increment the frequency of the passed object.
+   * 
+   * @param aObj
+   *        The object to be incremented. May be <code>null</code>.
+   */
+  void increment (@Nullable final Object aObj)
+  {
+    final int nItem = _spread (aObj);
+    boolean bAdded = false;
+    for (int i = 0; i < 4; ++i)
+    {
+      final long h = _hash (nItem, i);
+      final int nIndex = (int) h & m_nTableMask;
+      final int nOffset = ((int) (h >>> 48) & 15) << 2;
+      final long nMask = 0xfL << nOffset;
+      if ((m_aTable[nIndex] & nMask) != nMask)
+      {
+        m_aTable[nIndex] += 1L << nOffset;
+        bAdded = true;
+      }
+    }
+    if (bAdded && ++m_nSize >= m_nSampleSize)
+      _reset ();
+  }
+
+  /**
+   * Halve all counters.
+   */
+  private void _reset ()
+  {
+    for (int i = 0; i < m_aTable.length; ++i)
+      m_aTable[i] = (m_aTable[i] >>> 1) & RESET_MASK;
+    m_nSize /= 2;
+  }
+
+  /**
+   * Get the estimated frequency of the passed object.
+   * 
+   * @param aObj
+   *        The object to check. May be <code>null</code>.
+   * @return The estimated frequency in the range 0 to {@link #MAX_FREQUENCY}.
+   */
+  @Nonnegative
+  int getFrequency (@Nullable final Object aObj)
+  {
+    final int nItem = _spread (aObj);
+    int ret = MAX_FREQUENCY;
+    for (int i = 0; i < 4; ++i)
+    {
+      final long h = _hash (nItem, i);
+      final int nIndex = (int) h & m_nTableMask;
+      final int nOffset = ((int) (h >>> 48) & 15) << 2;
+      ret = Math.min (ret, (int) ((m_aTable[nIndex] >>> nOffset) & 0xfL));
+    }
+    return ret;
+  }
+
+  /**
+   * Reset all counters to 0.
+   */
+  void clear ()
+  {
+    Arrays.fill (m_aTable, 0L);
+    m_nSize = 0;
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.collections;
+
+import javax.annotation.Nullable;
+
+/**
+ * Base interface for a size based eviction policy as used by {@link LRUCache}.
+ * The policy only tracks the keys of a map - the map itself is responsible
+ * for storing the values and for notifying the policy about all changes.
+ * 
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        Key type
+ */
+public interface IEvictionPolicy <KEYTYPE>
+{
+  /**
+   * Called after a new key was added to the map.
+   * 
+   * @param aKey
+   *        The added key. May be <code>null</code>.
+   */
+  void onInsert (@Nullable KEYTYPE aKey);
+
+  /**
+   * Called after an existing key was read or updated.
+   * 
+   * @param aKey
+   *        The accessed key. May be <code>null</code>.
+   */
+  void onAccess (@Nullable KEYTYPE aKey);
+
+  /**
+   * Called after a key was explicitly removed from the map.
+   * 
+   * @param aKey
+   *        The removed key. May be <code>null</code>.
+   */
+  void onRemove (@Nullable KEYTYPE aKey);
+
+  /**
+   * Called after the map was cleared.
+   */
+  void onClear ();
+
+  /**
+   * Called by the map if it contains more elements than allowed. The returned
+   * key is no longer tracked by the policy and must be removed from the map by
+   * the caller.
+   * 
+   * @return The key to be evicted. May be the key that was just inserted.
+   */
+  @Nullable
+  KEYTYPE getVictim ();
+
+  /**
+   * @return The number of keys currently tracked by this policy.
+   */
+  int getTrackedKeyCount ();
+}
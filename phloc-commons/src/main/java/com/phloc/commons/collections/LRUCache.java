@@ -22,6 +22,7 @@ import java.util.Map;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import com.phloc.commons.IHasSize;
@@ -34,6 +35,13 @@ import com.phloc.commons.string.ToStringGenerator;
 /**
  * A special ordered map, that has an upper limit of contained elements. It is
  * therefore a "Last Recently Used" cache.
+ * <p>
+ * Optionally a different {@link IEvictionPolicy} (e.g.
+ * {@link WTinyLFUEvictionPolicy}) can be provided that decides which element
+ * to evict. In that case the policy is informed by {@link #get(Object)},
+ * {@link #put(Object, Object)}, {@link #putAll(Map)}, {@link #remove(Object)}
+ * and {@link #clear()}. Modifications through other methods or through the
+ * views of this map are not tracked by the policy.
  * 
  * @author Philip Helger
  * @param <KEYTYPE>
@@ -49,6 +57,7 @@ public class LRUCache <KEYTYPE, VALUETYPE> extends LinkedHashMap <KEYTYPE, VALUE
   private static final float DEFAULT_LOAD_FACTOR = 0.75f;
 
   private final int m_nMaxSize;
+  private final IEvictionPolicy <KEYTYPE> m_aEvictionPolicy;
 
   /**
    * Create a new object with the specified max size.
@@ -57,10 +66,25 @@ public class LRUCache <KEYTYPE, VALUETYPE> extends LinkedHashMap <KEYTYPE, VALUE
    *        The maximum number of elements in this cache. May not be &lt; 0.
    */
   public LRUCache (@Nonnegative final int nMaxSize)
+  {
+    this (nMaxSize, null);
+  }
+
+  /**
+   * Create a new object with the specified max size and eviction policy.
+   * 
+   * @param nMaxSize
+   *        The maximum number of elements in this cache. May not be &lt; 0.
+   * @param aEvictionPolicy
+   *        The eviction policy to use. May be <code>null</code> to use the
+   *        default LRU order. The policy may not be shared between maps.
+   */
+  public LRUCache (@Nonnegative final int nMaxSize, @Nullable final IEvictionPolicy <KEYTYPE> aEvictionPolicy)
   {
     // We need the special constructor with access ordering!
     super (nMaxSize, DEFAULT_LOAD_FACTOR, true);
     m_nMaxSize = nMaxSize;
+    m_aEvictionPolicy = aEvictionPolicy;
   }
 
   /**
@@ -73,6 +97,16 @@ public class LRUCache <KEYTYPE, VALUETYPE> extends LinkedHashMap <KEYTYPE, VALUE
     return m_nMaxSize;
   }
 
+  /**
+   * @return The custom eviction policy used. May be <code>null</code> if the
+   *         default LRU order is used.
+   */
+  @Nullable
+  public final IEvictionPolicy <KEYTYPE> getEvictionPolicy ()
+  {
+    return m_aEvictionPolicy;
+  }
+
   /**
    * Protected method that is invoked every time the oldest entry is removed.
    * 
@@ -86,6 +120,12 @@ public class LRUCache <KEYTYPE, VALUETYPE> extends LinkedHashMap <KEYTYPE, VALUE
   @Override
   protected final boolean removeEldestEntry (@Nonnull final Map.Entry <KEYTYPE, VALUETYPE> aEldest)
   {
+    if (m_aEvictionPolicy != null)
+    {
+      // Handled in put
+      return false;
+    }
+
     if (size () <= m_nMaxSize)
     {
       // No need to remove anything
@@ -97,6 +137,80 @@ public class LRUCache <KEYTYPE, VALUETYPE> extends LinkedHashMap <KEYTYPE, VALUE
     return true;
   }
 
+  @SuppressWarnings ("unchecked")
+  @Override
+  public VALUETYPE get (final Object aKey)
+  {
+    final VALUETYPE aValue = super.get (aKey);
+    if (m_aEvictionPolicy != null && (aValue != null || containsKey (aKey)))
+      m_aEvictionPolicy.onAccess ((KEYTYPE) aKey);
+    return aValue;
+  }
+
+  private void _evictByPolicy ()
+  {
+    while (size () > m_nMaxSize)
+    {
+      final KEYTYPE aVictim = m_aEvictionPolicy.getVictim ();
+      if (aVictim == null)
+        break;
+      if (containsKey (aVictim))
+      {
+        // Invoke protected method
+        onRemoveEldestEntry (new SingleMapEntry <KEYTYPE, VALUETYPE> (aVictim, super.get (aVictim)));
+        super.remove (aVictim);
+      }
+    }
+  }
+
+  @Override
+  public VALUETYPE put (final KEYTYPE aKey, final VALUETYPE aValue)
+  {
+    if (m_aEvictionPolicy == null)
+      return super.put (aKey, aValue);
+
+    final boolean bIsNew = !containsKey (aKey);
+    final VALUETYPE aOldValue = super.put (aKey, aValue);
+    if (bIsNew)
+    {
+      m_aEvictionPolicy.onInsert (aKey);
+      _evictByPolicy ();
+    }
+    else
+      m_aEvictionPolicy.onAccess (aKey);
+    return aOldValue;
+  }
+
+  @Override
+  public void putAll (final Map <? extends KEYTYPE, ? extends VALUETYPE> aMap)
+  {
+    if (m_aEvictionPolicy == null)
+      super.putAll (aMap);
+    else
+      for (final Map.Entry <? extends KEYTYPE, ? extends VALUETYPE> aEntry : aMap.entrySet ())
+        put (aEntry.getKey (), aEntry.getValue ());
+  }
+
+  @SuppressWarnings ("unchecked")
+  @Override
+  public VALUETYPE remove (final Object aKey)
+  {
+    if (m_aEvictionPolicy == null || !containsKey (aKey))
+      return super.remove (aKey);
+
+    final VALUETYPE aOldValue = super.remove (aKey);
+    m_aEvictionPolicy.onRemove ((KEYTYPE) aKey);
+    return aOldValue;
+  }
+
+  @Override
+  public void clear ()
+  {
+    super.clear ();
+    if (m_aEvictionPolicy != null)
+      m_aEvictionPolicy.onClear ();
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -122,6 +236,9 @@ public class LRUCache <KEYTYPE, VALUETYPE> extends LinkedHashMap <KEYTYPE, VALUE
   @Override
   public String toString ()
   {
-    return new ToStringGenerator (this).append ("maxSize", m_nMaxSize).append ("map", super.toString ()).toString ();
+    return new ToStringGenerator (this).append ("maxSize", m_nMaxSize)
+                                       .appendIfNotNull ("evictionPolicy", m_aEvictionPolicy)
+                                       .append ("map", super.toString ())
+                                       .toString ();
   }
 }
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.collections;
+
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * An eviction policy that evicts the least recently used key. This is the
+ * same order as used by {@link LRUCache} without an explicit policy, for maps
+ * that cannot use an access ordered {@link java.util.LinkedHashMap}.
+ * <p>
+ * The methods are synchronized because caches may read concurrently.
+ * 
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        Key type
+ */
+@ThreadSafe
+public class LRUEvictionPolicy <KEYTYPE> implements IEvictionPolicy <KEYTYPE>
+{
+  // Oldest key first
+  private final LinkedHashSet <KEYTYPE> m_aKeys = new LinkedHashSet <KEYTYPE> ();
+
+  public LRUEvictionPolicy ()
+  {}
+
+  public synchronized void onInsert (@Nullable final KEYTYPE aKey)
+  {
+    m_aKeys.remove (aKey);
+    m_aKeys.add (aKey);
+  }
+
+  public synchronized void onAccess (@Nullable final KEYTYPE aKey)
+  {
+    // Untracked keys are ignored
+    if (m_aKeys.remove (aKey))
+      m_aKeys.add (aKey);
+  }
+
+  public synchronized void onRemove (@Nullable final KEYTYPE aKey)
+  {
+    m_aKeys.remove (aKey);
+  }
+
+  public synchronized void onClear ()
+  {
+    m_aKeys.clear ();
+  }
+
+  @Nullable
+  public synchronized KEYTYPE getVictim ()
+  {
+    final Iterator <KEYTYPE> it = m_aKeys.iterator ();
+    if (!it.hasNext ())
+      return null;
+    final KEYTYPE aVictim = it.next ();
+    it.remove ();
+    return aVictim;
+  }
+
+  public synchronized int getTrackedKeyCount ()
+  {
+    return m_aKeys.size ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("trackedKeys", getTrackedKeyCount ()).toString ();
+  }
+}
@@ -0,0 +1,281 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.collections;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * A frequency aware eviction policy following the W-TinyLFU design. New keys
+ * enter a small LRU "window". Keys leaving the window are only admitted to the
+ * segmented LRU "main" area if they were accessed more often than the key that
+ * would be evicted from the main area instead. Access frequencies are estimated
+ * with a count-min sketch. That way a scan of one-time keys cannot flush the
+ * frequently used keys out of the cache.
+ * <p>
+ * The main area is split in a "probation" segment for keys that were not
+ * accessed since admission and a "protected" segment for keys that were
+ * accessed at least once afterwards.
+ * <p>
+ * The methods are synchronized because caches may read concurrently.
+ * 
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        Key type
+ */
+@ThreadSafe
+public class WTinyLFUEvictionPolicy <KEYTYPE> implements IEvictionPolicy <KEYTYPE>
+{
+  /** The default percentage of the maximum size used for the window */
+  public static final int DEFAULT_WINDOW_PERCENTAGE = 1;
+  /** The percentage of the main area used for the protected segment */
+  public static final int PROTECTED_PERCENTAGE = 80;
+
+  private static enum ESegment
+  {
+    WINDOW,
+    PROBATION,
+    PROTECTED
+  }
+
+  private final int m_nMaxSize;
+  private final int m_nMaxWindow;
+  private final int m_nMaxProtected;
+  private final FrequencySketch m_aSketch;
+  private final Map <KEYTYPE, ESegment> m_aSegments = new HashMap <KEYTYPE, ESegment> ();
+  private final LinkedHashSet <KEYTYPE> m_aWindow = new LinkedHashSet <KEYTYPE> ();
+  private final LinkedHashSet <KEYTYPE> m_aProbation = new LinkedHashSet <KEYTYPE> ();
+  private final LinkedHashSet <KEYTYPE> m_aProtected = new LinkedHashSet <KEYTYPE> ();
+
+  /**
+   * Create a new policy with the default window size.
+   * 
+   * @param nMaxSize
+   *        The maximum number of elements in the cache. Must be &ge; 0.
+   */
+  public WTinyLFUEvictionPolicy (@Nonnegative final int nMaxSize)
+  {
+    this (nMaxSize, DEFAULT_WINDOW_PERCENTAGE);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param nMaxSize
+   *        The maximum number of elements in the cache. Must be &ge; 0.
+   * @param nWindowPercentage
+   *        The percentage of the maximum size used for the LRU window. Must be
+   *        between 0 and 100. A larger window favours recency, a smaller one
+   *        frequency. The window holds at least one element.
+   */
+  public WTinyLFUEvictionPolicy (@Nonnegative final int nMaxSize, @Nonnegative final int nWindowPercentage)
+  {
+    ValueEnforcer.isGE0 (nMaxSize, "MaxSize");
+    ValueEnforcer.isBetweenInclusive (nWindowPercentage, "WindowPercentage", 0, 100);
+    m_nMaxSize = nMaxSize;
+    m_nMaxWindow = nMaxSize == 0 ? 0 : Math.max (1, (int) ((long) nMaxSize * nWindowPercentage / 100));
+    m_nMaxProtected = (int) ((long) (nMaxSize - m_nMaxWindow) * PROTECTED_PERCENTAGE / 100);
+    m_aSketch = new FrequencySketch (nMaxSize);
+  }
+
+  /**
+   * @return The maximum number of elements as passed in the constructor.
+   */
+  @Nonnegative
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return The maximum number of elements in the window.
+   */
+  @Nonnegative
+  public final int getMaxWindowSize ()
+  {
+    return m_nMaxWindow;
+  }
+
+  @Nullable
+  private static <T> T _getFirst (@Nonnull final LinkedHashSet <T> aSet)
+  {
+    final Iterator <T> it = aSet.iterator ();
+    return it.hasNext () ? it.next () : null;
+  }
+
+  private int _getMainSize ()
+  {
+    return m_aProbation.size () + m_aProtected.size ();
+  }
+
+  private void _moveToTail (@Nonnull final LinkedHashSet <KEYTYPE> aSet, @Nullable final KEYTYPE aKey)
+  {
+    aSet.remove (aKey);
+    aSet.add (aKey);
+  }
+
+  public synchronized void onInsert (@Nullable final KEYTYPE aKey)
+  {
+    m_aSketch.increment (aKey);
+    if (m_aSegments.containsKey (aKey))
+    {
+      // Should not happen
+      _onAccessTracked (aKey);
+      return;
+    }
+
+    m_aSegments.put (aKey, ESegment.WINDOW);
+    m_aWindow.add (aKey);
+
+    // As long as the main area is not full, the window overflow is admitted
+    // without a check
+    while (m_aWindow.size () > m_nMaxWindow && _getMainSize () < m_nMaxSize - m_nMaxWindow)
+    {
+      final KEYTYPE aFirst = _getFirst (m_aWindow);
+      m_aWindow.remove (aFirst);
+      m_aProbation.add (aFirst);
+      m_aSegments.put (aFirst, ESegment.PROBATION);
+    }
+  }
+
+  private void _onAccessTracked (@Nullable final KEYTYPE aKey)
+  {
+    final ESegment eSegment = m_aSegments.get (aKey);
+    if (eSegment == null)
+      return;
+
+    switch (eSegment)
+    {
+      case WINDOW:
+        _moveToTail (m_aWindow, aKey);
+        break;
+      case PROBATION:
+        // Promote to protected
+        m_aProbation.remove (aKey);
+        m_aProtected.add (aKey);
+        m_aSegments.put (aKey, ESegment.PROTECTED);
+        // Demote the oldest protected elements
+        while (m_aProtected.size () > m_nMaxProtected)
+        {
+          final KEYTYPE aFirst = _getFirst (m_aProtected);
+          m_aProtected.remove (aFirst);
+          m_aProbation.add (aFirst);
+          m_aSegments.put (aFirst, ESegment.PROBATION);
+        }
+        break;
+      case PROTECTED:
+        _moveToTail (m_aProtected, aKey);
+        break;
+    }
+  }
+
+  public synchronized void onAccess (@Nullable final KEYTYPE aKey)
+  {
+    m_aSketch.increment (aKey);
+    _onAccessTracked (aKey);
+  }
+
+  private void _untrack (@Nullable final KEYTYPE aKey)
+  {
+    final ESegment eSegment = m_aSegments.remove (aKey);
+    if (eSegment != null)
+      switch (eSegment)
+      {
+        case WINDOW:
+          m_aWindow.remove (aKey);
+          break;
+        case PROBATION:
+          m_aProbation.remove (aKey);
+          break;
+        case PROTECTED:
+          m_aProtected.remove (aKey);
+          break;
+      }
+  }
+
+  public synchronized void onRemove (@Nullable final KEYTYPE aKey)
+  {
+    _untrack (aKey);
+  }
+
+  public synchronized void onClear ()
+  {
+    m_aSegments.clear ();
+    m_aWindow.clear ();
+    m_aProbation.clear ();
+    m_aProtected.clear ();
+    // The frequency history is kept on purpose
+  }
+
+  @Nullable
+  public synchronized KEYTYPE getVictim ()
+  {
+    if (m_aSegments.isEmpty ())
+      return null;
+
+    // The main victim is the oldest element of the probation segment
+    KEYTYPE aVictim = _getFirst (m_aProbation);
+    if (aVictim == null)
+      aVictim = _getFirst (m_aProtected);
+
+    if (m_aWindow.size () > m_nMaxWindow || aVictim == null)
+    {
+      // The candidate is the oldest element of the window
+      final KEYTYPE aCandidate = _getFirst (m_aWindow);
+      if (aVictim != null && m_aSketch.getFrequency (aCandidate) > m_aSketch.getFrequency (aVictim))
+      {
+        // Admit the candidate into the main area
+        _untrack (aVictim);
+        m_aWindow.remove (aCandidate);
+        m_aProbation.add (aCandidate);
+        m_aSegments.put (aCandidate, ESegment.PROBATION);
+        return aVictim;
+      }
+      // Reject the candidate
+      _untrack (aCandidate);
+      return aCandidate;
+    }
+
+    _untrack (aVictim);
+    return aVictim;
+  }
+
+  public synchronized int getTrackedKeyCount ()
+  {
+    return m_aSegments.size ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("maxSize", m_nMaxSize)
+                                       .append ("maxWindow", m_nMaxWindow)
+                                       .append ("maxProtected", m_nMaxProtected)
+                                       .toString ();
+  }
+}
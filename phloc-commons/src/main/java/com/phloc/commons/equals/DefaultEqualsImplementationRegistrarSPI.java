@@ -24,8 +24,10 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Enumeration;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.RandomAccess;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -131,10 +133,27 @@ public final class DefaultEqualsImplementationRegistrarSPI implements IEqualsImp
       if (aRealObj1.size () != aRealObj2.size ())
         return false;
 
-      // Content check
-      final Object [] aData1 = aRealObj1.toArray ();
-      final Object [] aData2 = aRealObj2.toArray ();
-      return EqualsImplementationRegistry.areEqual (aData1, aData2);
+      // Content check in iteration order - without copying the content
+      if (aRealObj1 instanceof List <?> &&
+          aRealObj1 instanceof RandomAccess &&
+          aRealObj2 instanceof List <?> &&
+          aRealObj2 instanceof RandomAccess)
+      {
+        final List <?> aList1 = (List <?>) aRealObj1;
+        final List <?> aList2 = (List <?>) aRealObj2;
+        final int nSize = aList1.size ();
+        for (int i = 0; i < nSize; ++i)
+          if (!EqualsImplementationRegistry.areEqual (aList1.get (i), aList2.get (i)))
+            return false;
+        return true;
+      }
+
+      final Iterator <?> aIter1 = aRealObj1.iterator ();
+      final Iterator <?> aIter2 = aRealObj2.iterator ();
+      while (aIter1.hasNext () && aIter2.hasNext ())
+        if (!EqualsImplementationRegistry.areEqual (aIter1.next (), aIter2.next ()))
+          return false;
+      return !aIter1.hasNext () && !aIter2.hasNext ();
     }
   }
 
@@ -19,7 +19,6 @@ package com.phloc.commons.equals;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -70,6 +69,17 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
   }
 
   private static final Logger s_aLogger = LoggerFactory.getLogger (EqualsImplementationRegistry.class);
+  private static final IEqualsImplementation ARRAY_IMPLEMENTATION = new ArrayEqualsImplementation ();
+
+  /** Marker in the resolved cache for "use the direct implementation" */
+  private static final IEqualsImplementation USE_DIRECT_IMPLEMENTATION = new IEqualsImplementation ()
+  {
+    public boolean areEqual (final Object aObj1, final Object aObj2)
+    {
+      throw new UnsupportedOperationException ();
+    }
+  };
+
   private static final EqualsImplementationRegistry s_aInstance = new EqualsImplementationRegistry ();
 
   private final ReadWriteLock m_aRWLock = new ReentrantReadWriteLock ();
@@ -80,8 +90,9 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
   // Cache for classes where direct implementation should be used
   private final AnnotationUsageCache m_aDirectEquals = new AnnotationUsageCache (UseDirectEqualsAndHashCode.class);
 
-  // Cache for classes that implement equals directly
-  private final Map <String, Boolean> m_aImplementsEquals = new HashMap <String, Boolean> ();
+  // Cache for the resolved best matching implementation per class. It is
+  // replaced as a whole when the registered implementations change.
+  private volatile ClassValue <IEqualsImplementation> m_aResolvedCache = _createResolvedCache ();
 
   private EqualsImplementationRegistry ()
   {
@@ -96,6 +107,20 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
     return s_aInstance;
   }
 
+  @Nonnull
+  private ClassValue <IEqualsImplementation> _createResolvedCache ()
+  {
+    return new ClassValue <IEqualsImplementation> ()
+    {
+      @Override
+      protected IEqualsImplementation computeValue (final Class <?> aClass)
+      {
+        final IEqualsImplementation aImpl = _findBestMatchingImplementation (aClass);
+        return aImpl == null ? USE_DIRECT_IMPLEMENTATION : aImpl;
+      }
+    };
+  }
+
   public void registerEqualsImplementation (@Nonnull final Class <?> aClass, @Nonnull final IEqualsImplementation aImpl)
   {
     ValueEnforcer.notNull (aClass, "Class");
@@ -109,7 +134,10 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
     {
       final IEqualsImplementation aOldImpl = m_aMap.get (aClass);
       if (aOldImpl == null)
+      {
         m_aMap.put (aClass, aImpl);
+        m_aResolvedCache = _createResolvedCache ();
+      }
       else
       {
         // Avoid the warning when the passed implementation equals the stored
@@ -135,7 +163,10 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
     m_aRWLock.writeLock ().lock ();
     try
     {
-      return EChange.valueOf (m_aMap.remove (aClass) != null);
+      if (m_aMap.remove (aClass) == null)
+        return EChange.UNCHANGED;
+      m_aResolvedCache = _createResolvedCache ();
+      return EChange.CHANGED;
     }
     finally
     {
@@ -148,137 +179,92 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
     return m_aDirectEquals.hasAnnotation (aClass);
   }
 
-  private boolean _implementsEqualsItself (@Nonnull final Class <?> aClass)
+  private static boolean _implementsEqualsItself (@Nonnull final Class <?> aClass)
   {
-    final String sClassName = aClass.getName ();
-
-    Boolean aImplementsEqualsItself;
-    m_aRWLock.readLock ().lock ();
     try
     {
-      aImplementsEqualsItself = m_aImplementsEquals.get (sClassName);
+      final Method aMethod = aClass.getDeclaredMethod ("equals", Object.class);
+      return aMethod != null && aMethod.getReturnType ().equals (boolean.class);
     }
-    finally
-    {
-      m_aRWLock.readLock ().unlock ();
-    }
-
-    if (aImplementsEqualsItself == null)
+    catch (final NoSuchMethodException ex)
     {
-      m_aRWLock.writeLock ().lock ();
-      try
-      {
-        // Try again in write lock
-        aImplementsEqualsItself = m_aImplementsEquals.get (sClassName);
-        if (aImplementsEqualsItself == null)
-        {
-          // Determine
-          boolean bRet = false;
-          try
-          {
-            final Method aMethod = aClass.getDeclaredMethod ("equals", Object.class);
-            if (aMethod != null && aMethod.getReturnType ().equals (boolean.class))
-              bRet = true;
-          }
-          catch (final NoSuchMethodException ex)
-          {
-            // ignore
-          }
-          aImplementsEqualsItself = Boolean.valueOf (bRet);
-          m_aImplementsEquals.put (sClassName, aImplementsEqualsItself);
-        }
-      }
-      finally
-      {
-        m_aRWLock.writeLock ().unlock ();
-      }
+      return false;
     }
-
-    return aImplementsEqualsItself.booleanValue ();
   }
 
+  /**
+   * Determine the best matching implementation for the passed class. This is
+   * only invoked once per class until the registered implementations change.
+   * 
+   * @param aClass
+   *        The class to be checked. May not be <code>null</code>.
+   * @return <code>null</code> if the direct implementation should be used.
+   */
   @SuppressWarnings ("null")
   @Nullable
-  public IEqualsImplementation getBestMatchingEqualsImplementation (@Nullable final Class <?> aClass)
+  private IEqualsImplementation _findBestMatchingImplementation (@Nonnull final Class <?> aClass)
   {
-    if (aClass != null)
-    {
-      IEqualsImplementation aMatchingImplementation = null;
-      Class <?> aMatchingClass = null;
+    IEqualsImplementation aMatchingImplementation = null;
+    Class <?> aMatchingClass = null;
 
-      // No check required?
-      if (_isUseDirectEquals (aClass))
-        return null;
+    // No check required?
+    if (_isUseDirectEquals (aClass))
+      return null;
 
-      m_aRWLock.readLock ().lock ();
-      try
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      // Check for an exact match first
+      aMatchingImplementation = m_aMap.get (aClass);
+      if (aMatchingImplementation != null)
+        aMatchingClass = aClass;
+      else
       {
-        // Check for an exact match first
-        aMatchingImplementation = m_aMap.get (aClass);
-        if (aMatchingImplementation != null)
-          aMatchingClass = aClass;
-        else
+        // Scan hierarchy in most efficient way
+        for (final WeakReference <Class <?>> aCurWRClass : ClassHierarchyCache.getClassHierarchyIterator (aClass))
         {
-          // Scan hierarchy in most efficient way
-          for (final WeakReference <Class <?>> aCurWRClass : ClassHierarchyCache.getClassHierarchyIterator (aClass))
+          final Class <?> aCurClass = aCurWRClass.get ();
+          if (aCurClass != null)
           {
-            final Class <?> aCurClass = aCurWRClass.get ();
-            if (aCurClass != null)
+            final IEqualsImplementation aImpl = m_aMap.get (aCurClass);
+            if (aImpl != null)
             {
-              final IEqualsImplementation aImpl = m_aMap.get (aCurClass);
-              if (aImpl != null)
-              {
-                aMatchingImplementation = aImpl;
-                aMatchingClass = aCurClass;
-                if (s_aLogger.isDebugEnabled ())
-                  s_aLogger.debug ("Found hierarchical match with class " +
-                                   aMatchingClass +
-                                   " when searching for " +
-                                   aClass);
-                break;
-              }
+              aMatchingImplementation = aImpl;
+              aMatchingClass = aCurClass;
+              if (s_aLogger.isDebugEnabled ())
+                s_aLogger.debug ("Found hierarchical match with class " +
+                                 aMatchingClass +
+                                 " when searching for " +
+                                 aClass);
+              break;
             }
           }
         }
       }
-      finally
-      {
-        m_aRWLock.readLock ().unlock ();
-      }
-
-      // Do this outside of the lock for performance reasons
-      if (aMatchingImplementation != null)
-      {
-        // If the matching implementation is for an interface and the
-        // implementation class implements equals, use the one from the class
-        // Example: a converter for "Map" is registered, but "LRUCache" comes
-        // with its own "equals" implementation
-        if (ClassHelper.isInterface (aMatchingClass) && _implementsEqualsItself (aClass))
-        {
-          // Remember to use direct implementation
-          m_aDirectEquals.setAnnotation (aClass, true);
-          return null;
-        }
-
-        if (!aMatchingClass.equals (aClass))
-        {
-          // We found a match by walking the hierarchy -> put that match in the
-          // direct hit list for further speed up
-          registerEqualsImplementation (aClass, aMatchingImplementation);
-        }
-
-        return aMatchingImplementation;
-      }
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
 
-      // Handle arrays specially, because we cannot register a converter for
-      // every potential array class (but we allow for special implementations)
-      if (ClassHelper.isArrayClass (aClass))
-        return new ArrayEqualsImplementation ();
+    // Do this outside of the lock for performance reasons
+    if (aMatchingImplementation != null)
+    {
+      // If the matching implementation is for an interface and the
+      // implementation class implements equals, use the one from the class
+      // Example: a converter for "Map" is registered, but "LRUCache" comes
+      // with its own "equals" implementation
+      if (ClassHelper.isInterface (aMatchingClass) && _implementsEqualsItself (aClass))
+        return null;
 
-      // Remember to use direct implementation
-      m_aDirectEquals.setAnnotation (aClass, true);
+      return aMatchingImplementation;
     }
 
+    // Handle arrays specially, because we cannot register a converter for
+    // every potential array class (but we allow for special implementations)
+    if (ClassHelper.isArrayClass (aClass))
+      return ARRAY_IMPLEMENTATION;
+
     // No special handler found
     if (s_aLogger.isDebugEnabled ())
       s_aLogger.debug ("Found no equals implementation for " + aClass);
@@ -287,6 +273,17 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
     return null;
   }
 
+  @Nullable
+  public IEqualsImplementation getBestMatchingEqualsImplementation (@Nullable final Class <?> aClass)
+  {
+    if (aClass == null)
+      return null;
+
+    // Lock free lookup in the resolved cache
+    final IEqualsImplementation aImpl = m_aResolvedCache.get (aClass);
+    return aImpl == USE_DIRECT_IMPLEMENTATION ? null : aImpl;
+  }
+
   public static <T> boolean areEqual (@Nullable final T aObj1, @Nullable final T aObj2)
   {
     // Same object - check first
@@ -327,5 +324,6 @@ public final class EqualsImplementationRegistry implements IEqualsImplementation
   public static void clearCache ()
   {
     s_aInstance.m_aDirectEquals.clearCache ();
+    s_aInstance.m_aResolvedCache = s_aInstance._createResolvedCache ();
   }
 }
@@ -82,10 +82,9 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final Collection <?> aRealObj = (Collection <?>) aObj;
-      HashCodeGenerator aHC = new HashCodeGenerator (aRealObj).append (aRealObj.size ());
-      for (final Object aMember : aRealObj)
-        aHC = aHC.append (aMember);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aRealObj.getClass ()),
+                                                 aRealObj.size ());
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aRealObj));
     }
   }
 
@@ -106,11 +105,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final short [] aArray = (short []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
@@ -119,11 +115,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final long [] aArray = (long []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
@@ -132,11 +125,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final int [] aArray = (int []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
@@ -145,11 +135,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final float [] aArray = (float []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
@@ -158,11 +145,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final double [] aArray = (double []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
@@ -171,11 +155,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final char [] aArray = (char []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
@@ -184,11 +165,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final byte [] aArray = (byte []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
@@ -197,11 +175,8 @@ public final class DefaultHashCodeImplementationRegistrarSPI implements IHashCod
     public int getHashCode (final Object aObj)
     {
       final boolean [] aArray = (boolean []) aObj;
-      final int nLength = aArray.length;
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj.getClass ()).append (nLength);
-      for (int i = 0; i < nLength; ++i)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
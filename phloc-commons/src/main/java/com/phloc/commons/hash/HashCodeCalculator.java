@@ -17,6 +17,11 @@
  */
 package com.phloc.commons.hash;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.RandomAccess;
+
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
 
@@ -178,4 +183,274 @@ public final class HashCodeCalculator
   {
     return append (nPrevHashCode, HashCodeImplementationRegistry.getHashCode (x));
   }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, boolean)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final boolean [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final boolean x : aArray)
+      ret = ret * MULTIPLIER + (x ? 1231 : 1237);
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, byte)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final byte [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final byte x : aArray)
+      ret = ret * MULTIPLIER + x;
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, char)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final char [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final char x : aArray)
+      ret = ret * MULTIPLIER + x;
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, double)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final double [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final double x : aArray)
+    {
+      // ESCA-JAVA0078:
+      final long nBits = x == 0.0 ? 0L : Double.doubleToLongBits (x);
+      ret = (ret * MULTIPLIER + (int) (nBits >>> CGlobal.BITS_PER_INT)) * MULTIPLIER + (int) (nBits & 0xffffffffL);
+    }
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, float)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final float [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final float x : aArray)
+      ret = ret * MULTIPLIER + (x == 0.0F ? 0 : Float.floatToIntBits (x));
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, int)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final int [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final int x : aArray)
+      ret = ret * MULTIPLIER + x;
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, long)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final long [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final long x : aArray)
+      ret = (ret * MULTIPLIER + (int) (x >>> CGlobal.BITS_PER_INT)) * MULTIPLIER + (int) (x & 0xffffffffL);
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a primitive array. The
+   * result is identical to calling {@link #append(int, short)} for each element,
+   * but the loop is kept tight and nothing is boxed.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final short [] aArray)
+  {
+    int ret = nPrevHashCode;
+    for (final short x : aArray)
+      ret = ret * MULTIPLIER + x;
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of an object array. The result
+   * is identical to calling {@link #append(int, Object)} for each element, but
+   * the hash code implementation is only resolved once for each sequence of
+   * elements of the same class.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aArray
+   *        The array whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final Object [] aArray)
+  {
+    final HashCodeImplementationRegistry aRegistry = HashCodeImplementationRegistry.getInstance ();
+    int ret = nPrevHashCode;
+    Class <?> aLastClass = null;
+    IHashCodeImplementation aLastImpl = null;
+    for (final Object x : aArray)
+    {
+      int nHC;
+      if (x == null)
+        nHC = HASHCODE_NULL;
+      else
+      {
+        final Class <?> aClass = x.getClass ();
+        if (aClass != aLastClass)
+        {
+          aLastImpl = aRegistry.getBestMatchingHashCodeImplementation (aClass);
+          aLastClass = aClass;
+        }
+        nHC = aLastImpl == null ? x.hashCode () : aLastImpl.getHashCode (x);
+      }
+      ret = ret * MULTIPLIER + nHC;
+    }
+    return ret;
+  }
+
+  /**
+   * Bulk hash code generation for all elements of a collection in iteration
+   * order. The result is identical to calling {@link #append(int, Object)} for
+   * each element. {@link List} objects implementing {@link RandomAccess} are
+   * traversed by index without creating an iterator. The hash code
+   * implementation is only resolved once for each sequence of elements of the
+   * same class.
+   * 
+   * @param nPrevHashCode
+   *        The previous hash code used as the basis for calculation
+   * @param aCollection
+   *        The collection whose elements should be added. May not be
+   *        <code>null</code>.
+   * @return The updated hash code
+   */
+  public static int appendAll (final int nPrevHashCode, @Nonnull final Collection <?> aCollection)
+  {
+    final HashCodeImplementationRegistry aRegistry = HashCodeImplementationRegistry.getInstance ();
+    int ret = nPrevHashCode;
+    Class <?> aLastClass = null;
+    IHashCodeImplementation aLastImpl = null;
+    if (aCollection instanceof List <?> && aCollection instanceof RandomAccess)
+    {
+      final List <?> aList = (List <?>) aCollection;
+      final int nSize = aList.size ();
+      for (int i = 0; i < nSize; ++i)
+      {
+        final Object x = aList.get (i);
+        int nHC;
+        if (x == null)
+          nHC = HASHCODE_NULL;
+        else
+        {
+          final Class <?> aClass = x.getClass ();
+          if (aClass != aLastClass)
+          {
+            aLastImpl = aRegistry.getBestMatchingHashCodeImplementation (aClass);
+            aLastClass = aClass;
+          }
+          nHC = aLastImpl == null ? x.hashCode () : aLastImpl.getHashCode (x);
+        }
+        ret = ret * MULTIPLIER + nHC;
+      }
+    }
+    else
+    {
+      for (final Object x : aCollection)
+      {
+        int nHC;
+        if (x == null)
+          nHC = HASHCODE_NULL;
+        else
+        {
+          final Class <?> aClass = x.getClass ();
+          if (aClass != aLastClass)
+          {
+            aLastImpl = aRegistry.getBestMatchingHashCodeImplementation (aClass);
+            aLastClass = aClass;
+          }
+          nHC = aLastImpl == null ? x.hashCode () : aLastImpl.getHashCode (x);
+        }
+        ret = ret * MULTIPLIER + nHC;
+      }
+    }
+    return ret;
+  }
 }
@@ -59,6 +59,22 @@ import com.phloc.commons.ValueEnforcer;
  * }
  * </pre>
  * 
+ * For immutable objects the calculated hash code can be cached, because
+ * {@link #getHashCode()} never returns {@link #ILLEGAL_HASHCODE}:
+ * 
+ * <pre>
+ * private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+ * 
+ * &#64;Override
+ * public int hashCode ()
+ * {
+ *   int ret = m_nHashCode;
+ *   if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+ *     ret = m_nHashCode = new HashCodeGenerator (this).append (member1).append (member2).getHashCode ();
+ *   return ret;
+ * }
+ * </pre>
+ * 
  * @author Philip Helger
  */
 @NotThreadSafe
@@ -103,18 +119,47 @@ public final class HashCodeGenerator implements IHashCodeGenerator
   {
     ValueEnforcer.notNull (aClass, "Class");
 
+    m_nHC = getInitialHashCode (aClass);
+  }
+
+  private HashCodeGenerator (final int nSuperHashCode)
+  {
+    this.m_nHC = nSuperHashCode;
+  }
+
+  /**
+   * Get the hash code a new {@link HashCodeGenerator} for the passed class
+   * starts with.
+   * 
+   * @param aClass
+   *        The class to use. May not be <code>null</code>.
+   * @return The initial hash code.
+   */
+  static int getInitialHashCode (@Nonnull final Class <?> aClass)
+  {
     // Use the class name
-    append (aClass.getName ());
+    int ret = HashCodeCalculator.append (INITIAL_HASHCODE, aClass.getName ());
 
     // Is it an array class? If so add the component class name.
     final Class <?> aComponentType = aClass.getComponentType ();
     if (aComponentType != null)
-      append (aComponentType.getName ());
+      ret = HashCodeCalculator.append (ret, aComponentType.getName ());
+    return ret;
   }
 
-  private HashCodeGenerator (final int nSuperHashCode)
+  /**
+   * Get the hash code that is returned by {@link #getHashCode()} for the
+   * passed calculated value.
+   * 
+   * @param nHC
+   *        The calculated hash code.
+   * @return Never {@link #ILLEGAL_HASHCODE}.
+   */
+  static int getFinalHashCode (final int nHC)
   {
-    this.m_nHC = nSuperHashCode;
+    // This is for the very rare case, that the calculated hash code results in
+    // an illegal value.
+    return nHC == ILLEGAL_HASHCODE ? -1 : nHC;
   }
 
   private void _checkClosed ()
@@ -529,11 +574,7 @@ public final class HashCodeGenerator implements IHashCodeGenerator
   public int getHashCode ()
   {
     this.m_bClosed = true;
-
-    // This is for the very rare case, that the calculated hash code results in
-    // an illegal value.
-    if (this.m_nHC == ILLEGAL_HASHCODE)
-      this.m_nHC = -1;
+    this.m_nHC = getFinalHashCode (this.m_nHC);
     return this.m_nHC;
   }
 
@@ -19,7 +19,6 @@ package com.phloc.commons.hash;
 
 import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.WeakHashMap;
 import java.util.concurrent.locks.ReadWriteLock;
@@ -57,16 +56,23 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     public int getHashCode (final Object aObj)
     {
       final Object [] aArray = (Object []) aObj;
-      final int nLength = aArray.length;
-
-      HashCodeGenerator aHC = new HashCodeGenerator (aObj).append (nLength);
-      for (int i = 0; i < nLength; i++)
-        aHC = aHC.append (aArray[i]);
-      return aHC.getHashCode ();
+      final int nHC = HashCodeCalculator.append (HashCodeGenerator.getInitialHashCode (aObj.getClass ()), aArray.length);
+      return HashCodeGenerator.getFinalHashCode (HashCodeCalculator.appendAll (nHC, aArray));
     }
   }
 
   private static final Logger s_aLogger = LoggerFactory.getLogger (HashCodeImplementationRegistry.class);
+  private static final IHashCodeImplementation ARRAY_IMPLEMENTATION = new ArrayHashCodeImplementation ();
+
+  /** Marker in the resolved cache for "use the direct implementation" */
+  private static final IHashCodeImplementation USE_DIRECT_IMPLEMENTATION = new IHashCodeImplementation ()
+  {
+    public int getHashCode (final Object aObj)
+    {
+      throw new UnsupportedOperationException ();
+    }
+  };
+
   private static final HashCodeImplementationRegistry s_aInstance = new HashCodeImplementationRegistry ();
 
   private final ReadWriteLock m_aRWLock = new ReentrantReadWriteLock ();
@@ -77,8 +83,9 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
   // Cache for classes where direct implementation should be used
   private final AnnotationUsageCache m_aDirectHashCode = new AnnotationUsageCache (UseDirectEqualsAndHashCode.class);
 
-  // Cache for classes that implement hashCode directly
-  private final Map <String, Boolean> m_aImplementsHashCode = new HashMap <String, Boolean> ();
+  // Cache for the resolved best matching implementation per class. It is
+  // replaced as a whole when the registered implementations change.
+  private volatile ClassValue <IHashCodeImplementation> m_aResolvedCache = _createResolvedCache ();
 
   private HashCodeImplementationRegistry ()
   {
@@ -93,6 +100,20 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     return s_aInstance;
   }
 
+  @Nonnull
+  private ClassValue <IHashCodeImplementation> _createResolvedCache ()
+  {
+    return new ClassValue <IHashCodeImplementation> ()
+    {
+      @Override
+      protected IHashCodeImplementation computeValue (final Class <?> aClass)
+      {
+        final IHashCodeImplementation aImpl = _findBestMatchingImplementation (aClass);
+        return aImpl == null ? USE_DIRECT_IMPLEMENTATION : aImpl;
+      }
+    };
+  }
+
   public void registerHashCodeImplementation (@Nonnull final Class <?> aClass,
                                               @Nonnull final IHashCodeImplementation aImpl)
   {
@@ -107,7 +128,10 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     {
       final IHashCodeImplementation aOldImpl = m_aMap.get (aClass);
       if (aOldImpl == null)
+      {
         m_aMap.put (aClass, aImpl);
+        m_aResolvedCache = _createResolvedCache ();
+      }
       else
         if (aOldImpl != aImpl)
         {
@@ -133,7 +157,10 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     m_aRWLock.writeLock ().lock ();
     try
     {
-      return EChange.valueOf (m_aMap.remove (aClass) != null);
+      if (m_aMap.remove (aClass) == null)
+        return EChange.UNCHANGED;
+      m_aResolvedCache = _createResolvedCache ();
+      return EChange.CHANGED;
     }
     finally
     {
@@ -146,136 +173,92 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     return m_aDirectHashCode.hasAnnotation (aClass);
   }
 
-  private boolean _implementsHashCodeItself (@Nonnull final Class <?> aClass)
+  private static boolean _implementsHashCodeItself (@Nonnull final Class <?> aClass)
   {
-    final String sClassName = aClass.getName ();
-
-    Boolean aImplementsHashCodeItself;
-    m_aRWLock.readLock ().lock ();
     try
     {
-      aImplementsHashCodeItself = m_aImplementsHashCode.get (sClassName);
+      final Method aMethod = aClass.getDeclaredMethod ("hashCode");
+      return aMethod != null && aMethod.getReturnType ().equals (int.class);
     }
-    finally
+    catch (final NoSuchMethodException ex)
     {
-      m_aRWLock.readLock ().unlock ();
+      return false;
     }
-
-    if (aImplementsHashCodeItself == null)
-    {
-      m_aRWLock.writeLock ().lock ();
-      try
-      {
-        // Try again in write lock
-        aImplementsHashCodeItself = m_aImplementsHashCode.get (sClassName);
-        if (aImplementsHashCodeItself == null)
-        {
-          // Determine
-          boolean bRet = false;
-          try
-          {
-            final Method aMethod = aClass.getDeclaredMethod ("hashCode");
-            if (aMethod != null && aMethod.getReturnType ().equals (int.class))
-              bRet = true;
-          }
-          catch (final NoSuchMethodException ex)
-          {
-            // ignore
-          }
-          aImplementsHashCodeItself = Boolean.valueOf (bRet);
-          m_aImplementsHashCode.put (sClassName, aImplementsHashCodeItself);
-        }
-      }
-      finally
-      {
-        m_aRWLock.writeLock ().unlock ();
-      }
-    }
-    return aImplementsHashCodeItself.booleanValue ();
   }
 
+  /**
+   * Determine the best matching implementation for the passed class. This is
+   * only invoked once per class until the registered implementations change.
+   * 
+   * @param aClass
+   *        The class to be checked. May not be <code>null</code>.
+   * @return <code>null</code> if the direct implementation should be used.
+   */
   @SuppressWarnings ("null")
   @Nullable
-  public IHashCodeImplementation getBestMatchingHashCodeImplementation (@Nullable final Class <?> aClass)
+  private IHashCodeImplementation _findBestMatchingImplementation (@Nonnull final Class <?> aClass)
   {
-    if (aClass != null)
-    {
-      IHashCodeImplementation aMatchingImplementation = null;
-      Class <?> aMatchingClass = null;
+    IHashCodeImplementation aMatchingImplementation = null;
+    Class <?> aMatchingClass = null;
 
-      // No check required?
-      if (_isUseDirectHashCode (aClass))
-        return null;
+    // No check required?
+    if (_isUseDirectHashCode (aClass))
+      return null;
 
-      m_aRWLock.readLock ().lock ();
-      try
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      // Check for an exact match first
+      aMatchingImplementation = m_aMap.get (aClass);
+      if (aMatchingImplementation != null)
+        aMatchingClass = aClass;
+      else
       {
-        // Check for an exact match first
-        aMatchingImplementation = m_aMap.get (aClass);
-        if (aMatchingImplementation != null)
-          aMatchingClass = aClass;
-        else
+        // Scan hierarchy in most efficient way
+        for (final WeakReference <Class <?>> aCurWRClass : ClassHierarchyCache.getClassHierarchyIterator (aClass))
         {
-          // Scan hierarchy in most efficient way
-          for (final WeakReference <Class <?>> aCurWRClass : ClassHierarchyCache.getClassHierarchyIterator (aClass))
+          final Class <?> aCurClass = aCurWRClass.get ();
+          if (aCurClass != null)
           {
-            final Class <?> aCurClass = aCurWRClass.get ();
-            if (aCurClass != null)
+            final IHashCodeImplementation aImpl = m_aMap.get (aCurClass);
+            if (aImpl != null)
             {
-              final IHashCodeImplementation aImpl = m_aMap.get (aCurClass);
-              if (aImpl != null)
-              {
-                aMatchingImplementation = aImpl;
-                aMatchingClass = aCurClass;
-                if (s_aLogger.isDebugEnabled ())
-                  s_aLogger.debug ("Found hierarchical match with class " +
-                                   aMatchingClass +
-                                   " when searching for " +
-                                   aClass);
-                break;
-              }
+              aMatchingImplementation = aImpl;
+              aMatchingClass = aCurClass;
+              if (s_aLogger.isDebugEnabled ())
+                s_aLogger.debug ("Found hierarchical match with class " +
+                                 aMatchingClass +
+                                 " when searching for " +
+                                 aClass);
+              break;
             }
           }
         }
       }
-      finally
-      {
-        m_aRWLock.readLock ().unlock ();
-      }
-
-      // Do this outside of the lock for performance reasons
-      if (aMatchingImplementation != null)
-      {
-        // If the matching implementation is for an interface and the
-        // implementation class implements hashCode, use the one from the class
-        // Example: a converter for "Map" is registered, but "LRUCache" comes
-        // with its own "hashCode" implementation
-        if (ClassHelper.isInterface (aMatchingClass) && _implementsHashCodeItself (aClass))
-        {
-          // Remember to use direct implementation
-          m_aDirectHashCode.setAnnotation (aClass, true);
-          return null;
-        }
-
-        if (!aMatchingClass.equals (aClass))
-        {
-          // We found a match by walking the hierarchy -> put that match in the
-          // direct hit list for further speed up
-          registerHashCodeImplementation (aClass, aMatchingImplementation);
-        }
-
-        return aMatchingImplementation;
-      }
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
 
-      // Handle arrays specially, because we cannot register a converter for
-      // every potential array class (but we allow for special implementations)
-      if (ClassHelper.isArrayClass (aClass))
-        return new ArrayHashCodeImplementation ();
+    // Do this outside of the lock for performance reasons
+    if (aMatchingImplementation != null)
+    {
+      // If the matching implementation is for an interface and the
+      // implementation class implements hashCode, use the one from the class
+      // Example: a converter for "Map" is registered, but "LRUCache" comes
+      // with its own "hashCode" implementation
+      if (ClassHelper.isInterface (aMatchingClass) && _implementsHashCodeItself (aClass))
+        return null;
 
-      // Remember to use direct implementation
-      m_aDirectHashCode.setAnnotation (aClass, true);
+      return aMatchingImplementation;
     }
 
+    // Handle arrays specially, because we cannot register a converter for
+    // every potential array class (but we allow for special implementations)
+    if (ClassHelper.isArrayClass (aClass))
+      return ARRAY_IMPLEMENTATION;
+
     // No special handler found
     if (s_aLogger.isDebugEnabled ())
       s_aLogger.debug ("Found no hashCode implementation for " + aClass);
@@ -284,6 +267,17 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
     return null;
   }
 
+  @Nullable
+  public IHashCodeImplementation getBestMatchingHashCodeImplementation (@Nullable final Class <?> aClass)
+  {
+    if (aClass == null)
+      return null;
+
+    // Lock free lookup in the resolved cache
+    final IHashCodeImplementation aImpl = m_aResolvedCache.get (aClass);
+    return aImpl == USE_DIRECT_IMPLEMENTATION ? null : aImpl;
+  }
+
   public static int getHashCode (@Nullable final Object aObj)
   {
     if (aObj == null)
@@ -298,5 +292,6 @@ public final class HashCodeImplementationRegistry implements IHashCodeImplementa
   public static void clearCache ()
   {
     s_aInstance.m_aDirectHashCode.clearCache ();
+    s_aInstance.m_aResolvedCache = s_aInstance._createResolvedCache ();
   }
 }
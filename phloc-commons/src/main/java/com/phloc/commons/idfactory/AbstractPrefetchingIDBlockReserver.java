@@ -0,0 +1,357 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.idfactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.concurrent.ExtendedDefaultThreadFactory;
+
+/**
+ * Hands out IDs from blocks reserved on a persistent device. IDs are taken from
+ * the current block with a single atomic operation. When half of the current
+ * block is used, the next block is reserved asynchronously on a background
+ * thread, so that in the steady state no caller ever waits for the device.
+ * Only if the IDs are consumed faster than the device can reserve new blocks,
+ * callers wait for the pending reservation.<br>
+ * Optionally each thread can take a sub-block of IDs from the current block, so
+ * that subsequent IDs of this thread require no shared memory access at all.
+ * In this case the IDs are unique but no longer increasing across threads.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+abstract class AbstractPrefetchingIDBlockReserver
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (AbstractPrefetchingIDBlockReserver.class);
+
+  /**
+   * A block of reserved IDs.
+   */
+  private static final class Block
+  {
+    private final AtomicLong m_aNext;
+    private final long m_nEnd;
+    private final long m_nPrefetchAt;
+
+    Block (final long nStart, final long nEnd, final long nPrefetchAt)
+    {
+      m_aNext = new AtomicLong (nStart);
+      m_nEnd = nEnd;
+      m_nPrefetchAt = nPrefetchAt;
+    }
+  }
+
+  /**
+   * The sub-block of a single thread.
+   */
+  @NotThreadSafe
+  private static final class ThreadBlock
+  {
+    private long m_nNext;
+    private long m_nEnd;
+  }
+
+  private static final ThreadFactory s_aThreadFactory = new ThreadFactory ()
+  {
+    private final ThreadFactory m_aDelegate = new ExtendedDefaultThreadFactory ("IDPrefetch");
+
+    @Nonnull
+    public Thread newThread (@Nonnull final Runnable aRunnable)
+    {
+      final Thread aThread = m_aDelegate.newThread (aRunnable);
+      // Must not prevent the VM from shutting down
+      aThread.setDaemon (true);
+      return aThread;
+    }
+  };
+
+  private final long m_nReserveCount;
+  private final long m_nPrefetchThreshold;
+  private final int m_nThreadBlockSize;
+  private final AtomicReference <Block> m_aCurrent = new AtomicReference <Block> (new Block (0, 0, -1));
+  private final ThreadLocal <ThreadBlock> m_aThreadBlocks;
+  private final ThreadPoolExecutor m_aExecutor;
+  // Protects the switching of the current block and the pending prefetch
+  private final Lock m_aLock = new ReentrantLock ();
+  @GuardedBy ("m_aLock")
+  private FutureTask <Block> m_aPrefetch;
+  // Serializes the access to the device
+  private final Lock m_aReserveLock = new ReentrantLock ();
+  @GuardedBy ("m_aReserveLock")
+  private long m_nLastReserved = -1;
+
+  /**
+   * Constructor
+   * 
+   * @param nReserveCount
+   *        The number of IDs to reserve on the device at once. Must be &gt; 0.
+   * @param nThreadBlockSize
+   *        The number of IDs each thread takes from the current block at once.
+   *        Must be &gt; 0 and &le; the reserve count. 1 means that no per
+   *        thread blocks are used.
+   */
+  AbstractPrefetchingIDBlockReserver (@Nonnegative final long nReserveCount, @Nonnegative final int nThreadBlockSize)
+  {
+    ValueEnforcer.isGT0 (nReserveCount, "ReserveCount");
+    ValueEnforcer.isBetweenInclusive (nThreadBlockSize, "ThreadBlockSize", 1, nReserveCount);
+    m_nReserveCount = nReserveCount;
+    // Start prefetching when half of the block is used
+    m_nPrefetchThreshold = Math.max (1, nReserveCount / 2);
+    m_nThreadBlockSize = nThreadBlockSize;
+    m_aThreadBlocks = nThreadBlockSize > 1 ? new ThreadLocal <ThreadBlock> ()
+    {
+      @Override
+      protected ThreadBlock initialValue ()
+      {
+        return new ThreadBlock ();
+      }
+    } : null;
+    m_aExecutor = new ThreadPoolExecutor (1,
+                                          1,
+                                          60,
+                                          TimeUnit.SECONDS,
+                                          new LinkedBlockingQueue <Runnable> (),
+                                          s_aThreadFactory);
+    m_aExecutor.allowCoreThreadTimeOut (true);
+  }
+
+  @Nonnegative
+  final long getReserveCount ()
+  {
+    return m_nReserveCount;
+  }
+
+  @Nonnegative
+  final int getThreadBlockSize ()
+  {
+    return m_nThreadBlockSize;
+  }
+
+  /**
+   * Read the current ID from the device and write back the read value plus the
+   * passed reserve count. Calls to this method are serialized.
+   * 
+   * @param nReserveCount
+   *        the number that should be added to the read value. Always &gt; 0.
+   * @return The value read from the device.
+   */
+  protected abstract long readAndUpdateIDCounter (@Nonnegative long nReserveCount);
+
+  @Nonnull
+  private Block _reserveBlock ()
+  {
+    m_aReserveLock.lock ();
+    try
+    {
+      final long nStart = readAndUpdateIDCounter (m_nReserveCount);
+      if (nStart < 0 || nStart < m_nLastReserved)
+        throw new IllegalStateException ("The read value " +
+                                         nStart +
+                                         " is smaller than the last reserved ID " +
+                                         m_nLastReserved +
+                                         "!");
+      final long nEnd = nStart + m_nReserveCount;
+      m_nLastReserved = nEnd;
+      return new Block (nStart, nEnd, nEnd - m_nPrefetchThreshold);
+    }
+    finally
+    {
+      m_aReserveLock.unlock ();
+    }
+  }
+
+  /**
+   * Start reserving the block after the passed block in the background. Is
+   * called exactly once per block.
+   * 
+   * @param aBlock
+   *        The block that reached its prefetch threshold.
+   */
+  private void _prefetch (@Nonnull final Block aBlock)
+  {
+    m_aLock.lock ();
+    try
+    {
+      // Ignore outdated requests, so that blocks are always used in the order
+      // they were reserved
+      if (m_aCurrent.get () == aBlock && m_aPrefetch == null)
+      {
+        m_aPrefetch = new FutureTask <Block> (new Callable <Block> ()
+        {
+          public Block call ()
+          {
+            return _reserveBlock ();
+          }
+        });
+        try
+        {
+          m_aExecutor.execute (m_aPrefetch);
+        }
+        catch (final RejectedExecutionException ex)
+        {
+          // Already shut down - reserve synchronously when the block is used up
+          m_aPrefetch = null;
+        }
+      }
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Nonnull
+  private Block _getPrefetchedBlock (@Nonnull final FutureTask <Block> aPrefetch)
+  {
+    boolean bInterrupted = false;
+    try
+    {
+      while (true)
+      {
+        try
+        {
+          return aPrefetch.get ();
+        }
+        catch (final InterruptedException ex)
+        {
+          bInterrupted = true;
+        }
+        catch (final ExecutionException ex)
+        {
+          s_aLogger.warn ("Failed to prefetch ID block - retrying synchronously", ex.getCause ());
+          return _reserveBlock ();
+        }
+      }
+    }
+    finally
+    {
+      if (bInterrupted)
+        Thread.currentThread ().interrupt ();
+    }
+  }
+
+  /**
+   * Replace the passed exhausted block with the prefetched block or with a
+   * newly reserved block if there is no prefetched block.
+   * 
+   * @param aExhausted
+   *        The block that has no more IDs.
+   */
+  private void _switchBlock (@Nonnull final Block aExhausted)
+  {
+    m_aLock.lock ();
+    try
+    {
+      // Was the block already switched by another thread?
+      if (m_aCurrent.get () != aExhausted)
+        return;
+
+      final Block aNext;
+      if (m_aPrefetch != null)
+      {
+        aNext = _getPrefetchedBlock (m_aPrefetch);
+        m_aPrefetch = null;
+      }
+      else
+        aNext = _reserveBlock ();
+      m_aCurrent.set (aNext);
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Take up to <code>nCount</code> IDs from the current block.
+   * 
+   * @param nCount
+   *        The number of IDs to take. Must be &gt; 0.
+   * @param aThreadBlock
+   *        The thread block to be filled. May be <code>null</code> if only a
+   *        single ID is requested.
+   * @return The first taken ID
+   */
+  private long _take (@Nonnegative final int nCount, final ThreadBlock aThreadBlock)
+  {
+    Block aBlock;
+    long nStart;
+    while (true)
+    {
+      aBlock = m_aCurrent.get ();
+      nStart = aBlock.m_aNext.getAndAdd (nCount);
+      if (nStart < aBlock.m_nEnd)
+        break;
+      _switchBlock (aBlock);
+    }
+
+    final long nEnd = Math.min (nStart + nCount, aBlock.m_nEnd);
+    if (aBlock.m_nPrefetchAt >= nStart && aBlock.m_nPrefetchAt < nEnd)
+      _prefetch (aBlock);
+
+    if (aThreadBlock != null)
+    {
+      aThreadBlock.m_nNext = nStart + 1;
+      aThreadBlock.m_nEnd = nEnd;
+    }
+    return nStart;
+  }
+
+  /**
+   * @return A new unique ID
+   */
+  final long getNewID ()
+  {
+    if (m_aThreadBlocks == null)
+      return _take (1, null);
+
+    final ThreadBlock aThreadBlock = m_aThreadBlocks.get ();
+    if (aThreadBlock.m_nNext < aThreadBlock.m_nEnd)
+      return aThreadBlock.m_nNext++;
+    return _take (m_nThreadBlockSize, aThreadBlock);
+  }
+
+  /**
+   * Stop the background thread. A pending prefetch is still executed.
+   */
+  final void shutdown ()
+  {
+    m_aExecutor.shutdown ();
+  }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.idfactory;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * This implementation of {@link IIntIDFactory} reads IDs from a device like
+ * {@link AbstractPersistingIntIDFactory} but does not serialize all callers.
+ * IDs are taken from the current reserved block with an atomic operation and
+ * the next block is reserved in the background before the current block runs
+ * out, so that in the steady state {@link #getNewID()} never waits for the
+ * device. Up to two blocks of IDs are lost when the application ends.<br>
+ * Optionally each thread takes a sub-block of IDs at once. In this case the IDs
+ * are still unique but are no longer increasing across threads.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+public abstract class AbstractPrefetchingPersistingIntIDFactory implements IIntIDFactory
+{
+  private final AbstractPrefetchingIDBlockReserver m_aReserver;
+
+  /**
+   * Constructor
+   * 
+   * @param nReserveCount
+   *        The number of IDs to reserve on the device at once. Must be &gt; 0.
+   * @param nThreadBlockSize
+   *        The number of IDs each thread takes at once. Must be &gt; 0 and
+   *        &le; the reserve count. 1 means that no per thread blocks are used.
+   */
+  public AbstractPrefetchingPersistingIntIDFactory (@Nonnegative final int nReserveCount,
+                                                    @Nonnegative final int nThreadBlockSize)
+  {
+    m_aReserver = new AbstractPrefetchingIDBlockReserver (nReserveCount, nThreadBlockSize)
+    {
+      @Override
+      protected long readAndUpdateIDCounter (@Nonnegative final long nCount)
+      {
+        final int nRead = AbstractPrefetchingPersistingIntIDFactory.this.readAndUpdateIDCounter ((int) nCount);
+        if (nRead > Integer.MAX_VALUE - nCount)
+          throw new IllegalStateException ("The int ID counter " + nRead + " cannot be increased by " + nCount);
+        return nRead;
+      }
+    };
+  }
+
+  @Nonnegative
+  protected final int getReserveCount ()
+  {
+    return (int) m_aReserver.getReserveCount ();
+  }
+
+  @Nonnegative
+  protected final int getThreadBlockSize ()
+  {
+    return m_aReserver.getThreadBlockSize ();
+  }
+
+  /**
+   * Read the current ID from the device. In case the method is called for a
+   * non-initialized device, 0 should be returned.<br>
+   * The update should durably write the read value plus the passed reserve
+   * count back to the device before returning. This method is called from a
+   * background thread but calls are never executed concurrently.
+   * 
+   * @param nReserveCount
+   *        the number that should be added to the read value. Always &gt; 0.
+   * @return 0 if this method is called for a non-initialized device, the value
+   *         read from the device otherwise or
+   *         {@link com.phloc.commons.CGlobal#ILLEGAL_UINT} in case of an error.
+   */
+  protected abstract int readAndUpdateIDCounter (@Nonnegative int nReserveCount);
+
+  public final int getNewID ()
+  {
+    return (int) m_aReserver.getNewID ();
+  }
+
+  /**
+   * Stop the background thread used for reserving new blocks. Afterwards new
+   * blocks are reserved synchronously.
+   */
+  protected final void shutdownPrefetching ()
+  {
+    m_aReserver.shutdown ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o == null || !getClass ().equals (o.getClass ()))
+      return false;
+    final AbstractPrefetchingPersistingIntIDFactory rhs = (AbstractPrefetchingPersistingIntIDFactory) o;
+    return getReserveCount () == rhs.getReserveCount () && getThreadBlockSize () == rhs.getThreadBlockSize ();
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (getReserveCount ()).append (getThreadBlockSize ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("reserveCount", getReserveCount ())
+                                       .append ("threadBlockSize", getThreadBlockSize ())
+                                       .toString ();
+  }
+}
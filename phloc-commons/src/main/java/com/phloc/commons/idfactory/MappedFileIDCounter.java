@@ -0,0 +1,366 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.idfactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.SimpleFileIO;
+import com.phloc.commons.string.StringParser;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * A persistent counter that is stored in a small memory mapped file. Instead of
+ * rewriting a text file, each update is written into one of two alternating
+ * slots, each consisting of a sequence number, the counter value and a CRC32
+ * checksum, and is forced to the storage device before the method returns. If
+ * the process crashes while writing, the torn slot has an invalid checksum and
+ * the other slot containing the previous value is used upon the next start.
+ * Because an update only returns after it is durable, no value handed out from
+ * the torn update can have been used.<br>
+ * New files are written to a temporary file first, which is renamed to the
+ * target file after it was forced to the storage device. Files created by
+ * {@link FileIntIDFactory} or {@link FileLongIDFactory} are converted the same
+ * way when opened, so the legacy content is only replaced by a complete file.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class MappedFileIDCounter implements Closeable
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (MappedFileIDCounter.class);
+
+  /** The magic number at the beginning of each file ("phlocIDc") */
+  private static final long MAGIC = 0x70686c6f63494463L;
+  private static final int SLOT_COUNT = 2;
+  // sequence + value + checksum
+  private static final int SLOT_SIZE = 3 * 8;
+  private static final int SLOT_OFFSET = 8;
+  private static final int FILE_SIZE = SLOT_OFFSET + SLOT_COUNT * SLOT_SIZE;
+
+  private final Lock m_aLock = new ReentrantLock ();
+  private final File m_aFile;
+  @GuardedBy ("m_aLock")
+  private RandomAccessFile m_aRAF;
+  @GuardedBy ("m_aLock")
+  private MappedByteBuffer m_aBuffer;
+  @GuardedBy ("m_aLock")
+  private long m_nSequence;
+  @GuardedBy ("m_aLock")
+  private long m_nValue;
+
+  /**
+   * Constructor. Opens or creates the passed file.
+   * 
+   * @param aFile
+   *        The file to be used. May not be <code>null</code>. The file must be
+   *        readable and writable.
+   * @throws IllegalArgumentException
+   *         If the file contains neither a valid counter nor a legacy text
+   *         counter
+   * @throws IllegalStateException
+   *         If the file cannot be mapped
+   */
+  public MappedFileIDCounter (@Nonnull final File aFile)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+    m_aFile = aFile;
+
+    final File aTempFile = new File (aFile.getAbsoluteFile ().getParentFile (), aFile.getName () + ".tmp");
+    if (aFile.length () == 0 && _hasMagic (aTempFile))
+    {
+      // A crash happened while the temporary file replaced the target file
+      if (!aTempFile.renameTo (aFile))
+        throw new IllegalStateException ("Failed to recover ID counter file " + aFile + " from " + aTempFile);
+      s_aLogger.warn ("Recovered ID counter file " + aFile + " from " + aTempFile);
+    }
+
+    if (aFile.length () == 0)
+      _createFile (aFile, aTempFile, 0);
+    else
+      if (!_hasMagic (aFile))
+      {
+        // A text file written by the old file based ID factories
+        final String sContent = SimpleFileIO.readFileAsString (aFile, CCharset.CHARSET_ISO_8859_1_OBJ);
+        final long nLegacyValue = sContent == null ? -1 : StringParser.parseLong (sContent.trim (), -1);
+        if (nLegacyValue < 0)
+          throw new IllegalArgumentException ("The file " + aFile + " does not contain a valid ID counter!");
+        _createFile (aFile, aTempFile, nLegacyValue);
+        s_aLogger.info ("Converted legacy ID counter file " + aFile + " with value " + nLegacyValue);
+      }
+
+    try
+    {
+      m_aRAF = new RandomAccessFile (aFile, "rw");
+      try
+      {
+        m_aBuffer = m_aRAF.getChannel ().map (MapMode.READ_WRITE, 0, FILE_SIZE);
+        _readSlots ();
+      }
+      catch (final RuntimeException ex)
+      {
+        _closeRAF ();
+        throw ex;
+      }
+    }
+    catch (final IOException ex)
+    {
+      _closeRAF ();
+      throw new IllegalStateException ("Failed to open ID counter file " + aFile, ex);
+    }
+  }
+
+  /**
+   * Create a new counter file with the passed initial value. The content is
+   * written to a temporary file which is forced to the storage device and then
+   * renamed to the target file, so that a crash never leaves a partially
+   * written target file behind.
+   */
+  private static void _createFile (@Nonnull final File aFile,
+                                   @Nonnull final File aTempFile,
+                                   @Nonnegative final long nInitialValue)
+  {
+    try
+    {
+      final RandomAccessFile aRAF = new RandomAccessFile (aTempFile, "rw");
+      try
+      {
+        aRAF.setLength (0);
+        final FileChannel aChannel = aRAF.getChannel ();
+        final ByteBuffer aBuffer = ByteBuffer.allocate (FILE_SIZE);
+        _writeSlot (aBuffer, 1, nInitialValue);
+        aChannel.write (aBuffer, 0);
+        // Write the magic only after the slots are durable, so that a temporary
+        // file with a magic is always complete
+        aChannel.force (true);
+        aBuffer.clear ();
+        aBuffer.putLong (0, MAGIC).limit (8);
+        aChannel.write (aBuffer, 0);
+        aChannel.force (true);
+      }
+      finally
+      {
+        aRAF.close ();
+      }
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to write ID counter file " + aTempFile, ex);
+    }
+
+    if (!aTempFile.renameTo (aFile))
+    {
+      // The target file cannot be replaced on all platforms - the temporary
+      // file is used for recovery if a crash happens in between
+      if (!aFile.delete () || !aTempFile.renameTo (aFile))
+        throw new IllegalStateException ("Failed to rename " + aTempFile + " to " + aFile);
+    }
+  }
+
+  private static boolean _hasMagic (@Nonnull final File aFile)
+  {
+    if (aFile.length () != FILE_SIZE)
+      return false;
+    try
+    {
+      final RandomAccessFile aRAF = new RandomAccessFile (aFile, "r");
+      try
+      {
+        return aRAF.readLong () == MAGIC;
+      }
+      finally
+      {
+        aRAF.close ();
+      }
+    }
+    catch (final IOException ex)
+    {
+      return false;
+    }
+  }
+
+  private static long _getChecksum (final long nSequence, final long nValue)
+  {
+    final CRC32 aCRC = new CRC32 ();
+    for (int i = 0; i < 8; ++i)
+      aCRC.update ((int) (nSequence >>> (i * 8)));
+    for (int i = 0; i < 8; ++i)
+      aCRC.update ((int) (nValue >>> (i * 8)));
+    return aCRC.getValue ();
+  }
+
+  private static void _writeSlot (@Nonnull final ByteBuffer aBuffer, final long nSequence, final long nValue)
+  {
+    final int nOfs = SLOT_OFFSET + (int) (nSequence % SLOT_COUNT) * SLOT_SIZE;
+    aBuffer.putLong (nOfs, nSequence);
+    aBuffer.putLong (nOfs + 8, nValue);
+    aBuffer.putLong (nOfs + 16, _getChecksum (nSequence, nValue));
+  }
+
+  private void _readSlots ()
+  {
+    if (m_aBuffer.getLong (0) != MAGIC)
+      throw new IllegalArgumentException ("The file " + m_aFile + " is not a valid ID counter file!");
+
+    boolean bFound = false;
+    for (int nSlot = 0; nSlot < SLOT_COUNT; ++nSlot)
+    {
+      final int nOfs = SLOT_OFFSET + nSlot * SLOT_SIZE;
+      final long nSequence = m_aBuffer.getLong (nOfs);
+      final long nValue = m_aBuffer.getLong (nOfs + 8);
+      final long nChecksum = m_aBuffer.getLong (nOfs + 16);
+      if (nSequence > 0 && nValue >= 0 && nChecksum == _getChecksum (nSequence, nValue))
+      {
+        if (!bFound || nSequence > m_nSequence)
+        {
+          m_nSequence = nSequence;
+          m_nValue = nValue;
+          bFound = true;
+        }
+      }
+      else
+        if (nSequence != 0)
+          s_aLogger.warn ("Ignoring corrupt slot " + nSlot + " in ID counter file " + m_aFile);
+    }
+    if (!bFound)
+      throw new IllegalArgumentException ("The ID counter file " + m_aFile + " contains no valid slot!");
+  }
+
+  private void _closeRAF ()
+  {
+    if (m_aRAF != null)
+    {
+      try
+      {
+        m_aRAF.close ();
+      }
+      catch (final IOException ex)
+      {
+        // ignore
+      }
+      m_aRAF = null;
+    }
+    m_aBuffer = null;
+  }
+
+  /**
+   * @return The underlying file. Never <code>null</code>.
+   */
+  @Nonnull
+  public File getFile ()
+  {
+    return m_aFile;
+  }
+
+  /**
+   * @return The current value of the counter.
+   */
+  @Nonnegative
+  public long getValue ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      return m_nValue;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Read the current value and durably store the current value plus the passed
+   * reserve count.
+   * 
+   * @param nReserveCount
+   *        The value to add. Must be &gt; 0.
+   * @param nMaxValue
+   *        The maximum value the counter may reach.
+   * @return The value before the update.
+   * @throws IllegalStateException
+   *         If the counter was already closed or if the maximum value would be
+   *         exceeded.
+   */
+  @Nonnegative
+  public long readAndUpdate (@Nonnegative final long nReserveCount, @Nonnegative final long nMaxValue)
+  {
+    ValueEnforcer.isGT0 (nReserveCount, "ReserveCount");
+    m_aLock.lock ();
+    try
+    {
+      if (m_aBuffer == null)
+        throw new IllegalStateException ("The ID counter file " + m_aFile + " was already closed!");
+      final long nRead = m_nValue;
+      if (nRead > nMaxValue - nReserveCount)
+        throw new IllegalStateException ("The ID counter " + nRead + " cannot be increased by " + nReserveCount);
+      final long nNewValue = nRead + nReserveCount;
+      final long nNewSequence = m_nSequence + 1;
+      _writeSlot (m_aBuffer, nNewSequence, nNewValue);
+      m_aBuffer.force ();
+      m_nSequence = nNewSequence;
+      m_nValue = nNewValue;
+      return nRead;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  /**
+   * Close the underlying file. Afterwards no more updates are possible.
+   */
+  public void close ()
+  {
+    m_aLock.lock ();
+    try
+    {
+      _closeRAF ();
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("file", m_aFile).toString ();
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.idfactory;
+
+import java.io.Closeable;
+import java.io.File;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.io.file.FileUtils;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * {@link File} based persisting {@link ILongIDFactory} implementation that
+ * stores the counter in a {@link MappedFileIDCounter} and reserves the next
+ * block of IDs in the background. Compared to {@link FileLongIDFactory} no
+ * caller waits for the file system in the steady state. Existing files of
+ * {@link FileLongIDFactory} can be used as they are converted automatically.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class MappedFileLongIDFactory extends AbstractPrefetchingPersistingLongIDFactory implements Closeable
+{
+  /** The default number of values to reserve with a single IO action */
+  @Nonnegative
+  public static final int DEFAULT_RESERVE_COUNT = 100;
+  /** The default number of values each thread takes at once */
+  @Nonnegative
+  public static final int DEFAULT_THREAD_BLOCK_SIZE = 1;
+
+  private final MappedFileIDCounter m_aCounter;
+
+  public MappedFileLongIDFactory (@Nonnull final File aFile)
+  {
+    this (aFile, DEFAULT_RESERVE_COUNT);
+  }
+
+  public MappedFileLongIDFactory (@Nonnull final File aFile, @Nonnegative final long nReserveCount)
+  {
+    this (aFile, nReserveCount, DEFAULT_THREAD_BLOCK_SIZE);
+  }
+
+  public MappedFileLongIDFactory (@Nonnull final File aFile,
+                                  @Nonnegative final long nReserveCount,
+                                  @Nonnegative final int nThreadBlockSize)
+  {
+    super (nReserveCount, nThreadBlockSize);
+    ValueEnforcer.notNull (aFile, "File");
+    if (!FileUtils.canReadAndWriteFile (aFile))
+      throw new IllegalArgumentException ("Cannot read and/or write the file " + aFile + "!");
+    m_aCounter = new MappedFileIDCounter (aFile);
+  }
+
+  @Nonnull
+  public File getFile ()
+  {
+    return m_aCounter.getFile ();
+  }
+
+  @Override
+  protected final long readAndUpdateIDCounter (@Nonnegative final long nReserveCount)
+  {
+    return m_aCounter.readAndUpdate (nReserveCount, Long.MAX_VALUE);
+  }
+
+  /**
+   * Stop prefetching and close the underlying file. Afterwards no new IDs can
+   * be reserved.
+   */
+  public void close ()
+  {
+    shutdownPrefetching ();
+    m_aCounter.close ();
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (!super.equals (o))
+      return false;
+    final MappedFileLongIDFactory rhs = (MappedFileLongIDFactory) o;
+    return getFile ().equals (rhs.getFile ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return HashCodeGenerator.getDerived (super.hashCode ()).append (getFile ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("counter", m_aCounter).toString ();
+  }
+}
@@ -123,7 +123,7 @@ public class NonBlockingStringWriter extends Writer implements IHasStringReprese
   @Override
   public void write (@Nonnull final String sStr, final int nOfs, final int nLen)
   {
-    this.m_aSB.append (sStr.substring (nOfs, nOfs + nLen));
+    this.m_aSB.append (sStr, nOfs, nOfs + nLen);
   }
 
   /**
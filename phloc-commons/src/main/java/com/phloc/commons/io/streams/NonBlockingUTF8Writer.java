@@ -0,0 +1,319 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.io.streams;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.ValueEnforcer;
+
+/**
+ * A non-synchronized {@link Writer} that directly encodes all characters as
+ * UTF-8 and writes the resulting bytes to an {@link OutputStream}. Compared to
+ * a buffered {@link java.io.OutputStreamWriter} no
+ * {@link java.nio.charset.CharsetEncoder}, no NIO buffer wrapping and no
+ * synchronization is involved. Characters are collected in a char buffer and
+ * encoded in bulk into a byte buffer.<br>
+ * Like the JDK encoder, unpaired surrogate characters are emitted as
+ * <code>'?'</code>.
+ * 
+ * @author Philip Helger
+ */
+@NotThreadSafe
+public class NonBlockingUTF8Writer extends Writer
+{
+  /** The default size of the byte buffer */
+  public static final int DEFAULT_BUFFER_SIZE = 16 * CGlobal.BYTES_PER_KILOBYTE;
+
+  /** The replacement byte for unpaired surrogates */
+  private static final byte REPLACEMENT_BYTE = '?';
+
+  /** The maximum size of the char buffer */
+  private static final int MAX_CHAR_BUFFER_SIZE = 8 * CGlobal.BYTES_PER_KILOBYTE;
+
+  /** The number of characters checked at once for being ASCII only */
+  private static final int ASCII_BLOCK_SIZE = 16;
+
+  /** The maximum number of bytes for a single code point */
+  private static final int MAX_BYTES_PER_CODEPOINT = 4;
+
+  private OutputStream m_aOS;
+  private char [] m_aChars;
+  private int m_nChars;
+  private byte [] m_aBytes;
+  private int m_nBytes;
+  // A pending high surrogate from the previous chunk, or 0
+  private char m_cHighSurrogate;
+
+  /**
+   * Constructor using the default buffer size.
+   * 
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>.
+   */
+  public NonBlockingUTF8Writer (@Nonnull final OutputStream aOS)
+  {
+    this (aOS, DEFAULT_BUFFER_SIZE);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>.
+   * @param nBufSize
+   *        The size of the byte buffer. Must be &ge; 4.
+   */
+  public NonBlockingUTF8Writer (@Nonnull final OutputStream aOS, @Nonnegative final int nBufSize)
+  {
+    ValueEnforcer.notNull (aOS, "OutputStream");
+    if (nBufSize < MAX_BYTES_PER_CODEPOINT)
+      throw new IllegalArgumentException ("BufSize must be at least " + MAX_BYTES_PER_CODEPOINT + " but is " + nBufSize);
+    m_aOS = aOS;
+    m_aChars = new char [Math.min (nBufSize, MAX_CHAR_BUFFER_SIZE)];
+    m_aBytes = new byte [nBufSize];
+  }
+
+  private void _ensureOpen () throws IOException
+  {
+    if (m_aOS == null)
+      throw new IOException ("Stream closed");
+  }
+
+  private void _flushBytes () throws IOException
+  {
+    if (m_nBytes > 0)
+    {
+      m_aOS.write (m_aBytes, 0, m_nBytes);
+      m_nBytes = 0;
+    }
+  }
+
+  /**
+   * Encode a single character that is not plain ASCII or that follows a high
+   * surrogate.
+   * 
+   * @param c
+   *        The character to be encoded
+   * @throws IOException
+   *         If flushing the byte buffer fails
+   */
+  private void _encodeSlow (final char c) throws IOException
+  {
+    if (m_nBytes + MAX_BYTES_PER_CODEPOINT > m_aBytes.length)
+      _flushBytes ();
+
+    final byte [] aBuf = m_aBytes;
+    if (m_cHighSurrogate != 0)
+    {
+      final char cHigh = m_cHighSurrogate;
+      m_cHighSurrogate = 0;
+      if (Character.isLowSurrogate (c))
+      {
+        final int nCP = Character.toCodePoint (cHigh, c);
+        aBuf[m_nBytes++] = (byte) (0xf0 | (nCP >> 18));
+        aBuf[m_nBytes++] = (byte) (0x80 | ((nCP >> 12) & 0x3f));
+        aBuf[m_nBytes++] = (byte) (0x80 | ((nCP >> 6) & 0x3f));
+        aBuf[m_nBytes++] = (byte) (0x80 | (nCP & 0x3f));
+        return;
+      }
+      // Unpaired high surrogate
+      aBuf[m_nBytes++] = REPLACEMENT_BYTE;
+      if (m_nBytes + MAX_BYTES_PER_CODEPOINT > aBuf.length)
+        _flushBytes ();
+    }
+
+    if (c < 0x80)
+      aBuf[m_nBytes++] = (byte) c;
+    else
+      if (c < 0x800)
+      {
+        aBuf[m_nBytes++] = (byte) (0xc0 | (c >> 6));
+        aBuf[m_nBytes++] = (byte) (0x80 | (c & 0x3f));
+      }
+      else
+        if (Character.isHighSurrogate (c))
+          m_cHighSurrogate = c;
+        else
+          if (Character.isLowSurrogate (c))
+          {
+            // Unpaired low surrogate
+            aBuf[m_nBytes++] = REPLACEMENT_BYTE;
+          }
+          else
+          {
+            aBuf[m_nBytes++] = (byte) (0xe0 | (c >> 12));
+            aBuf[m_nBytes++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+            aBuf[m_nBytes++] = (byte) (0x80 | (c & 0x3f));
+          }
+  }
+
+  /**
+   * Encode all characters from the char buffer into the byte buffer. Runs of
+   * ASCII characters are copied in a tight loop, everything else is handled by
+   * {@link #_encodeSlow(char)}.
+   * 
+   * @throws IOException
+   *         If flushing the byte buffer fails
+   */
+  private void _encodeChars () throws IOException
+  {
+    final char [] aSrc = m_aChars;
+    final byte [] aDst = m_aBytes;
+    final int nEnd = m_nChars;
+    int i = 0;
+    while (i < nEnd)
+    {
+      // Complete a pending surrogate pair first
+      while (m_cHighSurrogate != 0 && i < nEnd)
+        _encodeSlow (aSrc[i++]);
+
+      // Copy ASCII characters as long as there is space in the byte buffer.
+      // Blocks are checked first and copied afterwards, as these simple loops
+      // can be vectorized by the JIT.
+      int nCount = m_nBytes;
+      final int nRunEnd = Math.min (nEnd, i + aDst.length - nCount);
+      while (i + ASCII_BLOCK_SIZE <= nRunEnd)
+      {
+        int nOr = 0;
+        for (int j = 0; j < ASCII_BLOCK_SIZE; ++j)
+          nOr |= aSrc[i + j];
+        if (nOr >= 0x80)
+          break;
+        for (int j = 0; j < ASCII_BLOCK_SIZE; ++j)
+          aDst[nCount + j] = (byte) aSrc[i + j];
+        i += ASCII_BLOCK_SIZE;
+        nCount += ASCII_BLOCK_SIZE;
+      }
+      while (i < nRunEnd)
+      {
+        final char c = aSrc[i];
+        if (c >= 0x80)
+          break;
+        aDst[nCount++] = (byte) c;
+        ++i;
+      }
+      m_nBytes = nCount;
+
+      if (i < nEnd)
+      {
+        if (nCount == aDst.length)
+          _flushBytes ();
+        else
+          _encodeSlow (aSrc[i++]);
+      }
+    }
+    m_nChars = 0;
+  }
+
+  @Override
+  public void write (final int c) throws IOException
+  {
+    _ensureOpen ();
+    if (m_nChars == m_aChars.length)
+      _encodeChars ();
+    m_aChars[m_nChars++] = (char) c;
+  }
+
+  @Override
+  public void write (@Nonnull final char [] aBuf, final int nOfs, final int nLen) throws IOException
+  {
+    _ensureOpen ();
+    ValueEnforcer.isArrayOfsLen (aBuf, nOfs, nLen);
+
+    int nIndex = nOfs;
+    final int nEnd = nOfs + nLen;
+    while (nIndex < nEnd)
+    {
+      final int nChunk = Math.min (m_aChars.length - m_nChars, nEnd - nIndex);
+      System.arraycopy (aBuf, nIndex, m_aChars, m_nChars, nChunk);
+      nIndex += nChunk;
+      m_nChars += nChunk;
+      if (m_nChars == m_aChars.length)
+        _encodeChars ();
+    }
+  }
+
+  @Override
+  public void write (@Nonnull final String sStr, final int nOfs, final int nLen) throws IOException
+  {
+    _ensureOpen ();
+
+    int nIndex = nOfs;
+    final int nEnd = nOfs + nLen;
+    while (nIndex < nEnd)
+    {
+      final int nChunk = Math.min (m_aChars.length - m_nChars, nEnd - nIndex);
+      sStr.getChars (nIndex, nIndex + nChunk, m_aChars, m_nChars);
+      nIndex += nChunk;
+      m_nChars += nChunk;
+      if (m_nChars == m_aChars.length)
+        _encodeChars ();
+    }
+  }
+
+  /**
+   * Encode and flush all characters to the underlying output stream. A pending
+   * high surrogate is kept until the next character is written.
+   */
+  @Override
+  public void flush () throws IOException
+  {
+    _ensureOpen ();
+    _encodeChars ();
+    _flushBytes ();
+    m_aOS.flush ();
+  }
+
+  /**
+   * Encode and flush all characters and close the underlying output stream. A
+   * pending high surrogate is emitted as <code>'?'</code>.
+   */
+  @Override
+  public void close () throws IOException
+  {
+    if (m_aOS != null)
+    {
+      try
+      {
+        _encodeChars ();
+        if (m_cHighSurrogate != 0)
+        {
+          m_cHighSurrogate = 0;
+          if (m_nBytes == m_aBytes.length)
+            _flushBytes ();
+          m_aBytes[m_nBytes++] = REPLACEMENT_BYTE;
+        }
+        _flushBytes ();
+      }
+      finally
+      {
+        m_aOS.close ();
+        m_aOS = null;
+        m_aChars = null;
+        m_aBytes = null;
+      }
+    }
+  }
+}
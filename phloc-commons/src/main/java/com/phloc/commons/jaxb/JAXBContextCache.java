@@ -29,19 +29,18 @@ import org.slf4j.LoggerFactory;
 
 import com.phloc.commons.GlobalDebug;
 import com.phloc.commons.ValueEnforcer;
-import com.phloc.commons.annotations.IsLocked;
-import com.phloc.commons.annotations.IsLocked.ELockType;
-import com.phloc.commons.cache.AbstractNotifyingCache;
+import com.phloc.commons.cache.AbstractConcurrentNotifyingCache;
 import com.phloc.commons.lang.GenericReflection;
 
 /**
  * Specific cache class for JAXB context elements. This is helpful, as the JAXB
- * context creation is a very time consuming task.
+ * context creation is a very time consuming task. Contexts for different
+ * packages can be created concurrently.
  * 
  * @author Philip Helger
  */
 @ThreadSafe
-public final class JAXBContextCache extends AbstractNotifyingCache <Package, JAXBContext>
+public final class JAXBContextCache extends AbstractConcurrentNotifyingCache <Package, JAXBContext>
 {
   private static final class SingletonHolder
   {
@@ -72,7 +71,6 @@ public final class JAXBContextCache extends AbstractNotifyingCache <Package, JAX
 
   @Override
   @Nullable
-  @IsLocked (ELockType.WRITE)
   public JAXBContext getValueToCache (@Nullable final Package aPackage)
   {
     if (aPackage == null)
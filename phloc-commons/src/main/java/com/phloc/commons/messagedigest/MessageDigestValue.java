@@ -31,6 +31,7 @@ import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ArrayHelper;
 import com.phloc.commons.equals.EqualsUtils;
 import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.hash.IHashCodeGenerator;
 import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.ToStringGenerator;
 
@@ -45,6 +46,8 @@ public final class MessageDigestValue
 {
   private final EMessageDigestAlgorithm m_eAlgorithm;
   private final byte [] m_aDigestBytes;
+  // Status vars
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
 
   public MessageDigestValue (@Nonnull final EMessageDigestAlgorithm eAlgorithm,
                              @Nonnull @Nonempty final byte [] aDigestBytes)
@@ -113,7 +116,11 @@ public final class MessageDigestValue
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_eAlgorithm).append (m_aDigestBytes).getHashCode ();
+    // As the object is immutable, the hash code can be cached
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (m_eAlgorithm).append (m_aDigestBytes).getHashCode ();
+    return ret;
   }
 
   @Override
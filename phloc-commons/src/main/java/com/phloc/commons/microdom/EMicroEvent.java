@@ -32,7 +32,11 @@ import com.phloc.commons.lang.EnumHelper;
 public enum EMicroEvent implements IHasID <String>
 {
   NODE_INSERTED ("NodeInserted"),
-  NODE_REMOVED ("NodeRemoved");
+  NODE_REMOVED ("NodeRemoved"),
+  /** An attribute of an element was added, changed or removed */
+  ATTRIBUTE_CHANGED ("AttributeChanged"),
+  /** The namespace URI of an element was changed */
+  NAMESPACE_CHANGED ("NamespaceChanged");
 
   private final String m_sID;
 
@@ -55,7 +55,33 @@ public interface IMicroDocument extends IMicroNodeWithChildren
   IMicroElement getDocumentElement ();
 
   /**
-   * {@inheritDoc}
+   * Get the element index of this document. The index is created upon the
+   * first call and the same index is returned for all subsequent calls. By
+   * default the attribute <code>id</code> is considered as ID attribute.
+   * 
+   * @return The element index of this document. Never <code>null</code>.
+   */
+  @Nonnull
+  IMicroElementIndex getElementIndex ();
+
+  /**
+   * Freeze this document. After freezing, this document and all contained
+   * nodes are immutable: all modifying methods throw a {@link MicroException}.
+   * A frozen document can therefore be shared between multiple threads
+   * without copying, as long as it is safely published after freezing (e.g.
+   * via a concurrent cache).<br>
+   * To derive a modified version, use {@link #getClone()}: cloning a frozen
+   * node copies the child nodes lazily upon first access, so that only the
+   * parts of the tree that are actually accessed are copied.
+   * 
+   * @return this for chaining
+   */
+  @Nonnull
+  IMicroDocument freeze ();
+
+  /**
+   * {@inheritDoc}<br>
+   * The returned clone is never frozen.
    */
   @Nonnull
   IMicroDocument getClone ();
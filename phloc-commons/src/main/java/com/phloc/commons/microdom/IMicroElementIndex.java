@@ -0,0 +1,148 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.microdom;
+
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.state.EChange;
+
+/**
+ * Index of all elements of a single {@link IMicroDocument} for fast lookup by
+ * element name, namespace URI and ID attribute. The index is built lazily upon
+ * the first query and is kept consistent with the document via the
+ * {@link EMicroEvent} events triggered by modifications of the document.
+ * 
+ * @author Philip Helger
+ * @see IMicroDocument#getElementIndex()
+ */
+public interface IMicroElementIndex
+{
+  /**
+   * @return A copy of the names of all attributes that are considered as ID
+   *         attributes. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  Set <String> getAllIDAttributeNames ();
+
+  /**
+   * Add a new attribute name that should be considered as an ID attribute.
+   * 
+   * @param sAttrName
+   *        The attribute name to add. May neither be <code>null</code> nor
+   *        empty.
+   * @return {@link EChange#CHANGED} if the attribute name was added.
+   */
+  @Nonnull
+  EChange addIDAttributeName (@Nonnull @Nonempty String sAttrName);
+
+  /**
+   * Remove an attribute name that should be considered as an ID attribute.
+   * 
+   * @param sAttrName
+   *        The attribute name to remove. May be <code>null</code>.
+   * @return {@link EChange#CHANGED} if the attribute name was removed.
+   */
+  @Nonnull
+  EChange removeIDAttributeName (@Nullable String sAttrName);
+
+  /**
+   * Get all elements with the passed tag name, independent of the namespace
+   * URI.
+   * 
+   * @param sTagName
+   *        The tag name to search. May be <code>null</code>.
+   * @return A non-<code>null</code> list with all matching elements in
+   *         document order.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  List <IMicroElement> getAllElementsWithName (@Nullable String sTagName);
+
+  /**
+   * Get all elements with the passed namespace URI and local name.
+   * 
+   * @param sNamespaceURI
+   *        The namespace URI to search. If it is <code>null</code> or empty,
+   *        the namespace URI is ignored.
+   * @param sLocalName
+   *        The local name to search. May be <code>null</code>.
+   * @return A non-<code>null</code> list with all matching elements in
+   *         document order.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  List <IMicroElement> getAllElementsWithName (@Nullable String sNamespaceURI, @Nullable String sLocalName);
+
+  /**
+   * Get the first element in document order with the passed tag name,
+   * independent of the namespace URI.
+   * 
+   * @param sTagName
+   *        The tag name to search. May be <code>null</code>.
+   * @return <code>null</code> if no such element is contained.
+   */
+  @Nullable
+  IMicroElement getFirstElementWithName (@Nullable String sTagName);
+
+  /**
+   * Get the first element in document order with the passed namespace URI and
+   * local name.
+   * 
+   * @param sNamespaceURI
+   *        The namespace URI to search. If it is <code>null</code> or empty,
+   *        the namespace URI is ignored.
+   * @param sLocalName
+   *        The local name to search. May be <code>null</code>.
+   * @return <code>null</code> if no such element is contained.
+   */
+  @Nullable
+  IMicroElement getFirstElementWithName (@Nullable String sNamespaceURI, @Nullable String sLocalName);
+
+  /**
+   * Get the element that has the passed value in one of its ID attributes. If
+   * multiple elements have the same ID, the first one in document order is
+   * returned.
+   * 
+   * @param sID
+   *        The ID to search. May be <code>null</code>.
+   * @return <code>null</code> if no such element is contained.
+   * @see #getAllIDAttributeNames()
+   */
+  @Nullable
+  IMicroElement getElementWithID (@Nullable String sID);
+
+  /**
+   * Get all elements that have the passed value in one of their ID attributes.
+   * 
+   * @param sID
+   *        The ID to search. May be <code>null</code>.
+   * @return A non-<code>null</code> list with all matching elements in
+   *         document order.
+   * @see #getAllIDAttributeNames()
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  List <IMicroElement> getAllElementsWithID (@Nullable String sID);
+}
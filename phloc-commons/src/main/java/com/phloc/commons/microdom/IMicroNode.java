@@ -654,6 +654,16 @@ public interface IMicroNode extends ICloneable <IMicroNode>, IHasChildrenSorted
   @Nonnull
   EChange unregisterEventTarget (@Nonnull EMicroEvent eEventType, @Nonnull IMicroEventTarget aTarget);
 
+  /**
+   * Check if this node is part of a frozen document. Frozen nodes cannot be
+   * modified and can therefore safely be read by multiple threads.
+   * 
+   * @return <code>true</code> if this node is frozen, <code>false</code> if
+   *         not.
+   * @see IMicroDocument#freeze()
+   */
+  boolean isFrozen ();
+
   /**
    * As instances of this class may not implement equals/hashCode we need a way
    * to determine, if 2 nodes are equal by content.
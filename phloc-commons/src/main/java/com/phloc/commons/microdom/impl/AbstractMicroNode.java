@@ -63,6 +63,37 @@ public abstract class AbstractMicroNode implements IMicroNode
   /** The parent node of this node. */
   private AbstractMicroNodeWithChildren m_aParentNode;
   private Map <EMicroEvent, Set <IMicroEventTarget>> m_aEventTargets;
+  /** Is this node part of a frozen document? */
+  private boolean m_bFrozen;
+
+  @Override
+  public final boolean isFrozen ()
+  {
+    return this.m_bFrozen;
+  }
+
+  /**
+   * Ensure that this node is not frozen. Must be called by all methods that
+   * modify this node.
+   * 
+   * @throws MicroException
+   *         if this node is frozen
+   */
+  protected final void checkNotFrozen ()
+  {
+    if (this.m_bFrozen)
+      throw new MicroException ("The node is frozen and cannot be modified: " + getNodeName ());
+  }
+
+  /**
+   * Freeze this node. Overridden in
+   * {@link AbstractMicroNodeWithChildren#internalFreeze()} to freeze all child
+   * nodes as well.
+   */
+  void internalFreeze ()
+  {
+    this.m_bFrozen = true;
+  }
 
   @Override
   @OverrideOnDemand
@@ -657,28 +688,9 @@ public abstract class AbstractMicroNode implements IMicroNode
     return this instanceof IMicroContainer;
   }
 
-  final void internalTriggerEvent (@Nonnull final EMicroEvent eEventType, @Nonnull final IMicroEvent aEvent)
-  {
-    // Any event targets present?
-    if (this.m_aEventTargets != null && !this.m_aEventTargets.isEmpty ())
-    {
-      // Get all event handler
-      final Set <IMicroEventTarget> aTargets = this.m_aEventTargets.get (eEventType);
-      if (aTargets != null && !aTargets.isEmpty ())
-      {
-        // fire the event
-        for (final IMicroEventTarget aTarget : aTargets)
-          aTarget.handleEvent (aEvent);
-      }
-    }
-
-    // Bubble to parent
-    if (this.m_aParentNode != null)
-      this.m_aParentNode.internalTriggerEvent (eEventType, aEvent);
-  }
-
   /**
-   * Handles a micro event
+   * Handles a micro event by invoking all matching event targets of this node
+   * and all parent nodes.
    * 
    * @param eEventType
    *        Type of the event
@@ -691,16 +703,54 @@ public abstract class AbstractMicroNode implements IMicroNode
                                 @Nonnull final IMicroNode aSourceNode,
                                 @Nonnull final IMicroNode aTargetNode)
   {
-    // Create the event only once
-    internalTriggerEvent (eEventType, new MicroEvent (eEventType, aSourceNode, aTargetNode));
+    // Create the event only once and only if an event target is present
+    IMicroEvent aEvent = null;
+    AbstractMicroNode aCurNode = this;
+    while (aCurNode != null)
+    {
+      // Any event targets present?
+      final Map <EMicroEvent, Set <IMicroEventTarget>> aEventTargets = aCurNode.m_aEventTargets;
+      if (aEventTargets != null && !aEventTargets.isEmpty ())
+      {
+        // Get all event handler
+        final Set <IMicroEventTarget> aTargets = aEventTargets.get (eEventType);
+        if (aTargets != null && !aTargets.isEmpty ())
+        {
+          if (aEvent == null)
+            aEvent = new MicroEvent (eEventType, aSourceNode, aTargetNode);
+
+          // fire the event
+          for (final IMicroEventTarget aTarget : aTargets)
+            aTarget.handleEvent (aEvent);
+        }
+      }
+
+      // Bubble to parent
+      final AbstractMicroNode aParentNode = aCurNode.m_aParentNode;
+      if (aParentNode == null)
+        aCurNode.onRootEvent (eEventType);
+      aCurNode = aParentNode;
+    }
   }
 
+  /**
+   * Called on the root node of a tree after an event was handled by all event
+   * targets.
+   * 
+   * @param eEventType
+   *        Type of the event
+   */
+  @OverrideOnDemand
+  void onRootEvent (@Nonnull final EMicroEvent eEventType)
+  {}
+
   @Override
   @Nonnull
   public EChange registerEventTarget (@Nonnull final EMicroEvent eEventType, @Nonnull final IMicroEventTarget aTarget)
   {
     ValueEnforcer.notNull (eEventType, "EventType");
     ValueEnforcer.notNull (aTarget, "EventTarget");
+    checkNotFrozen ();
 
     if (this.m_aEventTargets == null)
       this.m_aEventTargets = new EnumMap <EMicroEvent, Set <IMicroEventTarget>> (EMicroEvent.class);
@@ -719,6 +769,7 @@ public abstract class AbstractMicroNode implements IMicroNode
   {
     ValueEnforcer.notNull (eEventType, "EventType");
     ValueEnforcer.notNull (aTarget, "EventTarget");
+    checkNotFrozen ();
 
     if (this.m_aEventTargets != null && !this.m_aEventTargets.isEmpty ())
     {
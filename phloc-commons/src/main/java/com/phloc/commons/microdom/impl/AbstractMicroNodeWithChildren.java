@@ -17,8 +17,11 @@
  */
 package com.phloc.commons.microdom.impl;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.RandomAccess;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -27,7 +30,6 @@ import javax.annotation.OverridingMethodsMustInvokeSuper;
 
 import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.annotations.ReturnsMutableObject;
-import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.microdom.EMicroEvent;
 import com.phloc.commons.microdom.EMicroNodeType;
 import com.phloc.commons.microdom.IMicroCDATA;
@@ -48,19 +50,153 @@ import com.phloc.commons.typeconvert.TypeConverter;
  */
 public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode implements IMicroNodeWithChildren
 {
-  /** The list of child elements. May be <code>null</code>. */
-  private List <IMicroNode> m_aChildren;
+  /**
+   * The child nodes. May be <code>null</code>. Only the first
+   * {@link #m_nChildCount} entries are used. An array is used instead of a list
+   * to keep the memory footprint of large documents small.
+   */
+  private IMicroNode [] m_aChildren;
+  /** The number of child nodes. */
+  private int m_nChildCount;
+  /**
+   * The frozen node whose children were not yet copied into this clone. May be
+   * <code>null</code>.
+   */
+  private AbstractMicroNodeWithChildren m_aLazySource;
+
+  /**
+   * Read-only view on the child nodes of this node.
+   */
+  private final class ChildList extends AbstractList <IMicroNode> implements RandomAccess
+  {
+    @Override
+    public IMicroNode get (final int nIndex)
+    {
+      if (nIndex < 0 || nIndex >= m_nChildCount)
+        throw new IndexOutOfBoundsException ("Index " + nIndex + " is invalid for size " + m_nChildCount);
+      return m_aChildren[nIndex];
+    }
+
+    @Override
+    public int size ()
+    {
+      return m_nChildCount;
+    }
+  }
 
   /**
-   * @return The writable list of all child nodes - handle with care. May be
-   *         <code>null</code>.
+   * @return A read-only view on all child nodes - handle with care, as it
+   *         reflects all subsequent changes. May be <code>null</code>.
    */
   @Nullable
   @ReturnsMutableObject (reason = "efficient access")
   final List <IMicroNode> directGetChildren ()
   {
-    // ESCA-JAVA0259:
-    return m_aChildren;
+    _ensureChildren ();
+    return m_nChildCount == 0 ? null : new ChildList ();
+  }
+
+  /**
+   * Copy the children of the lazy source (if any) into this node.
+   */
+  private void _ensureChildren ()
+  {
+    final AbstractMicroNodeWithChildren aSource = m_aLazySource;
+    if (aSource != null)
+    {
+      m_aLazySource = null;
+      final int nCount = aSource.m_nChildCount;
+      if (nCount > 0)
+      {
+        m_aChildren = new IMicroNode [nCount];
+        for (int i = 0; i < nCount; ++i)
+        {
+          // Cloning a frozen child is lazy as well
+          final AbstractMicroNode aClone = (AbstractMicroNode) aSource.m_aChildren[i].getClone ();
+          aClone.setParentNode (this);
+          m_aChildren[i] = aClone;
+        }
+        m_nChildCount = nCount;
+      }
+    }
+  }
+
+  /**
+   * Clone all children of this node into the passed node. If this node is
+   * frozen, the children are not copied immediately but only upon first
+   * access to the children of the passed node.
+   * 
+   * @param aTarget
+   *        The newly created clone of this node. May not be <code>null</code>.
+   */
+  final void internalCloneChildren (@Nonnull final AbstractMicroNodeWithChildren aTarget)
+  {
+    if (isFrozen ())
+      aTarget.m_aLazySource = this;
+    else
+      if (m_aLazySource != null)
+      {
+        // This node is an unmodified lazy clone itself
+        aTarget.m_aLazySource = m_aLazySource;
+      }
+      else
+        for (int i = 0; i < m_nChildCount; ++i)
+          aTarget.appendChild (m_aChildren[i].getClone ());
+  }
+
+  @Override
+  void internalFreeze ()
+  {
+    _ensureChildren ();
+    super.internalFreeze ();
+    for (int i = 0; i < m_nChildCount; ++i)
+      ((AbstractMicroNode) m_aChildren[i]).internalFreeze ();
+  }
+
+  private int _indexOf (@Nonnull final IMicroNode aNode)
+  {
+    for (int i = 0; i < m_nChildCount; ++i)
+      if (aNode.equals (m_aChildren[i]))
+        return i;
+    return -1;
+  }
+
+  private int _lastIndexOf (@Nonnull final IMicroNode aNode)
+  {
+    for (int i = m_nChildCount - 1; i >= 0; --i)
+      if (aNode.equals (m_aChildren[i]))
+        return i;
+    return -1;
+  }
+
+  private void _insertAt (@Nonnegative final int nIndex, @Nonnull final IMicroNode aNode)
+  {
+    if (m_aChildren == null)
+    {
+      // Most nodes have exactly one child
+      m_aChildren = new IMicroNode [1];
+    }
+    else
+      if (m_nChildCount == m_aChildren.length)
+      {
+        // Grow by 50%
+        m_aChildren = Arrays.copyOf (m_aChildren, m_nChildCount + (m_nChildCount >> 1) + 1);
+      }
+    if (nIndex < m_nChildCount)
+      System.arraycopy (m_aChildren, nIndex, m_aChildren, nIndex + 1, m_nChildCount - nIndex);
+    m_aChildren[nIndex] = aNode;
+    m_nChildCount++;
+  }
+
+  @Nonnull
+  private IMicroNode _removeAt (@Nonnegative final int nIndex)
+  {
+    final IMicroNode ret = m_aChildren[nIndex];
+    final int nMoved = m_nChildCount - nIndex - 1;
+    if (nMoved > 0)
+      System.arraycopy (m_aChildren, nIndex + 1, m_aChildren, nIndex, nMoved);
+    m_aChildren[--m_nChildCount] = null;
+    return ret;
   }
 
   private void _afterInsertAsChildOfThis (@Nonnull final AbstractMicroNode aChildNode)
@@ -72,25 +208,27 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   @Override
   protected void onAppendChild (@Nonnull final AbstractMicroNode aChildNode)
   {
+    checkNotFrozen ();
+    _ensureChildren ();
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to documents");
-    if (m_aChildren == null)
-      m_aChildren = new ArrayList <IMicroNode> ();
-    m_aChildren.add (aChildNode);
+    _insertAt (m_nChildCount, aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
 
   @Override
   protected final void onInsertBefore (@Nonnull final AbstractMicroNode aChildNode, @Nonnull final IMicroNode aSuccessor)
   {
+    checkNotFrozen ();
+    _ensureChildren ();
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to nodes");
-    if (aSuccessor == null || m_aChildren == null)
+    if (aSuccessor == null || m_nChildCount == 0)
       throw new MicroException ("Cannot add before element which is not contained!");
-    final int nIndex = m_aChildren.lastIndexOf (aSuccessor);
+    final int nIndex = _lastIndexOf (aSuccessor);
     if (nIndex == -1)
       throw new MicroException ("Cannot add before element which is not contained!");
-    m_aChildren.add (nIndex, aChildNode);
+    _insertAt (nIndex, aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
 
@@ -98,36 +236,38 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   protected final void onInsertAfter (@Nonnull final AbstractMicroNode aChildNode,
                                       @Nonnull final IMicroNode aPredecessor)
   {
+    checkNotFrozen ();
+    _ensureChildren ();
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to nodes");
-    if (aPredecessor == null || m_aChildren == null)
+    if (aPredecessor == null || m_nChildCount == 0)
       throw new MicroException ("Cannot add after element which is not contained!");
-    final int nIndex = m_aChildren.lastIndexOf (aPredecessor);
+    final int nIndex = _lastIndexOf (aPredecessor);
     if (nIndex == -1)
       throw new MicroException ("Cannot add after element which is not contained!");
-    m_aChildren.add (nIndex + 1, aChildNode);
+    _insertAt (nIndex + 1, aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
 
   @Override
   protected final void onInsertAtIndex (@Nonnegative final int nIndex, @Nonnull final AbstractMicroNode aChildNode)
   {
+    checkNotFrozen ();
+    _ensureChildren ();
     if (nIndex < 0)
       throw new MicroException ("Cannot insert element at index " + nIndex + "!");
     if (aChildNode.isDocument ())
       throw new MicroException ("Cannot add document to nodes");
-    if (m_aChildren == null)
-      m_aChildren = new ArrayList <IMicroNode> ();
-    m_aChildren.add (Math.min (nIndex, m_aChildren.size ()), aChildNode);
+    _insertAt (Math.min (nIndex, m_nChildCount), aChildNode);
     _afterInsertAsChildOfThis (aChildNode);
   }
 
   private void _afterRemoveChildOfThis (@Nonnull final IMicroNode aChildNode)
   {
-    if (m_aChildren.contains (aChildNode))
+    if (_indexOf (aChildNode) >= 0)
       throw new IllegalStateException ("Child " + aChildNode + " is contained more than once in it's parents list");
 
-    if (m_aChildren.isEmpty ())
+    if (m_nChildCount == 0)
       m_aChildren = null;
     ((AbstractMicroNode) aChildNode).resetParentNode ();
     onEvent (EMicroEvent.NODE_REMOVED, this, aChildNode);
@@ -137,11 +277,15 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   @Nonnull
   protected final EChange onRemoveChild (@Nonnull final IMicroNode aChildNode)
   {
+    checkNotFrozen ();
+    _ensureChildren ();
     if (!aChildNode.hasParent ())
       throw new MicroException ("The passed child node to be removed has no parent!");
 
-    if (m_aChildren == null || !m_aChildren.remove (aChildNode))
+    final int nIndex = _indexOf (aChildNode);
+    if (nIndex == -1)
       return EChange.UNCHANGED;
+    _removeAt (nIndex);
 
     _afterRemoveChildOfThis (aChildNode);
     return EChange.CHANGED;
@@ -151,6 +295,8 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   @Nonnull
   protected final EChange onRemoveChildAtIndex (@Nonnegative final int nIndex)
   {
+    checkNotFrozen ();
+    _ensureChildren ();
     // Resolve index - may be invalid
     final IMicroNode aChildNode = getChildAtIndex (nIndex);
     if (aChildNode == null)
@@ -160,7 +306,7 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
       throw new MicroException ("Internal inconsistency: the passed child node to be removed has no parent!");
 
     // Main removal
-    if (m_aChildren.remove (nIndex) != aChildNode)
+    if (_removeAt (nIndex) != aChildNode)
       throw new MicroException ("Internal inconsistency: remove resulted in an illegal object!");
 
     _afterRemoveChildOfThis (aChildNode);
@@ -171,7 +317,9 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   @Nonnull
   protected final EChange onRemoveAllChildren ()
   {
-    if (m_aChildren == null || m_aChildren.isEmpty ())
+    checkNotFrozen ();
+    _ensureChildren ();
+    if (m_nChildCount == 0)
       return EChange.UNCHANGED;
 
     // Trigger the method manually so that all events etc. are fired
@@ -186,7 +334,8 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   @Override
   public final boolean hasChildren ()
   {
-    return m_aChildren != null && !m_aChildren.isEmpty ();
+    _ensureChildren ();
+    return m_nChildCount > 0;
   }
 
   @Override
@@ -194,35 +343,44 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   @ReturnsMutableCopy
   public final List <IMicroNode> getChildren ()
   {
-    return m_aChildren == null ? null : ContainerHelper.newList (m_aChildren);
+    _ensureChildren ();
+    if (m_nChildCount == 0)
+      return null;
+    final List <IMicroNode> ret = new ArrayList <IMicroNode> (m_nChildCount);
+    for (int i = 0; i < m_nChildCount; ++i)
+      ret.add (m_aChildren[i]);
+    return ret;
   }
 
   @Override
   @Nullable
   public final IMicroNode getChildAtIndex (@Nonnegative final int nIndex)
   {
-    return ContainerHelper.getSafe (m_aChildren, nIndex);
+    _ensureChildren ();
+    return nIndex >= 0 && nIndex < m_nChildCount ? m_aChildren[nIndex] : null;
   }
 
   @Override
   public final int getChildCount ()
   {
-    return m_aChildren == null ? 0 : m_aChildren.size ();
+    _ensureChildren ();
+    return m_nChildCount;
   }
 
   @Override
   @Nullable
   public final IMicroNode getFirstChild ()
   {
-    return hasChildren () ? m_aChildren.get (0) : null;
+    _ensureChildren ();
+    return m_nChildCount == 0 ? null : m_aChildren[0];
   }
 
   @Override
   @Nullable
   public final IMicroNode getLastChild ()
   {
-    final int nChildCount = getChildCount ();
-    return nChildCount == 0 ? null : m_aChildren.get (nChildCount - 1);
+    _ensureChildren ();
+    return m_nChildCount == 0 ? null : m_aChildren[m_nChildCount - 1];
   }
 
   private void _fillListPrefix (@Nonnull final IMicroNode aCurNode, @Nonnull final List <IMicroNode> aNodes)
@@ -252,8 +410,9 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
       return null;
 
     final StringBuilder aSB = new StringBuilder ();
-    for (final IMicroNode aChild : directGetChildren ())
+    for (int i = 0; i < m_nChildCount; ++i)
     {
+      final IMicroNode aChild = m_aChildren[i];
       final EMicroNodeType eType = aChild.getType ();
       if (eType == EMicroNodeType.TEXT)
       {
@@ -308,18 +467,14 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
     if (o == null || !getClass ().equals (o.getClass ()))
       return false;
     final AbstractMicroNodeWithChildren rhs = (AbstractMicroNodeWithChildren) o;
-    if (m_aChildren == null && rhs.m_aChildren == null)
-      return true;
-    if (m_aChildren == null || rhs.m_aChildren == null)
-      return false;
-    final int nMax = m_aChildren.size ();
-    final int nMaxRhs = rhs.m_aChildren.size ();
-    if (nMax != nMaxRhs)
+    _ensureChildren ();
+    rhs._ensureChildren ();
+    if (m_nChildCount != rhs.m_nChildCount)
       return false;
-    for (int i = 0; i < nMax; ++i)
+    for (int i = 0; i < m_nChildCount; ++i)
     {
-      final IMicroNode aChild1 = m_aChildren.get (i);
-      final IMicroNode aChild2 = rhs.m_aChildren.get (i);
+      final IMicroNode aChild1 = m_aChildren[i];
+      final IMicroNode aChild2 = rhs.m_aChildren[i];
       if (!aChild1.isEqualContent (aChild2))
         return false;
     }
@@ -330,7 +485,7 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
   public String toString ()
   {
     return ToStringGenerator.getDerived (super.toString ())
-                            .append ("childrenCount", m_aChildren == null ? 0 : m_aChildren.size ())
+                            .append ("childrenCount", getChildCount ())
                             .toString ();
   }
 }
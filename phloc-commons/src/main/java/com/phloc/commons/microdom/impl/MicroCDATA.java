@@ -48,7 +48,7 @@ public final class MicroCDATA extends AbstractMicroNode implements IMicroCDATA
 
   private MicroCDATA (@Nonnull final MicroDataAware aData)
   {
-    m_aData = aData.getClone ();
+    m_aData = aData;
   }
 
   @Nonnull
@@ -79,43 +79,51 @@ public final class MicroCDATA extends AbstractMicroNode implements IMicroCDATA
 
   public void appendData (@Nullable final CharSequence sData)
   {
+    checkNotFrozen ();
     m_aData.appendData (sData);
   }
 
   public void appendData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
+    checkNotFrozen ();
     m_aData.appendData (aChars, nOfs, nLen);
   }
 
   public void appendData (final char cChar)
   {
+    checkNotFrozen ();
     m_aData.appendData (cChar);
   }
 
   public void prependData (@Nullable final CharSequence sData)
   {
+    checkNotFrozen ();
     m_aData.prependData (sData);
   }
 
   public void prependData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
+    checkNotFrozen ();
     m_aData.prependData (aChars, nOfs, nLen);
   }
 
   public void prependData (final char cChar)
   {
+    checkNotFrozen ();
     m_aData.prependData (cChar);
   }
 
   public void setData (@Nullable final CharSequence sData)
   {
+    checkNotFrozen ();
     m_aData.setData (sData);
   }
 
   @Nonnull
   public IMicroCDATA getClone ()
   {
-    return new MicroCDATA (m_aData);
+    // The text of frozen nodes is only copied when the clone is modified
+    return new MicroCDATA (isFrozen () ? m_aData.getSharedClone () : m_aData.getClone ());
   }
 
   public boolean isEqualContent (@Nullable final IMicroNode o)
@@ -63,10 +63,8 @@ public final class MicroContainer extends AbstractMicroNodeWithChildren implemen
   @Nonnull
   public IMicroContainer getClone ()
   {
-    final IMicroContainer ret = new MicroContainer ();
-    if (hasChildren ())
-      for (final IMicroNode aChildNode : getChildren ())
-        ret.appendChild (aChildNode.getClone ());
+    final MicroContainer ret = new MicroContainer ();
+    internalCloneChildren (ret);
     return ret;
   }
 
@@ -36,7 +36,10 @@ import com.phloc.commons.string.ToStringGenerator;
  */
 final class MicroDataAware implements IMicroDataAware, ICloneable <MicroDataAware>
 {
-  private final StringBuilder m_aSB;
+  private StringBuilder m_aSB;
+  // Is m_aSB shared with a frozen node, so that it must be copied before it
+  // may be modified?
+  private boolean m_bCopyOnWrite;
 
   public MicroDataAware (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
@@ -52,6 +55,23 @@ final class MicroDataAware implements IMicroDataAware, ICloneable <MicroDataAwar
       m_aSB = new StringBuilder (aText);
   }
 
+  private MicroDataAware (@Nonnull final StringBuilder aSB, final boolean bCopyOnWrite)
+  {
+    m_aSB = aSB;
+    m_bCopyOnWrite = bCopyOnWrite;
+  }
+
+  @Nonnull
+  private StringBuilder _getWritable ()
+  {
+    if (m_bCopyOnWrite)
+    {
+      m_aSB = new StringBuilder (m_aSB);
+      m_bCopyOnWrite = false;
+    }
+    return m_aSB;
+  }
+
   @Nonnull
   public StringBuilder getData ()
   {
@@ -60,38 +80,45 @@ final class MicroDataAware implements IMicroDataAware, ICloneable <MicroDataAwar
 
   public void setData (@Nullable final CharSequence aData)
   {
-    m_aSB.setLength (0);
+    if (m_bCopyOnWrite)
+    {
+      // No need to copy the old content
+      m_aSB = new StringBuilder ();
+      m_bCopyOnWrite = false;
+    }
+    else
+      m_aSB.setLength (0);
     m_aSB.append (aData);
   }
 
   public void appendData (@Nullable final CharSequence sData)
   {
-    m_aSB.append (sData);
+    _getWritable ().append (sData);
   }
 
   public void appendData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
-    m_aSB.append (aChars, nOfs, nLen);
+    _getWritable ().append (aChars, nOfs, nLen);
   }
 
   public void appendData (final char cChar)
   {
-    m_aSB.append (cChar);
+    _getWritable ().append (cChar);
   }
 
   public void prependData (@Nullable final CharSequence sData)
   {
-    m_aSB.insert (0, sData);
+    _getWritable ().insert (0, sData);
   }
 
   public void prependData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
-    m_aSB.insert (0, aChars, nOfs, nLen);
+    _getWritable ().insert (0, aChars, nOfs, nLen);
   }
 
   public void prependData (final char cChar)
   {
-    m_aSB.insert (0, cChar);
+    _getWritable ().insert (0, cChar);
   }
 
   @Nonnull
@@ -100,6 +127,19 @@ final class MicroDataAware implements IMicroDataAware, ICloneable <MicroDataAwar
     return new MicroDataAware (m_aSB);
   }
 
+  /**
+   * Get a clone that shares the data with this object until the clone is
+   * modified. Only valid if this object is never modified afterwards, as it is
+   * the case for frozen nodes.
+   * 
+   * @return The shared clone. Never <code>null</code>.
+   */
+  @Nonnull
+  public MicroDataAware getSharedClone ()
+  {
+    return new MicroDataAware (m_aSB, true);
+  }
+
   @Override
   public boolean equals (final Object o)
   {
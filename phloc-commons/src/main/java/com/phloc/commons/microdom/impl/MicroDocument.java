@@ -22,10 +22,12 @@ import java.util.List;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.phloc.commons.microdom.EMicroEvent;
 import com.phloc.commons.microdom.EMicroNodeType;
 import com.phloc.commons.microdom.IMicroDocument;
 import com.phloc.commons.microdom.IMicroDocumentType;
 import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.IMicroElementIndex;
 import com.phloc.commons.microdom.IMicroNode;
 import com.phloc.commons.microdom.MicroException;
 import com.phloc.commons.string.ToStringGenerator;
@@ -40,7 +42,12 @@ public final class MicroDocument extends AbstractMicroNodeWithChildren implement
   /** By default a document is not standalone */
   public static final boolean DEFAULT_STANDALONE = false;
 
+  /** The default ID attribute name used by the element index */
+  public static final String DEFAULT_ID_ATTRIBUTE_NAME = "id";
+
   private boolean m_bIsStandalone = DEFAULT_STANDALONE;
+  // Lazily created element index
+  private transient volatile MicroElementIndex m_aElementIndex;
 
   public MicroDocument ()
   {}
@@ -70,6 +77,7 @@ public final class MicroDocument extends AbstractMicroNodeWithChildren implement
   @Override
   protected void onAppendChild (@Nonnull final AbstractMicroNode aChildNode)
   {
+    checkNotFrozen ();
     if (!_canBeAppendedToDocumentRoot (aChildNode))
       throw new MicroException ("Cannot add nodes of type " + aChildNode + " to a document");
 
@@ -95,6 +103,7 @@ public final class MicroDocument extends AbstractMicroNodeWithChildren implement
 
   public void setStandalone (final boolean bIsStandalone)
   {
+    checkNotFrozen ();
     m_bIsStandalone = bIsStandalone;
   }
 
@@ -118,14 +127,47 @@ public final class MicroDocument extends AbstractMicroNodeWithChildren implement
     return null;
   }
 
+  @Nonnull
+  public IMicroElementIndex getElementIndex ()
+  {
+    MicroElementIndex ret = m_aElementIndex;
+    if (ret == null)
+    {
+      synchronized (this)
+      {
+        // Try again in synchronized block
+        ret = m_aElementIndex;
+        if (ret == null)
+        {
+          ret = new MicroElementIndex (this);
+          m_aElementIndex = ret;
+        }
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  void onRootEvent (@Nonnull final EMicroEvent eEventType)
+  {
+    final MicroElementIndex aElementIndex = m_aElementIndex;
+    if (aElementIndex != null)
+      aElementIndex.onDocumentEvent (eEventType);
+  }
+
+  @Nonnull
+  public MicroDocument freeze ()
+  {
+    internalFreeze ();
+    return this;
+  }
+
   @Nonnull
   public IMicroDocument getClone ()
   {
     final MicroDocument ret = new MicroDocument ();
     ret.setStandalone (m_bIsStandalone);
-    if (hasChildren ())
-      for (final IMicroNode aChildNode : getChildren ())
-        ret.appendChild (aChildNode.getClone ());
+    internalCloneChildren (ret);
     return ret;
   }
 
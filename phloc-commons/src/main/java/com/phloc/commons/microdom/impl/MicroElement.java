@@ -18,7 +18,9 @@
 package com.phloc.commons.microdom.impl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -36,6 +38,7 @@ import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.equals.EqualsUtils;
+import com.phloc.commons.microdom.EMicroEvent;
 import com.phloc.commons.microdom.EMicroNodeType;
 import com.phloc.commons.microdom.IHasAttributeValue;
 import com.phloc.commons.microdom.IHasElementName;
@@ -56,12 +59,24 @@ import com.phloc.commons.xml.CXMLRegEx;
  */
 public final class MicroElement extends AbstractMicroNodeWithChildren implements IMicroElement
 {
-  private static final long serialVersionUID = 1301312611126433950L;
+  private static final long serialVersionUID = 1301312611126433951L;
 
   private static final Logger s_aLogger = LoggerFactory.getLogger (MicroElement.class);
 
+  /**
+   * The maximum number of attributes stored in the inline arrays. If more
+   * attributes are present, a map is used instead.
+   */
+  public static final int MAX_INLINE_ATTRIBUTES = 8;
+
   private String m_sNamespaceURI;
   private final String m_sTagName;
+  // Attributes in insertion order. Names and values are stored in parallel
+  // arrays, as most elements only have very few attributes
+  private String [] m_aAttrNames;
+  private String [] m_aAttrValues;
+  private int m_nAttrCount;
+  // Used instead of the arrays if more than MAX_INLINE_ATTRIBUTES are present
   private Map <String, String> m_aAttrs;
 
   public MicroElement (@Nonnull final IHasElementName aElementNameProvider)
@@ -82,12 +97,14 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   public MicroElement (@Nullable final String sNamespaceURI, @Nonnull @Nonempty final String sTagName)
   {
     ValueEnforcer.notEmpty (sTagName, "TagName"); //$NON-NLS-1$
-    this.m_sNamespaceURI = sNamespaceURI;
+    // Namespace URIs and element names are interned, as they are repeated
+    // over and over again in large documents
+    this.m_sNamespaceURI = sNamespaceURI == null ? null : sNamespaceURI.intern ();
 
     // Store only the local name (cut the prefix) if a namespace is present
     final int nPrefixEnd = sNamespaceURI != null ? sTagName.indexOf (CXML.XML_PREFIX_NAMESPACE_SEP) : -1;
     if (nPrefixEnd == -1)
-      this.m_sTagName = sTagName;
+      this.m_sTagName = sTagName.intern ();
     else
     {
       // Cut the prefix
@@ -96,7 +113,7 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
                       "' from tag name '" + //$NON-NLS-1$
                       sTagName +
                       "'"); //$NON-NLS-1$
-      this.m_sTagName = sTagName.substring (nPrefixEnd + 1);
+      this.m_sTagName = sTagName.substring (nPrefixEnd + 1).intern ();
     }
 
     // Only for the debug version, as this slows things down heavily
@@ -130,14 +147,14 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @Override
   public boolean hasAttributes ()
   {
-    return this.m_aAttrs != null && !this.m_aAttrs.isEmpty ();
+    return getAttributeCount () > 0;
   }
 
   @Override
   @Nonnegative
   public int getAttributeCount ()
   {
-    return this.m_aAttrs == null ? 0 : this.m_aAttrs.size ();
+    return this.m_aAttrs != null ? this.m_aAttrs.size () : this.m_nAttrCount;
   }
 
   @Override
@@ -145,7 +162,14 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @ReturnsMutableCopy
   public Map <String, String> getAllAttributes ()
   {
-    return hasAttributes () ? ContainerHelper.newOrderedMap (this.m_aAttrs) : null;
+    if (this.m_aAttrs != null)
+      return this.m_aAttrs.isEmpty () ? null : ContainerHelper.newOrderedMap (this.m_aAttrs);
+    if (this.m_nAttrCount == 0)
+      return null;
+    final Map <String, String> ret = new LinkedHashMap <String, String> (this.m_nAttrCount * 2);
+    for (int i = 0; i < this.m_nAttrCount; ++i)
+      ret.put (this.m_aAttrNames[i], this.m_aAttrValues[i]);
+    return ret;
   }
 
   @Override
@@ -153,7 +177,14 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @ReturnsMutableCopy
   public Set <String> getAllAttributeNames ()
   {
-    return hasAttributes () ? ContainerHelper.newOrderedSet (this.m_aAttrs.keySet ()) : null;
+    if (this.m_aAttrs != null)
+      return this.m_aAttrs.isEmpty () ? null : ContainerHelper.newOrderedSet (this.m_aAttrs.keySet ());
+    if (this.m_nAttrCount == 0)
+      return null;
+    final Set <String> ret = new LinkedHashSet <String> (this.m_nAttrCount * 2);
+    for (int i = 0; i < this.m_nAttrCount; ++i)
+      ret.add (this.m_aAttrNames[i]);
+    return ret;
   }
 
   @Override
@@ -161,14 +192,44 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @ReturnsMutableCopy
   public List <String> getAllAttributeValues ()
   {
-    return hasAttributes () ? ContainerHelper.newList (this.m_aAttrs.values ()) : null;
+    if (this.m_aAttrs != null)
+      return this.m_aAttrs.isEmpty () ? null : ContainerHelper.newList (this.m_aAttrs.values ());
+    if (this.m_nAttrCount == 0)
+      return null;
+    final List <String> ret = new ArrayList <String> (this.m_nAttrCount);
+    for (int i = 0; i < this.m_nAttrCount; ++i)
+      ret.add (this.m_aAttrValues[i]);
+    return ret;
+  }
+
+  /**
+   * Find the index of the passed attribute name in the inline arrays.
+   *
+   * @param sAttrName
+   *        The attribute name to search. May be <code>null</code>.
+   * @return -1 if no such attribute is contained
+   */
+  private int _getInlineAttrIndex (@Nullable final String sAttrName)
+  {
+    if (sAttrName != null)
+      for (int i = 0; i < this.m_nAttrCount; ++i)
+      {
+        final String sName = this.m_aAttrNames[i];
+        // Names are interned, so the identity check is the common case
+        if (sName == sAttrName || sName.equals (sAttrName))
+          return i;
+      }
+    return -1;
   }
 
   @Override
   @Nullable
   public String getAttribute (@Nullable final String sAttrName)
   {
-    return this.m_aAttrs == null ? null : this.m_aAttrs.get (sAttrName);
+    if (this.m_aAttrs != null)
+      return this.m_aAttrs.get (sAttrName);
+    final int nIndex = _getInlineAttrIndex (sAttrName);
+    return nIndex < 0 ? null : this.m_aAttrValues[nIndex];
   }
 
   @Override
@@ -207,14 +268,41 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @Override
   public boolean hasAttribute (@Nullable final String sAttrName)
   {
-    return this.m_aAttrs != null && this.m_aAttrs.containsKey (sAttrName);
+    if (this.m_aAttrs != null)
+      return this.m_aAttrs.containsKey (sAttrName);
+    return _getInlineAttrIndex (sAttrName) >= 0;
   }
 
   @Override
   @Nonnull
   public EChange removeAttribute (@Nullable final String sAttrName)
   {
-    return EChange.valueOf (this.m_aAttrs != null && this.m_aAttrs.remove (sAttrName) != null);
+    checkNotFrozen ();
+    if (_removeAttribute (sAttrName).isUnchanged ())
+      return EChange.UNCHANGED;
+    onEvent (EMicroEvent.ATTRIBUTE_CHANGED, this, this);
+    return EChange.CHANGED;
+  }
+
+  @Nonnull
+  private EChange _removeAttribute (@Nullable final String sAttrName)
+  {
+    if (this.m_aAttrs != null)
+      return EChange.valueOf (this.m_aAttrs.remove (sAttrName) != null);
+
+    final int nIndex = _getInlineAttrIndex (sAttrName);
+    if (nIndex < 0)
+      return EChange.UNCHANGED;
+    final int nMoved = this.m_nAttrCount - nIndex - 1;
+    if (nMoved > 0)
+    {
+      System.arraycopy (this.m_aAttrNames, nIndex + 1, this.m_aAttrNames, nIndex, nMoved);
+      System.arraycopy (this.m_aAttrValues, nIndex + 1, this.m_aAttrValues, nIndex, nMoved);
+    }
+    this.m_nAttrCount--;
+    this.m_aAttrNames[this.m_nAttrCount] = null;
+    this.m_aAttrValues[this.m_nAttrCount] = null;
+    return EChange.CHANGED;
   }
 
   @Override
@@ -222,6 +310,7 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   public MicroElement setAttribute (@Nonnull @Nonempty final String sAttrName, @Nullable final String sAttrValue)
   {
     ValueEnforcer.notEmpty (sAttrName, "AttrName"); //$NON-NLS-1$
+    checkNotFrozen ();
 
     // Only for the dev version
     if (GlobalDebug.isDebugMode ())
@@ -235,15 +324,62 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 
     if (sAttrValue != null)
     {
-      if (this.m_aAttrs == null)
-        this.m_aAttrs = new LinkedHashMap <String, String> ();
-      this.m_aAttrs.put (sAttrName, sAttrValue);
+      if (_setAttribute (sAttrName, sAttrValue).isChanged ())
+        onEvent (EMicroEvent.ATTRIBUTE_CHANGED, this, this);
     }
     else
       removeAttribute (sAttrName);
     return this;
   }
 
+  @Nonnull
+  private EChange _setAttribute (@Nonnull final String sAttrName, @Nonnull final String sAttrValue)
+  {
+    if (this.m_aAttrs != null)
+      return EChange.valueOf (!sAttrValue.equals (this.m_aAttrs.put (sAttrName.intern (), sAttrValue)));
+
+    final int nIndex = _getInlineAttrIndex (sAttrName);
+    if (nIndex >= 0)
+    {
+      if (sAttrValue.equals (this.m_aAttrValues[nIndex]))
+        return EChange.UNCHANGED;
+      // Overwrite existing value but keep the position
+      this.m_aAttrValues[nIndex] = sAttrValue;
+      return EChange.CHANGED;
+    }
+
+    if (this.m_nAttrCount == MAX_INLINE_ATTRIBUTES)
+    {
+      // Switch to the map
+      final Map <String, String> aAttrs = new LinkedHashMap <String, String> ();
+      for (int i = 0; i < this.m_nAttrCount; ++i)
+        aAttrs.put (this.m_aAttrNames[i], this.m_aAttrValues[i]);
+      aAttrs.put (sAttrName.intern (), sAttrValue);
+      this.m_aAttrs = aAttrs;
+      this.m_aAttrNames = null;
+      this.m_aAttrValues = null;
+      this.m_nAttrCount = 0;
+      return EChange.CHANGED;
+    }
+
+    if (this.m_aAttrNames == null)
+    {
+      this.m_aAttrNames = new String [2];
+      this.m_aAttrValues = new String [2];
+    }
+    else
+      if (this.m_nAttrCount == this.m_aAttrNames.length)
+      {
+        final int nNewLength = Math.min (this.m_nAttrCount * 2, MAX_INLINE_ATTRIBUTES);
+        this.m_aAttrNames = Arrays.copyOf (this.m_aAttrNames, nNewLength);
+        this.m_aAttrValues = Arrays.copyOf (this.m_aAttrValues, nNewLength);
+      }
+    this.m_aAttrNames[this.m_nAttrCount] = sAttrName.intern ();
+    this.m_aAttrValues[this.m_nAttrCount] = sAttrValue;
+    this.m_nAttrCount++;
+    return EChange.CHANGED;
+  }
+
   @Override
   @Nonnull
   public MicroElement setAttribute (@Nonnull final String sAttrName,
@@ -280,9 +416,14 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @Nonnull
   public EChange removeAllAttributes ()
   {
-    if (ContainerHelper.isEmpty (this.m_aAttrs))
+    checkNotFrozen ();
+    if (!hasAttributes ())
       return EChange.UNCHANGED;
-    this.m_aAttrs.clear ();
+    this.m_aAttrs = null;
+    this.m_aAttrNames = null;
+    this.m_aAttrValues = null;
+    this.m_nAttrCount = 0;
+    onEvent (EMicroEvent.ATTRIBUTE_CHANGED, this, this);
     return EChange.CHANGED;
   }
 
@@ -297,9 +438,11 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @Nonnull
   public EChange setNamespaceURI (@Nullable final String sNamespaceURI)
   {
+    checkNotFrozen ();
     if (EqualsUtils.equals (this.m_sNamespaceURI, sNamespaceURI))
       return EChange.UNCHANGED;
-    this.m_sNamespaceURI = sNamespaceURI;
+    this.m_sNamespaceURI = sNamespaceURI == null ? null : sNamespaceURI.intern ();
+    onEvent (EMicroEvent.NAMESPACE_CHANGED, this, this);
     return EChange.CHANGED;
   }
 
@@ -688,14 +831,37 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     // Copy attributes
     if (this.m_aAttrs != null)
       ret.m_aAttrs = ContainerHelper.newOrderedMap (this.m_aAttrs);
+    else
+      if (this.m_nAttrCount > 0)
+      {
+        ret.m_aAttrNames = Arrays.copyOf (this.m_aAttrNames, this.m_nAttrCount);
+        ret.m_aAttrValues = Arrays.copyOf (this.m_aAttrValues, this.m_nAttrCount);
+        ret.m_nAttrCount = this.m_nAttrCount;
+      }
 
-    // Deep clone all child nodes
-    if (hasChildren ())
-      for (final IMicroNode aChildNode : directGetChildren ())
-        ret.appendChild (aChildNode.getClone ());
+    // Deep clone all child nodes - lazily if this element is frozen
+    internalCloneChildren (ret);
     return ret;
   }
 
+  private boolean _isEqualAttributes (@Nonnull final MicroElement rhs)
+  {
+    // Attribute order is irrelevant for equality
+    if (getAttributeCount () != rhs.getAttributeCount ())
+      return false;
+    if (this.m_aAttrs != null)
+    {
+      for (final Map.Entry <String, String> aEntry : this.m_aAttrs.entrySet ())
+        if (!aEntry.getValue ().equals (rhs.getAttribute (aEntry.getKey ())))
+          return false;
+    }
+    else
+      for (int i = 0; i < this.m_nAttrCount; ++i)
+        if (!this.m_aAttrValues[i].equals (rhs.getAttribute (this.m_aAttrNames[i])))
+          return false;
+    return true;
+  }
+
   @Override
   public boolean isEqualContent (@Nullable final IMicroNode o)
   {
@@ -706,7 +872,7 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     final MicroElement rhs = (MicroElement) o;
     return EqualsUtils.equals (this.m_sNamespaceURI, rhs.m_sNamespaceURI) &&
            this.m_sTagName.equals (rhs.m_sTagName) &&
-           EqualsUtils.equals (this.m_aAttrs, rhs.m_aAttrs);
+           _isEqualAttributes (rhs);
   }
 
   @Override
@@ -715,7 +881,7 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     return ToStringGenerator.getDerived (super.toString ())
                             .appendIfNotNull ("namespace", this.m_sNamespaceURI) //$NON-NLS-1$
                             .append ("tagname", this.m_sTagName) //$NON-NLS-1$
-                            .appendIfNotNull ("attrs", this.m_aAttrs) //$NON-NLS-1$
+                            .appendIfNotNull ("attrs", getAllAttributes ()) //$NON-NLS-1$
                             .toString ();
   }
 }
@@ -0,0 +1,360 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.microdom.impl;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.microdom.EMicroEvent;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.IMicroElementIndex;
+import com.phloc.commons.microdom.IMicroNode;
+import com.phloc.commons.state.EChange;
+import com.phloc.commons.string.StringHelper;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * Default implementation of the {@link IMicroElementIndex} interface. The
+ * index parts are built lazily and are discarded upon the respective
+ * {@link EMicroEvent} of the owning document.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class MicroElementIndex implements IMicroElementIndex
+{
+  /**
+   * The index by name. Immutable after creation.
+   */
+  private static final class NameIndex
+  {
+    private final Map <String, List <IMicroElement>> m_aByTagName = new HashMap <String, List <IMicroElement>> ();
+    private final Map <String, Map <String, List <IMicroElement>>> m_aByNamespace = new HashMap <String, Map <String, List <IMicroElement>>> ();
+
+    NameIndex (@Nonnull final List <IMicroElement> aAllElements)
+    {
+      for (final IMicroElement aElement : aAllElements)
+      {
+        final String sTagName = aElement.getTagName ();
+        _add (m_aByTagName, sTagName, aElement);
+
+        final String sNamespaceURI = aElement.getNamespaceURI ();
+        if (StringHelper.hasText (sNamespaceURI))
+        {
+          Map <String, List <IMicroElement>> aMap = m_aByNamespace.get (sNamespaceURI);
+          if (aMap == null)
+          {
+            aMap = new HashMap <String, List <IMicroElement>> ();
+            m_aByNamespace.put (sNamespaceURI, aMap);
+          }
+          _add (aMap, sTagName, aElement);
+        }
+      }
+    }
+
+    private static void _add (@Nonnull final Map <String, List <IMicroElement>> aMap,
+                              @Nonnull final String sKey,
+                              @Nonnull final IMicroElement aElement)
+    {
+      List <IMicroElement> aList = aMap.get (sKey);
+      if (aList == null)
+      {
+        aList = new ArrayList <IMicroElement> ();
+        aMap.put (sKey, aList);
+      }
+      aList.add (aElement);
+    }
+
+    @Nullable
+    List <IMicroElement> get (@Nullable final String sNamespaceURI, @Nullable final String sLocalName)
+    {
+      if (StringHelper.hasNoText (sNamespaceURI))
+        return m_aByTagName.get (sLocalName);
+      final Map <String, List <IMicroElement>> aMap = m_aByNamespace.get (sNamespaceURI);
+      return aMap == null ? null : aMap.get (sLocalName);
+    }
+  }
+
+  private final ReadWriteLock m_aRWLock = new ReentrantReadWriteLock ();
+  private final MicroDocument m_aDoc;
+  private final Set <String> m_aIDAttrNames = new LinkedHashSet <String> ();
+  // Lazily built - null if not yet built or discarded
+  private NameIndex m_aNameIndex;
+  private Map <String, List <IMicroElement>> m_aIDIndex;
+
+  MicroElementIndex (@Nonnull final MicroDocument aDoc)
+  {
+    m_aDoc = ValueEnforcer.notNull (aDoc, "Document");
+    m_aIDAttrNames.add (MicroDocument.DEFAULT_ID_ATTRIBUTE_NAME);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public Set <String> getAllIDAttributeNames ()
+  {
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      return ContainerHelper.newOrderedSet (m_aIDAttrNames);
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+  }
+
+  @Nonnull
+  public EChange addIDAttributeName (@Nonnull @Nonempty final String sAttrName)
+  {
+    ValueEnforcer.notEmpty (sAttrName, "AttrName");
+
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (!m_aIDAttrNames.add (sAttrName))
+        return EChange.UNCHANGED;
+      m_aIDIndex = null;
+      return EChange.CHANGED;
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  @Nonnull
+  public EChange removeIDAttributeName (@Nullable final String sAttrName)
+  {
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      if (!m_aIDAttrNames.remove (sAttrName))
+        return EChange.UNCHANGED;
+      m_aIDIndex = null;
+      return EChange.CHANGED;
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  private static void _addAllElements (@Nonnull final AbstractMicroNodeWithChildren aParent,
+                                       @Nonnull final List <IMicroElement> aTarget)
+  {
+    final List <IMicroNode> aChildren = aParent.directGetChildren ();
+    if (aChildren != null)
+      for (final IMicroNode aChild : aChildren)
+      {
+        if (aChild.isElement ())
+          aTarget.add ((IMicroElement) aChild);
+        if (aChild instanceof AbstractMicroNodeWithChildren)
+          _addAllElements ((AbstractMicroNodeWithChildren) aChild, aTarget);
+      }
+  }
+
+  @Nonnull
+  private List <IMicroElement> _getAllElements ()
+  {
+    final List <IMicroElement> ret = new ArrayList <IMicroElement> ();
+    _addAllElements (m_aDoc, ret);
+    return ret;
+  }
+
+  @Nonnull
+  private NameIndex _getNameIndex ()
+  {
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      if (m_aNameIndex != null)
+        return m_aNameIndex;
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      // Try again in write lock
+      if (m_aNameIndex == null)
+        m_aNameIndex = new NameIndex (_getAllElements ());
+      return m_aNameIndex;
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  @Nonnull
+  private Map <String, List <IMicroElement>> _getIDIndex ()
+  {
+    m_aRWLock.readLock ().lock ();
+    try
+    {
+      if (m_aIDIndex != null)
+        return m_aIDIndex;
+    }
+    finally
+    {
+      m_aRWLock.readLock ().unlock ();
+    }
+
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      // Try again in write lock
+      if (m_aIDIndex == null)
+      {
+        final Map <String, List <IMicroElement>> aIDIndex = new HashMap <String, List <IMicroElement>> ();
+        for (final IMicroElement aElement : _getAllElements ())
+          if (aElement.hasAttributes ())
+            for (final String sAttrName : m_aIDAttrNames)
+            {
+              final String sID = aElement.getAttribute (sAttrName);
+              if (sID != null)
+              {
+                List <IMicroElement> aList = aIDIndex.get (sID);
+                if (aList == null)
+                {
+                  aList = new ArrayList <IMicroElement> (1);
+                  aIDIndex.put (sID, aList);
+                }
+                // Add each element only once, even if multiple ID attributes
+                // have the same value
+                if (aList.isEmpty () || aList.get (aList.size () - 1) != aElement)
+                  aList.add (aElement);
+              }
+            }
+        m_aIDIndex = aIDIndex;
+      }
+      return m_aIDIndex;
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IMicroElement> getAllElementsWithName (@Nullable final String sTagName)
+  {
+    return getAllElementsWithName (null, sTagName);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IMicroElement> getAllElementsWithName (@Nullable final String sNamespaceURI,
+                                                      @Nullable final String sLocalName)
+  {
+    final List <IMicroElement> aList = _getNameIndex ().get (sNamespaceURI, sLocalName);
+    return aList == null ? new ArrayList <IMicroElement> () : ContainerHelper.newList (aList);
+  }
+
+  @Nullable
+  public IMicroElement getFirstElementWithName (@Nullable final String sTagName)
+  {
+    return getFirstElementWithName (null, sTagName);
+  }
+
+  @Nullable
+  public IMicroElement getFirstElementWithName (@Nullable final String sNamespaceURI, @Nullable final String sLocalName)
+  {
+    final List <IMicroElement> aList = _getNameIndex ().get (sNamespaceURI, sLocalName);
+    return aList == null ? null : aList.get (0);
+  }
+
+  @Nullable
+  public IMicroElement getElementWithID (@Nullable final String sID)
+  {
+    if (sID == null)
+      return null;
+    // First element in document order wins
+    final List <IMicroElement> aList = _getIDIndex ().get (sID);
+    return aList == null ? null : aList.get (0);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IMicroElement> getAllElementsWithID (@Nullable final String sID)
+  {
+    final List <IMicroElement> aList = sID == null ? null : _getIDIndex ().get (sID);
+    return aList == null ? new ArrayList <IMicroElement> () : ContainerHelper.newList (aList);
+  }
+
+  /**
+   * Called by the owning document for every event of the document.
+   * 
+   * @param eEventType
+   *        The event type. Never <code>null</code>.
+   */
+  void onDocumentEvent (@Nonnull final EMicroEvent eEventType)
+  {
+    m_aRWLock.writeLock ().lock ();
+    try
+    {
+      switch (eEventType)
+      {
+        case NODE_INSERTED:
+        case NODE_REMOVED:
+          m_aNameIndex = null;
+          m_aIDIndex = null;
+          break;
+        case ATTRIBUTE_CHANGED:
+          m_aIDIndex = null;
+          break;
+        case NAMESPACE_CHANGED:
+          m_aNameIndex = null;
+          break;
+        default:
+          throw new IllegalArgumentException ("Unsupported event type " + eEventType);
+      }
+    }
+    finally
+    {
+      m_aRWLock.writeLock ().unlock ();
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("IDAttrNames", m_aIDAttrNames)
+                                       .append ("hasNameIndex", m_aNameIndex != null)
+                                       .append ("hasIDIndex", m_aIDIndex != null)
+                                       .toString ();
+  }
+}
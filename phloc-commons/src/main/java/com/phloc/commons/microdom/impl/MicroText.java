@@ -108,36 +108,43 @@ public final class MicroText extends AbstractMicroNode implements IMicroText
 
   public void appendData (@Nullable final CharSequence sData)
   {
+    checkNotFrozen ();
     m_aData.appendData (sData);
   }
 
   public void appendData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
+    checkNotFrozen ();
     m_aData.appendData (aChars, nOfs, nLen);
   }
 
   public void appendData (final char cChar)
   {
+    checkNotFrozen ();
     m_aData.appendData (cChar);
   }
 
   public void prependData (@Nullable final CharSequence sData)
   {
+    checkNotFrozen ();
     m_aData.prependData (sData);
   }
 
   public void prependData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
+    checkNotFrozen ();
     m_aData.prependData (aChars, nOfs, nLen);
   }
 
   public void prependData (final char cChar)
   {
+    checkNotFrozen ();
     m_aData.prependData (cChar);
   }
 
   public void setData (@Nullable final CharSequence sData)
   {
+    checkNotFrozen ();
     m_aData.setData (sData);
   }
 
@@ -154,6 +161,7 @@ public final class MicroText extends AbstractMicroNode implements IMicroText
   @Nonnull
   public MicroText setEscape (final boolean bEscape)
   {
+    checkNotFrozen ();
     m_bEscape = bEscape;
     return this;
   }
@@ -161,7 +169,10 @@ public final class MicroText extends AbstractMicroNode implements IMicroText
   @Nonnull
   public IMicroText getClone ()
   {
-    return new MicroText (m_aData.getClone (), m_bIgnorableWhitespace, m_bEscape);
+    // The text of frozen nodes is only copied when the clone is modified
+    return new MicroText (isFrozen () ? m_aData.getSharedClone () : m_aData.getClone (),
+                          m_bIgnorableWhitespace,
+                          m_bEscape);
   }
 
   public boolean isEqualContent (@Nullable final IMicroNode o)
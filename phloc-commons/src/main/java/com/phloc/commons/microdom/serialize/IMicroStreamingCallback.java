@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.microdom.serialize;
+
+import javax.annotation.Nonnull;
+
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.state.EContinue;
+
+/**
+ * Callback interface for the {@link MicroStreamingReader} that is invoked for
+ * every element that matches the element path.
+ * 
+ * @author Philip Helger
+ */
+public interface IMicroStreamingCallback
+{
+  /**
+   * Called for each matching element, after the element was read completely.
+   * 
+   * @param aElement
+   *        The complete element with all its child nodes. It has no parent
+   *        and is not referenced by the reader any more. Never
+   *        <code>null</code>.
+   * @return {@link EContinue#BREAK} to stop reading, {@link EContinue#CONTINUE}
+   *         to continue with the next element.
+   */
+  @Nonnull
+  EContinue onElement (@Nonnull IMicroElement aElement);
+}
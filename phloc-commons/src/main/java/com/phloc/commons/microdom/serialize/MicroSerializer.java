@@ -17,14 +17,23 @@
  */
 package com.phloc.commons.microdom.serialize;
 
+import java.util.ArrayDeque;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.phloc.commons.CGlobal;
 import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.io.streams.NonBlockingStringWriter;
 import com.phloc.commons.microdom.IMicroCDATA;
 import com.phloc.commons.microdom.IMicroComment;
 import com.phloc.commons.microdom.IMicroContainer;
@@ -40,6 +49,7 @@ import com.phloc.commons.xml.IXMLIterationHandler;
 import com.phloc.commons.xml.XMLHelper;
 import com.phloc.commons.xml.serialize.AbstractSerializerPhloc;
 import com.phloc.commons.xml.serialize.IXMLWriterSettings;
+import com.phloc.commons.xml.serialize.XMLEmitterPhloc;
 import com.phloc.commons.xml.serialize.XMLWriterSettings;
 
 /**
@@ -49,14 +59,80 @@ import com.phloc.commons.xml.serialize.XMLWriterSettings;
  */
 public final class MicroSerializer extends AbstractSerializerPhloc <IMicroNode>
 {
+  /**
+   * The minimum number of children the outermost element must have, so that
+   * the children are serialized in parallel.
+   */
+  public static final int PARALLEL_MIN_CHILDREN = 64;
+
+  /** The minimum number of children to be serialized in one parallel chunk */
+  private static final int PARALLEL_MIN_CHILDREN_PER_CHUNK = 16;
+
+  /**
+   * Serializes a range of child nodes with a separate serializer into a
+   * separate buffer.
+   * 
+   * @author Philip Helger
+   */
+  private static final class ChunkSerializer implements Callable <NonBlockingStringWriter>
+  {
+    private final MicroSerializer m_aSerializer;
+    private final List <IMicroNode> m_aChildren;
+    private final int m_nFromIndex;
+    private final int m_nToIndex;
+
+    ChunkSerializer (@Nonnull final MicroSerializer aParent,
+                     @Nonnull final List <IMicroNode> aChildren,
+                     final int nFromIndex,
+                     final int nToIndex)
+    {
+      // Copy the state of the parent at the time of creation
+      m_aSerializer = new MicroSerializer (aParent.m_aSettings);
+      m_aSerializer.initStateFrom (aParent);
+      m_aChildren = aChildren;
+      m_nFromIndex = nFromIndex;
+      m_nToIndex = nToIndex;
+    }
+
+    @Nonnull
+    public NonBlockingStringWriter call ()
+    {
+      final NonBlockingStringWriter aSW = new NonBlockingStringWriter (16 * CGlobal.BYTES_PER_KILOBYTE);
+      final XMLEmitterPhloc aXMLWriter = m_aSerializer.createXMLEmitter (aSW, m_aSerializer.m_aSettings);
+      m_aSerializer._writeNodeList (aXMLWriter, m_aChildren, m_nFromIndex, m_nToIndex);
+      return aSW;
+    }
+  }
+
+  private final ExecutorService m_aParallelExecutor;
+
   public MicroSerializer ()
   {
     this (XMLWriterSettings.DEFAULT_XML_SETTINGS);
   }
 
   public MicroSerializer (@Nonnull final IXMLWriterSettings aSettings)
+  {
+    this (aSettings, null);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param aSettings
+   *        The settings to be used. May not be <code>null</code>.
+   * @param aParallelExecutor
+   *        An optional executor service. If it is present, the children of the
+   *        outermost serialized element are split into chunks which are
+   *        serialized in parallel and concatenated in order afterwards. This
+   *        only happens if the element has at least
+   *        {@link #PARALLEL_MIN_CHILDREN} children. May be <code>null</code>.
+   */
+  public MicroSerializer (@Nonnull final IXMLWriterSettings aSettings,
+                          @Nullable final ExecutorService aParallelExecutor)
   {
     super (aSettings);
+    m_aParallelExecutor = aParallelExecutor;
   }
 
   @Override
@@ -114,9 +190,17 @@ public final class MicroSerializer extends AbstractSerializerPhloc <IMicroNode>
    */
   private void _writeNodeList (@Nonnull final IXMLIterationHandler aXMLWriter,
                                @Nonnull final List <IMicroNode> aChildren)
+  {
+    _writeNodeList (aXMLWriter, aChildren, 0, aChildren.size ());
+  }
+
+  private void _writeNodeList (@Nonnull final IXMLIterationHandler aXMLWriter,
+                               @Nonnull final List <IMicroNode> aChildren,
+                               final int nFromIndex,
+                               final int nToIndex)
   {
     final int nLastIndex = aChildren.size () - 1;
-    for (int nIndex = 0; nIndex <= nLastIndex; ++nIndex)
+    for (int nIndex = nFromIndex; nIndex < nToIndex; ++nIndex)
     {
       emitNode (aXMLWriter,
                 nIndex == 0 ? null : aChildren.get (nIndex - 1),
@@ -125,6 +209,81 @@ public final class MicroSerializer extends AbstractSerializerPhloc <IMicroNode>
     }
   }
 
+  /**
+   * Write a list of nodes in parallel chunks. Each chunk is written by a
+   * separate serializer that starts with the current indentation and namespace
+   * state, so the result is identical to {@link #_writeNodeList}. The
+   * resulting chunks are appended in order. Only a limited number of chunks is
+   * in flight at a time, so that the memory required for finished chunks is
+   * bounded. A chunk that was not yet started by the executor when it is
+   * needed is serialized by the calling thread, so that serializing from within
+   * a task of the executor cannot deadlock.
+   * 
+   * @param aXMLWriter
+   *        The XML writer to use. May not be <code>null</code>.
+   * @param aChildren
+   *        The node list to be serialized. May not be <code>null</code>.
+   */
+  private void _writeNodeListParallel (@Nonnull final XMLEmitterPhloc aXMLWriter,
+                                       @Nonnull final List <IMicroNode> aChildren)
+  {
+    final int nChildren = aChildren.size ();
+    final int nProcessors = Runtime.getRuntime ().availableProcessors ();
+    final int nChunkCount = Math.max (1, Math.min (nChildren / PARALLEL_MIN_CHILDREN_PER_CHUNK, 4 * nProcessors));
+    final int nChunkSize = (nChildren + nChunkCount - 1) / nChunkCount;
+    final int nMaxChunksInFlight = nProcessors + 1;
+
+    final Queue <FutureTask <NonBlockingStringWriter>> aInFlight = new ArrayDeque <FutureTask <NonBlockingStringWriter>> (nMaxChunksInFlight);
+    try
+    {
+      int nFromIndex = 0;
+      while (nFromIndex < nChildren || !aInFlight.isEmpty ())
+      {
+        // Submit the next chunks
+        while (nFromIndex < nChildren && aInFlight.size () < nMaxChunksInFlight)
+        {
+          final int nToIndex = Math.min (nFromIndex + nChunkSize, nChildren);
+          final FutureTask <NonBlockingStringWriter> aTask = new FutureTask <NonBlockingStringWriter> (new ChunkSerializer (this,
+                                                                                                                           aChildren,
+                                                                                                                           nFromIndex,
+                                                                                                                           nToIndex));
+          aInFlight.add (aTask);
+          try
+          {
+            m_aParallelExecutor.execute (aTask);
+          }
+          catch (final RejectedExecutionException ex)
+          {
+            // Serialize inline
+            aTask.run ();
+          }
+          nFromIndex = nToIndex;
+        }
+
+        // Write the oldest chunk. Running it is a no-op if it was already
+        // started by the executor.
+        final FutureTask <NonBlockingStringWriter> aOldest = aInFlight.remove ();
+        aOldest.run ();
+        aXMLWriter.onPreSerializedContent (aOldest.get ().directGetStringBuilder ());
+      }
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IllegalStateException ("Interrupted while serializing in parallel", ex);
+    }
+    catch (final ExecutionException ex)
+    {
+      throw new IllegalStateException ("Failed to serialize in parallel", ex.getCause ());
+    }
+    finally
+    {
+      // Don't leave any pending chunks in case of an error
+      for (final FutureTask <NonBlockingStringWriter> aTask : aInFlight)
+        aTask.cancel (true);
+    }
+  }
+
   private void _writeDocument (@Nonnull final IXMLIterationHandler aXMLWriter, final IMicroDocument aDocument)
   {
     if (m_aSettings.getFormat ().isXML ())
@@ -267,7 +426,16 @@ public final class MicroSerializer extends AbstractSerializerPhloc <IMicroNode>
 
         // recursively process child nodes
         if (aChildNodeList != null)
-          _writeNodeList (aXMLWriter, aChildNodeList);
+        {
+          // Only the children of the outermost element are written in parallel
+          if (m_aParallelExecutor != null &&
+              m_aNSStack.size () == 1 &&
+              aChildNodeList.size () >= PARALLEL_MIN_CHILDREN &&
+              aXMLWriter instanceof XMLEmitterPhloc)
+            _writeNodeListParallel ((XMLEmitterPhloc) aXMLWriter, aChildNodeList);
+          else
+            _writeNodeList (aXMLWriter, aChildNodeList);
+        }
 
         // decrement indent
         m_aIndent.delete (m_aIndent.length () - sIndent.length (), m_aIndent.length ());
@@ -0,0 +1,197 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.microdom.serialize;
+
+import java.io.File;
+import java.io.InputStream;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillClose;
+import javax.annotation.concurrent.Immutable;
+
+import org.xml.sax.InputSource;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.callback.IExceptionHandler;
+import com.phloc.commons.io.IReadableResource;
+import com.phloc.commons.io.streams.StreamUtils;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.state.ESuccess;
+import com.phloc.commons.string.StringHelper;
+import com.phloc.commons.xml.sax.InputSourceFactory;
+import com.phloc.commons.xml.serialize.ISAXReaderSettings;
+import com.phloc.commons.xml.serialize.SAXReader;
+import com.phloc.commons.xml.serialize.SAXReaderSettings;
+
+/**
+ * Utility class to read the elements matching a certain element path from an
+ * XML stream one after another, without building the whole
+ * {@link com.phloc.commons.microdom.IMicroDocument}. Each matching element is
+ * passed as a separate {@link IMicroElement} to an
+ * {@link IMicroStreamingCallback}, so the required memory is limited by the
+ * size of a single element and not by the size of the document. This is e.g.
+ * useful to process huge exports of many similar records.
+ * <p>
+ * The element path is a list of element names from the root element to the
+ * elements to be read, separated by {@link #PATH_SEPARATOR} (e.g.
+ * <code>export/items/item</code>). The local names are compared, so namespace
+ * prefixes must not be contained. {@link #PATH_WILDCARD} matches any element.
+ * 
+ * @author Philip Helger
+ */
+@Immutable
+public final class MicroStreamingReader
+{
+  /** The separator of the element path steps */
+  public static final char PATH_SEPARATOR = '/';
+  /** The element path step that matches all elements */
+  public static final String PATH_WILDCARD = "*";
+
+  @PresentForCodeCoverage
+  @SuppressWarnings ("unused")
+  private static final MicroStreamingReader s_aInstance = new MicroStreamingReader ();
+
+  private MicroStreamingReader ()
+  {}
+
+  @Nonnull
+  private static String [] _getPathSteps (@Nonnull @Nonempty final String sElementPath)
+  {
+    ValueEnforcer.notEmpty (sElementPath, "ElementPath");
+
+    // Leading and trailing separators are ignored
+    final String sSep = Character.toString (PATH_SEPARATOR);
+    final String [] ret = StringHelper.getExplodedArray (PATH_SEPARATOR,
+                                                         StringHelper.trimStartAndEnd (sElementPath, sSep));
+    for (final String sStep : ret)
+      if (StringHelper.hasNoText (sStep))
+        throw new IllegalArgumentException ("Element path '" + sElementPath + "' contains an empty step");
+    return ret;
+  }
+
+  /**
+   * Read all elements matching the passed element path from the passed input
+   * source.
+   * 
+   * @param aInputSource
+   *        The input source to use. May not be <code>null</code>.
+   * @param sElementPath
+   *        The path of the elements to read, starting at the root element. May
+   *        neither be <code>null</code> nor empty.
+   * @param aSettings
+   *        The settings to use. If <code>null</code> the default settings will
+   *        be used.
+   * @param aCallback
+   *        The callback to be invoked for each matching element. May not be
+   *        <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} if the input was read completely or if
+   *         reading was stopped by the callback, {@link ESuccess#FAILURE} if
+   *         the input was invalid XML.
+   */
+  @Nonnull
+  public static ESuccess readMicroXML (@WillClose @Nonnull final InputSource aInputSource,
+                                       @Nonnull @Nonempty final String sElementPath,
+                                       @Nullable final ISAXReaderSettings aSettings,
+                                       @Nonnull final IMicroStreamingCallback aCallback)
+  {
+    ValueEnforcer.notNull (aInputSource, "InputSource");
+    ValueEnforcer.notNull (aCallback, "Callback");
+
+    final MicroStreamingSAXHandler aHandler = new MicroStreamingSAXHandler (_getPathSteps (sElementPath),
+                                                                            aCallback,
+                                                                            aSettings == null ? null
+                                                                                             : aSettings.getEntityResolver ());
+
+    // Copy and modify settings
+    final SAXReaderSettings aRealSettings = SAXReaderSettings.createCloneOnDemand (aSettings);
+    final IExceptionHandler <Throwable> aExceptionHandler = aRealSettings.getExceptionHandler ();
+    aRealSettings.setEntityResolver (aHandler)
+                 .setDTDHandler (aHandler)
+                 .setContentHandler (aHandler)
+                 .setLexicalHandler (aHandler)
+                 .setExceptionHandler (new IExceptionHandler <Throwable> ()
+                 {
+                   public void onException (final Throwable t)
+                   {
+                     // Stopping is not an error
+                     if (!(t instanceof MicroStreamingSAXHandler.StopParsingException))
+                       aExceptionHandler.onException (t);
+                   }
+                 });
+    if (aRealSettings.getErrorHandler () == null)
+      aRealSettings.setErrorHandler (aHandler);
+
+    if (SAXReader.readXMLSAX (aInputSource, aRealSettings).isSuccess ())
+      return ESuccess.SUCCESS;
+    return ESuccess.valueOf (aHandler.isStopped ());
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXML (@WillClose @Nonnull final InputStream aIS,
+                                       @Nonnull @Nonempty final String sElementPath,
+                                       @Nullable final ISAXReaderSettings aSettings,
+                                       @Nonnull final IMicroStreamingCallback aCallback)
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+
+    try
+    {
+      return readMicroXML (InputSourceFactory.create (aIS), sElementPath, aSettings, aCallback);
+    }
+    finally
+    {
+      StreamUtils.close (aIS);
+    }
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXML (@Nonnull final File aFile,
+                                       @Nonnull @Nonempty final String sElementPath,
+                                       @Nullable final ISAXReaderSettings aSettings,
+                                       @Nonnull final IMicroStreamingCallback aCallback)
+  {
+    ValueEnforcer.notNull (aFile, "File");
+
+    return readMicroXML (InputSourceFactory.create (aFile), sElementPath, aSettings, aCallback);
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXML (@Nonnull final IReadableResource aRes,
+                                       @Nonnull @Nonempty final String sElementPath,
+                                       @Nullable final ISAXReaderSettings aSettings,
+                                       @Nonnull final IMicroStreamingCallback aCallback)
+  {
+    ValueEnforcer.notNull (aRes, "Resource");
+
+    return readMicroXML (InputSourceFactory.create (aRes), sElementPath, aSettings, aCallback);
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXML (@Nonnull final String sXML,
+                                       @Nonnull @Nonempty final String sElementPath,
+                                       @Nullable final ISAXReaderSettings aSettings,
+                                       @Nonnull final IMicroStreamingCallback aCallback)
+  {
+    ValueEnforcer.notNull (sXML, "XML");
+
+    return readMicroXML (InputSourceFactory.create (sXML), sElementPath, aSettings, aCallback);
+  }
+}
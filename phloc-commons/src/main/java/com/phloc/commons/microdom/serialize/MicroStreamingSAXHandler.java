@@ -0,0 +1,267 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.microdom.serialize;
+
+import java.io.IOException;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.DTDHandler;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.ErrorHandler;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.ext.LexicalHandler;
+
+import com.phloc.commons.microdom.IMicroElement;
+
+/**
+ * The SAX handler used by the {@link MicroStreamingReader}. Only the elements
+ * matching the element path are build, using a separate {@link MicroSAXHandler}
+ * per element. All other content is skipped.
+ * 
+ * @author Philip Helger
+ */
+final class MicroStreamingSAXHandler implements EntityResolver, DTDHandler, ContentHandler, ErrorHandler, LexicalHandler
+{
+  /**
+   * Internal exception to stop parsing when the callback requested it.
+   */
+  static final class StopParsingException extends SAXException
+  {
+    private static final long serialVersionUID = -4586131296348276513L;
+
+    StopParsingException ()
+    {
+      super ("Parsing was stopped by the callback");
+    }
+  }
+
+  private final String [] m_aPath;
+  private final IMicroStreamingCallback m_aCallback;
+  private final EntityResolver m_aEntityResolver;
+  // Used for logging only
+  private final MicroSAXHandler m_aDefaultHandler;
+  // The current element depth
+  private int m_nDepth = 0;
+  // The number of path steps that are matched by the currently open elements
+  private int m_nMatched = 0;
+  // The handler for the element currently read - null if none
+  private MicroSAXHandler m_aElementHandler;
+  private boolean m_bDTDMode = false;
+  private int m_nElementCount = 0;
+  private boolean m_bStopped = false;
+
+  MicroStreamingSAXHandler (@Nonnull final String [] aPath,
+                            @Nonnull final IMicroStreamingCallback aCallback,
+                            @Nullable final EntityResolver aEntityResolver)
+  {
+    m_aPath = aPath;
+    m_aCallback = aCallback;
+    m_aEntityResolver = aEntityResolver;
+    m_aDefaultHandler = new MicroSAXHandler (false, aEntityResolver);
+  }
+
+  private boolean _matchesStep (@Nonnull final String sLocalName, @Nullable final String sQName)
+  {
+    final String sStep = m_aPath[m_nDepth];
+    if (sStep.equals (MicroStreamingReader.PATH_WILDCARD))
+      return true;
+    // Local name is empty, if the parser is not namespace aware
+    return sStep.equals (sLocalName.length () > 0 ? sLocalName : sQName);
+  }
+
+  public void setDocumentLocator (final Locator aLocator)
+  {}
+
+  public void startDocument ()
+  {}
+
+  public void endDocument ()
+  {}
+
+  public void startDTD (final String sName, final String sPublicId, final String sSystemId)
+  {
+    m_bDTDMode = true;
+  }
+
+  public void endDTD ()
+  {
+    m_bDTDMode = false;
+  }
+
+  public void startElement (@Nullable final String sNamespaceURI,
+                            @Nonnull final String sLocalName,
+                            @Nullable final String sQName,
+                            @Nullable final Attributes aAttributes)
+  {
+    if (m_aElementHandler == null &&
+        m_nMatched == m_nDepth &&
+        m_nDepth < m_aPath.length &&
+        _matchesStep (sLocalName, sQName))
+    {
+      ++m_nMatched;
+      if (m_nMatched == m_aPath.length)
+      {
+        // Start reading a new element
+        m_aElementHandler = new MicroSAXHandler (false, m_aEntityResolver);
+      }
+    }
+    ++m_nDepth;
+
+    if (m_aElementHandler != null)
+      m_aElementHandler.startElement (sNamespaceURI, sLocalName, sQName, aAttributes);
+  }
+
+  public void endElement (final String sNamespaceURI, final String sLocalName, final String sQName) throws SAXException
+  {
+    if (m_aElementHandler != null)
+    {
+      m_aElementHandler.endElement (sNamespaceURI, sLocalName, sQName);
+      if (m_nDepth == m_aPath.length)
+      {
+        // The matching element is complete
+        final IMicroElement aElement = m_aElementHandler.getDocument ().getDocumentElement ();
+        aElement.detachFromParent ();
+        m_aElementHandler = null;
+        m_nElementCount++;
+        if (m_aCallback.onElement (aElement).isBreak ())
+        {
+          m_bStopped = true;
+          throw new StopParsingException ();
+        }
+      }
+    }
+
+    --m_nDepth;
+    if (m_nMatched > m_nDepth)
+      m_nMatched = m_nDepth;
+  }
+
+  public void characters (@Nonnull final char [] aChars, @Nonnegative final int nStart, @Nonnegative final int nLength)
+  {
+    if (m_aElementHandler != null)
+      m_aElementHandler.characters (aChars, nStart, nLength);
+  }
+
+  public void ignorableWhitespace (@Nonnull final char [] aChars,
+                                   @Nonnegative final int nStart,
+                                   @Nonnegative final int nLength)
+  {
+    if (m_aElementHandler != null)
+      m_aElementHandler.ignorableWhitespace (aChars, nStart, nLength);
+  }
+
+  public void processingInstruction (final String sTarget, final String sData)
+  {
+    if (m_aElementHandler != null)
+      m_aElementHandler.processingInstruction (sTarget, sData);
+  }
+
+  @Nullable
+  public InputSource resolveEntity (final String sPublicId, final String sSystemId) throws IOException, SAXException
+  {
+    return m_aDefaultHandler.resolveEntity (sPublicId, sSystemId);
+  }
+
+  public void unparsedEntityDecl (final String sName,
+                                  final String sPublicId,
+                                  final String sSystemId,
+                                  final String sNotationName)
+  {
+    m_aDefaultHandler.unparsedEntityDecl (sName, sPublicId, sSystemId, sNotationName);
+  }
+
+  public void notationDecl (final String sName, final String sPublicId, final String sSystemId) throws SAXException
+  {
+    m_aDefaultHandler.notationDecl (sName, sPublicId, sSystemId);
+  }
+
+  public void skippedEntity (final String sName)
+  {
+    m_aDefaultHandler.skippedEntity (sName);
+  }
+
+  public void startPrefixMapping (final String sPrefix, final String sURI)
+  {}
+
+  public void endPrefixMapping (final String sPrefix)
+  {}
+
+  public void warning (final SAXParseException ex)
+  {
+    m_aDefaultHandler.warning (ex);
+  }
+
+  public void error (final SAXParseException ex)
+  {
+    m_aDefaultHandler.error (ex);
+  }
+
+  public void fatalError (final SAXParseException ex)
+  {
+    m_aDefaultHandler.fatalError (ex);
+  }
+
+  public void startEntity (final String sName)
+  {}
+
+  public void endEntity (final String sName)
+  {}
+
+  public void startCDATA () throws SAXException
+  {
+    if (m_aElementHandler != null)
+      m_aElementHandler.startCDATA ();
+  }
+
+  public void endCDATA () throws SAXException
+  {
+    if (m_aElementHandler != null)
+      m_aElementHandler.endCDATA ();
+  }
+
+  public void comment (@Nonnull final char [] aChars, @Nonnegative final int nStart, @Nonnegative final int nLength) throws SAXException
+  {
+    if (m_aElementHandler != null && !m_bDTDMode)
+      m_aElementHandler.comment (aChars, nStart, nLength);
+  }
+
+  /**
+   * @return The number of elements passed to the callback.
+   */
+  @Nonnegative
+  int getElementCount ()
+  {
+    return m_nElementCount;
+  }
+
+  /**
+   * @return <code>true</code> if the callback requested to stop reading.
+   */
+  boolean isStopped ()
+  {
+    return m_bStopped;
+  }
+}
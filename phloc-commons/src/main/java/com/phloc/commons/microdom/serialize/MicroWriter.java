@@ -20,6 +20,7 @@ package com.phloc.commons.microdom.serialize;
 import java.io.File;
 import java.io.OutputStream;
 import java.io.Writer;
+import java.util.concurrent.ExecutorService;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -94,6 +95,33 @@ public final class MicroWriter
   public static ESuccess writeToFile (@Nonnull final IMicroNode aNode,
                                       @Nonnull final File aFile,
                                       @Nonnull final IXMLWriterSettings aSettings)
+  {
+    return writeToFile (aNode, aFile, aSettings, null);
+  }
+
+  /**
+   * Write a Micro Node to a file, optionally serializing in parallel.
+   * 
+   * @param aNode
+   *        The node to be serialized. May be any kind of node (incl.
+   *        documents). May not be <code>null</code>.
+   * @param aFile
+   *        The file to write to. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings to be used for the creation. May not be
+   *        <code>null</code>.
+   * @param aParallelExecutor
+   *        An optional executor service to serialize the children of the
+   *        outermost element in parallel. See
+   *        {@link MicroSerializer#MicroSerializer(IXMLWriterSettings, ExecutorService)}
+   *        for details. May be <code>null</code>.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public static ESuccess writeToFile (@Nonnull final IMicroNode aNode,
+                                      @Nonnull final File aFile,
+                                      @Nonnull final IXMLWriterSettings aSettings,
+                                      @Nullable final ExecutorService aParallelExecutor)
   {
     ValueEnforcer.notNull (aFile, "File");
 
@@ -103,7 +131,7 @@ public final class MicroWriter
 
     // No need to wrap the OS in a BufferedOutputStream as inside, it is later
     // on wrapped in a BufferedWriter
-    return writeToStream (aNode, aOS, aSettings);
+    return writeToStream (aNode, aOS, aSettings, aParallelExecutor);
   }
 
   /**
@@ -143,6 +171,36 @@ public final class MicroWriter
   public static ESuccess writeToStream (@Nonnull final IMicroNode aNode,
                                         @Nonnull @WillClose final OutputStream aOS,
                                         @Nonnull final IXMLWriterSettings aSettings)
+  {
+    return writeToStream (aNode, aOS, aSettings, null);
+  }
+
+  /**
+   * Write a Micro Node to an {@link OutputStream}, optionally serializing in
+   * parallel.
+   * 
+   * @param aNode
+   *        The node to be serialized. May be any kind of node (incl.
+   *        documents). May not be <code>null</code>.
+   * @param aOS
+   *        The output stream to write to. May not be <code>null</code>. The
+   *        output stream is closed anyway directly after the operation finishes
+   *        (on success and on error).
+   * @param aSettings
+   *        The settings to be used for the creation. May not be
+   *        <code>null</code>.
+   * @param aParallelExecutor
+   *        An optional executor service to serialize the children of the
+   *        outermost element in parallel. See
+   *        {@link MicroSerializer#MicroSerializer(IXMLWriterSettings, ExecutorService)}
+   *        for details. May be <code>null</code>.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public static ESuccess writeToStream (@Nonnull final IMicroNode aNode,
+                                        @Nonnull @WillClose final OutputStream aOS,
+                                        @Nonnull final IXMLWriterSettings aSettings,
+                                        @Nullable final ExecutorService aParallelExecutor)
   {
     ValueEnforcer.notNull (aNode, "Node");
     ValueEnforcer.notNull (aOS, "OutputStream");
@@ -150,7 +208,7 @@ public final class MicroWriter
 
     try
     {
-      final IXMLSerializer <IMicroNode> aSerializer = new MicroSerializer (aSettings);
+      final IXMLSerializer <IMicroNode> aSerializer = new MicroSerializer (aSettings, aParallelExecutor);
       aSerializer.write (aNode, aOS);
       return ESuccess.SUCCESS;
     }
@@ -179,6 +237,35 @@ public final class MicroWriter
   public static ESuccess writeToWriter (@Nonnull final IMicroNode aNode,
                                         @Nonnull @WillClose final Writer aWriter,
                                         @Nonnull final IXMLWriterSettings aSettings)
+  {
+    return writeToWriter (aNode, aWriter, aSettings, null);
+  }
+
+  /**
+   * Write a Micro Node to a {@link Writer}, optionally serializing in parallel.
+   * 
+   * @param aNode
+   *        The node to be serialized. May be any kind of node (incl.
+   *        documents). May not be <code>null</code>.
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>. The writer is
+   *        closed anyway directly after the operation finishes (on success and
+   *        on error).
+   * @param aSettings
+   *        The settings to be used for the creation. May not be
+   *        <code>null</code>.
+   * @param aParallelExecutor
+   *        An optional executor service to serialize the children of the
+   *        outermost element in parallel. See
+   *        {@link MicroSerializer#MicroSerializer(IXMLWriterSettings, ExecutorService)}
+   *        for details. May be <code>null</code>.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public static ESuccess writeToWriter (@Nonnull final IMicroNode aNode,
+                                        @Nonnull @WillClose final Writer aWriter,
+                                        @Nonnull final IXMLWriterSettings aSettings,
+                                        @Nullable final ExecutorService aParallelExecutor)
   {
     ValueEnforcer.notNull (aNode, "Node");
     ValueEnforcer.notNull (aWriter, "Writer");
@@ -186,7 +273,7 @@ public final class MicroWriter
 
     try
     {
-      final IXMLSerializer <IMicroNode> aSerializer = new MicroSerializer (aSettings);
+      final IXMLSerializer <IMicroNode> aSerializer = new MicroSerializer (aSettings, aParallelExecutor);
       aSerializer.write (aNode, aWriter);
       return ESuccess.SUCCESS;
     }
@@ -36,6 +36,7 @@ import com.phloc.commons.microdom.IMicroNode;
  */
 public class MicroRecursiveIterator implements IIterableIterator <IMicroNode>
 {
+  // Stack of open nodes - the next node is the last entry
   private final List <IMicroNode> m_aOpen = new ArrayList <IMicroNode> ();
 
   public MicroRecursiveIterator (@Nonnull final IMicroNode aNode)
@@ -54,9 +55,10 @@ public class MicroRecursiveIterator implements IIterableIterator <IMicroNode>
     if (m_aOpen.isEmpty ())
       throw new NoSuchElementException ();
 
-    final IMicroNode ret = m_aOpen.remove (0);
-    if (ret.hasChildren ())
-      m_aOpen.addAll (0, ret.getChildren ());
+    final IMicroNode ret = m_aOpen.remove (m_aOpen.size () - 1);
+    // Push in reverse order, so that the first child is the next node
+    for (int i = ret.getChildCount () - 1; i >= 0; --i)
+      m_aOpen.add (ret.getChildAtIndex (i));
     return ret;
   }
 
@@ -17,6 +17,10 @@
  */
 package com.phloc.commons.microdom.utils;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.Immutable;
@@ -32,6 +36,7 @@ import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.PresentForCodeCoverage;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ArrayHelper;
+import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.microdom.IMicroContainer;
 import com.phloc.commons.microdom.IMicroDocument;
 import com.phloc.commons.microdom.IMicroElement;
@@ -45,6 +50,7 @@ import com.phloc.commons.microdom.impl.MicroElement;
 import com.phloc.commons.microdom.impl.MicroEntityReference;
 import com.phloc.commons.microdom.impl.MicroProcessingInstruction;
 import com.phloc.commons.microdom.impl.MicroText;
+import com.phloc.commons.string.StringHelper;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -56,6 +62,9 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 @Immutable
 public final class MicroUtils
 {
+  // The ID attribute names of a new document
+  private static final Collection <String> DEFAULT_ID_ATTRIBUTE_NAMES = ContainerHelper.newUnmodifiableSet (MicroDocument.DEFAULT_ID_ATTRIBUTE_NAME);
+
   @PresentForCodeCoverage
   @SuppressWarnings ("unused")
   private static final MicroUtils s_aInstance = new MicroUtils ();
@@ -152,6 +161,158 @@ public final class MicroUtils
     return null;
   }
 
+  private static boolean _isDescendant (@Nonnull final IMicroNode aNode, @Nonnull final IMicroNode aAncestor)
+  {
+    IMicroNode aCurNode = aNode.getParent ();
+    while (aCurNode != null)
+    {
+      if (aCurNode == aAncestor)
+        return true;
+      aCurNode = aCurNode.getParent ();
+    }
+    return false;
+  }
+
+  private static boolean _hasName (@Nonnull final IMicroElement aElement,
+                                   @Nullable final String sNamespaceURI,
+                                   @Nullable final String sLocalName)
+  {
+    if (StringHelper.hasNoText (sNamespaceURI))
+      return aElement.getTagName ().equals (sLocalName);
+    return aElement.hasNamespaceURI (sNamespaceURI) && aElement.getLocalName ().equals (sLocalName);
+  }
+
+  /**
+   * Get all descendant elements of the passed node that have the passed name.
+   * If the passed node is an {@link IMicroDocument} or its document element,
+   * the element index of the document is used, otherwise all descendant nodes
+   * are iterated.
+   * 
+   * @param aStartNode
+   *        The node to start searching. Is never part of the result. May not
+   *        be <code>null</code>.
+   * @param sNamespaceURI
+   *        The namespace URI to search. If it is <code>null</code> or empty,
+   *        the namespace URI is ignored.
+   * @param sLocalName
+   *        The local name to search. May be <code>null</code>.
+   * @return A non-<code>null</code> list with all matching elements in
+   *         document order.
+   * @see IMicroDocument#getElementIndex()
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static List <IMicroElement> getAllDescendantElementsWithName (@Nonnull final IMicroNode aStartNode,
+                                                                       @Nullable final String sNamespaceURI,
+                                                                       @Nullable final String sLocalName)
+  {
+    ValueEnforcer.notNull (aStartNode, "StartNode");
+
+    if (aStartNode instanceof IMicroDocument)
+      return ((IMicroDocument) aStartNode).getElementIndex ().getAllElementsWithName (sNamespaceURI, sLocalName);
+
+    final IMicroNode aParent = aStartNode.getParent ();
+    if (aParent instanceof IMicroDocument)
+    {
+      // Document element - all indexed elements except the start node
+      final List <IMicroElement> ret = ((IMicroDocument) aParent).getElementIndex ()
+                                                                  .getAllElementsWithName (sNamespaceURI, sLocalName);
+      ret.remove (aStartNode);
+      return ret;
+    }
+
+    // Only a part of the document or not part of a document - iterate the
+    // subtree, which is cheaper than filtering all elements of the document
+    final List <IMicroElement> ret = new ArrayList <IMicroElement> ();
+    for (final IMicroNode aNode : new MicroRecursiveIterator (aStartNode))
+      if (aNode != aStartNode && aNode.isElement () && _hasName ((IMicroElement) aNode, sNamespaceURI, sLocalName))
+        ret.add ((IMicroElement) aNode);
+    return ret;
+  }
+
+  /**
+   * Get the descendant element of the passed node that has the passed ID. If
+   * the passed node is part of an {@link IMicroDocument}, the element index of
+   * the document and the ID attribute names of the index are used. Otherwise
+   * all descendant nodes are iterated and the default ID attribute names of a
+   * document are used.
+   * 
+   * @param aStartNode
+   *        The node to start searching. Is never the result. May not be
+   *        <code>null</code>.
+   * @param sID
+   *        The ID to search. May be <code>null</code>.
+   * @return <code>null</code> if no such element is present. If multiple
+   *         elements have the same ID, the first one in document order is
+   *         returned.
+   * @see IMicroDocument#getElementIndex()
+   * @see com.phloc.commons.microdom.IMicroElementIndex#getAllIDAttributeNames()
+   */
+  @Nullable
+  public static IMicroElement getDescendantElementWithID (@Nonnull final IMicroNode aStartNode,
+                                                          @Nullable final String sID)
+  {
+    ValueEnforcer.notNull (aStartNode, "StartNode");
+    if (sID == null)
+      return null;
+
+    final IMicroNode aRoot = _getRootNode (aStartNode);
+    if (aRoot instanceof IMicroDocument)
+    {
+      // All elements with this ID in document order
+      for (final IMicroElement aElement : ((IMicroDocument) aRoot).getElementIndex ().getAllElementsWithID (sID))
+        if (aStartNode == aRoot || _isDescendant (aElement, aStartNode))
+          return aElement;
+      return null;
+    }
+
+    // Not part of a document - same ID attributes as a new document
+    return getDescendantElementWithID (aStartNode, sID, DEFAULT_ID_ATTRIBUTE_NAMES);
+  }
+
+  /**
+   * Get the descendant element of the passed node that has the passed value in
+   * one of the passed ID attributes. All descendant nodes are iterated.
+   * 
+   * @param aStartNode
+   *        The node to start searching. Is never the result. May not be
+   *        <code>null</code>.
+   * @param sID
+   *        The ID to search. May be <code>null</code>.
+   * @param aIDAttrNames
+   *        The names of all attributes that are considered as ID attributes.
+   *        May not be <code>null</code>.
+   * @return <code>null</code> if no such element is present. If multiple
+   *         elements have the same ID, the first one in document order is
+   *         returned.
+   */
+  @Nullable
+  public static IMicroElement getDescendantElementWithID (@Nonnull final IMicroNode aStartNode,
+                                                          @Nullable final String sID,
+                                                          @Nonnull final Collection <String> aIDAttrNames)
+  {
+    ValueEnforcer.notNull (aStartNode, "StartNode");
+    ValueEnforcer.notNull (aIDAttrNames, "IDAttrNames");
+    if (sID == null)
+      return null;
+
+    for (final IMicroNode aNode : new MicroRecursiveIterator (aStartNode))
+      if (aNode != aStartNode && aNode.isElement () && ((IMicroElement) aNode).hasAttributes ())
+        for (final String sAttrName : aIDAttrNames)
+          if (sID.equals (((IMicroElement) aNode).getAttribute (sAttrName)))
+            return (IMicroElement) aNode;
+    return null;
+  }
+
+  @Nonnull
+  private static IMicroNode _getRootNode (@Nonnull final IMicroNode aNode)
+  {
+    IMicroNode ret = aNode;
+    while (ret.hasParent ())
+      ret = ret.getParent ();
+    return ret;
+  }
+
   @Nonnull
   public static IMicroNode convertToMicroNode (@Nonnull final Node aNode)
   {
@@ -0,0 +1,510 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.pool;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.factory.IFactory;
+import com.phloc.commons.filter.IFilter;
+import com.phloc.commons.lang.GenericReflection;
+import com.phloc.commons.state.ESuccess;
+import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerTimer;
+import com.phloc.commons.stats.StatisticsManager;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * A generic object pool with a fixed size that is optimized for many threads
+ * and large pools. In contrast to {@link ObjectPool} there is no global lock:
+ * <ul>
+ * <li>The used state of the slots is kept in a bitmap that is modified with
+ * compare-and-set operations. Free slots are found 64 at a time.</li>
+ * <li>Each thread remembers the slot it used last and tries this slot first,
+ * so that a thread usually gets the same object again.</li>
+ * <li>Only if no object is available, the borrowing thread blocks - optionally
+ * with a timeout.</li>
+ * </ul>
+ * Optionally the objects can be validated before they are borrowed, and
+ * objects that were idle for too long can be evicted. Evicted and invalid
+ * objects are created again on demand.
+ * <p>
+ * The following statistics are maintained with the prefix
+ * {@link #STATISTICS_PREFIX} and the pool name: <code>$borrow</code>,
+ * <code>$create</code>, <code>$invalid</code>, <code>$evict</code>,
+ * <code>$discard</code>, <code>$timeout</code> (counters) and
+ * <code>$wait</code> (timer for all borrowings that had to wait).
+ * 
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The type of the objects contained in the pool.
+ */
+@ThreadSafe
+public final class ConcurrentObjectPool <DATATYPE> implements IObjectPool <DATATYPE>
+{
+  /** The prefix used for all statistics handlers */
+  public static final String STATISTICS_PREFIX = "pool:";
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (ConcurrentObjectPool.class);
+  private static final int BITS_PER_WORD = 64;
+
+  private final String m_sPoolName;
+  private final int m_nItemCount;
+  // Semaphore for the number of free slots
+  private final Semaphore m_aAvailable;
+  // The items itself - null if not yet created
+  private final AtomicReferenceArray <Object> m_aItems;
+  // Bitmap of the used slots. Bits beyond the item count are always set
+  private final AtomicLongArray m_aUsed;
+  // The time in milliseconds when the slot was last returned
+  private final AtomicLongArray m_aLastReturned;
+  // The factory for creating objects
+  private final IFactory <DATATYPE> m_aFactory;
+  // Optional validator
+  private final IFilter <DATATYPE> m_aValidator;
+  // The index of the slot last used by the current thread
+  private final ThreadLocal <int []> m_aLastSlot = new ThreadLocal <int []> ()
+  {
+    @Override
+    protected int [] initialValue ()
+    {
+      return new int [] { -1 };
+    }
+  };
+
+  private final IStatisticsHandlerCounter m_aStatsBorrow;
+  private final IStatisticsHandlerCounter m_aStatsCreate;
+  private final IStatisticsHandlerCounter m_aStatsInvalid;
+  private final IStatisticsHandlerCounter m_aStatsEvict;
+  private final IStatisticsHandlerCounter m_aStatsDiscard;
+  private final IStatisticsHandlerCounter m_aStatsTimeout;
+  private final IStatisticsHandlerTimer m_aStatsWait;
+
+  /**
+   * Create a new object pool without validation.
+   * 
+   * @param sPoolName
+   *        The name of the pool used for the statistics. May neither be
+   *        <code>null</code> nor empty.
+   * @param nItemCount
+   *        The number of items in the pool. Must be &ge; 1.
+   * @param aFactory
+   *        The factory to create object. May not be <code>null</code>. The
+   *        factory may not create <code>null</code> objects, as this leads to
+   *        an error!
+   */
+  public ConcurrentObjectPool (@Nonnull @Nonempty final String sPoolName,
+                               @Nonnegative final int nItemCount,
+                               @Nonnull final IFactory <DATATYPE> aFactory)
+  {
+    this (sPoolName, nItemCount, aFactory, null);
+  }
+
+  /**
+   * Create a new object pool.
+   * 
+   * @param sPoolName
+   *        The name of the pool used for the statistics. May neither be
+   *        <code>null</code> nor empty.
+   * @param nItemCount
+   *        The number of items in the pool. Must be &ge; 1.
+   * @param aFactory
+   *        The factory to create object. May not be <code>null</code>. The
+   *        factory may not create <code>null</code> objects, as this leads to
+   *        an error!
+   * @param aValidator
+   *        An optional validator that is invoked for an existing object before
+   *        it is borrowed. If the object does not match the filter, it is
+   *        discarded and a new object is created. May be <code>null</code>.
+   */
+  public ConcurrentObjectPool (@Nonnull @Nonempty final String sPoolName,
+                               @Nonnegative final int nItemCount,
+                               @Nonnull final IFactory <DATATYPE> aFactory,
+                               @Nullable final IFilter <DATATYPE> aValidator)
+  {
+    ValueEnforcer.notEmpty (sPoolName, "PoolName");
+    ValueEnforcer.isGT0 (nItemCount, "ItemCount");
+    ValueEnforcer.notNull (aFactory, "Factory");
+
+    m_sPoolName = sPoolName;
+    m_nItemCount = nItemCount;
+    m_aAvailable = new Semaphore (nItemCount);
+    m_aItems = new AtomicReferenceArray <Object> (nItemCount);
+    final int nWords = (nItemCount + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    m_aUsed = new AtomicLongArray (nWords);
+    final int nUnusedBits = nWords * BITS_PER_WORD - nItemCount;
+    if (nUnusedBits > 0)
+    {
+      // Mark the non-existing slots of the last word as used
+      m_aUsed.set (nWords - 1, -1L << (BITS_PER_WORD - nUnusedBits));
+    }
+    m_aLastReturned = new AtomicLongArray (nItemCount);
+    m_aFactory = aFactory;
+    m_aValidator = aValidator;
+
+    final String sStatsPrefix = STATISTICS_PREFIX + sPoolName;
+    m_aStatsBorrow = StatisticsManager.getCounterHandler (sStatsPrefix + "$borrow");
+    m_aStatsCreate = StatisticsManager.getCounterHandler (sStatsPrefix + "$create");
+    m_aStatsInvalid = StatisticsManager.getCounterHandler (sStatsPrefix + "$invalid");
+    m_aStatsEvict = StatisticsManager.getCounterHandler (sStatsPrefix + "$evict");
+    m_aStatsDiscard = StatisticsManager.getCounterHandler (sStatsPrefix + "$discard");
+    m_aStatsTimeout = StatisticsManager.getCounterHandler (sStatsPrefix + "$timeout");
+    m_aStatsWait = StatisticsManager.getTimerHandler (sStatsPrefix + "$wait");
+  }
+
+  /**
+   * @return The name of the pool. Neither <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getPoolName ()
+  {
+    return m_sPoolName;
+  }
+
+  /**
+   * @return The maximum number of objects in this pool. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getItemCount ()
+  {
+    return m_nItemCount;
+  }
+
+  /**
+   * @return The number of objects that can currently be borrowed without
+   *         waiting.
+   */
+  @Nonnegative
+  public int getAvailableCount ()
+  {
+    return m_aAvailable.availablePermits ();
+  }
+
+  /**
+   * @return The number of objects currently borrowed.
+   */
+  @Nonnegative
+  public int getBorrowedCount ()
+  {
+    return m_nItemCount - m_aAvailable.availablePermits ();
+  }
+
+  private static long _getMask (final int nSlot)
+  {
+    return 1L << (nSlot % BITS_PER_WORD);
+  }
+
+  private boolean _isUsed (final int nSlot)
+  {
+    return (m_aUsed.get (nSlot / BITS_PER_WORD) & _getMask (nSlot)) != 0;
+  }
+
+  /**
+   * Try to mark the passed slot as used.
+   * 
+   * @return <code>true</code> if the slot was free and is now used by the
+   *         caller.
+   */
+  private boolean _tryReserve (final int nSlot)
+  {
+    final int nWord = nSlot / BITS_PER_WORD;
+    final long nMask = _getMask (nSlot);
+    while (true)
+    {
+      final long nValue = m_aUsed.get (nWord);
+      if ((nValue & nMask) != 0)
+        return false;
+      if (m_aUsed.compareAndSet (nWord, nValue, nValue | nMask))
+        return true;
+    }
+  }
+
+  /**
+   * Try to find and mark any free slot, starting with the passed word.
+   * 
+   * @return The reserved slot or -1 if no slot is free.
+   */
+  private int _tryReserveAny (final int nStartWord)
+  {
+    final int nWords = m_aUsed.length ();
+    for (int i = 0; i < nWords; ++i)
+    {
+      final int nWord = (nStartWord + i) % nWords;
+      long nValue;
+      while ((nValue = m_aUsed.get (nWord)) != -1L)
+      {
+        final int nBit = Long.numberOfTrailingZeros (~nValue);
+        if (m_aUsed.compareAndSet (nWord, nValue, nValue | (1L << nBit)))
+          return nWord * BITS_PER_WORD + nBit;
+      }
+    }
+    return -1;
+  }
+
+  private void _release (final int nSlot)
+  {
+    final int nWord = nSlot / BITS_PER_WORD;
+    final long nMask = _getMask (nSlot);
+    while (true)
+    {
+      final long nValue = m_aUsed.get (nWord);
+      if (m_aUsed.compareAndSet (nWord, nValue, nValue & ~nMask))
+        return;
+    }
+  }
+
+  /**
+   * Reserve a slot. A permit must have been acquired before, so a free slot is
+   * guaranteed to exist.
+   */
+  private int _reserveSlot (@Nonnull final int [] aLastSlot)
+  {
+    // Try the slot last used by this thread
+    final int nLastSlot = aLastSlot[0];
+    if (nLastSlot >= 0 && _tryReserve (nLastSlot))
+      return nLastSlot;
+
+    // Spread the threads over the bitmap
+    final int nStartWord = (int) (Thread.currentThread ().getId () % m_aUsed.length ());
+    while (true)
+    {
+      final int nSlot = _tryReserveAny (nStartWord);
+      if (nSlot >= 0)
+        return nSlot;
+      // A slot is about to be released by a concurrent eviction
+      Thread.yield ();
+    }
+  }
+
+  @Nonnull
+  private DATATYPE _borrowAcquired ()
+  {
+    final int [] aLastSlot = m_aLastSlot.get ();
+    final int nSlot = _reserveSlot (aLastSlot);
+    try
+    {
+      Object aItem = m_aItems.get (nSlot);
+      if (aItem != null &&
+          m_aValidator != null &&
+          !m_aValidator.matchesFilter (GenericReflection.<Object, DATATYPE> uncheckedCast (aItem)))
+      {
+        m_aStatsInvalid.increment ();
+        aItem = null;
+      }
+      if (aItem == null)
+      {
+        // if the object is used for the first time, create a new object via
+        // the factory
+        aItem = m_aFactory.create ();
+        if (aItem == null)
+          throw new IllegalStateException ("The factory returned a null object!");
+        m_aItems.set (nSlot, aItem);
+        m_aStatsCreate.increment ();
+      }
+      aLastSlot[0] = nSlot;
+      m_aStatsBorrow.increment ();
+      return GenericReflection.<Object, DATATYPE> uncheckedCast (aItem);
+    }
+    catch (final RuntimeException ex)
+    {
+      m_aItems.set (nSlot, null);
+      _release (nSlot);
+      m_aAvailable.release ();
+      throw ex;
+    }
+  }
+
+  @Nullable
+  public DATATYPE borrowObject ()
+  {
+    // Fast path without waiting
+    if (!m_aAvailable.tryAcquire ())
+    {
+      final long nStart = System.nanoTime ();
+      try
+      {
+        m_aAvailable.acquire ();
+      }
+      catch (final InterruptedException ex)
+      {
+        // In case of acquisition interruption -> return null
+        s_aLogger.error ("ObjectPool interrupted", ex);
+        Thread.currentThread ().interrupt ();
+        return null;
+      }
+      m_aStatsWait.addTime ((System.nanoTime () - nStart) / CGlobal.NANOSECONDS_PER_MILLISECOND);
+    }
+    return _borrowAcquired ();
+  }
+
+  /**
+   * Borrow an object from the pool and wait at least the specified time for an
+   * object to become available.
+   * 
+   * @param nTimeout
+   *        The maximum time to wait. Must be &ge; 0.
+   * @param eUnit
+   *        The unit of the timeout. May not be <code>null</code>.
+   * @return The borrowed object or <code>null</code> if no object became
+   *         available within the timeout or if the thread was interrupted.
+   */
+  @Nullable
+  public DATATYPE borrowObject (@Nonnegative final long nTimeout, @Nonnull final TimeUnit eUnit)
+  {
+    ValueEnforcer.isGE0 (nTimeout, "Timeout");
+    ValueEnforcer.notNull (eUnit, "Unit");
+
+    if (!m_aAvailable.tryAcquire ())
+    {
+      final long nStart = System.nanoTime ();
+      try
+      {
+        if (!m_aAvailable.tryAcquire (nTimeout, eUnit))
+        {
+          m_aStatsTimeout.increment ();
+          return null;
+        }
+      }
+      catch (final InterruptedException ex)
+      {
+        s_aLogger.error ("ObjectPool interrupted", ex);
+        Thread.currentThread ().interrupt ();
+        return null;
+      }
+      m_aStatsWait.addTime ((System.nanoTime () - nStart) / CGlobal.NANOSECONDS_PER_MILLISECOND);
+    }
+    return _borrowAcquired ();
+  }
+
+  private int _findBorrowedSlot (@Nonnull final DATATYPE aItem)
+  {
+    // Try the slot last borrowed by this thread
+    final int nLastSlot = m_aLastSlot.get ()[0];
+    if (nLastSlot >= 0 && m_aItems.get (nLastSlot) == aItem && _isUsed (nLastSlot))
+      return nLastSlot;
+
+    for (int i = 0; i < m_nItemCount; ++i)
+      if (m_aItems.get (i) == aItem && _isUsed (i))
+        return i;
+    return -1;
+  }
+
+  @Nonnull
+  public ESuccess returnObject (@Nonnull final DATATYPE aItem)
+  {
+    final int nSlot = _findBorrowedSlot (aItem);
+    if (nSlot < 0)
+    {
+      s_aLogger.warn ("Object " + aItem + " is not pooled!");
+      return ESuccess.FAILURE;
+    }
+
+    m_aLastReturned.set (nSlot, System.currentTimeMillis ());
+    _release (nSlot);
+
+    // Okay, we have one more unused item
+    m_aAvailable.release ();
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Return a previously borrowed object that must not be used again, e.g.
+   * because it is in an undefined state after an error. The object is removed
+   * from the pool and a new object is created on demand.
+   * 
+   * @param aItem
+   *        The previously borrowed object to be discarded. Never
+   *        <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} upon success
+   */
+  @Nonnull
+  public ESuccess discardObject (@Nonnull final DATATYPE aItem)
+  {
+    final int nSlot = _findBorrowedSlot (aItem);
+    if (nSlot < 0)
+    {
+      s_aLogger.warn ("Object " + aItem + " is not pooled!");
+      return ESuccess.FAILURE;
+    }
+
+    m_aItems.set (nSlot, null);
+    _release (nSlot);
+    m_aAvailable.release ();
+    m_aStatsDiscard.increment ();
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Discard all objects that are currently not borrowed and that were not used
+   * for at least the specified duration. They are created again on demand.
+   * 
+   * @param nMaxIdle
+   *        The maximum idle time. Must be &ge; 0.
+   * @param eUnit
+   *        The unit of the idle time. May not be <code>null</code>.
+   * @return The number of evicted objects. Always &ge; 0.
+   */
+  @Nonnegative
+  public int evictIdleObjects (@Nonnegative final long nMaxIdle, @Nonnull final TimeUnit eUnit)
+  {
+    ValueEnforcer.isGE0 (nMaxIdle, "MaxIdle");
+    ValueEnforcer.notNull (eUnit, "Unit");
+
+    final long nThreshold = System.currentTimeMillis () - eUnit.toMillis (nMaxIdle);
+    int ret = 0;
+    for (int i = 0; i < m_nItemCount; ++i)
+      if (m_aItems.get (i) != null && m_aLastReturned.get (i) <= nThreshold && _tryReserve (i))
+      {
+        // Check again now that the slot is reserved
+        if (m_aItems.get (i) != null && m_aLastReturned.get (i) <= nThreshold)
+        {
+          m_aItems.set (i, null);
+          ++ret;
+        }
+        _release (i);
+      }
+    if (ret > 0)
+      m_aStatsEvict.increment (ret);
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("poolName", m_sPoolName)
+                                       .append ("itemCount", m_nItemCount)
+                                       .append ("available", m_aAvailable.availablePermits ())
+                                       .append ("factory", m_aFactory)
+                                       .appendIfNotNull ("validator", m_aValidator)
+                                       .toString ();
+  }
+}
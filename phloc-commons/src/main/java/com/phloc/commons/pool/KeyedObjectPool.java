@@ -0,0 +1,535 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.pool;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.factory.IFactory;
+import com.phloc.commons.factory.IFactoryWithParameter;
+import com.phloc.commons.state.ESuccess;
+import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.StatisticsManager;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.commons.system.SystemHelper;
+
+/**
+ * An object pool that manages a separate {@link ConcurrentObjectPool} for each
+ * key. This is useful for objects that have a configuration that cannot be
+ * changed after creation (or that should not be changed for performance
+ * reasons), so that only objects with the same configuration are shared.
+ * <p>
+ * The number of keys is limited, so that a huge number of different keys does
+ * not lead to an unbounded number of pooled objects. If the limit is reached,
+ * the pool of the least recently used key without borrowed objects is removed
+ * to make room for the new key. The pool of a key is never removed while it
+ * has borrowed objects, so that they can always be returned to it. If all keys have borrowed objects,
+ * {@link #borrowObject(Object)} returns <code>null</code> for new keys and the
+ * caller is responsible for creating a non-pooled object.
+ * <p>
+ * Objects that were not used for the maximum idle time are released
+ * periodically while borrowing, so that objects of rarely used keys do not
+ * stay in memory forever. Key pools without any objects left are removed.
+ * <p>
+ * The following statistics are maintained with the prefix
+ * {@link ConcurrentObjectPool#STATISTICS_PREFIX} and the pool name:
+ * <code>$borrow</code> (all successful borrowings), <code>$create</code> (all
+ * objects created by the factory) and <code>$unpooled</code> (all borrowings
+ * that could not be served because the key limit was reached). The number of
+ * borrowings that reused an existing object is the difference between the
+ * borrowings and the creations. In addition every key pool maintains its own
+ * statistics.
+ * 
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The key type. Must implement equals and hashCode.
+ * @param <DATATYPE>
+ *        The type of the objects contained in the pool.
+ */
+@ThreadSafe
+public final class KeyedObjectPool <KEYTYPE, DATATYPE>
+{
+  /** The default maximum number of different keys */
+  public static final int DEFAULT_MAX_KEY_COUNT = 32;
+  /** The default time in milliseconds after which unused objects are released */
+  public static final long DEFAULT_MAX_IDLE_MILLIS = 5 * CGlobal.MILLISECONDS_PER_MINUTE;
+
+  /**
+   * The pool of a single key together with the time of its last use. The pool
+   * is pinned by every borrower from the lookup until the object is returned.
+   */
+  private static final class KeyPool <DATATYPE>
+  {
+    private final ConcurrentObjectPool <DATATYPE> m_aPool;
+    private volatile long m_nLastAccess;
+    // Number of borrowers - -1 if the pool was removed
+    private final AtomicInteger m_aPinCount = new AtomicInteger (0);
+
+    KeyPool (@Nonnull final ConcurrentObjectPool <DATATYPE> aPool)
+    {
+      m_aPool = aPool;
+      m_nLastAccess = System.currentTimeMillis ();
+    }
+
+    /**
+     * @return <code>true</code> if the pool was pinned, <code>false</code> if
+     *         it was already removed.
+     */
+    boolean pin ()
+    {
+      while (true)
+      {
+        final int nPinCount = m_aPinCount.get ();
+        if (nPinCount < 0)
+          return false;
+        if (m_aPinCount.compareAndSet (nPinCount, nPinCount + 1))
+          return true;
+      }
+    }
+
+    void unpin ()
+    {
+      m_aPinCount.decrementAndGet ();
+    }
+
+    boolean isUnpinned ()
+    {
+      return m_aPinCount.get () == 0;
+    }
+
+    /**
+     * @return <code>true</code> if the pool was not pinned and may be removed.
+     *         It can never be pinned again afterwards.
+     */
+    boolean retire ()
+    {
+      return m_aPinCount.compareAndSet (0, -1);
+    }
+  }
+
+  private final String m_sPoolName;
+  private final int m_nItemCountPerKey;
+  private final int m_nMaxKeyCount;
+  private final long m_nMaxIdleMillis;
+  private final IFactoryWithParameter <DATATYPE, KEYTYPE> m_aFactory;
+  private final ConcurrentMap <KEYTYPE, KeyPool <DATATYPE>> m_aPools = new ConcurrentHashMap <KEYTYPE, KeyPool <DATATYPE>> ();
+  private final AtomicInteger m_aKeyIndex = new AtomicInteger (0);
+  private final AtomicLong m_aLastEviction = new AtomicLong (System.currentTimeMillis ());
+
+  private final IStatisticsHandlerCounter m_aStatsBorrow;
+  private final IStatisticsHandlerCounter m_aStatsCreate;
+  private final IStatisticsHandlerCounter m_aStatsUnpooled;
+
+  /**
+   * Get the default number of objects per key. It scales with the number of
+   * available processors, because usually not more objects than threads are
+   * required concurrently. As the objects are created on demand, a large
+   * number does not create any overhead.
+   * 
+   * @return The default number of items per key. Always &gt; 0.
+   */
+  @Nonnegative
+  public static int getDefaultItemCountPerKey ()
+  {
+    return Math.max (5, SystemHelper.getNumberOfProcessors () * 2);
+  }
+
+  /**
+   * Create a new keyed object pool with the default number of items per key,
+   * the default maximum number of keys and the default maximum idle time.
+   * 
+   * @param sPoolName
+   *        The name of the pool used for the statistics. May neither be
+   *        <code>null</code> nor empty.
+   * @param aFactory
+   *        The factory to create the objects for a certain key. May not be
+   *        <code>null</code>. The factory may not create <code>null</code>
+   *        objects, as this leads to an error!
+   */
+  public KeyedObjectPool (@Nonnull @Nonempty final String sPoolName,
+                          @Nonnull final IFactoryWithParameter <DATATYPE, KEYTYPE> aFactory)
+  {
+    this (sPoolName, getDefaultItemCountPerKey (), DEFAULT_MAX_KEY_COUNT, aFactory);
+  }
+
+  /**
+   * Create a new keyed object pool with the default maximum idle time.
+   * 
+   * @param sPoolName
+   *        The name of the pool used for the statistics. May neither be
+   *        <code>null</code> nor empty.
+   * @param nItemCountPerKey
+   *        The maximum number of items per key. Must be &ge; 1.
+   * @param nMaxKeyCount
+   *        The maximum number of different keys. Must be &ge; 1.
+   * @param aFactory
+   *        The factory to create the objects for a certain key. May not be
+   *        <code>null</code>. The factory may not create <code>null</code>
+   *        objects, as this leads to an error!
+   */
+  public KeyedObjectPool (@Nonnull @Nonempty final String sPoolName,
+                          @Nonnegative final int nItemCountPerKey,
+                          @Nonnegative final int nMaxKeyCount,
+                          @Nonnull final IFactoryWithParameter <DATATYPE, KEYTYPE> aFactory)
+  {
+    this (sPoolName, nItemCountPerKey, nMaxKeyCount, DEFAULT_MAX_IDLE_MILLIS, aFactory);
+  }
+
+  /**
+   * Create a new keyed object pool.
+   * 
+   * @param sPoolName
+   *        The name of the pool used for the statistics. May neither be
+   *        <code>null</code> nor empty.
+   * @param nItemCountPerKey
+   *        The maximum number of items per key. Must be &ge; 1.
+   * @param nMaxKeyCount
+   *        The maximum number of different keys. Must be &ge; 1.
+   * @param nMaxIdleMillis
+   *        The time in milliseconds after which objects that were not used are
+   *        released. Must be &ge; 1.
+   * @param aFactory
+   *        The factory to create the objects for a certain key. May not be
+   *        <code>null</code>. The factory may not create <code>null</code>
+   *        objects, as this leads to an error!
+   */
+  public KeyedObjectPool (@Nonnull @Nonempty final String sPoolName,
+                          @Nonnegative final int nItemCountPerKey,
+                          @Nonnegative final int nMaxKeyCount,
+                          @Nonnegative final long nMaxIdleMillis,
+                          @Nonnull final IFactoryWithParameter <DATATYPE, KEYTYPE> aFactory)
+  {
+    ValueEnforcer.notEmpty (sPoolName, "PoolName");
+    ValueEnforcer.isGT0 (nItemCountPerKey, "ItemCountPerKey");
+    ValueEnforcer.isGT0 (nMaxKeyCount, "MaxKeyCount");
+    ValueEnforcer.isGT0 (nMaxIdleMillis, "MaxIdleMillis");
+    ValueEnforcer.notNull (aFactory, "Factory");
+
+    m_sPoolName = sPoolName;
+    m_nItemCountPerKey = nItemCountPerKey;
+    m_nMaxKeyCount = nMaxKeyCount;
+    m_nMaxIdleMillis = nMaxIdleMillis;
+    m_aFactory = aFactory;
+
+    final String sStatsPrefix = ConcurrentObjectPool.STATISTICS_PREFIX + sPoolName;
+    m_aStatsBorrow = StatisticsManager.getCounterHandler (sStatsPrefix + "$borrow");
+    m_aStatsCreate = StatisticsManager.getCounterHandler (sStatsPrefix + "$create");
+    m_aStatsUnpooled = StatisticsManager.getCounterHandler (sStatsPrefix + "$unpooled");
+  }
+
+  /**
+   * @return The name of the pool. Neither <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getPoolName ()
+  {
+    return m_sPoolName;
+  }
+
+  /**
+   * @return The maximum number of objects per key. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getItemCountPerKey ()
+  {
+    return m_nItemCountPerKey;
+  }
+
+  /**
+   * @return The maximum number of different keys. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxKeyCount ()
+  {
+    return m_nMaxKeyCount;
+  }
+
+  /**
+   * @return The time in milliseconds after which unused objects are released.
+   *         Always &gt; 0.
+   */
+  @Nonnegative
+  public long getMaxIdleMillis ()
+  {
+    return m_nMaxIdleMillis;
+  }
+
+  /**
+   * @return The number of different keys currently in use.
+   */
+  @Nonnegative
+  public int getKeyCount ()
+  {
+    return m_aPools.size ();
+  }
+
+  /**
+   * @return The number of successful borrowings.
+   */
+  @Nonnegative
+  public long getBorrowCount ()
+  {
+    return m_aStatsBorrow.getCount ();
+  }
+
+  /**
+   * @return The number of objects created by the factory.
+   */
+  @Nonnegative
+  public long getCreateCount ()
+  {
+    return m_aStatsCreate.getCount ();
+  }
+
+  /**
+   * @return The number of borrowings that reused an existing object.
+   */
+  @Nonnegative
+  public long getHitCount ()
+  {
+    return Math.max (0, m_aStatsBorrow.getCount () - m_aStatsCreate.getCount ());
+  }
+
+  /**
+   * @return The number of borrowings that could not be served because the
+   *         maximum number of keys was reached.
+   */
+  @Nonnegative
+  public long getUnpooledCount ()
+  {
+    return m_aStatsUnpooled.getCount ();
+  }
+
+  /**
+   * Remove the pool of the least recently used key that has no borrowed
+   * objects.
+   * 
+   * @return <code>true</code> if a key pool was removed, <code>false</code> if
+   *         all keys have borrowed objects.
+   */
+  private boolean _removeLeastRecentlyUsedKey ()
+  {
+    while (true)
+    {
+      Map.Entry <KEYTYPE, KeyPool <DATATYPE>> aOldest = null;
+      for (final Map.Entry <KEYTYPE, KeyPool <DATATYPE>> aEntry : m_aPools.entrySet ())
+        if (aEntry.getValue ().isUnpinned () &&
+            (aOldest == null || aEntry.getValue ().m_nLastAccess < aOldest.getValue ().m_nLastAccess))
+          aOldest = aEntry;
+      if (aOldest == null)
+        return false;
+      // Try the next one if it was borrowed from in the meantime
+      if (aOldest.getValue ().retire ())
+      {
+        m_aPools.remove (aOldest.getKey (), aOldest.getValue ());
+        return true;
+      }
+    }
+  }
+
+  @Nullable
+  private KeyPool <DATATYPE> _getOrCreatePool (@Nonnull final KEYTYPE aKey)
+  {
+    KeyPool <DATATYPE> aPool = m_aPools.get (aKey);
+    if (aPool == null)
+    {
+      // The check is not atomic, so the limit may be exceeded slightly
+      if (m_aPools.size () >= m_nMaxKeyCount && !_removeLeastRecentlyUsedKey ())
+        return null;
+
+      final IFactory <DATATYPE> aKeyFactory = new IFactory <DATATYPE> ()
+      {
+        public DATATYPE create ()
+        {
+          final DATATYPE ret = m_aFactory.create (aKey);
+          m_aStatsCreate.increment ();
+          return ret;
+        }
+      };
+      final KeyPool <DATATYPE> aNewPool = new KeyPool <DATATYPE> (new ConcurrentObjectPool <DATATYPE> (m_sPoolName +
+                                                                                                       "[" +
+                                                                                                       m_aKeyIndex.getAndIncrement () +
+                                                                                                       "]",
+                                                                                                       m_nItemCountPerKey,
+                                                                                                       aKeyFactory));
+      aPool = m_aPools.putIfAbsent (aKey, aNewPool);
+      if (aPool == null)
+        aPool = aNewPool;
+    }
+    return aPool;
+  }
+
+  /**
+   * Release all objects that are currently not borrowed and that were not used
+   * for at least the specified duration. The pools of keys that were not used
+   * for the specified duration are removed completely.
+   * This method is called automatically while borrowing at most once per
+   * maximum idle time.
+   * 
+   * @param nMaxIdle
+   *        The maximum idle time. Must be &ge; 0.
+   * @param eUnit
+   *        The unit of the idle time. May not be <code>null</code>.
+   * @return The number of released objects. Always &ge; 0.
+   */
+  @Nonnegative
+  public int evictIdleObjects (@Nonnegative final long nMaxIdle, @Nonnull final TimeUnit eUnit)
+  {
+    ValueEnforcer.isGE0 (nMaxIdle, "MaxIdle");
+    ValueEnforcer.notNull (eUnit, "Unit");
+
+    final long nThreshold = System.currentTimeMillis () - eUnit.toMillis (nMaxIdle);
+    int ret = 0;
+    for (final Map.Entry <KEYTYPE, KeyPool <DATATYPE>> aEntry : m_aPools.entrySet ())
+    {
+      final KeyPool <DATATYPE> aPool = aEntry.getValue ();
+      ret += aPool.m_aPool.evictIdleObjects (nMaxIdle, eUnit);
+      // All objects of a key that was not used for the idle time are released
+      if (aPool.m_nLastAccess <= nThreshold && aPool.retire ())
+        m_aPools.remove (aEntry.getKey (), aPool);
+    }
+    return ret;
+  }
+
+  private void _evictIdleObjectsIfNecessary ()
+  {
+    final long nLastEviction = m_aLastEviction.get ();
+    final long nNow = System.currentTimeMillis ();
+    // Only one thread performs the eviction
+    if (nNow - nLastEviction >= m_nMaxIdleMillis && m_aLastEviction.compareAndSet (nLastEviction, nNow))
+      evictIdleObjects (m_nMaxIdleMillis, TimeUnit.MILLISECONDS);
+  }
+
+  /**
+   * Borrow an object for the passed key from the pool. This method blocks
+   * until an object is available.
+   * 
+   * @param aKey
+   *        The key to use. May not be <code>null</code>.
+   * @return The borrowed object or <code>null</code> if the maximum number of
+   *         keys was reached or if the thread was interrupted. In this case the
+   *         caller must create an object itself and may not return it to the
+   *         pool.
+   */
+  @Nullable
+  public DATATYPE borrowObject (@Nonnull final KEYTYPE aKey)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+
+    _evictIdleObjectsIfNecessary ();
+
+    KeyPool <DATATYPE> aPool;
+    while (true)
+    {
+      aPool = _getOrCreatePool (aKey);
+      if (aPool == null)
+      {
+        m_aStatsUnpooled.increment ();
+        return null;
+      }
+      // Pin the pool so that it is not removed until the object is returned
+      if (aPool.pin ())
+        break;
+      // The pool was removed concurrently - use a new one
+      m_aPools.remove (aKey, aPool);
+    }
+    aPool.m_nLastAccess = System.currentTimeMillis ();
+    final DATATYPE ret = aPool.m_aPool.borrowObject ();
+    if (ret != null)
+      m_aStatsBorrow.increment ();
+    else
+      aPool.unpin ();
+    return ret;
+  }
+
+  /**
+   * Return a previously borrowed object back to the pool.
+   * 
+   * @param aKey
+   *        The key that was used for borrowing. May not be <code>null</code>.
+   * @param aItem
+   *        The previously borrowed object to be returned. Never
+   *        <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} upon success
+   */
+  @Nonnull
+  public ESuccess returnObject (@Nonnull final KEYTYPE aKey, @Nonnull final DATATYPE aItem)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+
+    // The pool is pinned and therefore not removed while an object is borrowed
+    final KeyPool <DATATYPE> aPool = m_aPools.get (aKey);
+    if (aPool == null)
+      return ESuccess.FAILURE;
+    final ESuccess eSuccess = aPool.m_aPool.returnObject (aItem);
+    if (eSuccess.isSuccess ())
+      aPool.unpin ();
+    return eSuccess;
+  }
+
+  /**
+   * Return a previously borrowed object that must not be used again. A new
+   * object is created on demand.
+   * 
+   * @param aKey
+   *        The key that was used for borrowing. May not be <code>null</code>.
+   * @param aItem
+   *        The previously borrowed object to be discarded. Never
+   *        <code>null</code>.
+   * @return {@link ESuccess#SUCCESS} upon success
+   * @see ConcurrentObjectPool#discardObject(Object)
+   */
+  @Nonnull
+  public ESuccess discardObject (@Nonnull final KEYTYPE aKey, @Nonnull final DATATYPE aItem)
+  {
+    ValueEnforcer.notNull (aKey, "Key");
+
+    final KeyPool <DATATYPE> aPool = m_aPools.get (aKey);
+    if (aPool == null)
+      return ESuccess.FAILURE;
+    final ESuccess eSuccess = aPool.m_aPool.discardObject (aItem);
+    if (eSuccess.isSuccess ())
+      aPool.unpin ();
+    return eSuccess;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("poolName", m_sPoolName)
+                                       .append ("itemCountPerKey", m_nItemCountPerKey)
+                                       .append ("maxKeyCount", m_nMaxKeyCount)
+                                       .append ("maxIdleMillis", m_nMaxIdleMillis)
+                                       .append ("keyCount", m_aPools.size ())
+                                       .append ("factory", m_aFactory)
+                                       .toString ();
+  }
+}
@@ -24,19 +24,23 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.RegEx;
 
-import com.phloc.commons.annotations.IsLocked;
-import com.phloc.commons.annotations.IsLocked.ELockType;
 import com.phloc.commons.annotations.Nonempty;
-import com.phloc.commons.cache.AbstractNotifyingCacheWithMaxSize;
+import com.phloc.commons.cache.AbstractConcurrentNotifyingCache;
+import com.phloc.commons.cache.ECacheValueReference;
+import com.phloc.commons.collections.IEvictionPolicy;
+import com.phloc.commons.collections.WTinyLFUEvictionPolicy;
 import com.phloc.commons.state.EChange;
 
 /**
  * This class provides a pool for cached regular expressions. It caches up to a
- * limited number of compiled {@link Pattern} objects.
+ * limited number of compiled {@link Pattern} objects. Patterns are evicted by
+ * a {@link WTinyLFUEvictionPolicy}, so that compiling many patterns that are
+ * used only once does not evict the frequently used patterns. Lookups are lock
+ * free and different patterns can be compiled concurrently.
  * 
  * @author Philip Helger
  */
-public final class RegExPool extends AbstractNotifyingCacheWithMaxSize <RegExPattern, Pattern>
+public final class RegExPool extends AbstractConcurrentNotifyingCache <RegExPattern, Pattern>
 {
   /** The default number of items to keep in the cache */
   public static final int MAX_CACHE_SIZE = 1000;
@@ -44,12 +48,18 @@ public final class RegExPool extends AbstractNotifyingCacheWithMaxSize <RegExPat
 
   private RegExPool ()
   {
-    super (RegExPool.class.getName (), MAX_CACHE_SIZE);
+    super (RegExPool.class.getName (), ECacheValueReference.STRONG, MAX_CACHE_SIZE);
+  }
+
+  @Override
+  @Nonnull
+  protected IEvictionPolicy <RegExPattern> createEvictionPolicy ()
+  {
+    return new WTinyLFUEvictionPolicy <RegExPattern> (MAX_CACHE_SIZE);
   }
 
   @Override
   @Nullable
-  @IsLocked (ELockType.WRITE)
   protected Pattern getValueToCache (@Nullable @RegEx final RegExPattern aRegEx)
   {
     return aRegEx == null ? null : aRegEx.getAsPattern ();
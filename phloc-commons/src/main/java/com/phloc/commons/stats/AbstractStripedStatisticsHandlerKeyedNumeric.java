@@ -0,0 +1,166 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.collections.ContainerHelper;
+
+/**
+ * Abstract base class for lock free keyed numeric statistic handler. The
+ * per-key values are held in a {@link ConcurrentHashMap} and updated using
+ * striped cells.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+abstract class AbstractStripedStatisticsHandlerKeyedNumeric implements IStatisticsHandlerKeyedNumeric
+{
+  /**
+   * The surrogate for the <code>null</code> key, as {@link ConcurrentHashMap}
+   * does not support <code>null</code> keys
+   */
+  private static final Object NULL_KEY = new Object ()
+  {
+    @Override
+    public String toString ()
+    {
+      return "null";
+    }
+  };
+
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final ConcurrentMap <Object, StripedNumericValue> m_aMap = new ConcurrentHashMap <Object, StripedNumericValue> ();
+
+  /**
+   * Get the key to be used in a {@link ConcurrentHashMap} for the passed
+   * statistics key.
+   * 
+   * @param sKey
+   *        The statistics key. May be <code>null</code>.
+   * @return The non-<code>null</code> map key.
+   */
+  @Nonnull
+  static Object getMapKey (@Nullable final String sKey)
+  {
+    return sKey == null ? NULL_KEY : sKey;
+  }
+
+  /**
+   * Get all statistics keys contained in the passed map, with the
+   * <code>null</code> key surrogate being resolved.
+   * 
+   * @param aMap
+   *        The map to get the keys from. May not be <code>null</code>.
+   * @return The set of all keys. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  static Set <String> getAllKeys (@Nonnull final Map <Object, ?> aMap)
+  {
+    final Set <String> ret = ContainerHelper.newSet ();
+    for (final Object aKey : aMap.keySet ())
+      ret.add (aKey == NULL_KEY ? null : (String) aKey);
+    return ret;
+  }
+
+  @Nonnegative
+  public final int getInvocationCount ()
+  {
+    return m_aInvocationCount.intValue ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public Set <String> getAllKeys ()
+  {
+    return getAllKeys (m_aMap);
+  }
+
+  protected final void addValue (@Nullable final String sKey, final long nValue)
+  {
+    m_aInvocationCount.increment ();
+
+    final Object aMapKey = getMapKey (sKey);
+    StripedNumericValue aValue = m_aMap.get (aMapKey);
+    if (aValue == null)
+    {
+      final StripedNumericValue aNewValue = new StripedNumericValue ();
+      aValue = m_aMap.putIfAbsent (aMapKey, aNewValue);
+      if (aValue == null)
+        aValue = aNewValue;
+    }
+    aValue.add (nValue);
+  }
+
+  @CheckForSigned
+  public final int getInvocationCount (@Nullable final String sKey)
+  {
+    final StripedNumericValue aValue = m_aMap.get (getMapKey (sKey));
+    return aValue == null ? CGlobal.ILLEGAL_UINT : aValue.getInvocationCount ();
+  }
+
+  @Nullable
+  public final BigInteger getSum (@Nullable final String sKey)
+  {
+    final StripedNumericValue aValue = m_aMap.get (getMapKey (sKey));
+    return aValue == null ? null : aValue.getSum ();
+  }
+
+  @CheckForSigned
+  public final long getMin (@Nullable final String sKey)
+  {
+    final StripedNumericValue aValue = m_aMap.get (getMapKey (sKey));
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMin ();
+  }
+
+  @CheckForSigned
+  public final long getAverage (@Nullable final String sKey)
+  {
+    final StripedNumericValue aValue = m_aMap.get (getMapKey (sKey));
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getAverage ();
+  }
+
+  @CheckForSigned
+  public long getMax (@Nullable final String sKey)
+  {
+    final StripedNumericValue aValue = m_aMap.get (getMapKey (sKey));
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMax ();
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getAsString ()
+  {
+    return "invocations=" + getInvocationCount () + ";map=" + m_aMap.entrySet ();
+  }
+}
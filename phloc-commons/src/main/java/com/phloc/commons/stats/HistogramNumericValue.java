@@ -0,0 +1,155 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * Lock free aggregation of numeric values together with a histogram of all
+ * values. Values are recorded into the histogram of the current interval only.
+ * When an interval is closed, the current interval histogram is atomically
+ * replaced by an empty one and merged into the histogram of all previous
+ * intervals, so that recording is a single bucket increment and no value is
+ * lost or counted twice.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class HistogramNumericValue
+{
+  /**
+   * The histogram of a single interval together with the number of threads
+   * currently recording into it.
+   */
+  private static final class Interval
+  {
+    private final LogLinearHistogram m_aHistogram = new LogLinearHistogram ();
+    private final AtomicInteger m_aActiveWriters = new AtomicInteger (0);
+  }
+
+  private final StripedNumericValue m_aValue = new StripedNumericValue ();
+  private final AtomicReference <Interval> m_aCurrentInterval = new AtomicReference <Interval> (new Interval ());
+  @GuardedBy ("this")
+  private final LogLinearHistogram m_aPreviousIntervals = new LogLinearHistogram ();
+
+  public HistogramNumericValue ()
+  {}
+
+  public void add (final long nValue)
+  {
+    Interval aInterval;
+    while (true)
+    {
+      aInterval = m_aCurrentInterval.get ();
+      aInterval.m_aActiveWriters.incrementAndGet ();
+      // Ensure the interval was not swapped in the meantime
+      if (m_aCurrentInterval.get () == aInterval)
+        break;
+      aInterval.m_aActiveWriters.decrementAndGet ();
+    }
+    try
+    {
+      aInterval.m_aHistogram.recordValue (nValue);
+    }
+    finally
+    {
+      aInterval.m_aActiveWriters.decrementAndGet ();
+    }
+    m_aValue.add (nValue);
+  }
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return m_aValue.getInvocationCount ();
+  }
+
+  @CheckForSigned
+  public long getMin ()
+  {
+    return m_aValue.getMin ();
+  }
+
+  @CheckForSigned
+  public long getMax ()
+  {
+    return m_aValue.getMax ();
+  }
+
+  @Nonnull
+  public BigInteger getSum ()
+  {
+    return m_aValue.getSum ();
+  }
+
+  @CheckForSigned
+  public long getAverage ()
+  {
+    return m_aValue.getAverage ();
+  }
+
+  @Nonnull
+  public synchronized LogLinearHistogram getHistogram ()
+  {
+    final LogLinearHistogram ret = new LogLinearHistogram ();
+    ret.add (m_aPreviousIntervals);
+    ret.add (m_aCurrentInterval.get ().m_aHistogram);
+    return ret;
+  }
+
+  @CheckForSigned
+  public synchronized long getValueAtPercentile (final double dPercentile)
+  {
+    // Combine both histograms without creating a copy
+    return m_aPreviousIntervals.getValueAtPercentile (dPercentile, m_aCurrentInterval.get ().m_aHistogram);
+  }
+
+  @Nonnull
+  public synchronized LogLinearHistogram getAndResetIntervalHistogram ()
+  {
+    final Interval aOld = m_aCurrentInterval.getAndSet (new Interval ());
+    // Wait for all writers that are still recording into the old interval
+    while (aOld.m_aActiveWriters.get () != 0)
+      Thread.yield ();
+    m_aPreviousIntervals.add (aOld.m_aHistogram);
+    return aOld.m_aHistogram;
+  }
+
+  @Override
+  public String toString ()
+  {
+    // No object ID needed for toString
+    final LogLinearHistogram aHistogram = getHistogram ();
+    return new ToStringGenerator (null).append ("value", m_aValue)
+                                       .append ("p50", aHistogram.getValueAtPercentile (50))
+                                       .append ("p90", aHistogram.getValueAtPercentile (90))
+                                       .append ("p99", aHistogram.getValueAtPercentile (99))
+                                       .append ("p999", aHistogram.getValueAtPercentile (99.9))
+                                       .toString ();
+  }
+}
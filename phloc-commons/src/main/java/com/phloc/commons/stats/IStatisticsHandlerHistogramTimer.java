@@ -0,0 +1,59 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnull;
+
+/**
+ * Modifying interface of {@link StatisticsHandlerHistogramTimerMBean}. In
+ * addition to the aggregated values of {@link IStatisticsHandlerTimer} all
+ * values are recorded in a {@link LogLinearHistogram}.
+ * 
+ * @author Philip Helger
+ */
+public interface IStatisticsHandlerHistogramTimer extends IStatisticsHandlerTimer, StatisticsHandlerHistogramTimerMBean
+{
+  /**
+   * Get the value at an arbitrary percentile of all values.
+   * 
+   * @param dPercentile
+   *        The percentile to query. Must be between 0 and 100.
+   * @return {@link com.phloc.commons.CGlobal#ILLEGAL_ULONG} if the invocation
+   *         count is 0.
+   */
+  @CheckForSigned
+  long getValueAtPercentile (double dPercentile);
+
+  /**
+   * @return A histogram with all values recorded so far. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  LogLinearHistogram getHistogram ();
+
+  /**
+   * Get all values recorded since the last call of this method and start a new
+   * interval. The values of the interval remain part of the overall histogram.
+   * 
+   * @return A histogram with all values recorded in the last interval. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  LogLinearHistogram getAndResetIntervalHistogram ();
+}
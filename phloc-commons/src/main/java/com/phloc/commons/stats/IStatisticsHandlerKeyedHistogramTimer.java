@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nullable;
+
+/**
+ * Modifying interface of {@link StatisticsHandlerKeyedHistogramTimerMBean}. In
+ * addition to the aggregated values of {@link IStatisticsHandlerKeyedTimer}
+ * all values are recorded in a {@link LogLinearHistogram} per key.
+ * 
+ * @author Philip Helger
+ */
+public interface IStatisticsHandlerKeyedHistogramTimer extends
+                                                       IStatisticsHandlerKeyedTimer,
+                                                       StatisticsHandlerKeyedHistogramTimerMBean
+{
+  /**
+   * Get the value at an arbitrary percentile of all values of a key.
+   * 
+   * @param sKey
+   *        The key to be queried.
+   * @param dPercentile
+   *        The percentile to query. Must be between 0 and 100.
+   * @return {@link com.phloc.commons.CGlobal#ILLEGAL_ULONG} if no such key
+   *         exists.
+   */
+  @CheckForSigned
+  long getValueAtPercentile (@Nullable String sKey, double dPercentile);
+
+  /**
+   * @param sKey
+   *        The key to be queried.
+   * @return A histogram with all values of the key recorded so far or
+   *         <code>null</code> if no such key exists.
+   */
+  @Nullable
+  LogLinearHistogram getHistogram (@Nullable String sKey);
+
+  /**
+   * Get all values of a key recorded since the last call of this method for
+   * the same key and start a new interval. The values of the interval remain
+   * part of the overall histogram.
+   * 
+   * @param sKey
+   *        The key to be queried.
+   * @return A histogram with all values recorded in the last interval or
+   *         <code>null</code> if no such key exists.
+   */
+  @Nullable
+  LogLinearHistogram getAndResetIntervalHistogram (@Nullable String sKey);
+}
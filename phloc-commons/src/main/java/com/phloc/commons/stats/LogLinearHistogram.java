@@ -0,0 +1,332 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * A fixed memory histogram with log-linear buckets, similar to the HDR
+ * histogram. Values below <code>2^precisionBits</code> are counted exactly.
+ * Bigger values are counted in buckets whose width grows with the magnitude of
+ * the value, so that the relative error of a reported value is always below
+ * <code>2^-(precisionBits-1)</code>. Negative values are counted as 0.
+ * <p>
+ * Recording a value is lock free and never allocates memory. Reading is weakly
+ * consistent: values recorded concurrently may or may not be contained in the
+ * result.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class LogLinearHistogram
+{
+  /** The default precision bits: max. relative error of approx. 6% */
+  public static final int DEFAULT_PRECISION_BITS = 5;
+  /** The minimum precision bits */
+  public static final int MIN_PRECISION_BITS = 2;
+  /** The maximum precision bits */
+  public static final int MAX_PRECISION_BITS = 14;
+
+  private final int m_nPrecisionBits;
+  private final int m_nSubBucketCount;
+  private final int m_nSubBucketHalfCount;
+  private final AtomicLongArray m_aCounts;
+  private final AtomicLong m_aMaxValue = new AtomicLong (CGlobal.ILLEGAL_ULONG);
+
+  public LogLinearHistogram ()
+  {
+    this (DEFAULT_PRECISION_BITS);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param nPrecisionBits
+   *        The number of bits used for the linear part of each bucket. The
+   *        higher the value, the more precise the results and the more memory
+   *        is used. Must be between {@link #MIN_PRECISION_BITS} and
+   *        {@link #MAX_PRECISION_BITS}.
+   */
+  public LogLinearHistogram (@Nonnegative final int nPrecisionBits)
+  {
+    ValueEnforcer.isBetweenInclusive (nPrecisionBits, "PrecisionBits", MIN_PRECISION_BITS, MAX_PRECISION_BITS);
+    m_nPrecisionBits = nPrecisionBits;
+    m_nSubBucketCount = 1 << nPrecisionBits;
+    m_nSubBucketHalfCount = m_nSubBucketCount / 2;
+    // One linear range for all values < sub bucket count plus one half range
+    // for each remaining power of 2 of a positive long
+    m_aCounts = new AtomicLongArray (m_nSubBucketCount + (Long.SIZE - 1 - nPrecisionBits) * m_nSubBucketHalfCount);
+  }
+
+  /**
+   * @return The number of precision bits as specified in the constructor.
+   */
+  @Nonnegative
+  public int getPrecisionBits ()
+  {
+    return m_nPrecisionBits;
+  }
+
+  /**
+   * @return The number of buckets used internally. Determines the memory
+   *         footprint of this histogram.
+   */
+  @Nonnegative
+  public int getBucketCount ()
+  {
+    return m_aCounts.length ();
+  }
+
+  private int _getIndex (final long nValue)
+  {
+    if (nValue < m_nSubBucketCount)
+      return (int) nValue;
+    // Position of the highest bit set - is always >= precision bits
+    final int nHighestBit = Long.SIZE - 1 - Long.numberOfLeadingZeros (nValue);
+    final int nBucket = nHighestBit - m_nPrecisionBits + 1;
+    final int nSubBucket = (int) (nValue >>> nBucket) - m_nSubBucketHalfCount;
+    return m_nSubBucketCount + (nBucket - 1) * m_nSubBucketHalfCount + nSubBucket;
+  }
+
+  private long _getHighestEquivalentValue (final int nIndex)
+  {
+    if (nIndex < m_nSubBucketCount)
+      return nIndex;
+    final int nOffset = nIndex - m_nSubBucketCount;
+    final int nBucket = nOffset / m_nSubBucketHalfCount + 1;
+    final long nSubBucket = nOffset % m_nSubBucketHalfCount + m_nSubBucketHalfCount;
+    return ((nSubBucket + 1) << nBucket) - 1;
+  }
+
+  private void _updateMax (final long nValue)
+  {
+    long nCurrentMax = m_aMaxValue.get ();
+    while (nValue > nCurrentMax)
+    {
+      if (m_aMaxValue.compareAndSet (nCurrentMax, nValue))
+        break;
+      nCurrentMax = m_aMaxValue.get ();
+    }
+  }
+
+  /**
+   * Record a single value.
+   * 
+   * @param nValue
+   *        The value to record. Negative values are recorded as 0.
+   */
+  public void recordValue (final long nValue)
+  {
+    recordValues (nValue, 1);
+  }
+
+  /**
+   * Record a value multiple times.
+   * 
+   * @param nValue
+   *        The value to record. Negative values are recorded as 0.
+   * @param nCount
+   *        The number of times the value should be recorded.
+   */
+  public void recordValues (final long nValue, @Nonnegative final long nCount)
+  {
+    final long nRealValue = nValue < 0 ? 0 : nValue;
+    m_aCounts.addAndGet (_getIndex (nRealValue), nCount);
+    _updateMax (nRealValue);
+  }
+
+  /**
+   * @return The total number of recorded values.
+   */
+  @Nonnegative
+  public long getTotalCount ()
+  {
+    long ret = 0;
+    for (int i = 0; i < m_aCounts.length (); ++i)
+      ret += m_aCounts.get (i);
+    return ret;
+  }
+
+  /**
+   * @return The biggest recorded value or {@link CGlobal#ILLEGAL_ULONG} if no
+   *         value was recorded.
+   */
+  @CheckForSigned
+  public long getMaxValue ()
+  {
+    return m_aMaxValue.get ();
+  }
+
+  /**
+   * Get the value at the specified percentile. The result is the highest value
+   * that is equivalent to the bucket containing the percentile, but never
+   * bigger than the biggest recorded value.
+   * 
+   * @param dPercentile
+   *        The percentile to be queried. Must be between 0 and 100.
+   * @return {@link CGlobal#ILLEGAL_ULONG} if no value was recorded.
+   */
+  @CheckForSigned
+  public long getValueAtPercentile (final double dPercentile)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 100);
+    return _getValueAtPercentile (dPercentile, null);
+  }
+
+  /**
+   * Get the value at the specified percentile of the combination of this and
+   * the passed histogram, without creating a merged copy.
+   * 
+   * @param dPercentile
+   *        The percentile to be queried. Must be between 0 and 100.
+   * @param aOther
+   *        The histogram to be combined with this histogram. Must have the same
+   *        precision bits as this histogram.
+   * @return {@link CGlobal#ILLEGAL_ULONG} if no value was recorded.
+   */
+  @CheckForSigned
+  long getValueAtPercentile (final double dPercentile, @Nonnull final LogLinearHistogram aOther)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 100);
+    _checkSamePrecisionBits (aOther);
+    return _getValueAtPercentile (dPercentile, aOther);
+  }
+
+  private long _getValueAtPercentile (final double dPercentile, @Nullable final LogLinearHistogram aOther)
+  {
+    final long nTotalCount = aOther == null ? getTotalCount () : getTotalCount () + aOther.getTotalCount ();
+    if (nTotalCount == 0)
+      return CGlobal.ILLEGAL_ULONG;
+
+    final long nMaxValue = aOther == null ? getMaxValue () : Math.max (getMaxValue (), aOther.getMaxValue ());
+    final long nCountToReach = Math.max (1, (long) Math.ceil (dPercentile / 100 * nTotalCount));
+    long nCount = 0;
+    for (int i = 0; i < m_aCounts.length (); ++i)
+    {
+      nCount += m_aCounts.get (i);
+      if (aOther != null)
+        nCount += aOther.m_aCounts.get (i);
+      if (nCount >= nCountToReach)
+        return Math.min (_getHighestEquivalentValue (i), nMaxValue);
+    }
+    // Concurrent modification
+    return nMaxValue;
+  }
+
+  private void _checkSamePrecisionBits (@Nonnull final LogLinearHistogram aOther)
+  {
+    ValueEnforcer.notNull (aOther, "Other");
+    if (aOther.m_nPrecisionBits != m_nPrecisionBits)
+      throw new IllegalArgumentException ("Cannot merge histograms with different precision bits: " +
+                                          aOther.m_nPrecisionBits +
+                                          " and " +
+                                          m_nPrecisionBits);
+  }
+
+  /**
+   * Add all values of the passed histogram to this histogram. The passed
+   * histogram is not modified.
+   * 
+   * @param aOther
+   *        The histogram to be merged. Must have the same precision bits as
+   *        this histogram.
+   */
+  public void add (@Nonnull final LogLinearHistogram aOther)
+  {
+    _checkSamePrecisionBits (aOther);
+
+    for (int i = 0; i < m_aCounts.length (); ++i)
+    {
+      final long nCount = aOther.m_aCounts.get (i);
+      if (nCount != 0)
+        m_aCounts.addAndGet (i, nCount);
+    }
+    _updateMax (aOther.getMaxValue ());
+  }
+
+  /**
+   * Remove all recorded values.
+   */
+  public void reset ()
+  {
+    for (int i = 0; i < m_aCounts.length (); ++i)
+      m_aCounts.set (i, 0);
+    m_aMaxValue.set (CGlobal.ILLEGAL_ULONG);
+  }
+
+  /**
+   * Move all values recorded so far into a new histogram and reset this
+   * histogram. No value recorded concurrently is lost - it is either contained
+   * in the returned histogram or remains in this histogram.
+   * 
+   * @return A new histogram with all values recorded since the last reset.
+   *         Never <code>null</code>.
+   */
+  @Nonnull
+  public LogLinearHistogram getAndReset ()
+  {
+    final LogLinearHistogram ret = new LogLinearHistogram (m_nPrecisionBits);
+    ret.m_aMaxValue.set (m_aMaxValue.getAndSet (CGlobal.ILLEGAL_ULONG));
+    for (int i = 0; i < m_aCounts.length (); ++i)
+    {
+      final long nCount = m_aCounts.getAndSet (i, 0);
+      if (nCount != 0)
+        ret.m_aCounts.set (i, nCount);
+    }
+    return ret;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getAsString ()
+  {
+    return "invocations=" +
+           getTotalCount () +
+           ";p50=" +
+           getValueAtPercentile (50) +
+           ";p90=" +
+           getValueAtPercentile (90) +
+           ";p99=" +
+           getValueAtPercentile (99) +
+           ";p999=" +
+           getValueAtPercentile (99.9) +
+           ";max=" +
+           getMaxValue ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("precisionBits", m_nPrecisionBits)
+                                       .append ("totalCount", getTotalCount ())
+                                       .append ("maxValue", getMaxValue ())
+                                       .toString ();
+  }
+}
@@ -0,0 +1,147 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.math.BigInteger;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.annotations.Nonempty;
+
+/**
+ * Default implementation of {@link IStatisticsHandlerHistogramTimer}
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class StatisticsHandlerHistogramTimer implements IStatisticsHandlerHistogramTimer
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (StatisticsHandlerHistogramTimer.class);
+
+  private final HistogramNumericValue m_aValue = new HistogramNumericValue ();
+
+  public void addTime (@Nonnegative final long nMillis)
+  {
+    if (nMillis < 0)
+      s_aLogger.warn ("A negative value (" + nMillis + ") is added to " + getClass ().getName ());
+    m_aValue.add (nMillis);
+  }
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return m_aValue.getInvocationCount ();
+  }
+
+  @Nonnull
+  public BigInteger getSum ()
+  {
+    return m_aValue.getSum ();
+  }
+
+  @CheckForSigned
+  public long getMin ()
+  {
+    return m_aValue.getMin ();
+  }
+
+  @CheckForSigned
+  public long getAverage ()
+  {
+    return m_aValue.getAverage ();
+  }
+
+  @CheckForSigned
+  public long getMax ()
+  {
+    return m_aValue.getMax ();
+  }
+
+  @CheckForSigned
+  public long getValueAtPercentile (final double dPercentile)
+  {
+    return m_aValue.getValueAtPercentile (dPercentile);
+  }
+
+  @CheckForSigned
+  public long getPercentile50 ()
+  {
+    return getValueAtPercentile (50);
+  }
+
+  @CheckForSigned
+  public long getPercentile90 ()
+  {
+    return getValueAtPercentile (90);
+  }
+
+  @CheckForSigned
+  public long getPercentile99 ()
+  {
+    return getValueAtPercentile (99);
+  }
+
+  @CheckForSigned
+  public long getPercentile999 ()
+  {
+    return getValueAtPercentile (99.9);
+  }
+
+  @Nonnull
+  public LogLinearHistogram getHistogram ()
+  {
+    return m_aValue.getHistogram ();
+  }
+
+  @Nonnull
+  public LogLinearHistogram getAndResetIntervalHistogram ()
+  {
+    return m_aValue.getAndResetIntervalHistogram ();
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getAsString ()
+  {
+    final LogLinearHistogram aHistogram = getHistogram ();
+    return "invocations=" +
+           getInvocationCount () +
+           ";sum=" +
+           getSum () +
+           ";min=" +
+           getMin () +
+           ";avg=" +
+           getAverage () +
+           ";max=" +
+           getMax () +
+           ";p50=" +
+           aHistogram.getValueAtPercentile (50) +
+           ";p90=" +
+           aHistogram.getValueAtPercentile (90) +
+           ";p99=" +
+           aHistogram.getValueAtPercentile (99) +
+           ";p999=" +
+           aHistogram.getValueAtPercentile (99.9);
+  }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import javax.annotation.CheckForSigned;
+
+/**
+ * MBean interface for {@link IStatisticsHandlerHistogramTimer}
+ * 
+ * @author Philip Helger
+ */
+public interface StatisticsHandlerHistogramTimerMBean extends StatisticsHandlerTimerMBean
+{
+  /**
+   * @return The median (50th percentile) of all values. Returns
+   *         {@link com.phloc.commons.CGlobal#ILLEGAL_ULONG} if the invocation
+   *         count is 0.
+   */
+  @CheckForSigned
+  long getPercentile50 ();
+
+  /**
+   * @return The 90th percentile of all values. Returns
+   *         {@link com.phloc.commons.CGlobal#ILLEGAL_ULONG} if the invocation
+   *         count is 0.
+   */
+  @CheckForSigned
+  long getPercentile90 ();
+
+  /**
+   * @return The 99th percentile of all values. Returns
+   *         {@link com.phloc.commons.CGlobal#ILLEGAL_ULONG} if the invocation
+   *         count is 0.
+   */
+  @CheckForSigned
+  long getPercentile99 ();
+
+  /**
+   * @return The 99.9th percentile of all values. Returns
+   *         {@link com.phloc.commons.CGlobal#ILLEGAL_ULONG} if the invocation
+   *         count is 0.
+   */
+  @CheckForSigned
+  long getPercentile999 ();
+}
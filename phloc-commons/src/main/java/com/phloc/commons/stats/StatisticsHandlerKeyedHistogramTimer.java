@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.math.BigInteger;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+
+/**
+ * Default implementation of {@link IStatisticsHandlerKeyedHistogramTimer}
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class StatisticsHandlerKeyedHistogramTimer implements IStatisticsHandlerKeyedHistogramTimer
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (StatisticsHandlerKeyedHistogramTimer.class);
+
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final ConcurrentMap <Object, HistogramNumericValue> m_aMap = new ConcurrentHashMap <Object, HistogramNumericValue> ();
+
+  @Nullable
+  private HistogramNumericValue _getValue (@Nullable final String sKey)
+  {
+    return m_aMap.get (AbstractStripedStatisticsHandlerKeyedNumeric.getMapKey (sKey));
+  }
+
+  public void addTime (@Nullable final String sKey, @Nonnegative final long nMillis)
+  {
+    if (nMillis < 0)
+      s_aLogger.warn ("A negative value (" + nMillis + ") for key '" + sKey + "' is added to " + getClass ().getName ());
+
+    m_aInvocationCount.increment ();
+
+    final Object aMapKey = AbstractStripedStatisticsHandlerKeyedNumeric.getMapKey (sKey);
+    HistogramNumericValue aValue = m_aMap.get (aMapKey);
+    if (aValue == null)
+    {
+      final HistogramNumericValue aNewValue = new HistogramNumericValue ();
+      aValue = m_aMap.putIfAbsent (aMapKey, aNewValue);
+      if (aValue == null)
+        aValue = aNewValue;
+    }
+    aValue.add (nMillis);
+  }
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return m_aInvocationCount.intValue ();
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public Set <String> getAllKeys ()
+  {
+    return AbstractStripedStatisticsHandlerKeyedNumeric.getAllKeys (m_aMap);
+  }
+
+  @CheckForSigned
+  public int getInvocationCount (@Nullable final String sKey)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_UINT : aValue.getInvocationCount ();
+  }
+
+  @Nullable
+  public BigInteger getSum (@Nullable final String sKey)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? null : aValue.getSum ();
+  }
+
+  @CheckForSigned
+  public long getMin (@Nullable final String sKey)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMin ();
+  }
+
+  @CheckForSigned
+  public long getAverage (@Nullable final String sKey)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getAverage ();
+  }
+
+  @CheckForSigned
+  public long getMax (@Nullable final String sKey)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMax ();
+  }
+
+  @CheckForSigned
+  public long getValueAtPercentile (@Nullable final String sKey, final double dPercentile)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getValueAtPercentile (dPercentile);
+  }
+
+  @CheckForSigned
+  public long getPercentile50 (@Nullable final String sKey)
+  {
+    return getValueAtPercentile (sKey, 50);
+  }
+
+  @CheckForSigned
+  public long getPercentile90 (@Nullable final String sKey)
+  {
+    return getValueAtPercentile (sKey, 90);
+  }
+
+  @CheckForSigned
+  public long getPercentile99 (@Nullable final String sKey)
+  {
+    return getValueAtPercentile (sKey, 99);
+  }
+
+  @CheckForSigned
+  public long getPercentile999 (@Nullable final String sKey)
+  {
+    return getValueAtPercentile (sKey, 99.9);
+  }
+
+  @Nullable
+  public LogLinearHistogram getHistogram (@Nullable final String sKey)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? null : aValue.getHistogram ();
+  }
+
+  @Nullable
+  public LogLinearHistogram getAndResetIntervalHistogram (@Nullable final String sKey)
+  {
+    final HistogramNumericValue aValue = _getValue (sKey);
+    return aValue == null ? null : aValue.getAndResetIntervalHistogram ();
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getAsString ()
+  {
+    return "invocations=" + getInvocationCount () + ";map=" + m_aMap.entrySet ();
+  }
+}
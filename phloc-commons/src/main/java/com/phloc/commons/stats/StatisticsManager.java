@@ -26,6 +26,11 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
+import javax.management.NotCompliantMBeanException;
+import javax.management.StandardMBean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
@@ -33,6 +38,7 @@ import com.phloc.commons.annotations.PresentForCodeCoverage;
 import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.jmx.JMXUtils;
+import com.phloc.commons.jmx.ObjectNameUtils;
 
 /**
  * Provides a central manager for the internal statistics.
@@ -44,22 +50,31 @@ public final class StatisticsManager
 {
   /** By default JMX is disabled */
   public static final boolean DEFAULT_JMX_ENABLED = false;
+  /** By default the lock based handlers are used */
+  public static final boolean DEFAULT_STRIPED_HANDLERS_ENABLED = false;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (StatisticsManager.class);
 
   private static final AtomicBoolean s_aJMXEnabled = new AtomicBoolean (DEFAULT_JMX_ENABLED);
+  private static final AtomicBoolean s_aStripedHandlersEnabled = new AtomicBoolean (DEFAULT_STRIPED_HANDLERS_ENABLED);
   private static final ReadWriteLock s_aRWLockCache = new ReentrantReadWriteLock ();
   private static final ReadWriteLock s_aRWLockTimer = new ReentrantReadWriteLock ();
   private static final ReadWriteLock s_aRWLockKeyedTimer = new ReentrantReadWriteLock ();
+  private static final ReadWriteLock s_aRWLockHistogramTimer = new ReentrantReadWriteLock ();
+  private static final ReadWriteLock s_aRWLockKeyedHistogramTimer = new ReentrantReadWriteLock ();
   private static final ReadWriteLock s_aRWLockSize = new ReentrantReadWriteLock ();
   private static final ReadWriteLock s_aRWLockKeyedSize = new ReentrantReadWriteLock ();
   private static final ReadWriteLock s_aRWLockCounter = new ReentrantReadWriteLock ();
   private static final ReadWriteLock s_aRWLockKeyedCounter = new ReentrantReadWriteLock ();
-  private static final Map <String, StatisticsHandlerCache> s_aHdlCache = new HashMap <String, StatisticsHandlerCache> ();
-  private static final Map <String, StatisticsHandlerTimer> s_aHdlTimer = new HashMap <String, StatisticsHandlerTimer> ();
-  private static final Map <String, StatisticsHandlerKeyedTimer> s_aHdlKeyedTimer = new HashMap <String, StatisticsHandlerKeyedTimer> ();
-  private static final Map <String, StatisticsHandlerSize> s_aHdlSize = new HashMap <String, StatisticsHandlerSize> ();
-  private static final Map <String, StatisticsHandlerKeyedSize> s_aHdlKeyedSize = new HashMap <String, StatisticsHandlerKeyedSize> ();
-  private static final Map <String, StatisticsHandlerCounter> s_aHdlCounter = new HashMap <String, StatisticsHandlerCounter> ();
-  private static final Map <String, StatisticsHandlerKeyedCounter> s_aHdlKeyedCounter = new HashMap <String, StatisticsHandlerKeyedCounter> ();
+  private static final Map <String, IStatisticsHandlerCache> s_aHdlCache = new HashMap <String, IStatisticsHandlerCache> ();
+  private static final Map <String, IStatisticsHandlerTimer> s_aHdlTimer = new HashMap <String, IStatisticsHandlerTimer> ();
+  private static final Map <String, IStatisticsHandlerKeyedTimer> s_aHdlKeyedTimer = new HashMap <String, IStatisticsHandlerKeyedTimer> ();
+  private static final Map <String, IStatisticsHandlerHistogramTimer> s_aHdlHistogramTimer = new HashMap <String, IStatisticsHandlerHistogramTimer> ();
+  private static final Map <String, IStatisticsHandlerKeyedHistogramTimer> s_aHdlKeyedHistogramTimer = new HashMap <String, IStatisticsHandlerKeyedHistogramTimer> ();
+  private static final Map <String, IStatisticsHandlerSize> s_aHdlSize = new HashMap <String, IStatisticsHandlerSize> ();
+  private static final Map <String, IStatisticsHandlerKeyedSize> s_aHdlKeyedSize = new HashMap <String, IStatisticsHandlerKeyedSize> ();
+  private static final Map <String, IStatisticsHandlerCounter> s_aHdlCounter = new HashMap <String, IStatisticsHandlerCounter> ();
+  private static final Map <String, IStatisticsHandlerKeyedCounter> s_aHdlKeyedCounter = new HashMap <String, IStatisticsHandlerKeyedCounter> ();
 
   @PresentForCodeCoverage
   @SuppressWarnings ("unused")
@@ -78,6 +93,51 @@ public final class StatisticsManager
     s_aJMXEnabled.set (bEnabled);
   }
 
+  /**
+   * @return <code>true</code> if newly created handlers use the lock free
+   *         striped implementations, <code>false</code> if the lock based
+   *         implementations are used.
+   * @see #DEFAULT_STRIPED_HANDLERS_ENABLED
+   */
+  public static boolean isStripedHandlersEnabled ()
+  {
+    return s_aStripedHandlersEnabled.get ();
+  }
+
+  /**
+   * Choose between the lock based and the lock free striped handler
+   * implementations. The striped implementations scale much better when many
+   * threads update the same handler, at the price of a slightly higher memory
+   * footprint and weakly consistent reads. This setting only affects handlers
+   * that are created afterwards, so it should be set as early as possible
+   * (e.g. before the first class using the statistics is initialized).
+   * 
+   * @param bEnabled
+   *        <code>true</code> to use the striped implementations,
+   *        <code>false</code> to use the lock based implementations.
+   */
+  public static void setStripedHandlersEnabled (final boolean bEnabled)
+  {
+    s_aStripedHandlersEnabled.set (bEnabled);
+  }
+
+  private static <T> void _exposeMBean (@Nonnull final T aHdl,
+                                        @Nonnull final Class <T> aMBeanInterface,
+                                        @Nonnull final String sName)
+  {
+    try
+    {
+      // Explicitly specify the MBean interface, as it is not necessarily named
+      // after the implementation class
+      JMXUtils.exposeMBean (new StandardMBean (aHdl, aMBeanInterface),
+                            ObjectNameUtils.createWithDefaultProperties (aHdl, sName));
+    }
+    catch (final NotCompliantMBeanException ex)
+    {
+      s_aLogger.error ("Failed to expose statistics handler " + sName + " as MBean", ex);
+    }
+  }
+
   @Nonnull
   public static IStatisticsHandlerCache getCacheHandler (@Nonnull final Class <?> aClass)
   {
@@ -91,7 +151,7 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCache aHdl;
+    IStatisticsHandlerCache aHdl;
     s_aRWLockCache.readLock ().lock ();
     try
     {
@@ -111,9 +171,9 @@ public final class StatisticsManager
         aHdl = s_aHdlCache.get (sName);
         if (aHdl == null)
         {
-          aHdl = new StatisticsHandlerCache ();
+          aHdl = isStripedHandlersEnabled () ? new StripedStatisticsHandlerCache () : new StatisticsHandlerCache ();
           if (isJMXEnabled ())
-            JMXUtils.exposeMBeanWithAutoName (aHdl, sName);
+            _exposeMBean (aHdl, StatisticsHandlerCacheMBean.class, sName);
           s_aHdlCache.put (sName, aHdl);
         }
       }
@@ -154,7 +214,7 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerTimer aHdl;
+    IStatisticsHandlerTimer aHdl;
     s_aRWLockTimer.readLock ().lock ();
     try
     {
@@ -174,9 +234,9 @@ public final class StatisticsManager
         aHdl = s_aHdlTimer.get (sName);
         if (aHdl == null)
         {
-          aHdl = new StatisticsHandlerTimer ();
+          aHdl = isStripedHandlersEnabled () ? new StripedStatisticsHandlerTimer () : new StatisticsHandlerTimer ();
           if (isJMXEnabled ())
-            JMXUtils.exposeMBeanWithAutoName (aHdl, sName);
+            _exposeMBean (aHdl, StatisticsHandlerTimerMBean.class, sName);
           s_aHdlTimer.put (sName, aHdl);
         }
       }
@@ -217,7 +277,7 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedTimer aHdl;
+    IStatisticsHandlerKeyedTimer aHdl;
     s_aRWLockKeyedTimer.readLock ().lock ();
     try
     {
@@ -237,9 +297,10 @@ public final class StatisticsManager
         aHdl = s_aHdlKeyedTimer.get (sName);
         if (aHdl == null)
         {
-          aHdl = new StatisticsHandlerKeyedTimer ();
+          aHdl = isStripedHandlersEnabled () ? new StripedStatisticsHandlerKeyedTimer ()
+                                             : new StatisticsHandlerKeyedTimer ();
           if (isJMXEnabled ())
-            JMXUtils.exposeMBeanWithAutoName (aHdl, sName);
+            _exposeMBean (aHdl, StatisticsHandlerKeyedTimerMBean.class, sName);
           s_aHdlKeyedTimer.put (sName, aHdl);
         }
       }
@@ -266,6 +327,152 @@ public final class StatisticsManager
     }
   }
 
+  @Nonnull
+  public static IStatisticsHandlerHistogramTimer getHistogramTimerHandler (@Nonnull final Class <?> aClass)
+  {
+    ValueEnforcer.notNull (aClass, "Class");
+
+    return getHistogramTimerHandler (aClass.getName ());
+  }
+
+  /**
+   * Get or create the timer handler with the passed name that records all
+   * values in a histogram, so that percentiles can be queried. The histogram
+   * timer handlers are independent of the timer handlers returned by
+   * {@link #getTimerHandler(String)}.
+   * 
+   * @param sName
+   *        The name of the handler. May neither be <code>null</code> nor
+   *        empty.
+   * @return The handler and never <code>null</code>.
+   */
+  @Nonnull
+  public static IStatisticsHandlerHistogramTimer getHistogramTimerHandler (@Nonnull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+
+    IStatisticsHandlerHistogramTimer aHdl;
+    s_aRWLockHistogramTimer.readLock ().lock ();
+    try
+    {
+      aHdl = s_aHdlHistogramTimer.get (sName);
+    }
+    finally
+    {
+      s_aRWLockHistogramTimer.readLock ().unlock ();
+    }
+
+    if (aHdl == null)
+    {
+      s_aRWLockHistogramTimer.writeLock ().lock ();
+      try
+      {
+        // Try again in write lock
+        aHdl = s_aHdlHistogramTimer.get (sName);
+        if (aHdl == null)
+        {
+          aHdl = new StatisticsHandlerHistogramTimer ();
+          if (isJMXEnabled ())
+            _exposeMBean (aHdl, StatisticsHandlerHistogramTimerMBean.class, sName);
+          s_aHdlHistogramTimer.put (sName, aHdl);
+        }
+      }
+      finally
+      {
+        s_aRWLockHistogramTimer.writeLock ().unlock ();
+      }
+    }
+    return aHdl;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public static Set <String> getAllHistogramTimerHandler ()
+  {
+    s_aRWLockHistogramTimer.readLock ().lock ();
+    try
+    {
+      return ContainerHelper.newSet (s_aHdlHistogramTimer.keySet ());
+    }
+    finally
+    {
+      s_aRWLockHistogramTimer.readLock ().unlock ();
+    }
+  }
+
+  @Nonnull
+  public static IStatisticsHandlerKeyedHistogramTimer getKeyedHistogramTimerHandler (@Nonnull final Class <?> aClass)
+  {
+    ValueEnforcer.notNull (aClass, "Class");
+
+    return getKeyedHistogramTimerHandler (aClass.getName ());
+  }
+
+  /**
+   * Get or create the keyed timer handler with the passed name that records
+   * all values in a histogram per key, so that percentiles can be queried. The
+   * keyed histogram timer handlers are independent of the keyed timer handlers
+   * returned by {@link #getKeyedTimerHandler(String)}.
+   * 
+   * @param sName
+   *        The name of the handler. May neither be <code>null</code> nor
+   *        empty.
+   * @return The handler and never <code>null</code>.
+   */
+  @Nonnull
+  public static IStatisticsHandlerKeyedHistogramTimer getKeyedHistogramTimerHandler (@Nonnull @Nonempty final String sName)
+  {
+    ValueEnforcer.notEmpty (sName, "Name");
+
+    IStatisticsHandlerKeyedHistogramTimer aHdl;
+    s_aRWLockKeyedHistogramTimer.readLock ().lock ();
+    try
+    {
+      aHdl = s_aHdlKeyedHistogramTimer.get (sName);
+    }
+    finally
+    {
+      s_aRWLockKeyedHistogramTimer.readLock ().unlock ();
+    }
+
+    if (aHdl == null)
+    {
+      s_aRWLockKeyedHistogramTimer.writeLock ().lock ();
+      try
+      {
+        // Try again in write lock
+        aHdl = s_aHdlKeyedHistogramTimer.get (sName);
+        if (aHdl == null)
+        {
+          aHdl = new StatisticsHandlerKeyedHistogramTimer ();
+          if (isJMXEnabled ())
+            _exposeMBean (aHdl, StatisticsHandlerKeyedHistogramTimerMBean.class, sName);
+          s_aHdlKeyedHistogramTimer.put (sName, aHdl);
+        }
+      }
+      finally
+      {
+        s_aRWLockKeyedHistogramTimer.writeLock ().unlock ();
+      }
+    }
+    return aHdl;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public static Set <String> getAllKeyedHistogramTimerHandler ()
+  {
+    s_aRWLockKeyedHistogramTimer.readLock ().lock ();
+    try
+    {
+      return ContainerHelper.newSet (s_aHdlKeyedHistogramTimer.keySet ());
+    }
+    finally
+    {
+      s_aRWLockKeyedHistogramTimer.readLock ().unlock ();
+    }
+  }
+
   @Nonnull
   public static IStatisticsHandlerSize getSizeHandler (@Nonnull final Class <?> aClass)
   {
@@ -279,7 +486,7 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerSize aHdl;
+    IStatisticsHandlerSize aHdl;
     s_aRWLockSize.readLock ().lock ();
     try
     {
@@ -299,9 +506,9 @@ public final class StatisticsManager
         aHdl = s_aHdlSize.get (sName);
         if (aHdl == null)
         {
-          aHdl = new StatisticsHandlerSize ();
+          aHdl = isStripedHandlersEnabled () ? new StripedStatisticsHandlerSize () : new StatisticsHandlerSize ();
           if (isJMXEnabled ())
-            JMXUtils.exposeMBeanWithAutoName (aHdl, sName);
+            _exposeMBean (aHdl, StatisticsHandlerSizeMBean.class, sName);
           s_aHdlSize.put (sName, aHdl);
         }
       }
@@ -341,7 +548,7 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedSize aHdl;
+    IStatisticsHandlerKeyedSize aHdl;
     s_aRWLockKeyedSize.readLock ().lock ();
     try
     {
@@ -361,9 +568,10 @@ public final class StatisticsManager
         aHdl = s_aHdlKeyedSize.get (sName);
         if (aHdl == null)
         {
-          aHdl = new StatisticsHandlerKeyedSize ();
+          aHdl = isStripedHandlersEnabled () ? new StripedStatisticsHandlerKeyedSize ()
+                                             : new StatisticsHandlerKeyedSize ();
           if (isJMXEnabled ())
-            JMXUtils.exposeMBeanWithAutoName (aHdl, sName);
+            _exposeMBean (aHdl, StatisticsHandlerKeyedSizeMBean.class, sName);
           s_aHdlKeyedSize.put (sName, aHdl);
         }
       }
@@ -403,7 +611,7 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCounter aHdl;
+    IStatisticsHandlerCounter aHdl;
     s_aRWLockCounter.readLock ().lock ();
     try
     {
@@ -423,9 +631,9 @@ public final class StatisticsManager
         aHdl = s_aHdlCounter.get (sName);
         if (aHdl == null)
         {
-          aHdl = new StatisticsHandlerCounter ();
+          aHdl = isStripedHandlersEnabled () ? new StripedStatisticsHandlerCounter () : new StatisticsHandlerCounter ();
           if (isJMXEnabled ())
-            JMXUtils.exposeMBeanWithAutoName (aHdl, sName);
+            _exposeMBean (aHdl, StatisticsHandlerCounterMBean.class, sName);
           s_aHdlCounter.put (sName, aHdl);
         }
       }
@@ -465,7 +673,7 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedCounter aHdl;
+    IStatisticsHandlerKeyedCounter aHdl;
     s_aRWLockKeyedCounter.readLock ().lock ();
     try
     {
@@ -485,9 +693,10 @@ public final class StatisticsManager
         aHdl = s_aHdlKeyedCounter.get (sName);
         if (aHdl == null)
         {
-          aHdl = new StatisticsHandlerKeyedCounter ();
+          aHdl = isStripedHandlersEnabled () ? new StripedStatisticsHandlerKeyedCounter ()
+                                             : new StatisticsHandlerKeyedCounter ();
           if (isJMXEnabled ())
-            JMXUtils.exposeMBeanWithAutoName (aHdl, sName);
+            _exposeMBean (aHdl, StatisticsHandlerKeyedCounterMBean.class, sName);
           s_aHdlKeyedCounter.put (sName, aHdl);
         }
       }
@@ -546,6 +755,26 @@ public final class StatisticsManager
       s_aRWLockKeyedTimer.writeLock ().unlock ();
     }
 
+    s_aRWLockHistogramTimer.writeLock ().lock ();
+    try
+    {
+      s_aHdlHistogramTimer.clear ();
+    }
+    finally
+    {
+      s_aRWLockHistogramTimer.writeLock ().unlock ();
+    }
+
+    s_aRWLockKeyedHistogramTimer.writeLock ().lock ();
+    try
+    {
+      s_aHdlKeyedHistogramTimer.clear ();
+    }
+    finally
+    {
+      s_aRWLockKeyedHistogramTimer.writeLock ().unlock ();
+    }
+
     s_aRWLockSize.writeLock ().lock ();
     try
     {
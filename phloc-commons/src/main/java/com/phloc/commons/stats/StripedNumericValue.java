@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.math.BigInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * Lock free aggregation of numeric values based on striped cells. Updates from
+ * different threads are distributed over different cells, so that concurrent
+ * writers do not contend on a single memory location. Reading is weakly
+ * consistent: a reader running concurrently with writers may see the values
+ * of a partially applied update.<br>
+ * The sum is aggregated in two striped parts - the lower and the upper 32 bits
+ * of each value - so that it cannot overflow for any number of invocations
+ * that fits into the invocation count. It is combined to a {@link BigInteger}
+ * upon reading.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class StripedNumericValue
+{
+  private static final LongBinaryOperator MIN = new LongBinaryOperator ()
+  {
+    public long applyAsLong (final long nLeft, final long nRight)
+    {
+      return Math.min (nLeft, nRight);
+    }
+  };
+  private static final LongBinaryOperator MAX = new LongBinaryOperator ()
+  {
+    public long applyAsLong (final long nLeft, final long nRight)
+    {
+      return Math.max (nLeft, nRight);
+    }
+  };
+
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final LongAccumulator m_aMin = new LongAccumulator (MIN, Long.MAX_VALUE);
+  private final LongAccumulator m_aMax = new LongAccumulator (MAX, Long.MIN_VALUE);
+  // Sum of the lower 32 bits (unsigned) and of the upper 32 bits (signed) of
+  // all values. Each part grows by at most 2^32 per value.
+  private final LongAdder m_aSumLow = new LongAdder ();
+  private final LongAdder m_aSumHigh = new LongAdder ();
+
+  public StripedNumericValue ()
+  {}
+
+  public void add (final long nValue)
+  {
+    // Update the aggregates first, so that a non-zero invocation count is
+    // never visible with the initial min/max values
+    m_aMin.accumulate (nValue);
+    m_aMax.accumulate (nValue);
+    m_aSumLow.add (nValue & 0xffffffffL);
+    m_aSumHigh.add (nValue >> 32);
+    m_aInvocationCount.increment ();
+  }
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return m_aInvocationCount.intValue ();
+  }
+
+  @CheckForSigned
+  public long getMin ()
+  {
+    return getInvocationCount () == 0 ? CGlobal.ILLEGAL_ULONG : m_aMin.get ();
+  }
+
+  @CheckForSigned
+  public long getMax ()
+  {
+    return getInvocationCount () == 0 ? CGlobal.ILLEGAL_ULONG : m_aMax.get ();
+  }
+
+  @Nonnull
+  public BigInteger getSum ()
+  {
+    return BigInteger.valueOf (m_aSumHigh.sum ()).shiftLeft (32).add (BigInteger.valueOf (m_aSumLow.sum ()));
+  }
+
+  @CheckForSigned
+  public long getAverage ()
+  {
+    final long nInvocationCount = m_aInvocationCount.sum ();
+    if (nInvocationCount == 0)
+      return CGlobal.ILLEGAL_ULONG;
+    return getSum ().divide (BigInteger.valueOf (nInvocationCount)).longValue ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    // No object ID needed for toString
+    return new ToStringGenerator (null).append ("invocations", getInvocationCount ())
+                                       .append ("min", getMin ())
+                                       .append ("max", getMax ())
+                                       .append ("sum", getSum ())
+                                       .toString ();
+  }
+}
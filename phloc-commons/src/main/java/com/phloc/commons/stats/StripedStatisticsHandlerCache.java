@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.annotations.Nonempty;
+
+/**
+ * Lock free implementation of {@link IStatisticsHandlerCache} based on striped
+ * counters.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class StripedStatisticsHandlerCache implements IStatisticsHandlerCache
+{
+  private final LongAdder m_aHits = new LongAdder ();
+  private final LongAdder m_aMisses = new LongAdder ();
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return getHits () + getMisses ();
+  }
+
+  public void cacheHit ()
+  {
+    m_aHits.increment ();
+  }
+
+  public void cacheMiss ()
+  {
+    m_aMisses.increment ();
+  }
+
+  @Nonnegative
+  public int getHits ()
+  {
+    return m_aHits.intValue ();
+  }
+
+  @Nonnegative
+  public int getMisses ()
+  {
+    return m_aMisses.intValue ();
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getAsString ()
+  {
+    return "invocations=" + getInvocationCount () + ";hits=" + getHits () + ";misses=" + getMisses ();
+  }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.annotations.Nonempty;
+
+/**
+ * Lock free implementation of {@link IStatisticsHandlerCounter} based on
+ * striped counters.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class StripedStatisticsHandlerCounter implements IStatisticsHandlerCounter
+{
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final LongAdder m_aCount = new LongAdder ();
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return m_aInvocationCount.intValue ();
+  }
+
+  @CheckForSigned
+  public long getCount ()
+  {
+    return m_aCount.sum ();
+  }
+
+  public void increment ()
+  {
+    m_aInvocationCount.increment ();
+    m_aCount.increment ();
+  }
+
+  public void increment (final long nByHowMany)
+  {
+    m_aInvocationCount.increment ();
+    m_aCount.add (nByHowMany);
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getAsString ()
+  {
+    return "invocations=" + getInvocationCount () + ";count=" + getCount ();
+  }
+}
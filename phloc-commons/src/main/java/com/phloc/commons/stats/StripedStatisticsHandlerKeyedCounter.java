@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * Lock free implementation of {@link IStatisticsHandlerKeyedCounter} based on
+ * striped counters.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+final class StripedStatisticsHandlerKeyedCounter implements IStatisticsHandlerKeyedCounter
+{
+  @ThreadSafe
+  private static final class Value
+  {
+    private final LongAdder m_aInvocationCount = new LongAdder ();
+    private final LongAdder m_aCount = new LongAdder ();
+
+    public Value ()
+    {}
+
+    public void increment (final long nByHowMany)
+    {
+      m_aCount.add (nByHowMany);
+      m_aInvocationCount.increment ();
+    }
+
+    @Nonnegative
+    public int getInvocationCount ()
+    {
+      return m_aInvocationCount.intValue ();
+    }
+
+    public long getCount ()
+    {
+      return m_aCount.sum ();
+    }
+
+    @Override
+    public String toString ()
+    {
+      // No object needed for ctor
+      return new ToStringGenerator (null).append ("invocations", getInvocationCount ())
+                                         .append ("count", getCount ())
+                                         .toString ();
+    }
+  }
+
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final ConcurrentMap <Object, Value> m_aMap = new ConcurrentHashMap <Object, Value> ();
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return m_aInvocationCount.intValue ();
+  }
+
+  public void increment (@Nullable final String sKey)
+  {
+    increment (sKey, 1L);
+  }
+
+  public void increment (@Nullable final String sKey, final long nByHowMany)
+  {
+    m_aInvocationCount.increment ();
+
+    final Object aMapKey = AbstractStripedStatisticsHandlerKeyedNumeric.getMapKey (sKey);
+    Value aPerKey = m_aMap.get (aMapKey);
+    if (aPerKey == null)
+    {
+      final Value aNewValue = new Value ();
+      aPerKey = m_aMap.putIfAbsent (aMapKey, aNewValue);
+      if (aPerKey == null)
+        aPerKey = aNewValue;
+    }
+    aPerKey.increment (nByHowMany);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public Set <String> getAllKeys ()
+  {
+    return AbstractStripedStatisticsHandlerKeyedNumeric.getAllKeys (m_aMap);
+  }
+
+  @CheckForSigned
+  public long getCount (@Nullable final String sKey)
+  {
+    final Value aCount = m_aMap.get (AbstractStripedStatisticsHandlerKeyedNumeric.getMapKey (sKey));
+    return aCount == null ? CGlobal.ILLEGAL_ULONG : aCount.getCount ();
+  }
+
+  @CheckForSigned
+  public int getInvocationCount (@Nullable final String sKey)
+  {
+    final Value aCount = m_aMap.get (AbstractStripedStatisticsHandlerKeyedNumeric.getMapKey (sKey));
+    return aCount == null ? CGlobal.ILLEGAL_UINT : aCount.getInvocationCount ();
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getAsString ()
+  {
+    return "invocations=" + getInvocationCount () + "; keyed=" + m_aMap.entrySet ();
+  }
+}
@@ -47,6 +47,18 @@ public final class StatisticsExporter
   /** Element name for XML export */
   public static final String ELEMENT_KEYEDTIMER = "keyedtimer";
   /** Element name for XML export */
+  public static final String ELEMENT_HISTOGRAMTIMER = "histogramtimer";
+  /** Element name for XML export */
+  public static final String ELEMENT_KEYEDHISTOGRAMTIMER = "keyedhistogramtimer";
+  /** Attribute name for XML export */
+  public static final String ATTR_P50 = "p50";
+  /** Attribute name for XML export */
+  public static final String ATTR_P90 = "p90";
+  /** Attribute name for XML export */
+  public static final String ATTR_P99 = "p99";
+  /** Attribute name for XML export */
+  public static final String ATTR_P999 = "p999";
+  /** Element name for XML export */
   public static final String ELEMENT_SIZE = "size";
   /** Element name for XML export */
   public static final String ELEMENT_KEYEDSIZE = "keyedsize";
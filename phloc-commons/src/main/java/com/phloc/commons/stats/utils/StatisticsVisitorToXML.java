@@ -24,11 +24,14 @@ import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.microdom.IMicroElement;
 import com.phloc.commons.stats.IStatisticsHandlerCache;
 import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedCounter;
+import com.phloc.commons.stats.IStatisticsHandlerKeyedHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedSize;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedTimer;
 import com.phloc.commons.stats.IStatisticsHandlerSize;
 import com.phloc.commons.stats.IStatisticsHandlerTimer;
+import com.phloc.commons.stats.LogLinearHistogram;
 import com.phloc.commons.stats.visit.DefaultStatisticsVisitor;
 import com.phloc.commons.stats.visit.IStatisticsVisitor;
 
@@ -104,6 +107,55 @@ public class StatisticsVisitorToXML extends DefaultStatisticsVisitor
     }
   }
 
+  @Override
+  public void onHistogramTimer (final String sName, final IStatisticsHandlerHistogramTimer aHandler)
+  {
+    if (aHandler.getInvocationCount () > 0)
+    {
+      // Use a consistent histogram for all percentiles
+      final LogLinearHistogram aHistogram = aHandler.getHistogram ();
+      m_eRoot.appendElement (StatisticsExporter.ELEMENT_HISTOGRAMTIMER)
+             .setAttribute (StatisticsExporter.ATTR_NAME, sName)
+             .setAttribute (StatisticsExporter.ATTR_INVOCATIONCOUNT, Integer.toString (aHandler.getInvocationCount ()))
+             .setAttribute (StatisticsExporter.ATTR_MIN, Long.toString (aHandler.getMin ()))
+             .setAttribute (StatisticsExporter.ATTR_AVERAGE, Long.toString (aHandler.getAverage ()))
+             .setAttribute (StatisticsExporter.ATTR_MAX, Long.toString (aHandler.getMax ()))
+             .setAttribute (StatisticsExporter.ATTR_SUM, aHandler.getSum ().toString ())
+             .setAttribute (StatisticsExporter.ATTR_P50, Long.toString (aHistogram.getValueAtPercentile (50)))
+             .setAttribute (StatisticsExporter.ATTR_P90, Long.toString (aHistogram.getValueAtPercentile (90)))
+             .setAttribute (StatisticsExporter.ATTR_P99, Long.toString (aHistogram.getValueAtPercentile (99)))
+             .setAttribute (StatisticsExporter.ATTR_P999, Long.toString (aHistogram.getValueAtPercentile (99.9)));
+    }
+  }
+
+  @Override
+  public void onKeyedHistogramTimer (final String sName, final IStatisticsHandlerKeyedHistogramTimer aHandler)
+  {
+    if (aHandler.getInvocationCount () > 0)
+    {
+      final IMicroElement eKeyedTimer = m_eRoot.appendElement (StatisticsExporter.ELEMENT_KEYEDHISTOGRAMTIMER)
+                                               .setAttribute (StatisticsExporter.ATTR_NAME, sName)
+                                               .setAttribute (StatisticsExporter.ATTR_INVOCATIONCOUNT,
+                                                              Integer.toString (aHandler.getInvocationCount ()));
+      for (final String sKey : ContainerHelper.getSorted (aHandler.getAllKeys ()))
+      {
+        final LogLinearHistogram aHistogram = aHandler.getHistogram (sKey);
+        eKeyedTimer.appendElement (StatisticsExporter.ELEMENT_KEY)
+                   .setAttribute (StatisticsExporter.ATTR_NAME, sKey)
+                   .setAttribute (StatisticsExporter.ATTR_INVOCATIONCOUNT,
+                                  Integer.toString (aHandler.getInvocationCount (sKey)))
+                   .setAttribute (StatisticsExporter.ATTR_MIN, Long.toString (aHandler.getMin (sKey)))
+                   .setAttribute (StatisticsExporter.ATTR_AVERAGE, Long.toString (aHandler.getAverage (sKey)))
+                   .setAttribute (StatisticsExporter.ATTR_MAX, Long.toString (aHandler.getMax (sKey)))
+                   .setAttribute (StatisticsExporter.ATTR_SUM, aHandler.getSum (sKey).toString ())
+                   .setAttribute (StatisticsExporter.ATTR_P50, Long.toString (aHistogram.getValueAtPercentile (50)))
+                   .setAttribute (StatisticsExporter.ATTR_P90, Long.toString (aHistogram.getValueAtPercentile (90)))
+                   .setAttribute (StatisticsExporter.ATTR_P99, Long.toString (aHistogram.getValueAtPercentile (99)))
+                   .setAttribute (StatisticsExporter.ATTR_P999, Long.toString (aHistogram.getValueAtPercentile (99.9)));
+      }
+    }
+  }
+
   @Override
   public void onSize (final String sName, final IStatisticsHandlerSize aHandler)
   {
@@ -20,7 +20,9 @@ package com.phloc.commons.stats.visit;
 import com.phloc.commons.annotations.OverrideOnDemand;
 import com.phloc.commons.stats.IStatisticsHandlerCache;
 import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedCounter;
+import com.phloc.commons.stats.IStatisticsHandlerKeyedHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedSize;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedTimer;
 import com.phloc.commons.stats.IStatisticsHandlerSize;
@@ -46,6 +48,14 @@ public class DefaultStatisticsVisitor implements IStatisticsVisitor
   public void onKeyedTimer (final String sName, final IStatisticsHandlerKeyedTimer aHandler)
   {}
 
+  @OverrideOnDemand
+  public void onHistogramTimer (final String sName, final IStatisticsHandlerHistogramTimer aHandler)
+  {}
+
+  @OverrideOnDemand
+  public void onKeyedHistogramTimer (final String sName, final IStatisticsHandlerKeyedHistogramTimer aHandler)
+  {}
+
   @OverrideOnDemand
   public void onSize (final String sName, final IStatisticsHandlerSize aHandler)
   {}
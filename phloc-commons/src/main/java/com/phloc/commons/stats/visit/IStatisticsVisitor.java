@@ -21,7 +21,9 @@ import javax.annotation.Nonnull;
 
 import com.phloc.commons.stats.IStatisticsHandlerCache;
 import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedCounter;
+import com.phloc.commons.stats.IStatisticsHandlerKeyedHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedSize;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedTimer;
 import com.phloc.commons.stats.IStatisticsHandlerSize;
@@ -40,6 +42,10 @@ public interface IStatisticsVisitor
 
   void onKeyedTimer (@Nonnull String sName, @Nonnull IStatisticsHandlerKeyedTimer aHandler);
 
+  void onHistogramTimer (@Nonnull String sName, @Nonnull IStatisticsHandlerHistogramTimer aHandler);
+
+  void onKeyedHistogramTimer (@Nonnull String sName, @Nonnull IStatisticsHandlerKeyedHistogramTimer aHandler);
+
   void onSize (@Nonnull String sName, @Nonnull IStatisticsHandlerSize aHandler);
 
   void onKeyedSize (@Nonnull String sName, @Nonnull IStatisticsHandlerKeyedSize aHandler);
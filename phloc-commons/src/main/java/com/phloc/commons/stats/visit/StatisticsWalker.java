@@ -27,7 +27,9 @@ import com.phloc.commons.annotations.PresentForCodeCoverage;
 import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.stats.IStatisticsHandlerCache;
 import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedCounter;
+import com.phloc.commons.stats.IStatisticsHandlerKeyedHistogramTimer;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedSize;
 import com.phloc.commons.stats.IStatisticsHandlerKeyedTimer;
 import com.phloc.commons.stats.IStatisticsHandlerSize;
@@ -83,6 +85,22 @@ public final class StatisticsWalker
       aVisitor.onKeyedTimer (sName, aHandler);
     }
 
+    // For all histogram timer handler
+    aHandlers = ContainerHelper.getSorted (StatisticsManager.getAllHistogramTimerHandler ());
+    for (final String sName : aHandlers)
+    {
+      final IStatisticsHandlerHistogramTimer aHandler = StatisticsManager.getHistogramTimerHandler (sName);
+      aVisitor.onHistogramTimer (sName, aHandler);
+    }
+
+    // For all keyed histogram timer handler
+    aHandlers = ContainerHelper.getSorted (StatisticsManager.getAllKeyedHistogramTimerHandler ());
+    for (final String sName : aHandlers)
+    {
+      final IStatisticsHandlerKeyedHistogramTimer aHandler = StatisticsManager.getKeyedHistogramTimerHandler (sName);
+      aVisitor.onKeyedHistogramTimer (sName, aHandler);
+    }
+
     // For all size handler
     aHandlers = ContainerHelper.getSorted (StatisticsManager.getAllSizeHandler ());
     for (final String sName : aHandlers)
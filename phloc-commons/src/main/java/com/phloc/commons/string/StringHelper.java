@@ -2850,7 +2850,44 @@ public final class StringHelper
     if (hasNoText (sInputString))
       return 0;
 
-    return replaceMultipleTo (sInputString.toCharArray (), aSearchChars, aReplacementStrings, aTarget);
+    ValueEnforcer.notNull (aSearchChars, "SearchChars"); //$NON-NLS-1$
+    ValueEnforcer.notNull (aReplacementStrings, "ReplacementStrings"); //$NON-NLS-1$
+    if (aSearchChars.length != aReplacementStrings.length)
+      throw new IllegalArgumentException ("array length mismatch"); //$NON-NLS-1$
+    ValueEnforcer.notNull (aTarget, "Target"); //$NON-NLS-1$
+
+    final int nInputLen = sInputString.length ();
+    if (aSearchChars.length == 0)
+    {
+      // No modifications required
+      aTarget.write (sInputString, 0, nInputLen);
+      return 0;
+    }
+
+    // Unmodified runs are written directly from the source string, so that no
+    // copy of the input is required
+    int nFirstNonReplace = 0;
+    int nTotalReplacements = 0;
+    final int nMaxSearchChars = aSearchChars.length;
+    for (int nInputIndex = 0; nInputIndex < nInputLen; ++nInputIndex)
+    {
+      final char cInput = sInputString.charAt (nInputIndex);
+      for (int nPatternIndex = 0; nPatternIndex < nMaxSearchChars; nPatternIndex++)
+      {
+        if (cInput == aSearchChars[nPatternIndex])
+        {
+          if (nFirstNonReplace < nInputIndex)
+            aTarget.write (sInputString, nFirstNonReplace, nInputIndex - nFirstNonReplace);
+          nFirstNonReplace = nInputIndex + 1;
+          aTarget.write (aReplacementStrings[nPatternIndex]);
+          ++nTotalReplacements;
+          break;
+        }
+      }
+    }
+    if (nFirstNonReplace < nInputLen)
+      aTarget.write (sInputString, nFirstNonReplace, nInputLen - nFirstNonReplace);
+    return nTotalReplacements;
   }
 
   /**
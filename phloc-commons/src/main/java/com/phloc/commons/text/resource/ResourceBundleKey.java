@@ -28,6 +28,7 @@ import javax.annotation.concurrent.Immutable;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.hash.IHashCodeGenerator;
 import com.phloc.commons.string.ToStringGenerator;
 
 /**
@@ -40,6 +41,8 @@ public final class ResourceBundleKey implements Serializable
 {
   private final String m_sBundleName;
   private final String m_sKey;
+  // Status vars
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
 
   public ResourceBundleKey (@Nonnull @Nonempty final String sBundleName,
                             @Nonnull @Nonempty @PropertyKey final String sKey)
@@ -101,7 +104,11 @@ public final class ResourceBundleKey implements Serializable
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_sBundleName).append (m_sKey).getHashCode ();
+    // As the object is immutable, the hash code can be cached
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (m_sBundleName).append (m_sKey).getHashCode ();
+    return ret;
   }
 
   @Override
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.typeconvert;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Special {@link ITypeConverter} with a destination type of {@link Double} that
+ * can deliver the result as a primitive <code>double</code> without boxing it.
+ * 
+ * @author Philip Helger
+ * @see TypeConverter#convertToDouble(Object)
+ */
+public interface ITypeConverterToDouble extends ITypeConverter
+{
+  /**
+   * Convert the passed source object to a primitive <code>double</code> value.
+   * The result must be identical to the result of {@link #convert(Object)}.
+   * 
+   * @param aSource
+   *        The source object to be converted. Cannot be <code>null</code>.
+   * @return The converted value.
+   * @throws TypeConverterException
+   *         If the conversion failed, in the same cases in which
+   *         {@link #convert(Object)} returns <code>null</code>.
+   */
+  double convertToDouble (@Nonnull Object aSource) throws TypeConverterException;
+}
@@ -34,7 +34,11 @@ import com.phloc.commons.typeconvert.TypeConverterException.EReason;
  * "Boolean".<br>
  * Uses {@link TypeConverterRegistry#getFuzzyConverter(Class, Class)} for
  * retrieving a registered converter. If no converter is found, it is checked
- * whether a mapping from a primitive type to an object type exists.
+ * whether a mapping from a primitive type to an object type exists.<br>
+ * The conversion to <code>boolean</code>, <code>int</code>, <code>long</code>
+ * and <code>double</code> avoids boxing if the best matching converter implements
+ * {@link ITypeConverterToBoolean}, {@link ITypeConverterToInt},
+ * {@link ITypeConverterToLong} or {@link ITypeConverterToDouble}.
  * 
  * @author Philip Helger
  */
@@ -115,6 +119,14 @@ public final class TypeConverter
   {
     if (aSrcValue == null)
       throw new TypeConverterException (boolean.class, EReason.NULL_SOURCE_NOT_ALLOWED);
+
+    // Fast path without boxing
+    if (aSrcValue instanceof Boolean)
+      return ((Boolean) aSrcValue).booleanValue ();
+    final ITypeConverterToBoolean aConverter = TypeConverterRegistry.getBestMatchConverterToBoolean (aSrcValue.getClass ());
+    if (aConverter != null)
+      return aConverter.convertToBoolean (aSrcValue);
+
     final Boolean aValue = convertIfNecessary (aSrcValue, Boolean.class);
     return aValue.booleanValue ();
   }
@@ -178,6 +190,14 @@ public final class TypeConverter
   {
     if (aSrcValue == null)
       throw new TypeConverterException (double.class, EReason.NULL_SOURCE_NOT_ALLOWED);
+
+    // Fast path without boxing
+    if (aSrcValue instanceof Double)
+      return ((Double) aSrcValue).doubleValue ();
+    final ITypeConverterToDouble aConverter = TypeConverterRegistry.getBestMatchConverterToDouble (aSrcValue.getClass ());
+    if (aConverter != null)
+      return aConverter.convertToDouble (aSrcValue);
+
     final Double aValue = convertIfNecessary (aSrcValue, Double.class);
     return aValue.doubleValue ();
   }
@@ -220,6 +240,14 @@ public final class TypeConverter
   {
     if (aSrcValue == null)
       throw new TypeConverterException (int.class, EReason.NULL_SOURCE_NOT_ALLOWED);
+
+    // Fast path without boxing
+    if (aSrcValue instanceof Integer)
+      return ((Integer) aSrcValue).intValue ();
+    final ITypeConverterToInt aConverter = TypeConverterRegistry.getBestMatchConverterToInt (aSrcValue.getClass ());
+    if (aConverter != null)
+      return aConverter.convertToInt (aSrcValue);
+
     final Integer aValue = convertIfNecessary (aSrcValue, Integer.class);
     return aValue.intValue ();
   }
@@ -241,6 +269,14 @@ public final class TypeConverter
   {
     if (aSrcValue == null)
       throw new TypeConverterException (long.class, EReason.NULL_SOURCE_NOT_ALLOWED);
+
+    // Fast path without boxing
+    if (aSrcValue instanceof Long)
+      return ((Long) aSrcValue).longValue ();
+    final ITypeConverterToLong aConverter = TypeConverterRegistry.getBestMatchConverterToLong (aSrcValue.getClass ());
+    if (aConverter != null)
+      return aConverter.convertToLong (aSrcValue);
+
     final Long aValue = convertIfNecessary (aSrcValue, Long.class);
     return aValue.longValue ();
   }
@@ -43,18 +43,7 @@ public final class TypeConverterProviderBestMatch implements ITypeConverterProvi
   @Nullable
   public ITypeConverter getTypeConverter (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
   {
-    // Find exact hit first
-    ITypeConverter ret = TypeConverterRegistry.getExactConverter (aSrcClass, aDstClass);
-    if (ret == null)
-    {
-      // No exact match was found -> try rule based converter
-      ret = TypeConverterRegistry.getRuleBasedConverter (aSrcClass, aDstClass);
-      if (ret == null)
-      {
-        // No exact match was found -> try fuzzy converter
-        ret = TypeConverterRegistry.getFuzzyConverter (aSrcClass, aDstClass);
-      }
-    }
-    return ret;
+    // Resolved once and cached in the registry
+    return TypeConverterRegistry.getBestMatchConverter (aSrcClass, aDstClass);
   }
 }
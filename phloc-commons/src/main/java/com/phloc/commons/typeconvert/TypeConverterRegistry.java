@@ -19,16 +19,19 @@ package com.phloc.commons.typeconvert;
 
 import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.WeakHashMap;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
@@ -36,7 +39,7 @@ import org.slf4j.LoggerFactory;
 
 import com.phloc.commons.GlobalDebug;
 import com.phloc.commons.ValueEnforcer;
-import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.annotations.VisibleForTesting;
 import com.phloc.commons.collections.multimap.IMultiMapListBased;
 import com.phloc.commons.collections.multimap.MultiTreeMapArrayListBased;
 import com.phloc.commons.lang.ClassHelper;
@@ -44,27 +47,103 @@ import com.phloc.commons.lang.ClassHierarchyCache;
 import com.phloc.commons.lang.ServiceLoaderUtils;
 import com.phloc.commons.mutable.Wrapper;
 import com.phloc.commons.state.EContinue;
+import com.phloc.commons.typeconvert.rule.AbstractTypeConverterRuleFixedSourceAnyDestination;
 
 /**
  * This class contains all the default type converters for the default types
  * that are required. The {@link TypeConverter} class uses this factory for
  * converting objects.
+ * <p>
+ * All registered converters and rules are kept in an immutable snapshot that is
+ * replaced upon each registration, so that lookups require no locking. Each
+ * snapshot additionally caches the result of
+ * {@link #getBestMatchConverter(Class, Class)} per source and destination
+ * class - including the information that no converter exists.
  * 
  * @author Philip Helger
  */
 @ThreadSafe
 public final class TypeConverterRegistry implements ITypeConverterRegistry
 {
+  /**
+   * The resolved best match converter for a single source and destination
+   * class. The primitive views of the converter are determined once upon
+   * resolution, so that no interface type checks are required per conversion.
+   */
+  @Immutable
+  private static final class Resolved
+  {
+    private final ITypeConverter m_aConverter;
+    private final ITypeConverterToBoolean m_aToBoolean;
+    private final ITypeConverterToInt m_aToInt;
+    private final ITypeConverterToLong m_aToLong;
+    private final ITypeConverterToDouble m_aToDouble;
+
+    Resolved (@Nullable final ITypeConverter aConverter)
+    {
+      m_aConverter = aConverter;
+      m_aToBoolean = aConverter instanceof ITypeConverterToBoolean ? (ITypeConverterToBoolean) aConverter : null;
+      m_aToInt = aConverter instanceof ITypeConverterToInt ? (ITypeConverterToInt) aConverter : null;
+      m_aToLong = aConverter instanceof ITypeConverterToLong ? (ITypeConverterToLong) aConverter : null;
+      m_aToDouble = aConverter instanceof ITypeConverterToDouble ? (ITypeConverterToDouble) aConverter : null;
+    }
+  }
+
+  /**
+   * Destination class to the resolved converter of a single source class. As
+   * a {@link ClassValue} it does not keep the destination classes from being
+   * unloaded.
+   */
+  private static final class ResolvedByDestination extends ClassValue <AtomicReference <Resolved>>
+  {
+    @Override
+    protected AtomicReference <Resolved> computeValue (final Class <?> aDstClass)
+    {
+      return new AtomicReference <Resolved> ();
+    }
+  }
+
+  /**
+   * An immutable view on all registered converters and rules.
+   */
+  @Immutable
+  private static final class Snapshot
+  {
+    /** Source class to destination class to converter */
+    private final Map <Class <?>, Map <Class <?>, ITypeConverter>> m_aConverter;
+    /** All rules in the order of their sub type */
+    private final List <ITypeConverterRule> m_aRules;
+    /**
+     * Source class to destination class to resolved converter. No class is
+     * referenced strongly, so that classes of discarded class loaders can be
+     * unloaded.
+     */
+    private final ClassValue <ResolvedByDestination> m_aResolved = new ClassValue <ResolvedByDestination> ()
+    {
+      @Override
+      protected ResolvedByDestination computeValue (final Class <?> aSrcClass)
+      {
+        return new ResolvedByDestination ();
+      }
+    };
+
+    Snapshot (@Nonnull final Map <Class <?>, Map <Class <?>, ITypeConverter>> aConverter,
+              @Nonnull final List <ITypeConverterRule> aRules)
+    {
+      m_aConverter = aConverter;
+      m_aRules = aRules;
+    }
+  }
+
   private static final TypeConverterRegistry s_aInstance = new TypeConverterRegistry ();
   private static final Logger s_aLogger = LoggerFactory.getLogger (TypeConverterRegistry.class);
-  private static final ReadWriteLock s_aRWLock = new ReentrantReadWriteLock ();
+  private static final Lock s_aWriteLock = new ReentrantLock ();
 
-  // Use a weak hash map, because the key is a class
-  @GuardedBy ("s_aRWLock")
-  private static final Map <Class <?>, Map <Class <?>, ITypeConverter>> s_aConverter = new WeakHashMap <Class <?>, Map <Class <?>, ITypeConverter>> ();
   // ESCA-JAVA0261:
-  @GuardedBy ("s_aRWLock")
+  @GuardedBy ("s_aWriteLock")
   private static final IMultiMapListBased <ITypeConverterRule.ESubType, ITypeConverterRule> s_aRules = new MultiTreeMapArrayListBased <ITypeConverterRule.ESubType, ITypeConverterRule> ();
+  private static volatile Snapshot s_aSnapshot = new Snapshot (Collections.<Class <?>, Map <Class <?>, ITypeConverter>> emptyMap (),
+                                                               Collections.<ITypeConverterRule> emptyList ());
 
   static
   {
@@ -81,39 +160,10 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   {}
 
   @Nonnull
-  private static Map <Class <?>, ITypeConverter> _getOrCreateConverterMap (@Nonnull final Class <?> aClass)
+  @VisibleForTesting
+  static TypeConverterRegistry getInstanceForTest ()
   {
-    Map <Class <?>, ITypeConverter> ret;
-    s_aRWLock.readLock ().lock ();
-    try
-    {
-      ret = s_aConverter.get (aClass);
-    }
-    finally
-    {
-      s_aRWLock.readLock ().unlock ();
-    }
-
-    if (ret == null)
-    {
-      s_aRWLock.writeLock ().lock ();
-      try
-      {
-        // Try again in write lock
-        ret = s_aConverter.get (aClass);
-        if (ret == null)
-        {
-          // Weak hash map because key is a class
-          ret = new WeakHashMap <Class <?>, ITypeConverter> ();
-          s_aConverter.put (aClass, ret);
-        }
-      }
-      finally
-      {
-        s_aRWLock.writeLock ().unlock ();
-      }
-    }
-    return ret;
+    return s_aInstance;
   }
 
   /**
@@ -150,14 +200,20 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
                       aDstClass +
                       " because types are convertible!");
 
-    // The main class should not already be registered
-    final Map <Class <?>, ITypeConverter> aSrcMap = _getOrCreateConverterMap (aSrcClass);
-    if (aSrcMap.containsKey (aDstClass))
-      throw new IllegalArgumentException ("A mapping from " + aSrcClass + " to " + aDstClass + " is already defined!");
-
-    s_aRWLock.writeLock ().lock ();
+    s_aWriteLock.lock ();
     try
     {
+      final Snapshot aOld = s_aSnapshot;
+      final Map <Class <?>, ITypeConverter> aOldSrcMap = aOld.m_aConverter.get (aSrcClass);
+
+      // The main class should not already be registered
+      if (aOldSrcMap != null && aOldSrcMap.containsKey (aDstClass))
+        throw new IllegalArgumentException ("A mapping from " + aSrcClass + " to " + aDstClass + " is already defined!");
+
+      // Copy on write
+      final Map <Class <?>, ITypeConverter> aSrcMap = aOldSrcMap == null ? new HashMap <Class <?>, ITypeConverter> ()
+                                                                         : new HashMap <Class <?>, ITypeConverter> (aOldSrcMap);
+
       // Automatically register the destination class, and all parent
       // classes/interfaces
       for (final WeakReference <Class <?>> aCurWRDstClass : ClassHierarchyCache.getClassHierarchyIterator (aDstClass))
@@ -177,10 +233,15 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
                                  "'");
           }
       }
+
+      final Map <Class <?>, Map <Class <?>, ITypeConverter>> aAllConverters = new HashMap <Class <?>, Map <Class <?>, ITypeConverter>> (aOld.m_aConverter);
+      aAllConverters.put (aSrcClass, Collections.unmodifiableMap (aSrcMap));
+      // The new snapshot starts with an empty resolved converter cache
+      s_aSnapshot = new Snapshot (Collections.unmodifiableMap (aAllConverters), aOld.m_aRules);
     }
     finally
     {
-      s_aRWLock.writeLock ().unlock ();
+      s_aWriteLock.unlock ();
     }
   }
 
@@ -199,6 +260,15 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
       _registerTypeConverter (aSrcClass, aDstClass, aConverter);
   }
 
+  @Nullable
+  private static ITypeConverter _getExactConverter (@Nonnull final Snapshot aSnapshot,
+                                                    @Nullable final Class <?> aSrcClass,
+                                                    @Nullable final Class <?> aDstClass)
+  {
+    final Map <Class <?>, ITypeConverter> aConverterMap = aSnapshot.m_aConverter.get (aSrcClass);
+    return aConverterMap == null ? null : aConverterMap.get (aDstClass);
+  }
+
   /**
    * Get the converter that can convert objects from aSrcClass to aDstClass.
    * Thereby no fuzzy logic is applied.
@@ -213,16 +283,29 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   @Nullable
   static ITypeConverter getExactConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
   {
-    s_aRWLock.readLock ().lock ();
-    try
-    {
-      final Map <Class <?>, ITypeConverter> aConverterMap = s_aConverter.get (aSrcClass);
-      return aConverterMap == null ? null : aConverterMap.get (aDstClass);
-    }
-    finally
-    {
-      s_aRWLock.readLock ().unlock ();
-    }
+    return _getExactConverter (s_aSnapshot, aSrcClass, aDstClass);
+  }
+
+  @Nullable
+  private static ITypeConverter _getRuleBasedConverter (@Nonnull final Snapshot aSnapshot,
+                                                        @Nullable final Class <?> aSrcClass,
+                                                        @Nullable final Class <?> aDstClass)
+  {
+    if (aSrcClass == null || aDstClass == null)
+      return null;
+
+    // Check all rules in the correct order
+    for (final ITypeConverterRule aRule : aSnapshot.m_aRules)
+      if (aRule.canConvert (aSrcClass, aDstClass))
+      {
+        // The result of this rule depends on the destination class, so bind it
+        // as the resolved converter is cached
+        if (aRule instanceof AbstractTypeConverterRuleFixedSourceAnyDestination)
+          return ((AbstractTypeConverterRuleFixedSourceAnyDestination) aRule).getBoundConverter (aDstClass);
+        return aRule;
+      }
+
+    return null;
   }
 
   /**
@@ -239,30 +322,15 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   @Nullable
   static ITypeConverter getRuleBasedConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
   {
-    if (aSrcClass == null || aDstClass == null)
-      return null;
-
-    s_aRWLock.readLock ().lock ();
-    try
-    {
-      // Check all rules in the correct order
-      for (final Map.Entry <ITypeConverterRule.ESubType, List <ITypeConverterRule>> aEntry : s_aRules.entrySet ())
-        for (final ITypeConverterRule aRule : aEntry.getValue ())
-          if (aRule.canConvert (aSrcClass, aDstClass))
-            return aRule;
-
-      return null;
-    }
-    finally
-    {
-      s_aRWLock.readLock ().unlock ();
-    }
+    return _getRuleBasedConverter (s_aSnapshot, aSrcClass, aDstClass);
   }
 
   /**
    * Iterate all possible fuzzy converters from source class to destination
    * class.
    * 
+   * @param aSnapshot
+   *        The snapshot to use.
    * @param aSrcClass
    *        Source class.
    * @param aDstClass
@@ -272,7 +340,8 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
    *        either {@link EContinue#CONTINUE} to continue iteration or
    *        {@link EContinue#BREAK} to break iteration at the current position.
    */
-  private static void _iterateFuzzyConverters (@Nonnull final Class <?> aSrcClass,
+  private static void _iterateFuzzyConverters (@Nonnull final Snapshot aSnapshot,
+                                               @Nonnull final Class <?> aSrcClass,
                                                @Nonnull final Class <?> aDstClass,
                                                @Nonnull final ITypeConverterCallback aCallback)
   {
@@ -283,7 +352,7 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
       if (aCurSrcClass != null)
       {
         // Do we have a source converter?
-        final Map <Class <?>, ITypeConverter> aConverterMap = s_aConverter.get (aCurSrcClass);
+        final Map <Class <?>, ITypeConverter> aConverterMap = aSnapshot.m_aConverter.get (aCurSrcClass);
         if (aConverterMap != null)
         {
           // Check explicit destination classes
@@ -299,6 +368,56 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
     }
   }
 
+  @Nullable
+  private static ITypeConverter _getFuzzyConverter (@Nonnull final Snapshot aSnapshot,
+                                                    @Nullable final Class <?> aSrcClass,
+                                                    @Nullable final Class <?> aDstClass)
+  {
+    if (aSrcClass == null || aDstClass == null)
+      return null;
+
+    if (GlobalDebug.isDebugMode ())
+    {
+      // Perform a check, whether there is more than one potential converter
+      // present!
+      final List <String> aAllConverters = new ArrayList <String> ();
+      _iterateFuzzyConverters (aSnapshot, aSrcClass, aDstClass, new ITypeConverterCallback ()
+      {
+        @Nonnull
+        public EContinue call (@Nonnull final Class <?> aCurSrcClass,
+                               @Nonnull final Class <?> aCurDstClass,
+                               @Nonnull final ITypeConverter aConverter)
+        {
+          final boolean bExact = aSrcClass.equals (aCurSrcClass) && aDstClass.equals (aCurDstClass);
+          aAllConverters.add ("[" + aCurSrcClass.getName () + "->" + aCurDstClass.getName () + "]");
+          return bExact ? EContinue.BREAK : EContinue.CONTINUE;
+        }
+      });
+      if (aAllConverters.size () > 1)
+        s_aLogger.warn ("The fuzzy type converter resolver returned more than 1 match for the conversion from " +
+                        aSrcClass +
+                        " to " +
+                        aDstClass +
+                        ": " +
+                        aAllConverters);
+    }
+
+    // Iterate and find the first matching type converter
+    final Wrapper <ITypeConverter> ret = new Wrapper <ITypeConverter> ();
+    _iterateFuzzyConverters (aSnapshot, aSrcClass, aDstClass, new ITypeConverterCallback ()
+    {
+      @Nonnull
+      public EContinue call (@Nonnull final Class <?> aCurSrcClass,
+                             @Nonnull final Class <?> aCurDstClass,
+                             @Nonnull final ITypeConverter aConverter)
+      {
+        ret.set (aConverter);
+        return EContinue.BREAK;
+      }
+    });
+    return ret.get ();
+  }
+
   /**
    * Get the converter that can convert objects from aSrcClass to aDstClass. If
    * no exact match is found, the super-classes and interface of source and
@@ -315,57 +434,122 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   @Nullable
   static ITypeConverter getFuzzyConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
   {
-    if (aSrcClass == null || aDstClass == null)
-      return null;
+    return _getFuzzyConverter (s_aSnapshot, aSrcClass, aDstClass);
+  }
 
-    s_aRWLock.readLock ().lock ();
-    try
+  @Nonnull
+  private static Resolved _getResolved (@Nonnull final Class <?> aSrcClass, @Nonnull final Class <?> aDstClass)
+  {
+    final Snapshot aSnapshot = s_aSnapshot;
+    final AtomicReference <Resolved> aResolvedRef = aSnapshot.m_aResolved.get (aSrcClass).get (aDstClass);
+    Resolved aResolved = aResolvedRef.get ();
+    if (aResolved == null)
     {
-      if (GlobalDebug.isDebugMode ())
-      {
-        // Perform a check, whether there is more than one potential converter
-        // present!
-        final List <String> aAllConverters = new ArrayList <String> ();
-        _iterateFuzzyConverters (aSrcClass, aDstClass, new ITypeConverterCallback ()
-        {
-          @Nonnull
-          public EContinue call (@Nonnull final Class <?> aCurSrcClass,
-                                 @Nonnull final Class <?> aCurDstClass,
-                                 @Nonnull final ITypeConverter aConverter)
-          {
-            final boolean bExact = aSrcClass.equals (aCurSrcClass) && aDstClass.equals (aCurDstClass);
-            aAllConverters.add ("[" + aCurSrcClass.getName () + "->" + aCurDstClass.getName () + "]");
-            return bExact ? EContinue.BREAK : EContinue.CONTINUE;
-          }
-        });
-        if (aAllConverters.size () > 1)
-          s_aLogger.warn ("The fuzzy type converter resolver returned more than 1 match for the conversion from " +
-                          aSrcClass +
-                          " to " +
-                          aDstClass +
-                          ": " +
-                          aAllConverters);
-      }
-
-      // Iterate and find the first matching type converter
-      final Wrapper <ITypeConverter> ret = new Wrapper <ITypeConverter> ();
-      _iterateFuzzyConverters (aSrcClass, aDstClass, new ITypeConverterCallback ()
+      // Find exact hit first
+      ITypeConverter aConverter = _getExactConverter (aSnapshot, aSrcClass, aDstClass);
+      if (aConverter == null)
       {
-        @Nonnull
-        public EContinue call (@Nonnull final Class <?> aCurSrcClass,
-                               @Nonnull final Class <?> aCurDstClass,
-                               @Nonnull final ITypeConverter aConverter)
+        // No exact match was found -> try rule based converter
+        aConverter = _getRuleBasedConverter (aSnapshot, aSrcClass, aDstClass);
+        if (aConverter == null)
         {
-          ret.set (aConverter);
-          return EContinue.BREAK;
+          // No exact match was found -> try fuzzy converter
+          aConverter = _getFuzzyConverter (aSnapshot, aSrcClass, aDstClass);
         }
-      });
-      return ret.get ();
-    }
-    finally
-    {
-      s_aRWLock.readLock ().unlock ();
+      }
+      // Remember negative results as well
+      aResolved = new Resolved (aConverter);
+      aResolvedRef.set (aResolved);
     }
+    return aResolved;
+  }
+
+  /**
+   * Get the best matching converter that can convert objects from aSrcClass to
+   * aDstClass. First an exact match is searched, than the rules are checked and
+   * finally the fuzzy converter search is applied. The result of this method -
+   * including <code>null</code> results - is cached until the next converter
+   * or rule is registered.
+   * 
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @param aDstClass
+   *        Destination class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists, the converter
+   *         object otherwise.
+   */
+  @Nullable
+  static ITypeConverter getBestMatchConverter (@Nullable final Class <?> aSrcClass, @Nullable final Class <?> aDstClass)
+  {
+    if (aSrcClass == null || aDstClass == null)
+      return null;
+    return _getResolved (aSrcClass, aDstClass).m_aConverter;
+  }
+
+  /**
+   * Get the best matching converter from aSrcClass to {@link Boolean}, if it
+   * can deliver primitive values.
+   * 
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists or if the best
+   *         matching converter does not implement
+   *         {@link ITypeConverterToBoolean}.
+   * @see #getBestMatchConverter(Class, Class)
+   */
+  @Nullable
+  static ITypeConverterToBoolean getBestMatchConverterToBoolean (@Nonnull final Class <?> aSrcClass)
+  {
+    return _getResolved (aSrcClass, Boolean.class).m_aToBoolean;
+  }
+
+  /**
+   * Get the best matching converter from aSrcClass to {@link Integer}, if it
+   * can deliver primitive values.
+   * 
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists or if the best
+   *         matching converter does not implement {@link ITypeConverterToInt}.
+   * @see #getBestMatchConverter(Class, Class)
+   */
+  @Nullable
+  static ITypeConverterToInt getBestMatchConverterToInt (@Nonnull final Class <?> aSrcClass)
+  {
+    return _getResolved (aSrcClass, Integer.class).m_aToInt;
+  }
+
+  /**
+   * Get the best matching converter from aSrcClass to {@link Long}, if it can
+   * deliver primitive values.
+   * 
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists or if the best
+   *         matching converter does not implement {@link ITypeConverterToLong}.
+   * @see #getBestMatchConverter(Class, Class)
+   */
+  @Nullable
+  static ITypeConverterToLong getBestMatchConverterToLong (@Nonnull final Class <?> aSrcClass)
+  {
+    return _getResolved (aSrcClass, Long.class).m_aToLong;
+  }
+
+  /**
+   * Get the best matching converter from aSrcClass to {@link Double}, if it
+   * can deliver primitive values.
+   * 
+   * @param aSrcClass
+   *        Source class. May not be <code>null</code>.
+   * @return <code>null</code> if no such type converter exists or if the best
+   *         matching converter does not implement {@link ITypeConverterToDouble}
+   *         .
+   * @see #getBestMatchConverter(Class, Class)
+   */
+  @Nullable
+  static ITypeConverterToDouble getBestMatchConverterToDouble (@Nonnull final Class <?> aSrcClass)
+  {
+    return _getResolved (aSrcClass, Double.class).m_aToDouble;
   }
 
   /**
@@ -376,20 +560,9 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
    */
   public static void iterateAllRegisteredTypeConverters (@Nonnull final ITypeConverterCallback aCallback)
   {
-    // Create a copy of the map
-    Map <Class <?>, Map <Class <?>, ITypeConverter>> aCopy;
-    s_aRWLock.readLock ().lock ();
-    try
-    {
-      aCopy = ContainerHelper.newMap (s_aConverter);
-    }
-    finally
-    {
-      s_aRWLock.readLock ().unlock ();
-    }
-
-    // And iterate the copy
-    outer: for (final Map.Entry <Class <?>, Map <Class <?>, ITypeConverter>> aSrcEntry : aCopy.entrySet ())
+    // The snapshot is immutable and can be iterated directly
+    final Snapshot aSnapshot = s_aSnapshot;
+    outer: for (final Map.Entry <Class <?>, Map <Class <?>, ITypeConverter>> aSrcEntry : aSnapshot.m_aConverter.entrySet ())
     {
       final Class <?> aSrcClass = aSrcEntry.getKey ();
       for (final Map.Entry <Class <?>, ITypeConverter> aDstEntry : aSrcEntry.getValue ().entrySet ())
@@ -401,46 +574,37 @@ public final class TypeConverterRegistry implements ITypeConverterRegistry
   @Nonnegative
   public static int getRegisteredTypeConverterCount ()
   {
-    s_aRWLock.readLock ().lock ();
-    try
-    {
-      int ret = 0;
-      for (final Map <Class <?>, ITypeConverter> aMap : s_aConverter.values ())
-        ret += aMap.size ();
-      return ret;
-    }
-    finally
-    {
-      s_aRWLock.readLock ().unlock ();
-    }
+    int ret = 0;
+    for (final Map <Class <?>, ITypeConverter> aMap : s_aSnapshot.m_aConverter.values ())
+      ret += aMap.size ();
+    return ret;
   }
 
   public void registerTypeConverterRule (@Nonnull final ITypeConverterRule aTypeConverterRule)
   {
     ValueEnforcer.notNull (aTypeConverterRule, "TypeConverterRule");
 
-    s_aRWLock.writeLock ().lock ();
+    s_aWriteLock.lock ();
     try
     {
       s_aRules.putSingle (aTypeConverterRule.getSubType (), aTypeConverterRule);
+
+      // Flatten the rules in the correct order
+      final List <ITypeConverterRule> aRules = new ArrayList <ITypeConverterRule> ();
+      for (final List <ITypeConverterRule> aSubTypeRules : s_aRules.values ())
+        aRules.addAll (aSubTypeRules);
+      // The new snapshot starts with an empty resolved converter cache
+      s_aSnapshot = new Snapshot (s_aSnapshot.m_aConverter, Collections.unmodifiableList (aRules));
     }
     finally
     {
-      s_aRWLock.writeLock ().unlock ();
+      s_aWriteLock.unlock ();
     }
   }
 
   @Nonnegative
   public static long getRegisteredTypeConverterRuleCount ()
   {
-    s_aRWLock.readLock ().lock ();
-    try
-    {
-      return s_aRules.getTotalValueCount ();
-    }
-    finally
-    {
-      s_aRWLock.readLock ().unlock ();
-    }
+    return s_aSnapshot.m_aRules.size ();
   }
 }
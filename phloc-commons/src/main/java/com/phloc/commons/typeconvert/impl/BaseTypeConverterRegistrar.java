@@ -35,7 +35,13 @@ import com.phloc.commons.string.StringParser;
 import com.phloc.commons.typeconvert.ITypeConverter;
 import com.phloc.commons.typeconvert.ITypeConverterRegistrarSPI;
 import com.phloc.commons.typeconvert.ITypeConverterRegistry;
+import com.phloc.commons.typeconvert.ITypeConverterToBoolean;
+import com.phloc.commons.typeconvert.ITypeConverterToDouble;
+import com.phloc.commons.typeconvert.ITypeConverterToInt;
+import com.phloc.commons.typeconvert.ITypeConverterToLong;
 import com.phloc.commons.typeconvert.TypeConverter;
+import com.phloc.commons.typeconvert.TypeConverterException;
+import com.phloc.commons.typeconvert.TypeConverterException.EReason;
 import com.phloc.commons.typeconvert.rule.AbstractTypeConverterRuleAnySourceFixedDestination;
 import com.phloc.commons.typeconvert.rule.AbstractTypeConverterRuleAssignableSourceFixedDestination;
 import com.phloc.commons.typeconvert.rule.AbstractTypeConverterRuleFixedSourceAnyDestination;
@@ -50,6 +56,186 @@ import com.phloc.commons.typeconvert.rule.AbstractTypeConverterRuleFixedSourceAs
 @IsSPIImplementation
 public final class BaseTypeConverterRegistrar implements ITypeConverterRegistrarSPI
 {
+  private static final class NumberToBooleanRule extends AbstractTypeConverterRuleAssignableSourceFixedDestination implements
+                                                                                                                   ITypeConverterToBoolean
+  {
+    NumberToBooleanRule ()
+    {
+      super (Number.class, Boolean.class);
+    }
+
+    public Boolean convert (@Nonnull final Object aSource)
+    {
+      return Boolean.valueOf (convertToBoolean (aSource));
+    }
+
+    public boolean convertToBoolean (@Nonnull final Object aSource)
+    {
+      return ((Number) aSource).intValue () != 0;
+    }
+  }
+
+  private static final class AnyToBooleanRule extends AbstractTypeConverterRuleAnySourceFixedDestination implements
+                                                                                                          ITypeConverterToBoolean
+  {
+    AnyToBooleanRule ()
+    {
+      super (Boolean.class);
+    }
+
+    public Boolean convert (@Nonnull final Object aSource)
+    {
+      return StringParser.parseBoolObj (aSource, (Boolean) null);
+    }
+
+    public boolean convertToBoolean (@Nonnull final Object aSource)
+    {
+      return StringParser.parseBool (aSource.toString ());
+    }
+  }
+
+  private static final class NumberToDoubleRule extends AbstractTypeConverterRuleAssignableSourceFixedDestination implements
+                                                                                                                  ITypeConverterToDouble
+  {
+    NumberToDoubleRule ()
+    {
+      super (Number.class, Double.class);
+    }
+
+    public Double convert (@Nonnull final Object aSource)
+    {
+      return Double.valueOf (convertToDouble (aSource));
+    }
+
+    public double convertToDouble (@Nonnull final Object aSource)
+    {
+      return ((Number) aSource).doubleValue ();
+    }
+  }
+
+  private static final class AnyToDoubleRule extends AbstractTypeConverterRuleAnySourceFixedDestination implements
+                                                                                                         ITypeConverterToDouble
+  {
+    AnyToDoubleRule ()
+    {
+      super (Double.class);
+    }
+
+    public Double convert (@Nonnull final Object aSource)
+    {
+      return StringParser.parseDoubleObj (aSource, (Double) null);
+    }
+
+    public double convertToDouble (@Nonnull final Object aSource)
+    {
+      // NaN is the indicator for unparsable values - see parseDoubleObj
+      final double dValue = StringParser.parseDouble (aSource, Double.NaN);
+      if (Double.isNaN (dValue))
+        throw new TypeConverterException (aSource.getClass (), Double.class, EReason.CONVERSION_FAILED);
+      return dValue;
+    }
+  }
+
+  private static final class NumberToIntRule extends AbstractTypeConverterRuleAssignableSourceFixedDestination implements
+                                                                                                               ITypeConverterToInt
+  {
+    NumberToIntRule ()
+    {
+      super (Number.class, Integer.class);
+    }
+
+    public Integer convert (@Nonnull final Object aSource)
+    {
+      return Integer.valueOf (convertToInt (aSource));
+    }
+
+    public int convertToInt (@Nonnull final Object aSource)
+    {
+      return ((Number) aSource).intValue ();
+    }
+  }
+
+  private static final class AnyToIntRule extends AbstractTypeConverterRuleAnySourceFixedDestination implements
+                                                                                                      ITypeConverterToInt
+  {
+    AnyToIntRule ()
+    {
+      super (Integer.class);
+    }
+
+    public Integer convert (@Nonnull final Object aSource)
+    {
+      return StringParser.parseIntObj (aSource, (Integer) null);
+    }
+
+    public int convertToInt (@Nonnull final Object aSource)
+    {
+      if (aSource instanceof Number)
+        return ((Number) aSource).intValue ();
+      final String sSource = aSource.toString ();
+      if (sSource.length () > 0)
+        try
+        {
+          return Integer.parseInt (sSource, StringParser.DEFAULT_RADIX);
+        }
+        catch (final NumberFormatException ex)
+        {
+          throw new TypeConverterException (aSource.getClass (), Integer.class, EReason.CONVERSION_FAILED, ex);
+        }
+      throw new TypeConverterException (aSource.getClass (), Integer.class, EReason.CONVERSION_FAILED);
+    }
+  }
+
+  private static final class NumberToLongRule extends AbstractTypeConverterRuleAssignableSourceFixedDestination implements
+                                                                                                                ITypeConverterToLong
+  {
+    NumberToLongRule ()
+    {
+      super (Number.class, Long.class);
+    }
+
+    public Long convert (@Nonnull final Object aSource)
+    {
+      return Long.valueOf (convertToLong (aSource));
+    }
+
+    public long convertToLong (@Nonnull final Object aSource)
+    {
+      return ((Number) aSource).longValue ();
+    }
+  }
+
+  private static final class AnyToLongRule extends AbstractTypeConverterRuleAnySourceFixedDestination implements
+                                                                                                       ITypeConverterToLong
+  {
+    AnyToLongRule ()
+    {
+      super (Long.class);
+    }
+
+    public Long convert (@Nonnull final Object aSource)
+    {
+      return StringParser.parseLongObj (aSource, (Long) null);
+    }
+
+    public long convertToLong (@Nonnull final Object aSource)
+    {
+      if (aSource instanceof Number)
+        return ((Number) aSource).longValue ();
+      final String sSource = aSource.toString ();
+      if (sSource.length () > 0)
+        try
+        {
+          return Long.parseLong (sSource, StringParser.DEFAULT_RADIX);
+        }
+        catch (final NumberFormatException ex)
+        {
+          throw new TypeConverterException (aSource.getClass (), Long.class, EReason.CONVERSION_FAILED, ex);
+        }
+      throw new TypeConverterException (aSource.getClass (), Long.class, EReason.CONVERSION_FAILED);
+    }
+  }
+
   /**
    * Register all type converters for the 15 base types:<br>
    * <ul>
@@ -74,28 +260,20 @@ public final class BaseTypeConverterRegistrar implements ITypeConverterRegistrar
   public void registerTypeConverter (@Nonnull final ITypeConverterRegistry aRegistry)
   {
     // to Boolean
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAssignableSourceFixedDestination (Number.class,
-                                                                                                        Boolean.class)
-    {
-      public Boolean convert (@Nonnull final Object aSource)
-      {
-        return Boolean.valueOf (((Number) aSource).intValue () != 0);
-      }
-    });
-    aRegistry.registerTypeConverter (Character.class, Boolean.class, new ITypeConverter ()
+    aRegistry.registerTypeConverterRule (new NumberToBooleanRule ());
+    aRegistry.registerTypeConverter (Character.class, Boolean.class, new ITypeConverterToBoolean ()
     {
       public Boolean convert (@Nonnull final Object aSource)
       {
-        return Boolean.valueOf (((Character) aSource).charValue () != 0);
+        return Boolean.valueOf (convertToBoolean (aSource));
       }
-    });
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAnySourceFixedDestination (Boolean.class)
-    {
-      public Boolean convert (@Nonnull final Object aSource)
+
+      public boolean convertToBoolean (@Nonnull final Object aSource)
       {
-        return StringParser.parseBoolObj (aSource, (Boolean) null);
+        return ((Character) aSource).charValue () != 0;
       }
     });
+    aRegistry.registerTypeConverterRule (new AnyToBooleanRule ());
 
     // to Byte
     aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAssignableSourceFixedDestination (Number.class,
@@ -154,35 +332,32 @@ public final class BaseTypeConverterRegistrar implements ITypeConverterRegistrar
     });
 
     // to Double
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAssignableSourceFixedDestination (Number.class,
-                                                                                                        Double.class)
+    aRegistry.registerTypeConverterRule (new NumberToDoubleRule ());
+    aRegistry.registerTypeConverter (Boolean.class, Double.class, new ITypeConverterToDouble ()
     {
       public Double convert (@Nonnull final Object aSource)
       {
-        return Double.valueOf (((Number) aSource).doubleValue ());
+        return Double.valueOf (convertToDouble (aSource));
       }
-    });
-    aRegistry.registerTypeConverter (Boolean.class, Double.class, new ITypeConverter ()
-    {
-      public Double convert (@Nonnull final Object aSource)
+
+      public double convertToDouble (@Nonnull final Object aSource)
       {
-        return Double.valueOf (((Boolean) aSource).booleanValue () ? 1d : 0d);
+        return ((Boolean) aSource).booleanValue () ? 1d : 0d;
       }
     });
-    aRegistry.registerTypeConverter (Character.class, Double.class, new ITypeConverter ()
+    aRegistry.registerTypeConverter (Character.class, Double.class, new ITypeConverterToDouble ()
     {
       public Double convert (@Nonnull final Object aSource)
       {
-        return Double.valueOf (((Character) aSource).charValue ());
+        return Double.valueOf (convertToDouble (aSource));
       }
-    });
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAnySourceFixedDestination (Double.class)
-    {
-      public Double convert (@Nonnull final Object aSource)
+
+      public double convertToDouble (@Nonnull final Object aSource)
       {
-        return StringParser.parseDoubleObj (aSource, (Double) null);
+        return ((Character) aSource).charValue ();
       }
     });
+    aRegistry.registerTypeConverterRule (new AnyToDoubleRule ());
 
     // to Float
     aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAssignableSourceFixedDestination (Number.class,
@@ -216,66 +391,60 @@ public final class BaseTypeConverterRegistrar implements ITypeConverterRegistrar
     });
 
     // to Integer
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAssignableSourceFixedDestination (Number.class,
-                                                                                                        Integer.class)
+    aRegistry.registerTypeConverterRule (new NumberToIntRule ());
+    aRegistry.registerTypeConverter (Boolean.class, Integer.class, new ITypeConverterToInt ()
     {
       public Integer convert (@Nonnull final Object aSource)
       {
-        return Integer.valueOf (((Number) aSource).intValue ());
+        return Integer.valueOf (convertToInt (aSource));
       }
-    });
-    aRegistry.registerTypeConverter (Boolean.class, Integer.class, new ITypeConverter ()
-    {
-      public Integer convert (@Nonnull final Object aSource)
+
+      public int convertToInt (@Nonnull final Object aSource)
       {
-        return Integer.valueOf (((Boolean) aSource).booleanValue () ? 1 : 0);
+        return ((Boolean) aSource).booleanValue () ? 1 : 0;
       }
     });
-    aRegistry.registerTypeConverter (Character.class, Integer.class, new ITypeConverter ()
+    aRegistry.registerTypeConverter (Character.class, Integer.class, new ITypeConverterToInt ()
     {
       public Integer convert (@Nonnull final Object aSource)
       {
-        return Integer.valueOf (((Character) aSource).charValue ());
+        return Integer.valueOf (convertToInt (aSource));
       }
-    });
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAnySourceFixedDestination (Integer.class)
-    {
-      public Integer convert (@Nonnull final Object aSource)
+
+      public int convertToInt (@Nonnull final Object aSource)
       {
-        return StringParser.parseIntObj (aSource, (Integer) null);
+        return ((Character) aSource).charValue ();
       }
     });
+    aRegistry.registerTypeConverterRule (new AnyToIntRule ());
 
     // to Long
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAssignableSourceFixedDestination (Number.class,
-                                                                                                        Long.class)
+    aRegistry.registerTypeConverterRule (new NumberToLongRule ());
+    aRegistry.registerTypeConverter (Boolean.class, Long.class, new ITypeConverterToLong ()
     {
       public Long convert (@Nonnull final Object aSource)
       {
-        return Long.valueOf (((Number) aSource).longValue ());
+        return Long.valueOf (convertToLong (aSource));
       }
-    });
-    aRegistry.registerTypeConverter (Boolean.class, Long.class, new ITypeConverter ()
-    {
-      public Long convert (@Nonnull final Object aSource)
+
+      public long convertToLong (@Nonnull final Object aSource)
       {
-        return Long.valueOf (((Boolean) aSource).booleanValue () ? 1L : 0L);
+        return ((Boolean) aSource).booleanValue () ? 1L : 0L;
       }
     });
-    aRegistry.registerTypeConverter (Character.class, Long.class, new ITypeConverter ()
+    aRegistry.registerTypeConverter (Character.class, Long.class, new ITypeConverterToLong ()
     {
       public Long convert (@Nonnull final Object aSource)
       {
-        return Long.valueOf (((Character) aSource).charValue ());
+        return Long.valueOf (convertToLong (aSource));
       }
-    });
-    aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAnySourceFixedDestination (Long.class)
-    {
-      public Long convert (@Nonnull final Object aSource)
+
+      public long convertToLong (@Nonnull final Object aSource)
       {
-        return StringParser.parseLongObj (aSource, (Long) null);
+        return ((Character) aSource).charValue ();
       }
     });
+    aRegistry.registerTypeConverterRule (new AnyToLongRule ());
 
     // to Short
     aRegistry.registerTypeConverterRule (new AbstractTypeConverterRuleAssignableSourceFixedDestination (Number.class,
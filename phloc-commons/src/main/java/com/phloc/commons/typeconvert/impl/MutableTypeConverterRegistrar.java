@@ -33,6 +33,10 @@ import com.phloc.commons.mutable.MutableShort;
 import com.phloc.commons.typeconvert.ITypeConverter;
 import com.phloc.commons.typeconvert.ITypeConverterRegistrarSPI;
 import com.phloc.commons.typeconvert.ITypeConverterRegistry;
+import com.phloc.commons.typeconvert.ITypeConverterToBoolean;
+import com.phloc.commons.typeconvert.ITypeConverterToDouble;
+import com.phloc.commons.typeconvert.ITypeConverterToInt;
+import com.phloc.commons.typeconvert.ITypeConverterToLong;
 import com.phloc.commons.typeconvert.TypeConverter;
 import com.phloc.commons.typeconvert.rule.AbstractTypeConverterRuleAnySourceFixedDestination;
 import com.phloc.commons.typeconvert.rule.AbstractTypeConverterRuleFixedSourceAnyDestination;
@@ -49,12 +53,17 @@ public final class MutableTypeConverterRegistrar implements ITypeConverterRegist
   public void registerTypeConverter (@Nonnull final ITypeConverterRegistry aRegistry)
   {
     // MutableBoolean
-    aRegistry.registerTypeConverter (MutableBoolean.class, Boolean.class, new ITypeConverter ()
+    aRegistry.registerTypeConverter (MutableBoolean.class, Boolean.class, new ITypeConverterToBoolean ()
     {
       public Boolean convert (@Nonnull final Object aSource)
       {
         return ((MutableBoolean) aSource).getAsBoolean ();
       }
+
+      public boolean convertToBoolean (@Nonnull final Object aSource)
+      {
+        return ((MutableBoolean) aSource).booleanValue ();
+      }
     });
     aRegistry.registerTypeConverter (Boolean.class, MutableBoolean.class, new ITypeConverter ()
     {
@@ -148,12 +157,17 @@ public final class MutableTypeConverterRegistrar implements ITypeConverterRegist
     });
 
     // MutableDouble
-    aRegistry.registerTypeConverter (MutableDouble.class, Double.class, new ITypeConverter ()
+    aRegistry.registerTypeConverter (MutableDouble.class, Double.class, new ITypeConverterToDouble ()
     {
       public Double convert (@Nonnull final Object aSource)
       {
         return ((MutableDouble) aSource).getAsDouble ();
       }
+
+      public double convertToDouble (@Nonnull final Object aSource)
+      {
+        return ((MutableDouble) aSource).doubleValue ();
+      }
     });
     aRegistry.registerTypeConverter (Double.class, MutableDouble.class, new ITypeConverter ()
     {
@@ -214,12 +228,17 @@ public final class MutableTypeConverterRegistrar implements ITypeConverterRegist
     });
 
     // MutableInt
-    aRegistry.registerTypeConverter (MutableInt.class, Integer.class, new ITypeConverter ()
+    aRegistry.registerTypeConverter (MutableInt.class, Integer.class, new ITypeConverterToInt ()
     {
       public Integer convert (@Nonnull final Object aSource)
       {
         return ((MutableInt) aSource).getAsInteger ();
       }
+
+      public int convertToInt (@Nonnull final Object aSource)
+      {
+        return ((MutableInt) aSource).intValue ();
+      }
     });
     aRegistry.registerTypeConverter (Integer.class, MutableInt.class, new ITypeConverter ()
     {
@@ -247,12 +266,17 @@ public final class MutableTypeConverterRegistrar implements ITypeConverterRegist
     });
 
     // MutableLong
-    aRegistry.registerTypeConverter (MutableLong.class, Long.class, new ITypeConverter ()
+    aRegistry.registerTypeConverter (MutableLong.class, Long.class, new ITypeConverterToLong ()
     {
       public Long convert (@Nonnull final Object aSource)
       {
         return ((MutableLong) aSource).getAsLong ();
       }
+
+      public long convertToLong (@Nonnull final Object aSource)
+      {
+        return ((MutableLong) aSource).longValue ();
+      }
     });
     aRegistry.registerTypeConverter (Long.class, MutableLong.class, new ITypeConverter ()
     {
@@ -311,5 +335,74 @@ public final class MutableTypeConverterRegistrar implements ITypeConverterRegist
         return new MutableShort (TypeConverter.convertIfNecessary (aSource, Short.class));
       }
     });
+
+    // Direct converters from the numeric mutable types to the primitive
+    // wrapper types. The results are identical to the conversion via the
+    // in-between value, but no in-between value needs to be created.
+    aRegistry.registerTypeConverter (new Class <?> [] { MutableByte.class,
+                                                       MutableDouble.class,
+                                                       MutableFloat.class,
+                                                       MutableInt.class,
+                                                       MutableLong.class,
+                                                       MutableShort.class }, Boolean.class, new ITypeConverterToBoolean ()
+    {
+      public Boolean convert (@Nonnull final Object aSource)
+      {
+        return Boolean.valueOf (convertToBoolean (aSource));
+      }
+
+      public boolean convertToBoolean (@Nonnull final Object aSource)
+      {
+        return ((Number) aSource).intValue () != 0;
+      }
+    });
+    aRegistry.registerTypeConverter (new Class <?> [] { MutableByte.class,
+                                                       MutableFloat.class,
+                                                       MutableInt.class,
+                                                       MutableLong.class,
+                                                       MutableShort.class }, Double.class, new ITypeConverterToDouble ()
+    {
+      public Double convert (@Nonnull final Object aSource)
+      {
+        return Double.valueOf (convertToDouble (aSource));
+      }
+
+      public double convertToDouble (@Nonnull final Object aSource)
+      {
+        return ((Number) aSource).doubleValue ();
+      }
+    });
+    aRegistry.registerTypeConverter (new Class <?> [] { MutableByte.class,
+                                                       MutableDouble.class,
+                                                       MutableFloat.class,
+                                                       MutableLong.class,
+                                                       MutableShort.class }, Integer.class, new ITypeConverterToInt ()
+    {
+      public Integer convert (@Nonnull final Object aSource)
+      {
+        return Integer.valueOf (convertToInt (aSource));
+      }
+
+      public int convertToInt (@Nonnull final Object aSource)
+      {
+        return ((Number) aSource).intValue ();
+      }
+    });
+    aRegistry.registerTypeConverter (new Class <?> [] { MutableByte.class,
+                                                       MutableDouble.class,
+                                                       MutableFloat.class,
+                                                       MutableInt.class,
+                                                       MutableShort.class }, Long.class, new ITypeConverterToLong ()
+    {
+      public Long convert (@Nonnull final Object aSource)
+      {
+        return Long.valueOf (convertToLong (aSource));
+      }
+
+      public long convertToLong (@Nonnull final Object aSource)
+      {
+        return ((Number) aSource).longValue ();
+      }
+    });
   }
 }
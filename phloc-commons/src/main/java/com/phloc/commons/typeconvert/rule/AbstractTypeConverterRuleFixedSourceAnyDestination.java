@@ -21,16 +21,76 @@ import javax.annotation.Nonnull;
 
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.commons.typeconvert.ITypeConverter;
+import com.phloc.commons.typeconvert.ITypeConverterToBoolean;
+import com.phloc.commons.typeconvert.ITypeConverterToDouble;
+import com.phloc.commons.typeconvert.ITypeConverterToInt;
+import com.phloc.commons.typeconvert.ITypeConverterToLong;
 import com.phloc.commons.typeconvert.TypeConverter;
 
 /**
  * Abstract type converter than can convert from a base source class to a
- * destination class. Example from Number.class to String.class
+ * destination class. Example from Number.class to String.class<br>
+ * As this rule depends on the destination class, the type converter registry
+ * uses {@link #getBoundConverter(Class)} to retrieve a converter that is
+ * independent of the last invocation of
+ * {@link #canConvert(Class, Class)}.
  * 
  * @author Philip Helger
  */
 public abstract class AbstractTypeConverterRuleFixedSourceAnyDestination extends AbstractTypeConverterRule
 {
+  /**
+   * A converter that converts the in-between value to a fixed destination
+   * class.
+   */
+  private final class BoundConverter implements
+                                    ITypeConverterToBoolean,
+                                    ITypeConverterToInt,
+                                    ITypeConverterToLong,
+                                    ITypeConverterToDouble
+  {
+    private final Class <?> m_aDstClass;
+
+    BoundConverter (@Nonnull final Class <?> aDstClass)
+    {
+      m_aDstClass = aDstClass;
+    }
+
+    public Object convert (@Nonnull final Object aSource)
+    {
+      return TypeConverter.convertIfNecessary (getInBetweenValue (aSource), m_aDstClass);
+    }
+
+    public boolean convertToBoolean (@Nonnull final Object aSource)
+    {
+      return TypeConverter.convertToBoolean (getInBetweenValue (aSource));
+    }
+
+    public int convertToInt (@Nonnull final Object aSource)
+    {
+      return TypeConverter.convertToInt (getInBetweenValue (aSource));
+    }
+
+    public long convertToLong (@Nonnull final Object aSource)
+    {
+      return TypeConverter.convertToLong (getInBetweenValue (aSource));
+    }
+
+    public double convertToDouble (@Nonnull final Object aSource)
+    {
+      return TypeConverter.convertToDouble (getInBetweenValue (aSource));
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("rule", AbstractTypeConverterRuleFixedSourceAnyDestination.this)
+                                         .append ("dstClass", m_aDstClass.getName ())
+                                         .toString ();
+    }
+  }
+
   private final Class <?> m_aSrcClass;
   private Class <?> m_aEffectiveDstClass;
 
@@ -58,6 +118,24 @@ public abstract class AbstractTypeConverterRuleFixedSourceAnyDestination extends
     return TypeConverter.convertIfNecessary (getInBetweenValue (aSource), m_aEffectiveDstClass);
   }
 
+  /**
+   * Get a converter that uses this rule to convert to the passed destination
+   * class.
+   * 
+   * @param aDstClass
+   *        The destination class. May not be <code>null</code>.
+   * @return The new converter and never <code>null</code>. The returned
+   *         converter can deliver primitive values as specified by
+   *         {@link ITypeConverterToBoolean}, {@link ITypeConverterToInt},
+   *         {@link ITypeConverterToLong} and {@link ITypeConverterToDouble},
+   *         if the destination class is the respective wrapper class.
+   */
+  @Nonnull
+  public final ITypeConverter getBoundConverter (@Nonnull final Class <?> aDstClass)
+  {
+    return new BoundConverter (ValueEnforcer.notNull (aDstClass, "DstClass"));
+  }
+
   @Nonnull
   public final Class <?> getSourceClass ()
   {
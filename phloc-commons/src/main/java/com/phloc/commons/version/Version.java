@@ -28,6 +28,7 @@ import com.phloc.commons.IHasStringRepresentation;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.equals.EqualsUtils;
 import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.hash.IHashCodeGenerator;
 import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.StringParser;
 import com.phloc.commons.string.ToStringGenerator;
@@ -60,6 +61,9 @@ public final class Version implements Comparable <Version>, IHasStringRepresenta
   /** version build qualifier. */
   private final String m_sQualifier;
 
+  /** The cached hash code. */
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
   /**
    * Create a new version with major version only.
    * 
@@ -463,11 +467,15 @@ public final class Version implements Comparable <Version>, IHasStringRepresenta
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_nMajor)
-                                       .append (m_nMinor)
-                                       .append (m_nMicro)
-                                       .append (m_sQualifier)
-                                       .getHashCode ();
+    // As the object is immutable, the hash code can be cached
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (m_nMajor)
+                                                      .append (m_nMinor)
+                                                      .append (m_nMicro)
+                                                      .append (m_sQualifier)
+                                                      .getHashCode ();
+    return ret;
   }
 
   @Override
@@ -27,6 +27,7 @@ import com.phloc.commons.IHasStringRepresentation;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.equals.EqualsUtils;
 import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.hash.IHashCodeGenerator;
 import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.ToStringGenerator;
 
@@ -64,6 +65,11 @@ public final class VersionRange implements Comparable <VersionRange>, IHasString
    */
   private final Version m_aCeilVersion;
 
+  /**
+   * cached hash code
+   */
+  private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
+
   /**
    * Construct a version range object from a string.<br>
    * Examples:<br>
@@ -372,11 +378,15 @@ public final class VersionRange implements Comparable <VersionRange>, IHasString
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (this.m_aFloorVersion)
-                                       .append (this.m_bIncludeFloor)
-                                       .append (this.m_aCeilVersion)
-                                       .append (this.m_bIncludeCeil)
-                                       .getHashCode ();
+    // As the object is immutable, the hash code can be cached
+    int ret = m_nHashCode;
+    if (ret == IHashCodeGenerator.ILLEGAL_HASHCODE)
+      ret = m_nHashCode = new HashCodeGenerator (this).append (this.m_aFloorVersion)
+                                                      .append (this.m_bIncludeFloor)
+                                                      .append (this.m_aCeilVersion)
+                                                      .append (this.m_bIncludeCeil)
+                                                      .getHashCode ();
+    return ret;
   }
 
   @Override
@@ -19,6 +19,7 @@ package com.phloc.commons.xml.serialize;
 
 import java.io.OutputStream;
 import java.io.Writer;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -36,7 +37,9 @@ import org.slf4j.LoggerFactory;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.OverrideOnDemand;
+import com.phloc.commons.charset.CCharset;
 import com.phloc.commons.io.streams.NonBlockingBufferedWriter;
+import com.phloc.commons.io.streams.NonBlockingUTF8Writer;
 import com.phloc.commons.io.streams.StreamUtils;
 import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.string.ToStringGenerator;
@@ -255,6 +258,21 @@ public abstract class AbstractSerializerPhloc <NODETYPE> implements IXMLSerializ
       this.m_aStack.remove (0);
     }
 
+    /**
+     * Replace all levels of this stack with the levels of the passed stack. The
+     * levels themselves are shared and must therefore not be modified by
+     * either stack afterwards - this is the case for all but the top level,
+     * which is only modified while the respective element is written.
+     * 
+     * @param aOther
+     *        The stack to copy the levels from. May not be <code>null</code>.
+     */
+    void copyLevelsFrom (@Nonnull final NamespaceStack aOther)
+    {
+      this.m_aStack.clear ();
+      this.m_aStack.addAll (aOther.m_aStack);
+    }
+
     @Nonnegative
     public int size ()
     {
@@ -403,6 +421,23 @@ public abstract class AbstractSerializerPhloc <NODETYPE> implements IXMLSerializ
     this.m_aNSStack = new NamespaceStack (aSettings.getNamespaceContext ());
   }
 
+  /**
+   * Initialize the state of this serializer from another serializer, so that
+   * this serializer can continue writing at the current position of the other
+   * serializer. This copies the current indentation and the current namespace
+   * stack and is used for serializing independent subtrees in parallel.
+   * 
+   * @param aOther
+   *        The serializer to copy the state from. May not be <code>null</code>.
+   */
+  protected final void initStateFrom (@Nonnull final AbstractSerializerPhloc <?> aOther)
+  {
+    ValueEnforcer.notNull (aOther, "Other");
+    this.m_aIndent.setLength (0);
+    this.m_aIndent.append (aOther.m_aIndent);
+    this.m_aNSStack.copyLevelsFrom (aOther.m_aNSStack);
+  }
+
   @Nonnull
   public final IXMLWriterSettings getSettings ()
   {
@@ -473,8 +508,15 @@ public abstract class AbstractSerializerPhloc <NODETYPE> implements IXMLSerializ
     ValueEnforcer.notNull (aOS, "OutputStream");
 
     // Create a writer for the passed output stream
-    final NonBlockingBufferedWriter aWriter = new NonBlockingBufferedWriter (StreamUtils.createWriter (aOS,
-                                                                                                       this.m_aSettings.getCharsetObj ()));
+    final Charset aCharset = this.m_aSettings.getCharsetObj ();
+    Writer aWriter;
+    if (aCharset.equals (CCharset.CHARSET_UTF_8_OBJ))
+    {
+      // Encode directly into a byte buffer without a CharsetEncoder
+      aWriter = new NonBlockingUTF8Writer (aOS);
+    }
+    else
+      aWriter = new NonBlockingBufferedWriter (StreamUtils.createWriter (aOS, aCharset));
     // Inside the other write method, the writer must be flushed!
     write (aNode, aWriter);
     // Do not close the writer!
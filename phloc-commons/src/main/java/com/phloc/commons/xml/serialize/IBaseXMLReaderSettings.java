@@ -115,7 +115,9 @@ public interface IBaseXMLReaderSettings
    * Check if the current settings require a separate DOM
    * {@link javax.xml.parsers.DocumentBuilderFactory}/SAX
    * {@link org.xml.sax.XMLReader} object or if a pooled default object can be
-   * used.
+   * used.<br>
+   * Note: the readers keep a separate parser pool for each distinct
+   * configuration, so parsers with non-default settings are reused as well.
    * 
    * @return <code>true</code> if a separate parser object is required,
    *         <code>false</code> if not.
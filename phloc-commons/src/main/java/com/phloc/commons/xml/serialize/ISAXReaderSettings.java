@@ -61,7 +61,7 @@ public interface ISAXReaderSettings extends IBaseXMLReaderSettings
 
   /**
    * @return <code>true</code> if a new XML parser is explicitly required for
-   *         this instance.
+   *         this instance. In this case no pooled parser is used.
    */
   boolean isRequiresNewXMLParserExplicitly ();
 
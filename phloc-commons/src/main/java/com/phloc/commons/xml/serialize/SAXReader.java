@@ -35,16 +35,18 @@ import org.xml.sax.SAXParseException;
 
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.PresentForCodeCoverage;
+import com.phloc.commons.factory.IFactoryWithParameter;
 import com.phloc.commons.io.IInputStreamProvider;
 import com.phloc.commons.io.IReadableResource;
 import com.phloc.commons.io.streams.StreamUtils;
-import com.phloc.commons.pool.IObjectPool;
-import com.phloc.commons.pool.ObjectPool;
+import com.phloc.commons.pool.KeyedObjectPool;
 import com.phloc.commons.state.ESuccess;
 import com.phloc.commons.stats.IStatisticsHandlerCounter;
 import com.phloc.commons.stats.IStatisticsHandlerTimer;
 import com.phloc.commons.stats.StatisticsManager;
 import com.phloc.commons.timing.StopWatch;
+import com.phloc.commons.xml.EXMLParserProperty;
+import com.phloc.commons.xml.EXMLParserPropertyType;
 import com.phloc.commons.xml.sax.InputSourceFactory;
 
 /**
@@ -55,15 +57,25 @@ import com.phloc.commons.xml.sax.InputSourceFactory;
 @ThreadSafe
 public final class SAXReader
 {
+  private static final class SAXReaderPoolFactory implements IFactoryWithParameter <org.xml.sax.XMLReader, XMLReaderSettingsKey>
+  {
+    @Nonnull
+    public org.xml.sax.XMLReader create (final XMLReaderSettingsKey aKey)
+    {
+      // The settings are applied before each parsing
+      return SAXReaderFactory.createXMLReader ();
+    }
+  }
+
   private static final IStatisticsHandlerTimer s_aSaxTimerHdl = StatisticsManager.getTimerHandler (SAXReader.class.getName ());
   private static final IStatisticsHandlerCounter s_aSaxSuccessCounterHdl = StatisticsManager.getCounterHandler (SAXReader.class.getName () +
                                                                                                                 "$success");
   private static final IStatisticsHandlerCounter s_aSaxErrorCounterHdl = StatisticsManager.getCounterHandler (SAXReader.class.getName () +
                                                                                                               "$error");
 
-  // In practice no more than 5 readers are required (even 3 would be enough)
-  private static final IObjectPool <org.xml.sax.XMLReader> s_aSAXPool = new ObjectPool <org.xml.sax.XMLReader> (5,
-                                                                                                                new SAXReaderFactory ());
+  // One pool per distinct parser configuration - parsers are created on demand
+  private static final KeyedObjectPool <XMLReaderSettingsKey, org.xml.sax.XMLReader> s_aSAXPool = new KeyedObjectPool <XMLReaderSettingsKey, org.xml.sax.XMLReader> (SAXReader.class.getName (),
+                                                                                                                                                                      new SAXReaderPoolFactory ());
 
   @PresentForCodeCoverage
   @SuppressWarnings ("unused")
@@ -72,6 +84,49 @@ public final class SAXReader
   private SAXReader ()
   {}
 
+  /**
+   * @return The pool that contains the SAX parsers for the different parser
+   *         configurations. Mainly for statistical purposes. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public static KeyedObjectPool <?, org.xml.sax.XMLReader> getParserPool ()
+  {
+    return s_aSAXPool;
+  }
+
+  /**
+   * Remove all references to the handlers of the last parsing from the passed
+   * parser, so that a pooled parser does not keep them alive.
+   * 
+   * @param aParser
+   *        The parser to reset. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings used for the last parsing. May not be
+   *        <code>null</code>.
+   * @return <code>true</code> if the parser was reset successfully and can be
+   *         reused.
+   */
+  private static boolean _resetParser (@Nonnull final org.xml.sax.XMLReader aParser,
+                                       @Nonnull final ISAXReaderSettings aSettings)
+  {
+    try
+    {
+      aParser.setContentHandler (null);
+      aParser.setDTDHandler (null);
+      aParser.setEntityResolver (null);
+      aParser.setErrorHandler (null);
+      for (final EXMLParserProperty eProperty : XMLReaderSettingsKey.PER_PARSE_PROPERTIES)
+        if (eProperty.getPropertyType () != EXMLParserPropertyType.DOM && aSettings.getPropertyValue (eProperty) != null)
+          eProperty.applyTo (aParser, null);
+      return true;
+    }
+    catch (final RuntimeException ex)
+    {
+      return false;
+    }
+  }
+
   @Nonnull
   public static ESuccess readXMLSAX (@Nonnull final File aFile, @Nonnull final ISAXReaderSettings aSettings)
   {
@@ -208,19 +263,22 @@ public final class SAXReader
 
     try
     {
-      boolean bFromPool = false;
-      org.xml.sax.XMLReader aParser;
-      if (aSettings.requiresNewXMLParser ())
+      XMLReaderSettingsKey aPoolKey = null;
+      org.xml.sax.XMLReader aParser = null;
+      if (!aSettings.isRequiresNewXMLParserExplicitly ())
       {
-        aParser = SAXReaderFactory.createXMLReader ();
+        // use parser from pool, with the same configuration
+        aPoolKey = XMLReaderSettingsKey.createForSAX (aSettings);
+        aParser = s_aSAXPool.borrowObject (aPoolKey);
       }
-      else
+      if (aParser == null)
       {
-        // use parser from pool
-        aParser = s_aSAXPool.borrowObject ();
-        bFromPool = true;
+        aParser = SAXReaderFactory.createXMLReader ();
+        aPoolKey = null;
       }
 
+      // Only parsers that are in a defined state may be reused
+      boolean bReusable = false;
       try
       {
         final StopWatch aSW = new StopWatch (true);
@@ -229,7 +287,17 @@ public final class SAXReader
         aSettings.applyToSAXReader (aParser);
 
         // Start parsing
-        aParser.parse (aIS);
+        try
+        {
+          aParser.parse (aIS);
+        }
+        catch (final SAXException ex)
+        {
+          // Regular parsing error - the parser resets itself upon next parsing
+          bReusable = true;
+          throw ex;
+        }
+        bReusable = true;
 
         // Statistics
         s_aSaxSuccessCounterHdl.increment ();
@@ -238,10 +306,15 @@ public final class SAXReader
       }
       finally
       {
-        if (bFromPool)
+        if (aPoolKey != null)
         {
-          // Return parser to pool
-          s_aSAXPool.returnObject (aParser);
+          if (bReusable && _resetParser (aParser, aSettings))
+          {
+            // Return parser to pool
+            s_aSAXPool.returnObject (aPoolKey, aParser);
+          }
+          else
+            s_aSAXPool.discardObject (aPoolKey, aParser);
         }
       }
     }
@@ -621,6 +621,91 @@ public final class XMLCharHelper
   private XMLCharHelper ()
   {}
 
+  @Nonnull
+  private static BitSet _getInvalidNameStartCharSet (@Nonnull final EXMLSerializeVersion eXMLVersion)
+  {
+    switch (eXMLVersion)
+    {
+      case XML_10:
+        return INVALID_NAME_START_CHAR_XML10;
+      case XML_11:
+        return INVALID_NAME_START_CHAR_XML11;
+      case HTML:
+      case XHTML:
+        return INVALID_CHAR_HTML;
+      default:
+        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
+    }
+  }
+
+  @Nonnull
+  private static BitSet _getInvalidNameCharSet (@Nonnull final EXMLSerializeVersion eXMLVersion)
+  {
+    switch (eXMLVersion)
+    {
+      case XML_10:
+        return INVALID_NAME_CHAR_XML10;
+      case XML_11:
+        return INVALID_NAME_CHAR_XML11;
+      case HTML:
+      case XHTML:
+        return INVALID_CHAR_HTML;
+      default:
+        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
+    }
+  }
+
+  @Nonnull
+  private static BitSet _getInvalidTextCharSet (@Nonnull final EXMLSerializeVersion eXMLVersion)
+  {
+    switch (eXMLVersion)
+    {
+      case XML_10:
+        return INVALID_VALUE_CHAR_XML10;
+      case XML_11:
+        return INVALID_TEXT_VALUE_CHAR_XML11;
+      case HTML:
+      case XHTML:
+        return INVALID_CHAR_HTML;
+      default:
+        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
+    }
+  }
+
+  @Nonnull
+  private static BitSet _getInvalidCDATACharSet (@Nonnull final EXMLSerializeVersion eXMLVersion)
+  {
+    switch (eXMLVersion)
+    {
+      case XML_10:
+        return INVALID_VALUE_CHAR_XML10;
+      case XML_11:
+        return INVALID_CDATA_VALUE_CHAR_XML11;
+      case HTML:
+      case XHTML:
+        return INVALID_CHAR_HTML;
+      default:
+        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
+    }
+  }
+
+  @Nonnull
+  private static BitSet _getInvalidAttributeValueCharSet (@Nonnull final EXMLSerializeVersion eXMLVersion)
+  {
+    switch (eXMLVersion)
+    {
+      case XML_10:
+        return INVALID_VALUE_CHAR_XML10;
+      case XML_11:
+        return INVALID_ATTR_VALUE_CHAR_XML11;
+      case HTML:
+      case XHTML:
+        return INVALID_CHAR_HTML;
+      default:
+        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
+    }
+  }
+
   /**
    * Check if the passed character is invalid for an element or attribute name
    * on the first position
@@ -633,18 +718,7 @@ public final class XMLCharHelper
    */
   public static boolean isInvalidXMLNameStartChar (@Nonnull final EXMLSerializeVersion eXMLVersion, final int c)
   {
-    switch (eXMLVersion)
-    {
-      case XML_10:
-        return INVALID_NAME_START_CHAR_XML10.get (c);
-      case XML_11:
-        return INVALID_NAME_START_CHAR_XML11.get (c);
-      case HTML:
-      case XHTML:
-        return INVALID_CHAR_HTML.get (c);
-      default:
-        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
-    }
+    return _getInvalidNameStartCharSet (eXMLVersion).get (c);
   }
 
   /**
@@ -659,24 +733,24 @@ public final class XMLCharHelper
    */
   public static boolean isInvalidXMLNameChar (@Nonnull final EXMLSerializeVersion eXMLVersion, final int c)
   {
-    switch (eXMLVersion)
-    {
-      case XML_10:
-        return INVALID_NAME_CHAR_XML10.get (c);
-      case XML_11:
-        return INVALID_NAME_CHAR_XML11.get (c);
-      case HTML:
-      case XHTML:
-        return INVALID_CHAR_HTML.get (c);
-      default:
-        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
-    }
+    return _getInvalidNameCharSet (eXMLVersion).get (c);
   }
 
   public static boolean containsInvalidXMLNameChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                                     @Nullable final String s)
   {
-    return s != null && containsInvalidXMLNameChar (eXMLVersion, s.toCharArray ());
+    if (s != null)
+    {
+      // Scan in place to avoid copying the string
+      final int nLen = s.length ();
+      if (nLen > 0 && _getInvalidNameStartCharSet (eXMLVersion).get (s.charAt (0)))
+        return true;
+      final BitSet aInvalidChars = _getInvalidNameCharSet (eXMLVersion);
+      for (int i = 1; i < nLen; ++i)
+        if (aInvalidChars.get (s.charAt (i)))
+          return true;
+    }
+    return false;
   }
 
   public static boolean containsInvalidXMLNameChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
@@ -747,33 +821,33 @@ public final class XMLCharHelper
    */
   public static boolean isInvalidXMLTextChar (@Nonnull final EXMLSerializeVersion eXMLVersion, final int c)
   {
-    switch (eXMLVersion)
-    {
-      case XML_10:
-        return INVALID_VALUE_CHAR_XML10.get (c);
-      case XML_11:
-        return INVALID_TEXT_VALUE_CHAR_XML11.get (c);
-      case HTML:
-      case XHTML:
-        return INVALID_CHAR_HTML.get (c);
-      default:
-        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
-    }
+    return _getInvalidTextCharSet (eXMLVersion).get (c);
   }
 
   public static boolean containsInvalidXMLTextChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                                     @Nullable final String s)
   {
-    return s != null && containsInvalidXMLTextChar (eXMLVersion, s.toCharArray ());
+    if (s != null)
+    {
+      final BitSet aInvalidChars = _getInvalidTextCharSet (eXMLVersion);
+      final int nLen = s.length ();
+      for (int i = 0; i < nLen; ++i)
+        if (aInvalidChars.get (s.charAt (i)))
+          return true;
+    }
+    return false;
   }
 
   public static boolean containsInvalidXMLTextChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                                     @Nullable final char [] aChars)
   {
     if (aChars != null)
+    {
+      final BitSet aInvalidChars = _getInvalidTextCharSet (eXMLVersion);
       for (final char c : aChars)
-        if (isInvalidXMLTextChar (eXMLVersion, c))
+        if (aInvalidChars.get (c))
           return true;
+    }
     return false;
   }
 
@@ -809,33 +883,33 @@ public final class XMLCharHelper
    */
   public static boolean isInvalidXMLCDATAChar (@Nonnull final EXMLSerializeVersion eXMLVersion, final int c)
   {
-    switch (eXMLVersion)
-    {
-      case XML_10:
-        return INVALID_VALUE_CHAR_XML10.get (c);
-      case XML_11:
-        return INVALID_CDATA_VALUE_CHAR_XML11.get (c);
-      case HTML:
-      case XHTML:
-        return INVALID_CHAR_HTML.get (c);
-      default:
-        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
-    }
+    return _getInvalidCDATACharSet (eXMLVersion).get (c);
   }
 
   public static boolean containsInvalidXMLCDATAChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                                      @Nullable final String s)
   {
-    return s != null && containsInvalidXMLCDATAChar (eXMLVersion, s.toCharArray ());
+    if (s != null)
+    {
+      final BitSet aInvalidChars = _getInvalidCDATACharSet (eXMLVersion);
+      final int nLen = s.length ();
+      for (int i = 0; i < nLen; ++i)
+        if (aInvalidChars.get (s.charAt (i)))
+          return true;
+    }
+    return false;
   }
 
   public static boolean containsInvalidXMLCDATAChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                                      @Nullable final char [] aChars)
   {
     if (aChars != null)
+    {
+      final BitSet aInvalidChars = _getInvalidCDATACharSet (eXMLVersion);
       for (final char c : aChars)
-        if (isInvalidXMLCDATAChar (eXMLVersion, c))
+        if (aInvalidChars.get (c))
           return true;
+    }
     return false;
   }
 
@@ -871,33 +945,33 @@ public final class XMLCharHelper
    */
   public static boolean isInvalidXMLAttributeValueChar (@Nonnull final EXMLSerializeVersion eXMLVersion, final int c)
   {
-    switch (eXMLVersion)
-    {
-      case XML_10:
-        return INVALID_VALUE_CHAR_XML10.get (c);
-      case XML_11:
-        return INVALID_ATTR_VALUE_CHAR_XML11.get (c);
-      case HTML:
-      case XHTML:
-        return INVALID_CHAR_HTML.get (c);
-      default:
-        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
-    }
+    return _getInvalidAttributeValueCharSet (eXMLVersion).get (c);
   }
 
   public static boolean containsInvalidXMLAttributeValueChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                                               @Nullable final String s)
   {
-    return s != null && containsInvalidXMLAttributeValueChar (eXMLVersion, s.toCharArray ());
+    if (s != null)
+    {
+      final BitSet aInvalidChars = _getInvalidAttributeValueCharSet (eXMLVersion);
+      final int nLen = s.length ();
+      for (int i = 0; i < nLen; ++i)
+        if (aInvalidChars.get (s.charAt (i)))
+          return true;
+    }
+    return false;
   }
 
   public static boolean containsInvalidXMLAttributeValueChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                                               @Nullable final char [] aChars)
   {
     if (aChars != null)
+    {
+      final BitSet aInvalidChars = _getInvalidAttributeValueCharSet (eXMLVersion);
       for (final char c : aChars)
-        if (isInvalidXMLAttributeValueChar (eXMLVersion, c))
+        if (aInvalidChars.get (c))
           return true;
+    }
     return false;
   }
 
@@ -926,7 +1000,21 @@ public final class XMLCharHelper
                                                 @Nonnull final EXMLCharMode eXMLCharMode,
                                                 @Nullable final String s)
   {
-    return s != null && containsInvalidXMLChar (eXMLVersion, eXMLCharMode, s.toCharArray ());
+    switch (eXMLCharMode)
+    {
+      case ELEMENT_NAME:
+      case ATTRIBUTE_NAME:
+        return containsInvalidXMLNameChar (eXMLVersion, s);
+      case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
+      case ATTRIBUTE_VALUE_SINGLE_QUOTES:
+        return containsInvalidXMLAttributeValueChar (eXMLVersion, s);
+      case TEXT:
+        return containsInvalidXMLTextChar (eXMLVersion, s);
+      case CDATA:
+        return containsInvalidXMLCDATAChar (eXMLVersion, s);
+      default:
+        throw new IllegalArgumentException ("Unsupported XML character mode " + eXMLCharMode + "!");
+    }
   }
 
   public static boolean containsInvalidXMLChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
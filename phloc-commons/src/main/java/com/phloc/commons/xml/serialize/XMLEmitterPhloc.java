@@ -27,6 +27,7 @@ import javax.annotation.Nullable;
 import javax.annotation.WillNotClose;
 import javax.annotation.concurrent.NotThreadSafe;
 
+import com.phloc.commons.CGlobal;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.microdom.IMicroDocumentType;
 import com.phloc.commons.string.StringHelper;
@@ -115,6 +116,26 @@ public class XMLEmitterPhloc extends DefaultXMLIterationHandler
     }
   }
 
+  @Nonnull
+  private XMLEmitterPhloc _append (@Nonnull final CharSequence aValue)
+  {
+    if (aValue instanceof String)
+      return _append ((String) aValue);
+
+    // Write char by char to avoid a temporary String (e.g. for the indentation)
+    try
+    {
+      final int nLen = aValue.length ();
+      for (int i = 0; i < nLen; ++i)
+        m_aWriter.write (aValue.charAt (i));
+      return this;
+    }
+    catch (final IOException ex)
+    {
+      throw new IllegalStateException ("Failed to append string '" + aValue + "'", ex);
+    }
+  }
+
   @Nonnull
   private XMLEmitterPhloc _append (final char cValue)
   {
@@ -285,11 +306,46 @@ public class XMLEmitterPhloc extends DefaultXMLIterationHandler
     _append (ER_START)._append (sEntityRef)._append (ER_END);
   }
 
+  /**
+   * Append content that was already serialized by another emitter (e.g. in a
+   * parallel serialization) without any modification.
+   * 
+   * @param aContent
+   *        The serialized content. May not be <code>null</code>.
+   */
+  public void onPreSerializedContent (@Nonnull final CharSequence aContent)
+  {
+    if (aContent instanceof StringBuilder)
+    {
+      // Copy in chunks to avoid creating a String of the whole content
+      final StringBuilder aSB = (StringBuilder) aContent;
+      final int nLen = aSB.length ();
+      final char [] aBuf = new char [Math.min (nLen, 8 * CGlobal.BYTES_PER_KILOBYTE)];
+      try
+      {
+        int nIndex = 0;
+        while (nIndex < nLen)
+        {
+          final int nChunk = Math.min (aBuf.length, nLen - nIndex);
+          aSB.getChars (nIndex, nIndex + nChunk, aBuf, 0);
+          m_aWriter.write (aBuf, 0, nChunk);
+          nIndex += nChunk;
+        }
+      }
+      catch (final IOException ex)
+      {
+        throw new IllegalStateException ("Failed to append pre-serialized content", ex);
+      }
+    }
+    else
+      _append (aContent);
+  }
+
   @Override
   public void onContentElementWhitespace (@Nullable final CharSequence aWhitespaces)
   {
     if (StringHelper.hasText (aWhitespaces))
-      _append (aWhitespaces.toString ());
+      _append (aWhitespaces);
   }
 
   @Override
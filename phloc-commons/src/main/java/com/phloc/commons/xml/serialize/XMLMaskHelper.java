@@ -25,7 +25,6 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import com.phloc.commons.CGlobal;
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.PresentForCodeCoverage;
@@ -318,6 +317,17 @@ public final class XMLMaskHelper
   private static final char [] [] MASK_TEXT_HTML_DQ_REPLACE = new char [MASK_TEXT_HTML_DQ.length] [];
   private static final char [] [] MASK_TEXT_HTML_SQ_REPLACE = new char [MASK_TEXT_HTML_SQ.length] [];
 
+  // Lookup tables from a character to its replacement. Characters with a
+  // null entry or beyond the end of the table need no masking.
+  private static final char [] [] LOOKUP_ATTRIBUTE_VALUE_XML10_DQ;
+  private static final char [] [] LOOKUP_ATTRIBUTE_VALUE_XML10_SQ;
+  private static final char [] [] LOOKUP_TEXT_XML10;
+  private static final char [] [] LOOKUP_ATTRIBUTE_VALUE_XML11_DQ;
+  private static final char [] [] LOOKUP_ATTRIBUTE_VALUE_XML11_SQ;
+  private static final char [] [] LOOKUP_TEXT_XML11;
+  private static final char [] [] LOOKUP_TEXT_HTML_DQ;
+  private static final char [] [] LOOKUP_TEXT_HTML_SQ;
+
   /**
    * Get the entity reference for the specified character. This returns e.g.
    * &amp;lt; for '&lt;' etc. This method has special handling for &lt;, &gt;,
@@ -426,6 +436,20 @@ public final class XMLMaskHelper
       MASK_TEXT_HTML_DQ_REPLACE[i] = getHTMLEntityReferenceString (MASK_TEXT_HTML_DQ[i]).toCharArray ();
     for (int i = 0; i < MASK_TEXT_HTML_SQ.length; ++i)
       MASK_TEXT_HTML_SQ_REPLACE[i] = getHTMLEntityReferenceString (MASK_TEXT_HTML_SQ[i]).toCharArray ();
+
+    // Lookup tables
+    LOOKUP_ATTRIBUTE_VALUE_XML10_DQ = _createLookupTable (MASK_ATTRIBUTE_VALUE_XML10_DQ,
+                                                          MASK_ATTRIBUTE_VALUE_XML10_DQ_REPLACE);
+    LOOKUP_ATTRIBUTE_VALUE_XML10_SQ = _createLookupTable (MASK_ATTRIBUTE_VALUE_XML10_SQ,
+                                                          MASK_ATTRIBUTE_VALUE_XML10_SQ_REPLACE);
+    LOOKUP_TEXT_XML10 = _createLookupTable (MASK_TEXT_XML10, MASK_TEXT_XML10_REPLACE);
+    LOOKUP_ATTRIBUTE_VALUE_XML11_DQ = _createLookupTable (MASK_ATTRIBUTE_VALUE_XML11_DQ,
+                                                          MASK_ATTRIBUTE_VALUE_XML11_DQ_REPLACE);
+    LOOKUP_ATTRIBUTE_VALUE_XML11_SQ = _createLookupTable (MASK_ATTRIBUTE_VALUE_XML11_SQ,
+                                                          MASK_ATTRIBUTE_VALUE_XML11_SQ_REPLACE);
+    LOOKUP_TEXT_XML11 = _createLookupTable (MASK_TEXT_XML11, MASK_TEXT_XML11_REPLACE);
+    LOOKUP_TEXT_HTML_DQ = _createLookupTable (MASK_TEXT_HTML_DQ, MASK_TEXT_HTML_DQ_REPLACE);
+    LOOKUP_TEXT_HTML_SQ = _createLookupTable (MASK_TEXT_HTML_SQ, MASK_TEXT_HTML_SQ_REPLACE);
   }
 
   @SuppressWarnings ("unused")
@@ -435,9 +459,22 @@ public final class XMLMaskHelper
   private XMLMaskHelper ()
   {}
 
+  @Nonnull
+  private static char [] [] _createLookupTable (@Nonnull final char [] aSrcMap, @Nonnull final char [] [] aDstMap)
+  {
+    char cMax = 0;
+    for (final char c : aSrcMap)
+      if (c > cMax)
+        cMax = c;
+    final char [] [] ret = new char [cMax + 1] [];
+    for (int i = 0; i < aSrcMap.length; ++i)
+      ret[aSrcMap[i]] = aDstMap[i];
+    return ret;
+  }
+
   @Nullable
-  private static char [] _findSourceMap (@Nonnull final EXMLSerializeVersion eXMLVersion,
-                                         @Nonnull final EXMLCharMode eXMLCharMode)
+  private static char [] [] _findLookupTable (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                              @Nonnull final EXMLCharMode eXMLCharMode)
   {
     switch (eXMLVersion)
     {
@@ -445,11 +482,11 @@ public final class XMLMaskHelper
         switch (eXMLCharMode)
         {
           case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML10_DQ;
+            return LOOKUP_ATTRIBUTE_VALUE_XML10_DQ;
           case ATTRIBUTE_VALUE_SINGLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML10_SQ;
+            return LOOKUP_ATTRIBUTE_VALUE_XML10_SQ;
           case TEXT:
-            return MASK_TEXT_XML10;
+            return LOOKUP_TEXT_XML10;
           default:
             break;
         }
@@ -458,11 +495,11 @@ public final class XMLMaskHelper
         switch (eXMLCharMode)
         {
           case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML11_DQ;
+            return LOOKUP_ATTRIBUTE_VALUE_XML11_DQ;
           case ATTRIBUTE_VALUE_SINGLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML11_SQ;
+            return LOOKUP_ATTRIBUTE_VALUE_XML11_SQ;
           case TEXT:
-            return MASK_TEXT_XML11;
+            return LOOKUP_TEXT_XML11;
           default:
             break;
         }
@@ -472,10 +509,10 @@ public final class XMLMaskHelper
         switch (eXMLCharMode)
         {
           case ATTRIBUTE_VALUE_SINGLE_QUOTES:
-            return MASK_TEXT_HTML_SQ;
+            return LOOKUP_TEXT_HTML_SQ;
           case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
           case TEXT:
-            return MASK_TEXT_HTML_DQ;
+            return LOOKUP_TEXT_HTML_DQ;
           default:
             break;
         }
@@ -486,55 +523,129 @@ public final class XMLMaskHelper
     return null;
   }
 
-  @Nullable
-  private static char [] [] _findReplaceMap (@Nonnull final EXMLSerializeVersion eXMLVersion,
-                                             @Nonnull final EXMLCharMode eXMLCharMode)
+  private static int _getFirstIndexToMask (@Nonnull final char [] [] aLookup,
+                                           @Nonnull final char [] aChars,
+                                           final int nOfs,
+                                           final int nLen)
   {
-    switch (eXMLVersion)
+    final int nLookupLen = aLookup.length;
+    final int nEnd = nOfs + nLen;
+    for (int i = nOfs; i < nEnd; ++i)
     {
-      case XML_10:
-        switch (eXMLCharMode)
-        {
-          case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML10_DQ_REPLACE;
-          case ATTRIBUTE_VALUE_SINGLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML10_SQ_REPLACE;
-          case TEXT:
-            return MASK_TEXT_XML10_REPLACE;
-          default:
-            break;
-        }
-        break;
-      case XML_11:
-        switch (eXMLCharMode)
-        {
-          case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML11_DQ_REPLACE;
-          case ATTRIBUTE_VALUE_SINGLE_QUOTES:
-            return MASK_ATTRIBUTE_VALUE_XML11_SQ_REPLACE;
-          case TEXT:
-            return MASK_TEXT_XML11_REPLACE;
-          default:
-            break;
-        }
-        break;
-      case HTML:
-      case XHTML:
-        switch (eXMLCharMode)
-        {
-          case ATTRIBUTE_VALUE_SINGLE_QUOTES:
-            return MASK_TEXT_HTML_SQ_REPLACE;
-          case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
-          case TEXT:
-            return MASK_TEXT_HTML_DQ_REPLACE;
-          default:
-            break;
-        }
-        break;
-      default:
-        throw new IllegalArgumentException ("Unsupported XML version " + eXMLVersion + "!");
+      final char c = aChars[i];
+      if (c < nLookupLen && aLookup[c] != null)
+        return i;
     }
-    return null;
+    return -1;
+  }
+
+  private static int _getFirstIndexToMask (@Nonnull final char [] [] aLookup,
+                                           @Nonnull final CharSequence aText,
+                                           final int nOfs)
+  {
+    final int nLookupLen = aLookup.length;
+    final int nEnd = aText.length ();
+    for (int i = nOfs; i < nEnd; ++i)
+    {
+      final char c = aText.charAt (i);
+      if (c < nLookupLen && aLookup[c] != null)
+        return i;
+    }
+    return -1;
+  }
+
+  /**
+   * Get the index of the first character in the passed array range that needs
+   * to be masked. All characters before this index can be emitted as they are.
+   * 
+   * @param eXMLVersion
+   *        XML version to use. May not be <code>null</code>.
+   * @param eXMLCharMode
+   *        The character mode to use. May not be <code>null</code>.
+   * @param aChars
+   *        The characters to scan. May not be <code>null</code>.
+   * @param nOfs
+   *        Offset into the array. Must be &ge; 0.
+   * @param nLen
+   *        Number of characters to scan. Must be &ge; 0.
+   * @return -1 if no character in the passed range needs masking
+   */
+  public static int getFirstIndexToMask (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                         @Nonnull final EXMLCharMode eXMLCharMode,
+                                         @Nonnull final char [] aChars,
+                                         @Nonnegative final int nOfs,
+                                         @Nonnegative final int nLen)
+  {
+    ValueEnforcer.isArrayOfsLen (aChars, nOfs, nLen);
+
+    final char [] [] aLookup = _findLookupTable (eXMLVersion, eXMLCharMode);
+    return aLookup == null ? -1 : _getFirstIndexToMask (aLookup, aChars, nOfs, nLen);
+  }
+
+  /**
+   * Get the index of the first character in the passed text that needs to be
+   * masked. All characters before this index can be emitted as they are.
+   * 
+   * @param eXMLVersion
+   *        XML version to use. May not be <code>null</code>.
+   * @param eXMLCharMode
+   *        The character mode to use. May not be <code>null</code>.
+   * @param aText
+   *        The text to scan. May be <code>null</code>.
+   * @return -1 if no character needs masking
+   */
+  public static int getFirstIndexToMask (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                         @Nonnull final EXMLCharMode eXMLCharMode,
+                                         @Nullable final CharSequence aText)
+  {
+    if (aText == null)
+      return -1;
+
+    final char [] [] aLookup = _findLookupTable (eXMLVersion, eXMLCharMode);
+    return aLookup == null ? -1 : _getFirstIndexToMask (aLookup, aText, 0);
+  }
+
+  @Nonnull
+  private static char [] _mask (@Nonnull final char [] [] aLookup, @Nonnull final char [] aChars)
+  {
+    final int nFirst = _getFirstIndexToMask (aLookup, aChars, 0, aChars.length);
+    if (nFirst < 0)
+      return aChars;
+
+    final int nLookupLen = aLookup.length;
+    final int nResLen = _getMaskedLength (aLookup, aChars, nFirst);
+    final char [] ret = new char [nResLen];
+    System.arraycopy (aChars, 0, ret, 0, nFirst);
+    int nDstIndex = nFirst;
+    for (int i = nFirst; i < aChars.length; ++i)
+    {
+      final char c = aChars[i];
+      final char [] aReplacement = c < nLookupLen ? aLookup[c] : null;
+      if (aReplacement == null)
+        ret[nDstIndex++] = c;
+      else
+      {
+        System.arraycopy (aReplacement, 0, ret, nDstIndex, aReplacement.length);
+        nDstIndex += aReplacement.length;
+      }
+    }
+    return ret;
+  }
+
+  @Nonnegative
+  private static int _getMaskedLength (@Nonnull final char [] [] aLookup,
+                                       @Nonnull final char [] aChars,
+                                       @Nonnegative final int nFirst)
+  {
+    final int nLookupLen = aLookup.length;
+    int ret = aChars.length;
+    for (int i = nFirst; i < aChars.length; ++i)
+    {
+      final char c = aChars[i];
+      if (c < nLookupLen && aLookup[c] != null)
+        ret += aLookup[c].length - 1;
+    }
+    return ret;
   }
 
   /**
@@ -597,14 +708,13 @@ public final class XMLMaskHelper
     }
 
     // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
+    final char [] [] aLookup = _findLookupTable (eXMLVersion, eXMLCharMode);
+    if (aLookup == null)
     {
       // Nothing to replace
       return aChars;
     }
-    final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-    return StringHelper.replaceMultiple (aChars, aSrcMap, aDstMap);
+    return _mask (aLookup, aChars);
   }
 
   @Nonnegative
@@ -645,15 +755,13 @@ public final class XMLMaskHelper
     }
 
     // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
+    final char [] [] aLookup = _findLookupTable (eXMLVersion, eXMLCharMode);
+    if (aLookup == null)
     {
       // Nothing to replace
       return aChars.length;
     }
-    final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-    final int nResLen = StringHelper.getReplaceMultipleResultLength (aChars, aSrcMap, aDstMap);
-    return nResLen == CGlobal.ILLEGAL_UINT ? aChars.length : nResLen;
+    return _getMaskedLength (aLookup, aChars, 0);
   }
 
   public static void maskXMLTextTo (@Nonnull final EXMLSerializeVersion eXMLVersion,
@@ -665,37 +773,46 @@ public final class XMLMaskHelper
     if (StringHelper.hasNoText (s))
       return;
 
-    char [] aChars = s.toCharArray ();
+    String sText = s;
 
     // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired ())
+    if (eIncorrectCharHandling.isTestRequired () &&
+        XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, sText))
     {
-      if (XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars))
+      // Rare case - copying is okay here
+      final Set <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion, eXMLCharMode, sText);
+      eIncorrectCharHandling.notifyOnInvalidXMLCharacter (sText, aAllInvalidChars);
+      if (eIncorrectCharHandling.isReplaceWithNothing ())
       {
-        final Set <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                      eXMLCharMode,
-                                                                                      aChars);
-        eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-        if (eIncorrectCharHandling.isReplaceWithNothing ())
-        {
-          final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
-          final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-          aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-        }
+        final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
+        final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
+        sText = new String (StringHelper.replaceMultiple (sText, aSrcMap, aDstMap));
       }
     }
 
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
+    // 2. perform entity replacements if necessary. The unmodified runs are
+    // written directly from the source string without intermediate copies.
+    final int nLen = sText.length ();
+    final char [] [] aLookup = _findLookupTable (eXMLVersion, eXMLCharMode);
+    int nIndex = aLookup == null ? -1 : _getFirstIndexToMask (aLookup, sText, 0);
+    if (nIndex < 0)
     {
       // Nothing to replace
-      aWriter.write (aChars);
+      aWriter.write (sText, 0, nLen);
     }
     else
     {
-      final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-      StringHelper.replaceMultipleTo (aChars, aSrcMap, aDstMap, aWriter);
+      int nRunStart = 0;
+      while (nIndex >= 0)
+      {
+        if (nIndex > nRunStart)
+          aWriter.write (sText, nRunStart, nIndex - nRunStart);
+        aWriter.write (aLookup[sText.charAt (nIndex)]);
+        nRunStart = nIndex + 1;
+        nIndex = _getFirstIndexToMask (aLookup, sText, nRunStart);
+      }
+      if (nRunStart < nLen)
+        aWriter.write (sText, nRunStart, nLen - nRunStart);
     }
   }
 }
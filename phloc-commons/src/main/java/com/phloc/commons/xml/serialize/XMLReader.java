@@ -39,11 +39,10 @@ import org.xml.sax.SAXException;
 
 import com.phloc.commons.ValueEnforcer;
 import com.phloc.commons.annotations.PresentForCodeCoverage;
-import com.phloc.commons.factory.IFactory;
+import com.phloc.commons.factory.IFactoryWithParameter;
 import com.phloc.commons.io.IReadableResource;
 import com.phloc.commons.io.streams.StreamUtils;
-import com.phloc.commons.pool.IObjectPool;
-import com.phloc.commons.pool.ObjectPool;
+import com.phloc.commons.pool.KeyedObjectPool;
 import com.phloc.commons.stats.IStatisticsHandlerCounter;
 import com.phloc.commons.stats.IStatisticsHandlerTimer;
 import com.phloc.commons.stats.StatisticsManager;
@@ -60,12 +59,15 @@ import com.phloc.commons.xml.sax.InputSourceFactory;
 @ThreadSafe
 public final class XMLReader
 {
-  static final class DOMReaderFactory implements IFactory <DocumentBuilder>
+  static final class DOMReaderFactory implements IFactoryWithParameter <DocumentBuilder, XMLReaderSettingsKey>
   {
     @Nonnull
-    public DocumentBuilder create ()
+    public DocumentBuilder create (@Nonnull final XMLReaderSettingsKey aKey)
     {
-      return XMLFactory.createDocumentBuilder ();
+      // Create a new DocumentBuilderFactory with the settings of the key
+      final DocumentBuilderFactory aDocumentBuilderFactory = DocumentBuilderFactory.newInstance ();
+      aKey.getDOMSettings ().applyToDocumentBuilderFactory (aDocumentBuilderFactory);
+      return XMLFactory.createDocumentBuilder (aDocumentBuilderFactory);
     }
   }
 
@@ -76,9 +78,9 @@ public final class XMLReader
   private static final IStatisticsHandlerCounter s_aDomErrorCounterHdl = StatisticsManager.getCounterHandler (XMLReader.class.getName () +
                                                                                                               "$DOMERRORS");
 
-  // In practice no more than 5 readers are required (even 3 would be enough)
-  private static final IObjectPool <DocumentBuilder> s_aDOMPool = new ObjectPool <DocumentBuilder> (5,
-                                                                                                    new DOMReaderFactory ());
+  // One pool per distinct parser configuration - parsers are created on demand
+  private static final KeyedObjectPool <XMLReaderSettingsKey, DocumentBuilder> s_aDOMPool = new KeyedObjectPool <XMLReaderSettingsKey, DocumentBuilder> (XMLReader.class.getName (),
+                                                                                                                                                        new DOMReaderFactory ());
 
   @PresentForCodeCoverage
   @SuppressWarnings ("unused")
@@ -87,6 +89,40 @@ public final class XMLReader
   private XMLReader ()
   {}
 
+  /**
+   * @return The pool that contains the document builders for the different
+   *         parser configurations. Mainly for statistical purposes. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public static KeyedObjectPool <?, DocumentBuilder> getParserPool ()
+  {
+    return s_aDOMPool;
+  }
+
+  /**
+   * Reset the passed document builder to the state after creation, so that a
+   * pooled document builder does not keep the handlers of the last parsing
+   * alive.
+   * 
+   * @param aDocumentBuilder
+   *        The document builder to reset. May not be <code>null</code>.
+   * @return <code>true</code> if the document builder was reset successfully
+   *         and can be reused.
+   */
+  private static boolean _resetDocumentBuilder (@Nonnull final DocumentBuilder aDocumentBuilder)
+  {
+    try
+    {
+      aDocumentBuilder.reset ();
+      return true;
+    }
+    catch (final UnsupportedOperationException ex)
+    {
+      return false;
+    }
+  }
+
   @Nullable
   public static Document readXMLDOM (@WillClose @Nonnull final InputSource aIS) throws SAXException
   {
@@ -290,9 +326,15 @@ public final class XMLReader
     try
     {
       final StopWatch aSW = new StopWatch (true);
-      DocumentBuilder aDocumentBuilder;
-      boolean bFromPool = false;
-      if (aSettings.requiresNewXMLParser ())
+      XMLReaderSettingsKey aPoolKey = null;
+      DocumentBuilder aDocumentBuilder = null;
+      if (!aSettings.isRequiresNewXMLParserExplicitly ())
+      {
+        // Use one from the pool, with the same configuration
+        aPoolKey = XMLReaderSettingsKey.createForDOM (aSettings);
+        aDocumentBuilder = s_aDOMPool.borrowObject (aPoolKey);
+      }
+      if (aDocumentBuilder == null)
       {
         // We need to create a new DocumentBuilderFactory
         final DocumentBuilderFactory aDocumentBuilderFactory = DocumentBuilderFactory.newInstance ();
@@ -302,14 +344,11 @@ public final class XMLReader
 
         // Ready to create document builder
         aDocumentBuilder = aDocumentBuilderFactory.newDocumentBuilder ();
-      }
-      else
-      {
-        // Use one from the pool
-        aDocumentBuilder = s_aDOMPool.borrowObject ();
-        bFromPool = true;
+        aPoolKey = null;
       }
 
+      // Only document builders that are in a defined state may be reused
+      boolean bReusable = false;
       try
       {
         // Apply settings on DocumentBuilder
@@ -327,7 +366,17 @@ public final class XMLReader
         }
 
         // Main parsing
-        aDoc = aDocumentBuilder.parse (aInputSource);
+        try
+        {
+          aDoc = aDocumentBuilder.parse (aInputSource);
+        }
+        catch (final SAXException ex)
+        {
+          // Regular parsing error
+          bReusable = true;
+          throw ex;
+        }
+        bReusable = true;
 
         // Statistics update
         if (aSettings.getSchema () == null)
@@ -343,10 +392,15 @@ public final class XMLReader
       }
       finally
       {
-        if (bFromPool)
+        if (aPoolKey != null)
         {
-          // Return to the pool
-          s_aDOMPool.returnObject (aDocumentBuilder);
+          if (bReusable && _resetDocumentBuilder (aDocumentBuilder))
+          {
+            // Return to the pool
+            s_aDOMPool.returnObject (aPoolKey, aDocumentBuilder);
+          }
+          else
+            s_aDOMPool.discardObject (aPoolKey, aDocumentBuilder);
         }
       }
     }
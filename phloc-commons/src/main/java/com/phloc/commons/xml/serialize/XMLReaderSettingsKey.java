@@ -0,0 +1,172 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.xml.serialize;
+
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.equals.EqualsUtils;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.commons.xml.EXMLParserFeature;
+import com.phloc.commons.xml.EXMLParserProperty;
+
+/**
+ * A canonical fingerprint of the reader settings that determine the
+ * configuration of a pooled XML parser. Only parsers with equal keys may be
+ * shared. The handlers are not part of the key, as they are set anew for every
+ * parsing. Of the entity resolver only the class is considered.
+ * 
+ * @author Philip Helger
+ */
+@Immutable
+final class XMLReaderSettingsKey
+{
+  /**
+   * Properties that contain handler objects, that are applied anew for every
+   * parsing. Only their presence is part of the key.
+   */
+  static final Set <EXMLParserProperty> PER_PARSE_PROPERTIES = EnumSet.of (EXMLParserProperty.SAX_DECLARATION_HANDLER,
+                                                                           EXMLParserProperty.SAX_LEXICAL_HANDLER,
+                                                                           EXMLParserProperty.SAX_DOM_NODE,
+                                                                           EXMLParserProperty.DOM_CURRENT_ELEMENT_NODE);
+
+  private final Map <EXMLParserFeature, Boolean> m_aFeatures;
+  private final Map <EXMLParserProperty, Object> m_aProperties;
+  private final String m_sEntityResolverClassName;
+  // Only present for DOM readers
+  private final DOMReaderSettings m_aDOMSettings;
+  private final int m_nHashCode;
+
+  private XMLReaderSettingsKey (@Nonnull final IBaseXMLReaderSettings aSettings,
+                                @Nullable final DOMReaderSettings aDOMSettings)
+  {
+    m_aFeatures = aSettings.getAllFeatureValues ();
+    m_aProperties = aSettings.getAllPropertyValues ();
+    for (final EXMLParserProperty eProperty : PER_PARSE_PROPERTIES)
+      if (m_aProperties.containsKey (eProperty))
+        m_aProperties.put (eProperty, Boolean.TRUE);
+    m_sEntityResolverClassName = aSettings.getEntityResolver () == null ? null
+                                                                        : aSettings.getEntityResolver ()
+                                                                                   .getClass ()
+                                                                                   .getName ();
+    m_aDOMSettings = aDOMSettings;
+
+    final HashCodeGenerator aHCG = new HashCodeGenerator (this).append (m_aFeatures)
+                                                               .append (m_aProperties)
+                                                               .append (m_sEntityResolverClassName);
+    if (aDOMSettings != null)
+      aHCG.append (aDOMSettings.isNamespaceAware ())
+          .append (aDOMSettings.isValidating ())
+          .append (aDOMSettings.isIgnoringElementContentWhitespace ())
+          .append (aDOMSettings.isExpandEntityReferences ())
+          .append (aDOMSettings.isIgnoringComments ())
+          .append (aDOMSettings.isCoalescing ())
+          .append (aDOMSettings.getSchema ())
+          .append (aDOMSettings.isXIncludeAware ());
+    m_nHashCode = aHCG.getHashCode ();
+  }
+
+  /**
+   * @return The settings snapshot to create a new DocumentBuilderFactory from.
+   *         Only present for DOM readers. The snapshot contains no handlers.
+   */
+  @Nullable
+  DOMReaderSettings getDOMSettings ()
+  {
+    return m_aDOMSettings;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!(o instanceof XMLReaderSettingsKey))
+      return false;
+    final XMLReaderSettingsKey rhs = (XMLReaderSettingsKey) o;
+    if (m_nHashCode != rhs.m_nHashCode ||
+        !m_aFeatures.equals (rhs.m_aFeatures) ||
+        !EqualsUtils.equals (m_aProperties, rhs.m_aProperties) ||
+        !EqualsUtils.equals (m_sEntityResolverClassName, rhs.m_sEntityResolverClassName))
+      return false;
+    if (m_aDOMSettings == null || rhs.m_aDOMSettings == null)
+      return m_aDOMSettings == rhs.m_aDOMSettings;
+    return m_aDOMSettings.isNamespaceAware () == rhs.m_aDOMSettings.isNamespaceAware () &&
+           m_aDOMSettings.isValidating () == rhs.m_aDOMSettings.isValidating () &&
+           m_aDOMSettings.isIgnoringElementContentWhitespace () == rhs.m_aDOMSettings.isIgnoringElementContentWhitespace () &&
+           m_aDOMSettings.isExpandEntityReferences () == rhs.m_aDOMSettings.isExpandEntityReferences () &&
+           m_aDOMSettings.isIgnoringComments () == rhs.m_aDOMSettings.isIgnoringComments () &&
+           m_aDOMSettings.isCoalescing () == rhs.m_aDOMSettings.isCoalescing () &&
+           EqualsUtils.equals (m_aDOMSettings.getSchema (), rhs.m_aDOMSettings.getSchema ()) &&
+           m_aDOMSettings.isXIncludeAware () == rhs.m_aDOMSettings.isXIncludeAware ();
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return m_nHashCode;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("features", m_aFeatures)
+                                       .append ("properties", m_aProperties)
+                                       .append ("entityResolverClassName", m_sEntityResolverClassName)
+                                       .appendIfNotNull ("domSettings", m_aDOMSettings)
+                                       .toString ();
+  }
+
+  /**
+   * Create the key for a SAX reader.
+   * 
+   * @param aSettings
+   *        The settings to use. May not be <code>null</code>.
+   * @return The new key. Never <code>null</code>.
+   */
+  @Nonnull
+  static XMLReaderSettingsKey createForSAX (@Nonnull final ISAXReaderSettings aSettings)
+  {
+    return new XMLReaderSettingsKey (aSettings, null);
+  }
+
+  /**
+   * Create the key for a DOM reader.
+   * 
+   * @param aSettings
+   *        The settings to use. May not be <code>null</code>.
+   * @return The new key. Never <code>null</code>.
+   */
+  @Nonnull
+  static XMLReaderSettingsKey createForDOM (@Nonnull final IDOMReaderSettings aSettings)
+  {
+    // Create a snapshot without any handlers
+    final DOMReaderSettings aSnapshot = new DOMReaderSettings (aSettings).setEntityResolver (null)
+                                                                          .setErrorHandler (null)
+                                                                          .setExceptionHandler (DOMReaderDefaultSettings.getExceptionHandler ());
+    for (final EXMLParserProperty eProperty : PER_PARSE_PROPERTIES)
+      aSnapshot.removePropertyValue (eProperty);
+    return new XMLReaderSettingsKey (aSettings, aSnapshot);
+  }
+}
@@ -0,0 +1,326 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.xml.transform;
+
+import java.io.File;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.transform.Source;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerFactory;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.cache.AbstractConcurrentNotifyingCache;
+import com.phloc.commons.cache.ECacheValueReference;
+import com.phloc.commons.io.IReadableResource;
+import com.phloc.commons.io.monitor.FileChangeEvent;
+import com.phloc.commons.io.monitor.FileMonitor;
+import com.phloc.commons.io.monitor.FileMonitorManager;
+import com.phloc.commons.io.monitor.IFileListener;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * A cache for compiled XSLT {@link Templates}. Compiling a stylesheet is much
+ * more expensive than applying it, and {@link Templates} objects are
+ * thread-safe, so each stylesheet resource is compiled only once and every
+ * caller gets a new {@link Transformer} from the cached {@link Templates}.
+ * <p>
+ * The stylesheets are read via {@link CachingTransformStreamSource}, so the
+ * input stream is completely read and closed before compilation starts. For
+ * resources that reside in the file system, the last modification time of the
+ * file at compilation time is stored. By default it is compared with the
+ * current modification time upon each access, and the stylesheet is compiled
+ * again if it differs. Alternatively the files can be monitored with a
+ * {@link FileMonitor} (see {@link #enableFileMonitoring(FileMonitorManager)})
+ * so that changed stylesheets are removed from the cache when the monitor
+ * detects a change, and no file system access is needed upon cache hits.
+ * <p>
+ * The resources are used as cache keys and must therefore implement equals and
+ * hashCode.
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+public class XMLTemplatesCache extends AbstractConcurrentNotifyingCache <IReadableResource, XMLTemplatesCache.TemplatesEntry>
+{
+  /** The default number of stylesheets to keep in the cache */
+  public static final int DEFAULT_MAX_SIZE = 100;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (XMLTemplatesCache.class);
+
+  /**
+   * A compiled stylesheet together with the last modification time of the
+   * underlying file.
+   * 
+   * @author Philip Helger
+   */
+  protected static final class TemplatesEntry
+  {
+    private final Templates m_aTemplates;
+    private final long m_nLastModified;
+
+    TemplatesEntry (@Nonnull final Templates aTemplates, final long nLastModified)
+    {
+      m_aTemplates = aTemplates;
+      m_nLastModified = nLastModified;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("templates", m_aTemplates)
+                                         .append ("lastModified", m_nLastModified)
+                                         .toString ();
+    }
+  }
+
+  private final TransformerFactory m_aFactory;
+  /** All cached file based resources by absolute path */
+  private final ConcurrentMap <String, IReadableResource> m_aFileResources = new ConcurrentHashMap <String, IReadableResource> ();
+  private volatile FileMonitor m_aFileMonitor;
+
+  /**
+   * Constructor using {@link #DEFAULT_MAX_SIZE}.
+   * 
+   * @param aFactory
+   *        The transformer factory to compile the stylesheets with. May not be
+   *        <code>null</code>. As transformer factories are not thread-safe,
+   *        this cache synchronizes on the factory during compilation.
+   */
+  public XMLTemplatesCache (@Nonnull final TransformerFactory aFactory)
+  {
+    this (aFactory, DEFAULT_MAX_SIZE);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param aFactory
+   *        The transformer factory to compile the stylesheets with. May not be
+   *        <code>null</code>. As transformer factories are not thread-safe,
+   *        this cache synchronizes on the factory during compilation.
+   * @param nMaxSize
+   *        The maximum number of stylesheets to be cached. Values &le; 0 mean
+   *        unbounded.
+   */
+  public XMLTemplatesCache (@Nonnull final TransformerFactory aFactory, final int nMaxSize)
+  {
+    super (XMLTemplatesCache.class.getName (), ECacheValueReference.STRONG, nMaxSize);
+    m_aFactory = ValueEnforcer.notNull (aFactory, "Factory");
+  }
+
+  /**
+   * @return The transformer factory used to compile the stylesheets. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public final TransformerFactory getTransformerFactory ()
+  {
+    return m_aFactory;
+  }
+
+  @Nullable
+  private static File _getFile (@Nonnull final IReadableResource aResource)
+  {
+    final File aFile = aResource.getAsFile ();
+    return aFile != null && aFile.isFile () ? aFile : null;
+  }
+
+  private static long _getLastModified (@Nullable final File aFile)
+  {
+    return aFile == null ? 0 : aFile.lastModified ();
+  }
+
+  @Override
+  @Nonnull
+  protected TemplatesEntry getValueToCache (@Nonnull final IReadableResource aResource)
+  {
+    if (!aResource.exists ())
+      throw new IllegalArgumentException ("Stylesheet " + aResource + " does not exist");
+
+    final File aFile = _getFile (aResource);
+    // Determine the time stamp before reading, so that a concurrent change is
+    // detected upon the next access
+    final long nLastModified = _getLastModified (aFile);
+    final Source aSource = new CachingTransformStreamSource (aResource);
+
+    Templates aTemplates;
+    try
+    {
+      synchronized (m_aFactory)
+      {
+        aTemplates = m_aFactory.newTemplates (aSource);
+      }
+    }
+    catch (final TransformerConfigurationException ex)
+    {
+      throw new IllegalArgumentException ("Failed to compile stylesheet " + aResource, ex);
+    }
+
+    if (aFile != null)
+    {
+      m_aFileResources.put (aFile.getAbsolutePath (), aResource);
+      final FileMonitor aFileMonitor = m_aFileMonitor;
+      if (aFileMonitor != null)
+        aFileMonitor.addMonitoredFile (aFile);
+    }
+    return new TemplatesEntry (aTemplates, nLastModified);
+  }
+
+  /**
+   * Get the compiled stylesheet for the passed resource. The stylesheet is
+   * compiled if it is not yet in the cache or if it was changed.
+   * 
+   * @param aResource
+   *        The stylesheet resource. May not be <code>null</code>.
+   * @return <code>null</code> if the stylesheet could not be compiled
+   */
+  @Nullable
+  public Templates getTemplates (@Nonnull final IReadableResource aResource)
+  {
+    ValueEnforcer.notNull (aResource, "Resource");
+
+    try
+    {
+      TemplatesEntry aEntry = getFromCache (aResource);
+      if (m_aFileMonitor == null && aEntry.m_nLastModified != _getLastModified (_getFile (aResource)))
+      {
+        // Stylesheet was changed
+        removeFromCache (aResource);
+        aEntry = getFromCache (aResource);
+      }
+      return aEntry.m_aTemplates;
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      s_aLogger.error (ex.getMessage (), ex.getCause ());
+      return null;
+    }
+  }
+
+  /**
+   * Create a new transformer for the passed stylesheet resource using the
+   * cached compiled stylesheet. The returned transformer may only be used by a
+   * single thread.
+   * 
+   * @param aResource
+   *        The stylesheet resource. May not be <code>null</code>.
+   * @return <code>null</code> if something goes wrong
+   */
+  @Nullable
+  public Transformer newTransformer (@Nonnull final IReadableResource aResource)
+  {
+    final Templates aTemplates = getTemplates (aResource);
+    if (aTemplates == null)
+      return null;
+
+    try
+    {
+      return aTemplates.newTransformer ();
+    }
+    catch (final TransformerConfigurationException ex)
+    {
+      s_aLogger.error ("Failed to create transformer for " + aResource, ex);
+      return null;
+    }
+  }
+
+  /**
+   * Remove the compiled stylesheet of the passed file from the cache.
+   * 
+   * @param aFile
+   *        The changed file. May not be <code>null</code>.
+   */
+  private void _onFileChange (@Nonnull final File aFile)
+  {
+    final IReadableResource aResource = m_aFileResources.get (aFile.getAbsolutePath ());
+    if (aResource != null && removeFromCache (aResource).isChanged ())
+      s_aLogger.info ("Removed changed stylesheet " + aResource + " from the cache");
+  }
+
+  /**
+   * Monitor all file based stylesheets with a new {@link FileMonitor} that is
+   * added to the passed manager. Changed stylesheets are removed from the
+   * cache as soon as the change is detected by the monitor, and the
+   * modification time is no longer checked upon each access. Note that the
+   * manager must be started to detect any changes.
+   * 
+   * @param aManager
+   *        The file monitor manager to use. May not be <code>null</code>.
+   * @return The created file monitor. Never <code>null</code>.
+   */
+  @Nonnull
+  public synchronized FileMonitor enableFileMonitoring (@Nonnull final FileMonitorManager aManager)
+  {
+    ValueEnforcer.notNull (aManager, "Manager");
+    if (m_aFileMonitor != null)
+      throw new IllegalStateException ("File monitoring is already enabled");
+
+    final FileMonitor aFileMonitor = aManager.createFileMonitor (new IFileListener ()
+    {
+      public void onFileCreated (@Nonnull final FileChangeEvent aEvent)
+      {
+        _onFileChange (aEvent.getFile ());
+      }
+
+      public void onFileDeleted (@Nonnull final FileChangeEvent aEvent)
+      {
+        _onFileChange (aEvent.getFile ());
+      }
+
+      public void onFileChanged (@Nonnull final FileChangeEvent aEvent)
+      {
+        _onFileChange (aEvent.getFile ());
+      }
+    });
+    // Set the monitor first, so that concurrently compiled stylesheets are
+    // not missed
+    m_aFileMonitor = aFileMonitor;
+    for (final String sPath : m_aFileResources.keySet ())
+      aFileMonitor.addMonitoredFile (new File (sPath));
+    return aFileMonitor;
+  }
+
+  /**
+   * @return <code>true</code> if changes are detected by a {@link FileMonitor}
+   *         , <code>false</code> if the modification time is checked upon each
+   *         access.
+   */
+  public boolean isFileMonitoringEnabled ()
+  {
+    return m_aFileMonitor != null;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("factory", m_aFactory)
+                            .append ("fileMonitoring", isFileMonitoringEnabled ())
+                            .toString ();
+  }
+}
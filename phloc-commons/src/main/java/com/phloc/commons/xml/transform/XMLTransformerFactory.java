@@ -48,11 +48,13 @@ public final class XMLTransformerFactory
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (XMLTransformerFactory.class);
   private static final TransformerFactory s_aDefaultFactory;
+  private static final XMLTemplatesCache s_aDefaultTemplatesCache;
 
   static
   {
     s_aDefaultFactory = createTransformerFactory (new LoggingTransformErrorListener (CGlobal.DEFAULT_LOCALE),
                                                   new DefaultTransformURIResolver ());
+    s_aDefaultTemplatesCache = new XMLTemplatesCache (s_aDefaultFactory);
   }
 
   @PresentForCodeCoverage
@@ -90,6 +92,16 @@ public final class XMLTransformerFactory
     return s_aDefaultFactory;
   }
 
+  /**
+   * @return The cache for the compiled stylesheets of the default transformer
+   *         factory. Never <code>null</code>.
+   */
+  @Nonnull
+  public static XMLTemplatesCache getDefaultTemplatesCache ()
+  {
+    return s_aDefaultTemplatesCache;
+  }
+
   /**
    * Create a new XSLT transformer for no specific resource. This uses the
    * central <b>not thread safe</b> transformer factory.
@@ -126,17 +138,19 @@ public final class XMLTransformerFactory
   }
 
   /**
-   * Create a new XSLT transformer for the passed resource. This uses the
-   * central <b>not thread safe</b> transformer factory.
+   * Create a new XSLT transformer for the passed resource. The compiled
+   * stylesheet is taken from the default templates cache, that uses the
+   * central transformer factory.
    * 
    * @param aResource
    *        The resource to be transformed. May not be <code>null</code>.
    * @return <code>null</code> if something goes wrong
+   * @see #getDefaultTemplatesCache()
    */
   @Nullable
   public static Transformer newTransformer (@Nonnull final IReadableResource aResource)
   {
-    return newTransformer (s_aDefaultFactory, aResource);
+    return s_aDefaultTemplatesCache.newTransformer (aResource);
   }
 
   /**
@@ -199,17 +213,19 @@ public final class XMLTransformerFactory
   }
 
   /**
-   * Create a new XSLT Template for the passed resource. This uses the central
-   * <b>not thread safe</b> transformer factory.
+   * Get the XSLT Template for the passed resource. The compiled stylesheet is
+   * taken from the default templates cache, that uses the central transformer
+   * factory.
    * 
    * @param aResource
    *        The resource to be templated. May not be <code>null</code>.
    * @return <code>null</code> if something goes wrong
+   * @see #getDefaultTemplatesCache()
    */
   @Nullable
   public static Templates newTemplates (@Nonnull final IReadableResource aResource)
   {
-    return newTemplates (s_aDefaultFactory, aResource);
+    return s_aDefaultTemplatesCache.getTemplates (aResource);
   }
 
   /**
@@ -0,0 +1,331 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.xml.xpath;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.namespace.QName;
+import javax.xml.xpath.XPathExpression;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFunctionResolver;
+import javax.xml.xpath.XPathVariableResolver;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.ValueEnforcer;
+import com.phloc.commons.annotations.Nonempty;
+import com.phloc.commons.cache.AbstractCache;
+import com.phloc.commons.cache.AbstractConcurrentNotifyingCache;
+import com.phloc.commons.cache.ECacheValueReference;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.state.EChange;
+import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerTimer;
+import com.phloc.commons.stats.StatisticsManager;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.commons.system.SystemHelper;
+import com.phloc.commons.timing.StopWatch;
+
+/**
+ * This class provides a cache for compiled {@link XPathExpression} objects. It
+ * caches up to a limited number of different expressions, each identified by
+ * the expression string and the namespace context.
+ * <p>
+ * <b>Important:</b> a compiled expression keeps a reference to the namespace
+ * context it was compiled with, so the namespace context is compared by
+ * identity. To benefit from the cache, the same namespace context object must
+ * be reused for all evaluations - a namespace context that is created per
+ * evaluation creates a new cache entry each time and displaces other entries.
+ * Expressions with a function resolver or a variable resolver are never
+ * cached, because these resolvers are commonly created per evaluation. They
+ * are compiled upon each evaluation, just like without this cache.
+ * <p>
+ * As {@link XPathExpression} objects are not thread-safe, every cache entry
+ * holds a small lock free pool of compiled instances. An instance is
+ * exclusively used by one thread for the duration of an evaluation and
+ * concurrent evaluations of the same expression compile additional instances
+ * on demand.
+ * <p>
+ * The following statistics are maintained with the prefix
+ * {@link AbstractCache#STATISTICS_PREFIX} and the class name:
+ * <code>$access</code> (cache hits and misses per expression),
+ * <code>$uncached</code> (evaluations with a resolver that bypass the cache)
+ * and <code>$compile</code> (timer for all compilations in microseconds).
+ * 
+ * @author Philip Helger
+ */
+@ThreadSafe
+public final class XPathExpressionCache
+{
+  /** The default number of expressions to keep in the cache */
+  public static final int MAX_CACHE_SIZE = 1000;
+
+  /**
+   * The cache key consisting of the expression and the namespace context it was
+   * compiled with.
+   * 
+   * @author Philip Helger
+   */
+  @Immutable
+  private static final class Key
+  {
+    private final String m_sXPath;
+    private final NamespaceContext m_aNamespaceContext;
+    private final int m_nHashCode;
+
+    Key (@Nonnull @Nonempty final String sXPath, @Nullable final NamespaceContext aNamespaceContext)
+    {
+      m_sXPath = sXPath;
+      m_aNamespaceContext = aNamespaceContext;
+      m_nHashCode = new HashCodeGenerator (this).append (sXPath)
+                                                .append (System.identityHashCode (aNamespaceContext))
+                                                .getHashCode ();
+    }
+
+    @Nonnull
+    XPathExpression compile ()
+    {
+      return _compile (null, null, m_aNamespaceContext, m_sXPath);
+    }
+
+    @Override
+    public boolean equals (final Object o)
+    {
+      if (o == this)
+        return true;
+      if (!(o instanceof Key))
+        return false;
+      final Key rhs = (Key) o;
+      return m_nHashCode == rhs.m_nHashCode &&
+             m_sXPath.equals (rhs.m_sXPath) &&
+             m_aNamespaceContext == rhs.m_aNamespaceContext;
+    }
+
+    @Override
+    public int hashCode ()
+    {
+      return m_nHashCode;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("XPath", m_sXPath)
+                                         .appendIfNotNull ("namespaceContext", m_aNamespaceContext)
+                                         .toString ();
+    }
+  }
+
+  /**
+   * A lock free pool of compiled expressions for a single key. Unused
+   * expressions reside in the slots, borrowed expressions are not referenced.
+   * 
+   * @author Philip Helger
+   */
+  @ThreadSafe
+  private static final class ExpressionPool
+  {
+    private final Key m_aKey;
+    private final AtomicReferenceArray <XPathExpression> m_aSlots;
+
+    ExpressionPool (@Nonnull final Key aKey, @Nonnegative final int nSlots)
+    {
+      m_aKey = aKey;
+      m_aSlots = new AtomicReferenceArray <XPathExpression> (nSlots);
+    }
+
+    /**
+     * @return A compiled expression that is exclusively owned by the caller
+     *         until it is released. Never <code>null</code>.
+     */
+    @Nonnull
+    XPathExpression borrow ()
+    {
+      final int nSlots = m_aSlots.length ();
+      final int nStart = (int) (Thread.currentThread ().getId () % nSlots);
+      for (int i = 0; i < nSlots; ++i)
+      {
+        final int nIndex = (nStart + i) % nSlots;
+        if (m_aSlots.get (nIndex) != null)
+        {
+          final XPathExpression aExpr = m_aSlots.getAndSet (nIndex, null);
+          if (aExpr != null)
+            return aExpr;
+        }
+      }
+      // All instances are in use
+      return m_aKey.compile ();
+    }
+
+    /**
+     * Put a previously borrowed expression back into the pool. If the pool is
+     * full, the expression is dropped.
+     * 
+     * @param aExpr
+     *        The expression to release. May not be <code>null</code>.
+     */
+    void release (@Nonnull final XPathExpression aExpr)
+    {
+      final int nSlots = m_aSlots.length ();
+      final int nStart = (int) (Thread.currentThread ().getId () % nSlots);
+      for (int i = 0; i < nSlots; ++i)
+        if (m_aSlots.compareAndSet ((nStart + i) % nSlots, null, aExpr))
+          return;
+    }
+  }
+
+  private static final class Cache extends AbstractConcurrentNotifyingCache <Key, ExpressionPool>
+  {
+    private final int m_nSlotsPerExpression;
+
+    Cache ()
+    {
+      super (XPathExpressionCache.class.getName (), ECacheValueReference.STRONG, MAX_CACHE_SIZE);
+      m_nSlotsPerExpression = Math.max (4, SystemHelper.getNumberOfProcessors () * 2);
+    }
+
+    @Override
+    @Nonnull
+    protected ExpressionPool getValueToCache (@Nonnull final Key aKey)
+    {
+      // Compile directly, so that invalid expressions are not cached
+      final ExpressionPool aPool = new ExpressionPool (aKey, m_nSlotsPerExpression);
+      aPool.release (aKey.compile ());
+      return aPool;
+    }
+  }
+
+  private static final IStatisticsHandlerTimer s_aCompileTimerHdl = StatisticsManager.getTimerHandler (AbstractCache.STATISTICS_PREFIX +
+                                                                                                      XPathExpressionCache.class.getName () +
+                                                                                                      "$compile");
+  private static final IStatisticsHandlerCounter s_aUncachedHdl = StatisticsManager.getCounterHandler (AbstractCache.STATISTICS_PREFIX +
+                                                                                                     XPathExpressionCache.class.getName () +
+                                                                                                     "$uncached");
+  private static final Cache s_aInstance = new Cache ();
+
+  private XPathExpressionCache ()
+  {}
+
+  @Nonnull
+  private static XPathExpression _compile (@Nullable final XPathVariableResolver aVariableResolver,
+                                           @Nullable final XPathFunctionResolver aFunctionResolver,
+                                           @Nullable final NamespaceContext aNamespaceContext,
+                                           @Nonnull @Nonempty final String sXPath)
+  {
+    final StopWatch aSW = new StopWatch (true);
+    final XPathExpression ret = XPathHelper.createNewXPathExpresion (aVariableResolver,
+                                                                     aFunctionResolver,
+                                                                     aNamespaceContext,
+                                                                     sXPath);
+    s_aCompileTimerHdl.addTime (aSW.stopAndGetNanos () / CGlobal.NANOSECONDS_PER_MICROSECOND);
+    return ret;
+  }
+
+  /**
+   * Evaluate an XPath expression using a cached compiled expression. If a
+   * variable resolver or a function resolver is passed, the expression is
+   * compiled for this evaluation only and is not cached.
+   * 
+   * @param aVariableResolver
+   *        Variable resolver to be used. May be <code>null</code>.
+   * @param aFunctionResolver
+   *        Function resolver to be used. May be <code>null</code>.
+   * @param aNamespaceContext
+   *        Namespace context to be used. May be <code>null</code>. It is part
+   *        of the cache key by identity, so the same object should be reused
+   *        for all evaluations.
+   * @param sXPath
+   *        The XPath expression to be evaluated. May neither be
+   *        <code>null</code> nor empty.
+   * @param aItem
+   *        The context item to evaluate the expression on (e.g. a DOM node).
+   *        May be <code>null</code>.
+   * @param aReturnType
+   *        The expected return type as defined in
+   *        {@link javax.xml.xpath.XPathConstants}. May not be <code>null</code>.
+   * @return The result of the evaluation.
+   * @throws IllegalArgumentException
+   *         if the XPath cannot be compiled
+   * @throws XPathExpressionException
+   *         if the XPath cannot be evaluated
+   */
+  @Nullable
+  public static Object evaluate (@Nullable final XPathVariableResolver aVariableResolver,
+                                 @Nullable final XPathFunctionResolver aFunctionResolver,
+                                 @Nullable final NamespaceContext aNamespaceContext,
+                                 @Nonnull @Nonempty final String sXPath,
+                                 @Nullable final Object aItem,
+                                 @Nonnull final QName aReturnType) throws XPathExpressionException
+  {
+    ValueEnforcer.notEmpty (sXPath, "XPathExpression");
+    ValueEnforcer.notNull (aReturnType, "ReturnType");
+
+    if (aVariableResolver != null || aFunctionResolver != null)
+    {
+      // Resolvers are usually created per evaluation - caching them would only
+      // displace other entries
+      s_aUncachedHdl.increment ();
+      return _compile (aVariableResolver, aFunctionResolver, aNamespaceContext, sXPath).evaluate (aItem, aReturnType);
+    }
+
+    final ExpressionPool aPool = s_aInstance.getFromCache (new Key (sXPath, aNamespaceContext));
+    final XPathExpression aExpr = aPool.borrow ();
+    try
+    {
+      return aExpr.evaluate (aItem, aReturnType);
+    }
+    finally
+    {
+      aPool.release (aExpr);
+    }
+  }
+
+  /**
+   * @return The number of different expressions currently in the cache.
+   */
+  @Nonnegative
+  public static int getCachedExpressionCount ()
+  {
+    return s_aInstance.size ();
+  }
+
+  /**
+   * @return The number of compilations performed so far.
+   */
+  @Nonnegative
+  public static int getCompileCount ()
+  {
+    return s_aCompileTimerHdl.getInvocationCount ();
+  }
+
+  /**
+   * Clear all cached expressions.
+   * 
+   * @return {@link EChange}
+   */
+  @Nonnull
+  public static EChange clearExpressionCache ()
+  {
+    return s_aInstance.clearCache ();
+  }
+}
@@ -38,7 +38,10 @@ import com.phloc.commons.annotations.Nonempty;
 import com.phloc.commons.annotations.PresentForCodeCoverage;
 
 /**
- * Utility class to evaluate XPath expressions more easily
+ * Utility class to evaluate XPath expressions more easily. All methods that do
+ * not take an {@link XPath} object use the {@link XPathExpressionCache}, so
+ * that each expression is compiled only once. Expressions evaluated with a
+ * variable resolver or a function resolver are compiled upon each call.
  * 
  * @author Philip Helger
  */
@@ -60,10 +63,26 @@ public final class XPathExpressionHelper
                                   @Nonnull final Document aDoc,
                                   @Nonnull final QName aReturnType)
   {
-    return evalXPath (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                      sXPath,
-                      aDoc,
-                      aReturnType);
+    ValueEnforcer.notEmpty (sXPath, "XPathExpression");
+    ValueEnforcer.notNull (aDoc, "Doc");
+    ValueEnforcer.notNull (aReturnType, "ReturnType");
+
+    try
+    {
+      return XPathExpressionCache.evaluate (aVariableResolver,
+                                            aFunctionResolver,
+                                            aNamespaceContext,
+                                            sXPath,
+                                            aDoc,
+                                            aReturnType);
+    }
+    catch (final XPathExpressionException ex)
+    {
+      throw new IllegalArgumentException ("Failed to evaluate XPath expression '" +
+                                          sXPath +
+                                          "' with return type " +
+                                          aReturnType.toString (), ex);
+    }
   }
 
   @Nullable
@@ -98,15 +117,23 @@ public final class XPathExpressionHelper
                                           @Nonnull final String sXPath,
                                           @Nonnull final Document aDoc)
   {
-    return evalXPathToNumber (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                              sXPath,
-                              aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.NUMBER);
+    return (Double) aResult;
   }
 
   @Nullable
   public static Double evalXPathToNumber (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToNumber (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToNumber ((XPathVariableResolver) null,
+                              (XPathFunctionResolver) null,
+                              (NamespaceContext) null,
+                              sXPath,
+                              aDoc);
   }
 
   @Nullable
@@ -125,15 +152,23 @@ public final class XPathExpressionHelper
                                           @Nonnull final String sXPath,
                                           @Nonnull final Document aDoc)
   {
-    return evalXPathToString (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                              sXPath,
-                              aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.STRING);
+    return (String) aResult;
   }
 
   @Nullable
   public static String evalXPathToString (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToString (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToString ((XPathVariableResolver) null,
+                              (XPathFunctionResolver) null,
+                              (NamespaceContext) null,
+                              sXPath,
+                              aDoc);
   }
 
   @Nullable
@@ -152,15 +187,23 @@ public final class XPathExpressionHelper
                                             @Nonnull final String sXPath,
                                             @Nonnull final Document aDoc)
   {
-    return evalXPathToBoolean (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                               sXPath,
-                               aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.BOOLEAN);
+    return (Boolean) aResult;
   }
 
   @Nullable
   public static Boolean evalXPathToBoolean (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToBoolean (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToBoolean ((XPathVariableResolver) null,
+                               (XPathFunctionResolver) null,
+                               (NamespaceContext) null,
+                               sXPath,
+                               aDoc);
   }
 
   @Nullable
@@ -179,15 +222,23 @@ public final class XPathExpressionHelper
                                               @Nonnull final String sXPath,
                                               @Nonnull final Document aDoc)
   {
-    return evalXPathToNodeList (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                                sXPath,
-                                aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.NODESET);
+    return (NodeList) aResult;
   }
 
   @Nullable
   public static NodeList evalXPathToNodeList (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToNodeList (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToNodeList ((XPathVariableResolver) null,
+                                (XPathFunctionResolver) null,
+                                (NamespaceContext) null,
+                                sXPath,
+                                aDoc);
   }
 
   @Nullable
@@ -206,15 +257,23 @@ public final class XPathExpressionHelper
                                       @Nonnull final String sXPath,
                                       @Nonnull final Document aDoc)
   {
-    return evalXPathToNode (XPathHelper.createNewXPath (aVariableResolver, aFunctionResolver, aNamespaceContext),
-                            sXPath,
-                            aDoc);
+    final Object aResult = evalXPath (aVariableResolver,
+                                      aFunctionResolver,
+                                      aNamespaceContext,
+                                      sXPath,
+                                      aDoc,
+                                      XPathConstants.NODE);
+    return (Node) aResult;
   }
 
   @Nullable
   public static Node evalXPathToNode (@Nonnull final String sXPath, @Nonnull final Document aDoc)
   {
-    return evalXPathToNode (XPathHelper.createNewXPath (), sXPath, aDoc);
+    return evalXPathToNode ((XPathVariableResolver) null,
+                            (XPathFunctionResolver) null,
+                            (NamespaceContext) null,
+                            sXPath,
+                            aDoc);
   }
 
   @Nullable
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.concurrent.DefaultExecutorServiceFactory;
+
+/**
+ * Test class for the expiry and refresh of
+ * {@link AbstractConcurrentNotifyingCache}.
+ * 
+ * @author Philip Helger
+ */
+public final class AbstractConcurrentNotifyingCacheExpiryTest
+{
+  private static final AtomicLong s_aNow = new AtomicLong (0);
+
+  private static class MockCache extends AbstractConcurrentNotifyingCache <String, String>
+  {
+    final AtomicInteger m_aCalls = new AtomicInteger (0);
+
+    MockCache (final CacheExpirySettings aSettings)
+    {
+      this (CGlobal.INDEFINITE_ENTRIES, aSettings);
+    }
+
+    MockCache (final int nMaxSize, final CacheExpirySettings aSettings)
+    {
+      super ("MockExpiry", ECacheValueReference.STRONG, nMaxSize, aSettings);
+    }
+
+    @Override
+    protected long getCurrentNanoTime ()
+    {
+      return s_aNow.get ();
+    }
+
+    @Override
+    protected String getValueToCache (@Nullable final String aKey)
+    {
+      return aKey + m_aCalls.incrementAndGet ();
+    }
+  }
+
+  private static void _setNowMillis (final long nMillis)
+  {
+    s_aNow.set (TimeUnit.MILLISECONDS.toNanos (nMillis));
+  }
+
+  @Test
+  public void testExpireAfterWrite ()
+  {
+    _setNowMillis (0);
+    final MockCache c = new MockCache (new CacheExpirySettings ().setExpireAfterWrite (10, TimeUnit.SECONDS));
+    assertEquals ("a1", c.getFromCache ("a"));
+    _setNowMillis (9999);
+    assertEquals ("a1", c.getFromCache ("a"));
+    _setNowMillis (10000);
+    assertEquals ("a2", c.getFromCache ("a"));
+    assertEquals (1, c.size ());
+  }
+
+  @Test
+  public void testExpireAfterAccess ()
+  {
+    _setNowMillis (0);
+    final MockCache c = new MockCache (new CacheExpirySettings ().setExpireAfterAccess (10, TimeUnit.SECONDS));
+    assertEquals ("a1", c.getFromCache ("a"));
+    for (int i = 1; i <= 10; ++i)
+    {
+      _setNowMillis (i * 5000);
+      assertEquals ("a1", c.getFromCache ("a"));
+    }
+    _setNowMillis (100000);
+    assertEquals ("a2", c.getFromCache ("a"));
+  }
+
+  @Test
+  public void testTimerWheelSweep ()
+  {
+    _setNowMillis (0);
+    final MockCache c = new MockCache (new CacheExpirySettings ().setExpireAfterWrite (10, TimeUnit.SECONDS)
+                                                                 .setTick (1, TimeUnit.SECONDS));
+    for (int i = 0; i < 100; ++i)
+      c.getFromCache ("k" + i);
+    assertEquals (100, c.size ());
+
+    _setNowMillis (5000);
+    c.getFromCache ("late");
+    c.cleanUp ();
+    assertEquals (101, c.size ());
+
+    // Expired values are removed without being accessed
+    _setNowMillis (12000);
+    c.cleanUp ();
+    assertEquals (1, c.size ());
+
+    // Far in the future - more than a wheel rotation
+    _setNowMillis (10000000);
+    c.cleanUp ();
+    assertEquals (0, c.size ());
+  }
+
+  @Test
+  public void testChurnDoesNotGrowTimerWheel ()
+  {
+    _setNowMillis (0);
+    final MockCache c = new MockCache (10, new CacheExpirySettings ().setExpireAfterWrite (1, TimeUnit.HOURS));
+    for (int i = 0; i < 10000; ++i)
+    {
+      c.getFromCache ("k" + i);
+      // Evicted and removed values release their expiry
+      assertTrue (c.getTimerWheelHandleCount () <= 100);
+    }
+    assertEquals (10, c.size ());
+
+    for (int i = 0; i < 10000; ++i)
+    {
+      c.getFromCache ("r" + i);
+      c.removeFromCache ("r" + i);
+    }
+    assertTrue (c.getTimerWheelHandleCount () <= 100);
+
+    c.clearCache ();
+    assertEquals (0, c.size ());
+    assertTrue (c.getTimerWheelHandleCount () <= 100);
+  }
+
+  @Test
+  public void testRefreshAfterWrite () throws InterruptedException
+  {
+    _setNowMillis (0);
+    final CountDownLatch aRefreshStarted = new CountDownLatch (1);
+    final CountDownLatch aRefreshRelease = new CountDownLatch (1);
+    final CountDownLatch aRefreshDone = new CountDownLatch (1);
+    final MockCache c = new MockCache (new CacheExpirySettings ().setExpireAfterWrite (20, TimeUnit.SECONDS)
+                                                                 .setRefreshAfterWrite (10,
+                                                                                        TimeUnit.SECONDS,
+                                                                                        new DefaultExecutorServiceFactory ()))
+    {
+      @Override
+      protected String getValueToRefresh (final String aKey, final String aOldValue)
+      {
+        aRefreshStarted.countDown ();
+        try
+        {
+          aRefreshRelease.await ();
+        }
+        catch (final InterruptedException ex)
+        {
+          Thread.currentThread ().interrupt ();
+        }
+        final String ret = super.getValueToRefresh (aKey, aOldValue);
+        aRefreshDone.countDown ();
+        return ret;
+      }
+    };
+    try
+    {
+      assertEquals ("a1", c.getFromCache ("a"));
+
+      // Triggers the refresh but returns the old value
+      _setNowMillis (15000);
+      assertEquals ("a1", c.getFromCache ("a"));
+      assertTrue (aRefreshStarted.await (10, TimeUnit.SECONDS));
+
+      // Expired but refreshing - stale value without blocking
+      _setNowMillis (25000);
+      assertEquals ("a1", c.getFromCache ("a"));
+      c.cleanUp ();
+      assertEquals (1, c.size ());
+
+      aRefreshRelease.countDown ();
+      assertTrue (aRefreshDone.await (10, TimeUnit.SECONDS));
+      // Wait until the value was replaced
+      for (int i = 0; i < 100 && c.getFromCache ("a").equals ("a1"); ++i)
+        Thread.sleep (10);
+      assertEquals ("a2", c.getFromCache ("a"));
+      assertEquals (2, c.m_aCalls.get ());
+    }
+    finally
+    {
+      c.shutdownRefreshExecutor ();
+    }
+  }
+}
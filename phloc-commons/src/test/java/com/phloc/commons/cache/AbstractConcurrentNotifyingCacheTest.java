@@ -0,0 +1,280 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.phloc.commons.CGlobal;
+import com.phloc.commons.collections.IEvictionPolicy;
+import com.phloc.commons.collections.WTinyLFUEvictionPolicy;
+import com.phloc.commons.state.EChange;
+
+/**
+ * Test class for class {@link AbstractConcurrentNotifyingCache}.
+ * 
+ * @author Philip Helger
+ */
+public final class AbstractConcurrentNotifyingCacheTest
+{
+  private static class MockCache extends AbstractConcurrentNotifyingCache <String, String>
+  {
+    final AtomicInteger m_aCalls = new AtomicInteger (0);
+
+    MockCache (final ECacheValueReference eValueRef, final int nMaxSize)
+    {
+      super ("MockConcurrent", eValueRef, nMaxSize);
+    }
+
+    @Override
+    protected String getValueToCache (@Nullable final String aKey)
+    {
+      m_aCalls.incrementAndGet ();
+      if ("fail".equals (aKey))
+        throw new IllegalArgumentException ("fail");
+      if ("null".equals (aKey))
+        return null;
+      // Create a new object so that it can be garbage collected
+      return new String ("value-" + aKey);
+    }
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final MockCache c = new MockCache (ECacheValueReference.STRONG, CGlobal.INDEFINITE_ENTRIES);
+    assertFalse (c.hasMaxSize ());
+    assertTrue (c.isEmpty ());
+    final String s = c.getFromCache ("a");
+    assertEquals ("value-a", s);
+    assertSame (s, c.getFromCache ("a"));
+    assertEquals (1, c.m_aCalls.get ());
+    assertEquals (1, c.size ());
+    assertTrue (c.isNotEmpty ());
+
+    assertEquals (EChange.CHANGED, c.removeFromCache ("a"));
+    assertEquals (EChange.UNCHANGED, c.removeFromCache ("a"));
+    assertEquals (EChange.UNCHANGED, c.removeFromCache (null));
+    assertEquals (0, c.size ());
+
+    c.getFromCache ("b");
+    c.getFromCache ("c");
+    assertEquals (2, c.size ());
+    assertEquals (EChange.CHANGED, c.clearCache ());
+    assertEquals (EChange.UNCHANGED, c.clearCache ());
+    assertEquals (0, c.size ());
+
+    // null key is not cached
+    assertEquals ("value-null", c.getFromCache (null));
+    assertEquals (0, c.size ());
+  }
+
+  @Test
+  public void testErrors ()
+  {
+    final MockCache c = new MockCache (ECacheValueReference.STRONG, CGlobal.INDEFINITE_ENTRIES);
+    for (int i = 0; i < 2; ++i)
+      try
+      {
+        c.getFromCache ("fail");
+        fail ();
+      }
+      catch (final IllegalArgumentException ex)
+      {}
+    // Failures are not cached
+    assertEquals (2, c.m_aCalls.get ());
+    assertEquals (0, c.size ());
+
+    try
+    {
+      c.getFromCache ("null");
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {}
+    assertEquals (0, c.size ());
+  }
+
+  @Test
+  public void testMaxSize ()
+  {
+    final MockCache c = new MockCache (ECacheValueReference.STRONG, 5);
+    assertTrue (c.hasMaxSize ());
+    assertEquals (5, c.getMaxSize ());
+    for (int i = 0; i < 10; ++i)
+      c.getFromCache ("key" + i);
+    assertEquals (5, c.size ());
+
+    // The oldest entries were evicted
+    c.getFromCache ("key9");
+    assertEquals (10, c.m_aCalls.get ());
+    c.getFromCache ("key0");
+    assertEquals (11, c.m_aCalls.get ());
+    assertEquals (5, c.size ());
+    assertEquals (5, c.getEvictionTrackedKeyCount ());
+  }
+
+  @Test
+  public void testMaxSizeEvictsLeastRecentlyUsed ()
+  {
+    final MockCache c = new MockCache (ECacheValueReference.STRONG, 3);
+    c.getFromCache ("a");
+    c.getFromCache ("b");
+    c.getFromCache ("c");
+    // "a" is the most recently used entry now
+    c.getFromCache ("a");
+    c.getFromCache ("d");
+    assertEquals (4, c.m_aCalls.get ());
+    assertEquals (3, c.size ());
+
+    // "a" is still cached but "b" was evicted
+    c.getFromCache ("a");
+    assertEquals (4, c.m_aCalls.get ());
+    c.getFromCache ("b");
+    assertEquals (5, c.m_aCalls.get ());
+  }
+
+  @Test
+  public void testEvictionPolicyScanResistance ()
+  {
+    final MockCache c = new MockCache (ECacheValueReference.STRONG, 100)
+    {
+      @Override
+      protected IEvictionPolicy <String> createEvictionPolicy ()
+      {
+        return new WTinyLFUEvictionPolicy <String> (getMaxSize ());
+      }
+    };
+    // Make some keys hot
+    for (int nRound = 0; nRound < 10; ++nRound)
+      for (int i = 0; i < 50; ++i)
+        c.getFromCache ("hot" + i);
+    assertEquals (50, c.m_aCalls.get ());
+
+    // A scan of keys that are used only once
+    for (int i = 0; i < 1000; ++i)
+      c.getFromCache ("scan" + i);
+    assertEquals (1050, c.m_aCalls.get ());
+    assertEquals (100, c.size ());
+
+    // The hot keys are still cached
+    for (int i = 0; i < 50; ++i)
+      c.getFromCache ("hot" + i);
+    assertEquals (1050, c.m_aCalls.get ());
+  }
+
+  @Test
+  public void testMaxSizeRemoveDoesNotLeak ()
+  {
+    final MockCache c = new MockCache (ECacheValueReference.STRONG, 10);
+    for (int i = 0; i < 10000; ++i)
+    {
+      c.getFromCache ("key" + i);
+      c.getFromCache ("key" + i);
+      c.removeFromCache ("key" + i);
+    }
+    assertEquals (0, c.size ());
+    assertEquals (0, c.getEvictionTrackedKeyCount ());
+
+    c.getFromCache ("a");
+    c.getFromCache ("b");
+    assertEquals (2, c.getEvictionTrackedKeyCount ());
+    c.clearCache ();
+    assertEquals (0, c.getEvictionTrackedKeyCount ());
+  }
+
+  @Test
+  public void testWeakValues ()
+  {
+    final MockCache c = new MockCache (ECacheValueReference.WEAK, CGlobal.INDEFINITE_ENTRIES);
+    assertSame (ECacheValueReference.WEAK, c.getValueReference ());
+    String s = c.getFromCache ("a");
+    assertSame (s, c.getFromCache ("a"));
+    assertEquals (1, c.m_aCalls.get ());
+    s = null;
+    for (int i = 0; i < 10 && c.size () > 0; ++i)
+      System.gc ();
+    // Value is re-created if it was garbage collected
+    assertEquals ("value-a", c.getFromCache ("a"));
+    assertTrue (c.m_aCalls.get () >= 1);
+  }
+
+  @Test
+  public void testConcurrentComputeOnce () throws InterruptedException
+  {
+    final CountDownLatch aStarted = new CountDownLatch (1);
+    final CountDownLatch aRelease = new CountDownLatch (1);
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final AbstractConcurrentNotifyingCache <String, String> c = new AbstractConcurrentNotifyingCache <String, String> ("MockBlocking")
+    {
+      @Override
+      protected String getValueToCache (final String aKey)
+      {
+        aCalls.incrementAndGet ();
+        if ("slow".equals (aKey))
+        {
+          aStarted.countDown ();
+          try
+          {
+            aRelease.await ();
+          }
+          catch (final InterruptedException ex)
+          {
+            Thread.currentThread ().interrupt ();
+          }
+        }
+        return "value-" + aKey;
+      }
+    };
+
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 8; ++i)
+      aES.submit (new Runnable ()
+      {
+        public void run ()
+        {
+          assertEquals ("value-slow", c.getFromCache ("slow"));
+        }
+      });
+    assertTrue (aStarted.await (10, TimeUnit.SECONDS));
+
+    // Other keys are not blocked by the slow computation
+    assertEquals ("value-fast", c.getFromCache ("fast"));
+
+    aRelease.countDown ();
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+    assertEquals ("value-slow", c.getFromCache ("slow"));
+    // Once for "slow" and once for "fast"
+    assertEquals (2, aCalls.get ());
+    assertEquals (2, c.size ());
+  }
+}
@@ -21,6 +21,10 @@ import static org.junit.Assert.assertEquals;
 
 import org.junit.Test;
 
+import com.phloc.commons.collections.IEvictionPolicy;
+import com.phloc.commons.collections.WTinyLFUEvictionPolicy;
+import com.phloc.commons.string.StringHelper;
+
 /**
  * Test class for class {@link AbstractNotifyingCacheWithMaxSize}.
  * 
@@ -38,4 +42,27 @@ public final class AbstractNotifyingCacheWithMaxSizeTest
       c.getFromCache ("key" + i);
     assertEquals (5, c.size ());
   }
+
+  @Test
+  public void testEvictionPolicy ()
+  {
+    final AbstractNotifyingCacheWithMaxSize <String, String> c = new AbstractNotifyingCacheWithMaxSize <String, String> ("MockPolicy",
+                                                                                                                        5)
+    {
+      @Override
+      protected IEvictionPolicy <String> createEvictionPolicy ()
+      {
+        return new WTinyLFUEvictionPolicy <String> (getMaxSize ());
+      }
+
+      @Override
+      protected String getValueToCache (final String aKey)
+      {
+        return StringHelper.getNotNull (aKey);
+      }
+    };
+    for (int i = 0; i < 20; ++i)
+      c.getFromCache ("key" + i);
+    assertEquals (5, c.size ());
+  }
 }
@@ -0,0 +1,126 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+
+/**
+ * Test class for class {@link TimerWheel}.
+ * 
+ * @author Philip Helger
+ */
+public final class TimerWheelTest
+{
+  private static final class CountingCallback implements INonThrowingRunnableWithParameter <String>
+  {
+    final AtomicInteger m_aCount = new AtomicInteger (0);
+
+    public void run (@Nonnull final String sElement)
+    {
+      m_aCount.incrementAndGet ();
+    }
+  }
+
+  @Test
+  public void testBasic ()
+  {
+    final TimerWheel <String> aWheel = new TimerWheel <String> (10, 8, 0);
+    final CountingCallback aCallback = new CountingCallback ();
+    aWheel.schedule ("a", 25);
+    aWheel.schedule ("b", 1000);
+    assertFalse (aWheel.isAdvanceNeeded (5));
+    assertTrue (aWheel.isAdvanceNeeded (20));
+    assertEquals (0, aWheel.advance (20, aCallback));
+    assertEquals (1, aWheel.advance (30, aCallback));
+    // "b" is more than one rotation away
+    assertEquals (0, aWheel.advance (500, aCallback));
+    assertEquals (1, aWheel.advance (1010, aCallback));
+    assertEquals (2, aCallback.m_aCount.get ());
+  }
+
+  @Test
+  public void testScheduleInThePast ()
+  {
+    final TimerWheel <String> aWheel = new TimerWheel <String> (10, 8, 0);
+    final CountingCallback aCallback = new CountingCallback ();
+    assertEquals (0, aWheel.advance (100, aCallback));
+    // The bucket of this deadline was already processed
+    aWheel.schedule ("a", 35);
+    // Handled with the next advance and not only after a full rotation
+    assertEquals (1, aWheel.advance (110, aCallback));
+    assertEquals (0, aWheel.advance (300, aCallback));
+  }
+
+  @Test
+  public void testCancel ()
+  {
+    final TimerWheel <String> aWheel = new TimerWheel <String> (10, 8, 0);
+    final CountingCallback aCallback = new CountingCallback ();
+    final TimerWheel.Timeout <String> aTimeout = aWheel.schedule ("a", 25);
+    aWheel.schedule ("b", 25);
+    assertTrue (aWheel.cancel (aTimeout));
+    assertFalse (aWheel.cancel (aTimeout));
+    assertEquals (1, aWheel.advance (30, aCallback));
+    assertEquals (1, aCallback.m_aCount.get ());
+
+    // Handles of cancelled elements are purged long before their deadline
+    for (int i = 0; i < 10000; ++i)
+      aWheel.cancel (aWheel.schedule ("e" + i, 1000000));
+    assertTrue (aWheel.getHandleCount () <= 100);
+    assertEquals (0, aWheel.advance (2000000, aCallback));
+  }
+
+  @Test
+  public void testConcurrentScheduleAndAdvance () throws InterruptedException
+  {
+    final TimerWheel <String> aWheel = new TimerWheel <String> (1, 64, 0);
+    final CountingCallback aCallback = new CountingCallback ();
+    final AtomicLong aNow = new AtomicLong (0);
+    final int nCount = 100000;
+    final Thread aScheduler = new Thread (new Runnable ()
+    {
+      public void run ()
+      {
+        for (int i = 0; i < nCount; ++i)
+          aWheel.schedule ("e" + i, aNow.get () + 1);
+      }
+    });
+    aScheduler.start ();
+    while (aScheduler.isAlive ())
+      aWheel.advance (aNow.incrementAndGet (), aCallback);
+    aScheduler.join ();
+
+    // All elements are expired within two ticks - no element waits for a
+    // complete rotation and none is expired twice
+    aWheel.advance (aNow.get () + 2, aCallback);
+    assertEquals (nCount, aCallback.m_aCount.get ());
+    aWheel.advance (aNow.get () + 1000, aCallback);
+    assertEquals (nCount, aCallback.m_aCount.get ());
+  }
+}
@@ -19,6 +19,7 @@ package com.phloc.commons.collections;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -44,4 +45,25 @@ public final class LRUCacheTest
       assertNull (aCache.put (Integer.valueOf (i), "Hallo Welt"));
     }
   }
+
+  @Test
+  public void testWithEvictionPolicy ()
+  {
+    final LRUCache <Integer, String> aCache = new LRUCache <Integer, String> (MAX_SIZE,
+                                                                            new WTinyLFUEvictionPolicy <Integer> (MAX_SIZE));
+    for (int i = 0; i < MAX_SIZE * 2; ++i)
+    {
+      assertNull (aCache.put (Integer.valueOf (i), "Hallo Welt"));
+      assertEquals (Math.min (i + 1, MAX_SIZE), aCache.size ());
+    }
+    assertEquals (MAX_SIZE, aCache.getEvictionPolicy ().getTrackedKeyCount ());
+
+    final Integer aKey = aCache.keySet ().iterator ().next ();
+    assertEquals ("Hallo Welt", aCache.put (aKey, "Hello world"));
+    assertEquals ("Hello world", aCache.remove (aKey));
+    assertEquals (MAX_SIZE - 1, aCache.getEvictionPolicy ().getTrackedKeyCount ());
+    aCache.clear ();
+    assertTrue (aCache.isEmpty ());
+    assertEquals (0, aCache.getEvictionPolicy ().getTrackedKeyCount ());
+  }
 }
@@ -0,0 +1,61 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link LRUEvictionPolicy}.
+ * 
+ * @author Philip Helger
+ */
+public final class LRUEvictionPolicyTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final LRUEvictionPolicy <String> aPolicy = new LRUEvictionPolicy <String> ();
+    assertNull (aPolicy.getVictim ());
+
+    aPolicy.onInsert ("a");
+    aPolicy.onInsert ("b");
+    aPolicy.onInsert ("c");
+    assertEquals (3, aPolicy.getTrackedKeyCount ());
+
+    // "a" is now the most recently used key
+    aPolicy.onAccess ("a");
+    // Untracked keys are ignored
+    aPolicy.onAccess ("x");
+    assertEquals (3, aPolicy.getTrackedKeyCount ());
+    assertEquals ("b", aPolicy.getVictim ());
+    assertEquals ("c", aPolicy.getVictim ());
+    assertEquals (1, aPolicy.getTrackedKeyCount ());
+
+    aPolicy.onRemove ("a");
+    aPolicy.onRemove ("x");
+    assertEquals (0, aPolicy.getTrackedKeyCount ());
+    assertNull (aPolicy.getVictim ());
+
+    aPolicy.onInsert ("d");
+    aPolicy.onClear ();
+    assertEquals (0, aPolicy.getTrackedKeyCount ());
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link WTinyLFUEvictionPolicy}.
+ * 
+ * @author Philip Helger
+ */
+public final class WTinyLFUEvictionPolicyTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final WTinyLFUEvictionPolicy <String> aPolicy = new WTinyLFUEvictionPolicy <String> (100);
+    assertEquals (100, aPolicy.getMaxSize ());
+    assertEquals (1, aPolicy.getMaxWindowSize ());
+    assertNull (aPolicy.getVictim ());
+
+    aPolicy.onInsert ("a");
+    aPolicy.onInsert ("b");
+    assertEquals (2, aPolicy.getTrackedKeyCount ());
+    aPolicy.onRemove ("a");
+    aPolicy.onRemove ("x");
+    assertEquals (1, aPolicy.getTrackedKeyCount ());
+    assertEquals ("b", aPolicy.getVictim ());
+    assertEquals (0, aPolicy.getTrackedKeyCount ());
+
+    aPolicy.onInsert ("c");
+    aPolicy.onClear ();
+    assertEquals (0, aPolicy.getTrackedKeyCount ());
+
+    assertEquals (0, new WTinyLFUEvictionPolicy <String> (0).getMaxWindowSize ());
+    assertEquals (10, new WTinyLFUEvictionPolicy <String> (100, 10).getMaxWindowSize ());
+  }
+
+  @Test
+  public void testScanResistance ()
+  {
+    final int nMaxSize = 100;
+    final LRUCache <Integer, String> aCache = new LRUCache <Integer, String> (nMaxSize,
+                                                                            new WTinyLFUEvictionPolicy <Integer> (nMaxSize));
+    // Hot keys, accessed multiple times
+    for (int nRun = 0; nRun < 5; ++nRun)
+      for (int i = 0; i < 50; ++i)
+        if (aCache.get (Integer.valueOf (i)) == null)
+          aCache.put (Integer.valueOf (i), "hot");
+
+    // Scan of one-time keys
+    for (int i = 1000; i < 2000; ++i)
+    {
+      aCache.put (Integer.valueOf (i), "scan");
+      assertTrue (aCache.size () <= nMaxSize);
+    }
+    assertEquals (nMaxSize, aCache.size ());
+    assertEquals (nMaxSize, aCache.getEvictionPolicy ().getTrackedKeyCount ());
+
+    // All hot keys survived the scan
+    for (int i = 0; i < 50; ++i)
+      assertEquals ("hot", aCache.get (Integer.valueOf (i)));
+
+    // Without the policy, the scan flushes the hot keys
+    final LRUCache <Integer, String> aLRUCache = new LRUCache <Integer, String> (nMaxSize);
+    for (int i = 0; i < 50; ++i)
+      aLRUCache.put (Integer.valueOf (i), "hot");
+    for (int i = 1000; i < 2000; ++i)
+      aLRUCache.put (Integer.valueOf (i), "scan");
+    assertNull (aLRUCache.get (Integer.valueOf (0)));
+  }
+
+  @Test
+  public void testFrequencySketch ()
+  {
+    final FrequencySketch aSketch = new FrequencySketch (100);
+    assertEquals (0, aSketch.getFrequency ("a"));
+    for (int i = 0; i < 5; ++i)
+      aSketch.increment ("a");
+    assertTrue (aSketch.getFrequency ("a") >= 5);
+    for (int i = 0; i < 100; ++i)
+      aSketch.increment ("a");
+    assertEquals (FrequencySketch.MAX_FREQUENCY, aSketch.getFrequency ("a"));
+
+    // Aging halves the counters
+    for (int i = 0; i < 1000; ++i)
+      aSketch.increment (Integer.valueOf (i));
+    assertTrue (aSketch.getFrequency ("a") < FrequencySketch.MAX_FREQUENCY);
+
+    aSketch.clear ();
+    assertEquals (0, aSketch.getFrequency ("a"));
+    assertEquals (0, aSketch.getFrequency (null));
+  }
+}
@@ -17,6 +17,8 @@
  */
 package com.phloc.commons.equals;
 
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
@@ -35,6 +37,8 @@ import com.phloc.commons.xml.XMLFactory;
  */
 public final class EqualsImplementationRegistryTest extends AbstractPhlocTestCase
 {
+  public static final class MockValue
+  {}
   @Test
   public void testEquals ()
   {
@@ -56,4 +60,35 @@ public final class EqualsImplementationRegistryTest extends AbstractPhlocTestCas
     assertTrue (EqualsUtils.equals (ArrayHelper.newArray (ArrayHelper.newArray (d1)),
                                     ArrayHelper.newArray (ArrayHelper.newArray (d2))));
   }
+
+  @Test
+  public void testResolvedCacheIsInvalidated ()
+  {
+    final EqualsImplementationRegistry aRegistry = EqualsImplementationRegistry.getInstance ();
+    assertNull (aRegistry.getBestMatchingEqualsImplementation (MockValue.class));
+    assertNull (aRegistry.getBestMatchingEqualsImplementation (MockValue.class));
+
+    final IEqualsImplementation aImpl = new IEqualsImplementation ()
+    {
+      public boolean areEqual (final Object aObj1, final Object aObj2)
+      {
+        return true;
+      }
+    };
+    aRegistry.registerEqualsImplementation (MockValue.class, aImpl);
+    try
+    {
+      assertSame (aImpl, aRegistry.getBestMatchingEqualsImplementation (MockValue.class));
+      assertTrue (EqualsUtils.equals (new MockValue (), new MockValue ()));
+    }
+    finally
+    {
+      assertTrue (aRegistry.unregisterEqualsImplementation (MockValue.class).isChanged ());
+    }
+    assertNull (aRegistry.getBestMatchingEqualsImplementation (MockValue.class));
+
+    // Arrays always use the same implementation
+    assertSame (aRegistry.getBestMatchingEqualsImplementation (MockValue [].class),
+                aRegistry.getBestMatchingEqualsImplementation (String [].class));
+  }
 }
@@ -25,6 +25,8 @@ import static org.junit.Assert.fail;
 import java.io.File;
 import java.math.BigDecimal;
 import java.util.Date;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.junit.Ignore;
@@ -205,6 +207,49 @@ public final class HashCodeGeneratorTest
     {}
   }
 
+  @Test
+  public void testAppendAllEqualsElementWise ()
+  {
+    final int nStart = 17;
+    final int [] aInts = { 1, -5, Integer.MAX_VALUE, 0 };
+    int nExpected = nStart;
+    for (final int n : aInts)
+      nExpected = HashCodeCalculator.append (nExpected, n);
+    assertEquals (nExpected, HashCodeCalculator.appendAll (nStart, aInts));
+
+    final long [] aLongs = { 1L, Long.MIN_VALUE, -7L };
+    nExpected = nStart;
+    for (final long n : aLongs)
+      nExpected = HashCodeCalculator.append (nExpected, n);
+    assertEquals (nExpected, HashCodeCalculator.appendAll (nStart, aLongs));
+
+    final double [] aDoubles = { 1.5, Double.NaN, -0.0 };
+    nExpected = nStart;
+    for (final double d : aDoubles)
+      nExpected = HashCodeCalculator.append (nExpected, d);
+    assertEquals (nExpected, HashCodeCalculator.appendAll (nStart, aDoubles));
+
+    final byte [] aBytes = { 1, -1, 127 };
+    nExpected = nStart;
+    for (final byte n : aBytes)
+      nExpected = HashCodeCalculator.append (nExpected, n);
+    assertEquals (nExpected, HashCodeCalculator.appendAll (nStart, aBytes));
+
+    final Object [] aObjs = { "a", null, Integer.valueOf (5), new int [] { 1, 2 } };
+    nExpected = nStart;
+    for (final Object o : aObjs)
+      nExpected = HashCodeCalculator.append (nExpected, o);
+    assertEquals (nExpected, HashCodeCalculator.appendAll (nStart, aObjs));
+
+    // RandomAccess and non-RandomAccess collections must deliver the same
+    final List <Object> aList = ContainerHelper.newList (aObjs);
+    assertEquals (nExpected, HashCodeCalculator.appendAll (nStart, aList));
+    assertEquals (nExpected, HashCodeCalculator.appendAll (nStart, new LinkedList <Object> (aList)));
+
+    // Empty arrays don't modify the hash code
+    assertEquals (nStart, HashCodeCalculator.appendAll (nStart, new char [0]));
+  }
+
   @Test
   @Ignore
   public void findIllegalValue () throws InterruptedException
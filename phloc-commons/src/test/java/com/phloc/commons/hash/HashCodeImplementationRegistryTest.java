@@ -0,0 +1,104 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.AbstractCollection;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.collections.LRUCache;
+
+/**
+ * Test class for class {@link HashCodeImplementationRegistry}.
+ * 
+ * @author Philip Helger
+ */
+public final class HashCodeImplementationRegistryTest
+{
+  public static final class MockValue
+  {}
+
+  public static final class MockCollection extends AbstractCollection <String>
+  {
+    @Override
+    public Iterator <String> iterator ()
+    {
+      return ContainerHelper.<String> newList ().iterator ();
+    }
+
+    @Override
+    public int size ()
+    {
+      return 0;
+    }
+  }
+
+  @Test
+  public void testResolvedCacheIsInvalidated ()
+  {
+    final HashCodeImplementationRegistry aRegistry = HashCodeImplementationRegistry.getInstance ();
+    assertNull (aRegistry.getBestMatchingHashCodeImplementation (MockValue.class));
+    assertNull (aRegistry.getBestMatchingHashCodeImplementation (MockValue.class));
+
+    final IHashCodeImplementation aImpl = new IHashCodeImplementation ()
+    {
+      public int getHashCode (final Object aObj)
+      {
+        return 4711;
+      }
+    };
+    aRegistry.registerHashCodeImplementation (MockValue.class, aImpl);
+    try
+    {
+      assertSame (aImpl, aRegistry.getBestMatchingHashCodeImplementation (MockValue.class));
+      assertEquals (4711, HashCodeImplementationRegistry.getHashCode (new MockValue ()));
+    }
+    finally
+    {
+      assertTrue (aRegistry.unregisterHashCodeImplementation (MockValue.class).isChanged ());
+    }
+    assertNull (aRegistry.getBestMatchingHashCodeImplementation (MockValue.class));
+  }
+
+  @Test
+  public void testHierarchy ()
+  {
+    final HashCodeImplementationRegistry aRegistry = HashCodeImplementationRegistry.getInstance ();
+
+    // Implementation registered for an interface
+    assertNotNull (aRegistry.getBestMatchingHashCodeImplementation (MockCollection.class));
+    assertSame (aRegistry.getBestMatchingHashCodeImplementation (MockCollection.class),
+                aRegistry.getBestMatchingHashCodeImplementation (MockCollection.class));
+
+    // Class implements hashCode itself
+    assertNull (aRegistry.getBestMatchingHashCodeImplementation (LRUCache.class));
+
+    // Arrays
+    assertNotNull (aRegistry.getBestMatchingHashCodeImplementation (MockValue [].class));
+    assertSame (aRegistry.getBestMatchingHashCodeImplementation (MockValue [].class),
+                aRegistry.getBestMatchingHashCodeImplementation (String [].class));
+  }
+}
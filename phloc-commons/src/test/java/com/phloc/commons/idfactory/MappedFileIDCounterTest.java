@@ -0,0 +1,189 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.idfactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.file.FileOperations;
+import com.phloc.commons.io.file.SimpleFileIO;
+
+/**
+ * Test class for class {@link MappedFileIDCounter}.
+ * 
+ * @author Philip Helger
+ */
+public final class MappedFileIDCounterTest
+{
+  @Test
+  public void testReadAndUpdate ()
+  {
+    final File f = new File ("my-counter.ids");
+    try
+    {
+      MappedFileIDCounter aCounter = new MappedFileIDCounter (f);
+      assertEquals (0, aCounter.getValue ());
+      assertEquals (0, aCounter.readAndUpdate (10, Long.MAX_VALUE));
+      assertEquals (10, aCounter.readAndUpdate (5, Long.MAX_VALUE));
+      assertEquals (15, aCounter.getValue ());
+      try
+      {
+        // Exceeds the maximum
+        aCounter.readAndUpdate (10, 20);
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {}
+      aCounter.close ();
+      try
+      {
+        aCounter.readAndUpdate (10, Long.MAX_VALUE);
+        fail ();
+      }
+      catch (final IllegalStateException ex)
+      {}
+
+      // Reopen
+      aCounter = new MappedFileIDCounter (f);
+      assertEquals (15, aCounter.getValue ());
+      aCounter.close ();
+    }
+    finally
+    {
+      FileOperations.deleteFile (f);
+    }
+  }
+
+  @Test
+  public void testTornWrite () throws IOException
+  {
+    final File f = new File ("my-torn-counter.ids");
+    try
+    {
+      MappedFileIDCounter aCounter = new MappedFileIDCounter (f);
+      // Sequence 2 - slot 0
+      aCounter.readAndUpdate (10, Long.MAX_VALUE);
+      // Sequence 3 - slot 1
+      aCounter.readAndUpdate (10, Long.MAX_VALUE);
+      aCounter.close ();
+
+      // Simulate a crash while the value of slot 1 was written
+      final RandomAccessFile aRAF = new RandomAccessFile (f, "rw");
+      try
+      {
+        aRAF.seek (8 + 24 + 8);
+        aRAF.writeLong (4711);
+      }
+      finally
+      {
+        aRAF.close ();
+      }
+
+      // The previous value from slot 0 is used
+      aCounter = new MappedFileIDCounter (f);
+      assertEquals (10, aCounter.getValue ());
+      // The next update overwrites the torn slot
+      assertEquals (10, aCounter.readAndUpdate (10, Long.MAX_VALUE));
+      aCounter.close ();
+      aCounter = new MappedFileIDCounter (f);
+      assertEquals (20, aCounter.getValue ());
+      aCounter.close ();
+    }
+    finally
+    {
+      FileOperations.deleteFile (f);
+    }
+  }
+
+  @Test
+  public void testLegacyFile ()
+  {
+    final File f = new File ("my-legacy-counter.ids");
+    try
+    {
+      // Written by FileIntIDFactory
+      SimpleFileIO.writeFile (f, "4711", CCharset.CHARSET_ISO_8859_1_OBJ);
+      MappedFileIDCounter aCounter = new MappedFileIDCounter (f);
+      assertEquals (4711, aCounter.readAndUpdate (20, Long.MAX_VALUE));
+      aCounter.close ();
+      aCounter = new MappedFileIDCounter (f);
+      assertEquals (4731, aCounter.getValue ());
+      aCounter.close ();
+
+      SimpleFileIO.writeFile (f, "no number", CCharset.CHARSET_ISO_8859_1_OBJ);
+      try
+      {
+        new MappedFileIDCounter (f);
+        fail ();
+      }
+      catch (final IllegalArgumentException ex)
+      {}
+    }
+    finally
+    {
+      FileOperations.deleteFile (f);
+    }
+  }
+
+  @Test
+  public void testRecoverFromTemporaryFile ()
+  {
+    final File f = new File ("my-recovered-counter.ids");
+    final File aTempFile = new File ("my-recovered-counter.ids.tmp");
+    try
+    {
+      MappedFileIDCounter aCounter = new MappedFileIDCounter (f);
+      aCounter.readAndUpdate (42, Long.MAX_VALUE);
+      aCounter.close ();
+      assertFalse (aTempFile.exists ());
+
+      // Simulate a crash after the target file was deleted but before the
+      // temporary file was renamed
+      assertTrue (FileOperations.renameFile (f, aTempFile).isSuccess ());
+      aCounter = new MappedFileIDCounter (f);
+      assertEquals (42, aCounter.getValue ());
+      aCounter.close ();
+      assertFalse (aTempFile.exists ());
+
+      // An incomplete temporary file is ignored and replaced
+      SimpleFileIO.writeFile (aTempFile, "garbage", CCharset.CHARSET_ISO_8859_1_OBJ);
+      aCounter = new MappedFileIDCounter (f);
+      assertEquals (42, aCounter.getValue ());
+      aCounter.close ();
+      FileOperations.deleteFile (f);
+      aCounter = new MappedFileIDCounter (f);
+      assertEquals (0, aCounter.getValue ());
+      aCounter.close ();
+      assertFalse (aTempFile.exists ());
+    }
+    finally
+    {
+      FileOperations.deleteFile (f);
+      FileOperations.deleteFileIfExisting (aTempFile);
+    }
+  }
+}
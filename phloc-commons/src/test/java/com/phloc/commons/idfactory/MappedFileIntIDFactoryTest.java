@@ -0,0 +1,149 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.idfactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.phloc.commons.io.file.FileOperations;
+import com.phloc.commons.mock.PhlocTestUtils;
+
+/**
+ * Test class for class {@link MappedFileIntIDFactory}.
+ * 
+ * @author Philip Helger
+ */
+public final class MappedFileIntIDFactoryTest
+{
+  @Test
+  public void testAll ()
+  {
+    final File f = new File ("my-mapped-file-with-int.ids");
+    final File f2 = new File ("my-other-mapped-file-with-int.ids");
+    try
+    {
+      final MappedFileIntIDFactory x = new MappedFileIntIDFactory (f);
+      // Compare before retrieving an ID!
+      PhlocTestUtils.testDefaultImplementationWithEqualContentObject (x, new MappedFileIntIDFactory (f));
+      PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (x, new MappedFileIntIDFactory (f2));
+      PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (x,
+                                                                          new MappedFileIntIDFactory (f,
+                                                                                                      MappedFileIntIDFactory.DEFAULT_RESERVE_COUNT * 2));
+      PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (x,
+                                                                          new MappedFileIntIDFactory (f,
+                                                                                                      MappedFileIntIDFactory.DEFAULT_RESERVE_COUNT,
+                                                                                                      10));
+
+      for (int i = 0; i < x.getReserveCount () * 10; ++i)
+        assertEquals (i, x.getNewID ());
+      x.close ();
+
+      // The reserved blocks of the closed factory are never reused
+      final MappedFileIntIDFactory y = new MappedFileIntIDFactory (f);
+      try
+      {
+        assertTrue (y.getNewID () >= x.getReserveCount () * 10);
+      }
+      finally
+      {
+        y.close ();
+      }
+    }
+    finally
+    {
+      FileOperations.deleteFile (f);
+      FileOperations.deleteFile (f2);
+    }
+
+    try
+    {
+      new MappedFileIntIDFactory (null);
+      fail ();
+    }
+    catch (final NullPointerException ex)
+    {}
+    try
+    {
+      // Invalid reserve count
+      new MappedFileIntIDFactory (new File ("any"), 0);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+    try
+    {
+      // Thread block size larger than reserve count
+      new MappedFileIntIDFactory (new File ("any"), 10, 11);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
+  @Test
+  public void testMultiThreaded () throws InterruptedException
+  {
+    final File f = new File ("my-mapped-file-with-int-mt.ids");
+    try
+    {
+      for (final int nThreadBlockSize : new int [] { 1, 7 })
+      {
+        final MappedFileIntIDFactory x = new MappedFileIntIDFactory (f, 50, nThreadBlockSize);
+        try
+        {
+          final Set <Integer> aIDs = Collections.synchronizedSet (new HashSet <Integer> ());
+          final int nThreads = 4;
+          final int nPerThread = 5000;
+          final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+          for (int i = 0; i < nThreads; ++i)
+            aES.submit (new Runnable ()
+            {
+              public void run ()
+              {
+                for (int j = 0; j < nPerThread; ++j)
+                  aIDs.add (Integer.valueOf (x.getNewID ()));
+              }
+            });
+          aES.shutdown ();
+          assertTrue (aES.awaitTermination (1, TimeUnit.MINUTES));
+          // All IDs are unique
+          assertEquals (nThreads * nPerThread, aIDs.size ());
+        }
+        finally
+        {
+          x.close ();
+        }
+      }
+    }
+    finally
+    {
+      FileOperations.deleteFile (f);
+    }
+  }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.idfactory;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+
+import org.junit.Test;
+
+import com.phloc.commons.io.file.FileOperations;
+import com.phloc.commons.mock.PhlocTestUtils;
+
+/**
+ * Test class for class {@link MappedFileLongIDFactory}.
+ * 
+ * @author Philip Helger
+ */
+public final class MappedFileLongIDFactoryTest
+{
+  @Test
+  public void testAll ()
+  {
+    final File f = new File ("my-mapped-file-with-long.ids");
+    final File f2 = new File ("my-other-mapped-file-with-long.ids");
+    try
+    {
+      final MappedFileLongIDFactory x = new MappedFileLongIDFactory (f);
+      // Compare before retrieving an ID!
+      PhlocTestUtils.testDefaultImplementationWithEqualContentObject (x, new MappedFileLongIDFactory (f));
+      PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (x, new MappedFileLongIDFactory (f2));
+      PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (x,
+                                                                          new MappedFileLongIDFactory (f,
+                                                                                                       MappedFileLongIDFactory.DEFAULT_RESERVE_COUNT * 2));
+
+      for (int i = 0; i < x.getReserveCount () * 10; ++i)
+        assertEquals (i, x.getNewID ());
+      x.close ();
+
+      // With thread blocks the IDs of a single thread are still increasing
+      final MappedFileLongIDFactory y = new MappedFileLongIDFactory (f, 100, 10);
+      try
+      {
+        long nLast = x.getReserveCount () * 10 - 1;
+        for (int i = 0; i < y.getReserveCount () * 10; ++i)
+        {
+          final long nID = y.getNewID ();
+          assertTrue (nID > nLast);
+          nLast = nID;
+        }
+      }
+      finally
+      {
+        y.close ();
+      }
+    }
+    finally
+    {
+      FileOperations.deleteFile (f);
+      FileOperations.deleteFile (f2);
+    }
+
+    try
+    {
+      new MappedFileLongIDFactory (null);
+      fail ();
+    }
+    catch (final NullPointerException ex)
+    {}
+    try
+    {
+      // Invalid reserve count
+      new MappedFileLongIDFactory (new File ("any"), 0);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+}
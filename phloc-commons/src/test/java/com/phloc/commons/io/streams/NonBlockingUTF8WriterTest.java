@@ -0,0 +1,142 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.io.streams;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+
+/**
+ * Test class for class {@link NonBlockingUTF8Writer}.
+ * 
+ * @author Philip Helger
+ */
+public final class NonBlockingUTF8WriterTest
+{
+  private static byte [] _encodeJDK (final String s) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final Writer aWriter = new OutputStreamWriter (aBAOS, CCharset.CHARSET_UTF_8_OBJ);
+    aWriter.write (s);
+    aWriter.close ();
+    return aBAOS.toByteArray ();
+  }
+
+  private static byte [] _encode (final String s, final int nBufSize) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    final NonBlockingUTF8Writer aWriter = new NonBlockingUTF8Writer (aBAOS, nBufSize);
+    // Mix the different write methods
+    final int nHalf = s.length () / 2;
+    aWriter.write (s, 0, nHalf);
+    if (nHalf < s.length ())
+    {
+      aWriter.write (s.charAt (nHalf));
+      aWriter.write (s.toCharArray (), nHalf + 1, s.length () - nHalf - 1);
+    }
+    aWriter.close ();
+    return aBAOS.toByteArray ();
+  }
+
+  private static void _check (final String s) throws IOException
+  {
+    final byte [] aExpected = _encodeJDK (s);
+    assertArrayEquals (s, aExpected, _encode (s, NonBlockingUTF8Writer.DEFAULT_BUFFER_SIZE));
+    assertArrayEquals (s, aExpected, _encode (s, 4));
+    assertArrayEquals (s, aExpected, _encode (s, 5));
+  }
+
+  @Test
+  public void testBasic () throws IOException
+  {
+    _check ("");
+    _check ("abc");
+    _check ("<root attr=\"&amp;\">text</root>");
+    _check ("\u00e4\u00f6\u00fc\u00df\u20ac");
+    _check ("a\u0080\u07ff\u0800\uffff");
+    // Surrogate pair
+    _check ("x\ud83d\ude00y");
+    _check ("\ud83d\ude00\ud83d\ude00");
+    // Unpaired surrogates
+    _check ("a\ud83db");
+    _check ("a\ude00b");
+    _check ("\ude00\ud83d");
+    _check ("ab\ud83d");
+  }
+
+  @Test
+  public void testRandom () throws IOException
+  {
+    final Random aRandom = new Random (42);
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < 100; ++i)
+    {
+      aSB.setLength (0);
+      final int nLen = aRandom.nextInt (200);
+      for (int j = 0; j < nLen; ++j)
+        switch (aRandom.nextInt (4))
+        {
+          case 0:
+            aSB.append ((char) aRandom.nextInt (0x80));
+            break;
+          case 1:
+            aSB.append ((char) aRandom.nextInt (0x800));
+            break;
+          case 2:
+            aSB.append ("\ud83d\ude00");
+            break;
+          default:
+            aSB.append ((char) aRandom.nextInt (0x10000));
+            break;
+        }
+      _check (aSB.toString ());
+    }
+  }
+
+  @Test
+  public void testClosed () throws IOException
+  {
+    final NonBlockingUTF8Writer aWriter = new NonBlockingUTF8Writer (new NonBlockingByteArrayOutputStream ());
+    aWriter.close ();
+    // Closing twice is okay
+    aWriter.close ();
+    try
+    {
+      aWriter.write ('a');
+      fail ();
+    }
+    catch (final IOException ex)
+    {}
+
+    try
+    {
+      new NonBlockingUTF8Writer (new NonBlockingByteArrayOutputStream (), 3);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+}
@@ -30,6 +30,7 @@ import org.junit.Test;
 import com.phloc.commons.microdom.EMicroNodeType;
 import com.phloc.commons.microdom.IMicroDocument;
 import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.IMicroText;
 import com.phloc.commons.microdom.MicroException;
 import com.phloc.commons.mock.PhlocTestUtils;
 
@@ -129,4 +130,94 @@ public final class MicroDocumentTest
     aDoc.setStandalone (true);
     assertTrue (aDoc.isStandalone ());
   }
+
+  @Test
+  public void testFreeze ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    final IMicroElement eChild = eRoot.appendElement ("child");
+    eChild.setAttribute ("a", "b");
+    final IMicroText aText = eChild.appendText ("text");
+    eRoot.appendComment ("comment");
+    assertFalse (aDoc.isFrozen ());
+
+    assertSame (aDoc, aDoc.freeze ());
+    assertTrue (aDoc.isFrozen ());
+    assertTrue (eRoot.isFrozen ());
+    assertTrue (eChild.isFrozen ());
+    assertTrue (aText.isFrozen ());
+
+    // Reading is still possible
+    assertEquals ("text", eRoot.getTextContent ());
+    assertEquals ("b", eChild.getAttribute ("a"));
+
+    // No modifications possible
+    try
+    {
+      aDoc.setStandalone (true);
+      fail ();
+    }
+    catch (final MicroException ex)
+    {}
+    try
+    {
+      eRoot.appendElement ("new");
+      fail ();
+    }
+    catch (final MicroException ex)
+    {}
+    try
+    {
+      eChild.setAttribute ("c", "d");
+      fail ();
+    }
+    catch (final MicroException ex)
+    {}
+    try
+    {
+      eChild.detachFromParent ();
+      fail ();
+    }
+    catch (final MicroException ex)
+    {}
+    try
+    {
+      aText.appendData ("more");
+      fail ();
+    }
+    catch (final MicroException ex)
+    {}
+    assertEquals ("text", aText.getNodeValue ());
+    assertEquals (2, eRoot.getChildCount ());
+
+    // Derive a modified copy
+    final IMicroDocument aDoc2 = aDoc.getClone ();
+    assertFalse (aDoc2.isFrozen ());
+    assertTrue (aDoc2.isEqualContent (aDoc));
+    final IMicroElement eRoot2 = aDoc2.getDocumentElement ();
+    assertFalse (eRoot2.isFrozen ());
+    assertSame (aDoc2, eRoot2.getParent ());
+    final IMicroElement eChild2 = eRoot2.getFirstChildElement ();
+    assertSame (eRoot2, eChild2.getParent ());
+    eChild2.setAttribute ("c", "d");
+    ((IMicroText) eChild2.getFirstChild ()).appendData ("2");
+    eRoot2.appendElement ("new");
+    assertEquals ("text2", eRoot2.getTextContent ());
+    assertFalse (aDoc2.isEqualContent (aDoc));
+
+    // Original is unchanged
+    assertEquals ("text", eRoot.getTextContent ());
+    assertEquals (2, eRoot.getChildCount ());
+    assertFalse (eChild.hasAttribute ("c"));
+
+    // Clone of an unmodified clone
+    final IMicroDocument aDoc3 = aDoc.getClone ().getClone ();
+    assertTrue (aDoc3.isEqualContent (aDoc));
+
+    // Freezing a lazy clone
+    final IMicroDocument aDoc4 = aDoc.getClone ().freeze ();
+    assertTrue (aDoc4.getDocumentElement ().isFrozen ());
+    assertTrue (aDoc4.isEqualContent (aDoc));
+  }
 }
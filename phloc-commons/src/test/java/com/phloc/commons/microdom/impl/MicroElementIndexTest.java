@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.microdom.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.IMicroElementIndex;
+
+/**
+ * Test class for class {@link MicroElementIndex}.
+ * 
+ * @author Philip Helger
+ */
+public final class MicroElementIndexTest
+{
+  private static final String NS = "urn:test";
+
+  @Test
+  public void testByName ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    final IMicroElement e1 = eRoot.appendElement ("item");
+    final IMicroElement e2 = eRoot.appendContainer ().appendElement ("item");
+    final IMicroElement e3 = e1.appendElement (NS, "item");
+    final IMicroElementIndex aIndex = aDoc.getElementIndex ();
+    assertSame (aIndex, aDoc.getElementIndex ());
+
+    List <IMicroElement> aList = aIndex.getAllElementsWithName ("item");
+    assertEquals (3, aList.size ());
+    // Document order
+    assertSame (e1, aList.get (0));
+    assertSame (e3, aList.get (1));
+    assertSame (e2, aList.get (2));
+    assertSame (e1, aIndex.getFirstElementWithName ("item"));
+    assertSame (e3, aIndex.getFirstElementWithName (NS, "item"));
+    assertEquals (1, aIndex.getAllElementsWithName (NS, "item").size ());
+    assertEquals (3, aIndex.getAllElementsWithName ("", "item").size ());
+    assertSame (eRoot, aIndex.getFirstElementWithName ("root"));
+    assertTrue (aIndex.getAllElementsWithName ("other").isEmpty ());
+    assertNull (aIndex.getFirstElementWithName ("other"));
+    assertNull (aIndex.getFirstElementWithName ("other", "item"));
+    assertNull (aIndex.getFirstElementWithName (null));
+
+    // Modifications are reflected
+    final IMicroElement e4 = e3.appendElement ("item");
+    aList = aIndex.getAllElementsWithName ("item");
+    assertEquals (4, aList.size ());
+    assertSame (e4, aList.get (2));
+    e1.detachFromParent ();
+    assertEquals (1, aIndex.getAllElementsWithName ("item").size ());
+    assertNull (aIndex.getFirstElementWithName (NS, "item"));
+    e2.setNamespaceURI (NS);
+    assertSame (e2, aIndex.getFirstElementWithName (NS, "item"));
+    eRoot.removeAllChildren ();
+    assertTrue (aIndex.getAllElementsWithName ("item").isEmpty ());
+  }
+
+  @Test
+  public void testByID ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    final IMicroElement e1 = eRoot.appendElement ("a").setAttribute ("id", "id1");
+    final IMicroElement e2 = eRoot.appendElement ("a").setAttribute ("key", "id2");
+    final IMicroElementIndex aIndex = aDoc.getElementIndex ();
+    assertEquals (1, aIndex.getAllIDAttributeNames ().size ());
+
+    assertSame (e1, aIndex.getElementWithID ("id1"));
+    assertNull (aIndex.getElementWithID ("id2"));
+    assertNull (aIndex.getElementWithID (null));
+
+    // Configure additional attribute
+    assertTrue (aIndex.addIDAttributeName ("key").isChanged ());
+    assertTrue (aIndex.addIDAttributeName ("key").isUnchanged ());
+    assertSame (e2, aIndex.getElementWithID ("id2"));
+
+    // Attribute modifications are reflected
+    e1.setAttribute ("id", "new");
+    assertNull (aIndex.getElementWithID ("id1"));
+    assertSame (e1, aIndex.getElementWithID ("new"));
+    e2.removeAttribute ("key");
+    assertNull (aIndex.getElementWithID ("id2"));
+    final IMicroElement e3 = eRoot.appendElement ("b");
+    e3.setAttribute ("key", "id3");
+    assertSame (e3, aIndex.getElementWithID ("id3"));
+
+    // Duplicate ID - first in document order
+    eRoot.insertAtIndex (0, new MicroElement ("c")).setAttribute ("id", "id3");
+    assertNotNull (aIndex.getElementWithID ("id3"));
+    assertEquals ("c", aIndex.getElementWithID ("id3").getTagName ());
+    assertEquals (2, aIndex.getAllElementsWithID ("id3").size ());
+    assertSame (e3, aIndex.getAllElementsWithID ("id3").get (1));
+    assertEquals (0, aIndex.getAllElementsWithID (null).size ());
+
+    // Same value in multiple ID attributes
+    e3.setAttribute ("id", "id3");
+    assertEquals (2, aIndex.getAllElementsWithID ("id3").size ());
+
+    assertTrue (aIndex.removeIDAttributeName ("key").isChanged ());
+    assertTrue (aIndex.removeIDAttributeName ("key").isUnchanged ());
+    assertNull (aIndex.getElementWithID ("id2"));
+  }
+
+  @Test
+  public void testFrozen ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    aDoc.appendElement ("root").appendElement ("a").setAttribute ("id", "x");
+    aDoc.freeze ();
+    assertNotNull (aDoc.getElementIndex ().getElementWithID ("x"));
+    assertEquals (1, aDoc.getElementIndex ().getAllElementsWithName ("a").size ());
+
+    // Clones have their own index
+    final IMicroDocument aDoc2 = aDoc.getClone ();
+    aDoc2.getDocumentElement ().appendElement ("a");
+    assertEquals (2, aDoc2.getElementIndex ().getAllElementsWithName ("a").size ());
+    assertEquals (1, aDoc.getElementIndex ().getAllElementsWithName ("a").size ());
+  }
+}
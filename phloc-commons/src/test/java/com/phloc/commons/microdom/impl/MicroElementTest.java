@@ -32,6 +32,7 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.commons.microdom.EMicroNodeType;
 import com.phloc.commons.microdom.IHasElementName;
 import com.phloc.commons.microdom.IMicroComment;
@@ -780,4 +781,117 @@ public final class MicroElementTest extends AbstractPhlocTestCase
     assertNull (null, eRoot.getFirstChildElementValue ("d"));
   }
 
+  @Test
+  public void testManyAttributes ()
+  {
+    final IMicroElement e = new MicroElement ("x");
+    final int nCount = MicroElement.MAX_INLINE_ATTRIBUTES * 2;
+    // Exceed the inline attribute storage
+    for (int i = 0; i < nCount; ++i)
+      e.setAttribute ("a" + i, "v" + i);
+    assertEquals (nCount, e.getAttributeCount ());
+    assertEquals (nCount, e.getAllAttributes ().size ());
+    int nIndex = 0;
+    for (final String sName : e.getAllAttributeNames ())
+      assertEquals ("a" + nIndex++, sName);
+    assertEquals ("v0", e.getAllAttributeValues ().iterator ().next ());
+    assertEquals ("v3", e.getAttribute ("a3"));
+    assertEquals ("v" + (nCount - 1), e.getAttribute ("a" + (nCount - 1)));
+
+    // Overwrite existing value - keeps the position
+    e.setAttribute ("a0", "new");
+    assertEquals ("new", e.getAttribute ("a0"));
+    assertEquals ("a0", e.getAllAttributeNames ().iterator ().next ());
+    assertEquals (nCount, e.getAttributeCount ());
+
+    assertTrue (e.removeAttribute ("a1").isChanged ());
+    assertFalse (e.removeAttribute ("a1").isChanged ());
+    assertFalse (e.hasAttribute ("a1"));
+    assertEquals (nCount - 1, e.getAttributeCount ());
+
+    // Clone and compare
+    final IMicroElement e2 = e.getClone ();
+    assertTrue (e.isEqualContent (e2));
+    e2.setAttribute ("a2", "other");
+    assertFalse (e.isEqualContent (e2));
+
+    assertTrue (e.removeAllAttributes ().isChanged ());
+    assertFalse (e.hasAttributes ());
+    assertNull (e.getAllAttributes ());
+    assertFalse (e.removeAllAttributes ().isChanged ());
+  }
+
+  @Test
+  public void testAttributeOrder ()
+  {
+    final IMicroElement e = new MicroElement ("x");
+    e.setAttribute ("c", "1");
+    e.setAttribute ("a", "2");
+    e.setAttribute ("b", "3");
+    e.setAttribute ("a", "4");
+    assertEquals (ContainerHelper.newList ("c", "a", "b"), ContainerHelper.newList (e.getAllAttributeNames ()));
+    assertEquals (ContainerHelper.newList ("1", "4", "3"), ContainerHelper.newList (e.getAllAttributeValues ()));
+
+    // Remove from the middle
+    assertTrue (e.removeAttribute ("a").isChanged ());
+    assertEquals (ContainerHelper.newList ("c", "b"), ContainerHelper.newList (e.getAllAttributeNames ()));
+    assertNull (e.getAttribute ("a"));
+    assertEquals ("3", e.getAttribute ("b"));
+    e.setAttribute ("a", "5");
+    assertEquals (ContainerHelper.newList ("c", "b", "a"), ContainerHelper.newList (e.getAllAttributeNames ()));
+
+    // Attribute order is irrelevant for equality
+    final IMicroElement e2 = new MicroElement ("x");
+    e2.setAttribute ("a", "5");
+    e2.setAttribute ("b", "3");
+    e2.setAttribute ("c", "1");
+    assertTrue (e.isEqualContent (e2));
+    assertTrue (e2.isEqualContent (e));
+
+    // Setting null removes
+    e.setAttribute ("b", (String) null);
+    assertEquals (2, e.getAttributeCount ());
+    assertFalse (e.isEqualContent (e2));
+  }
+
+  @Test
+  public void testManyChildren ()
+  {
+    final IMicroElement e = new MicroElement ("x");
+    for (int i = 0; i < 100; ++i)
+      e.appendElement ("c" + i);
+    assertEquals (100, e.getChildCount ());
+    assertEquals ("c0", ((IMicroElement) e.getFirstChild ()).getTagName ());
+    assertEquals ("c99", ((IMicroElement) e.getLastChild ()).getTagName ());
+    assertNull (e.getChildAtIndex (-1));
+    assertNull (e.getChildAtIndex (100));
+
+    // Insert in the middle
+    final IMicroNode aChild50 = e.getChildAtIndex (50);
+    e.insertBefore (new MicroElement ("before"), aChild50);
+    e.insertAfter (new MicroElement ("after"), aChild50);
+    assertEquals (102, e.getChildCount ());
+    assertEquals ("before", ((IMicroElement) e.getChildAtIndex (50)).getTagName ());
+    assertSame (aChild50, e.getChildAtIndex (51));
+    assertEquals ("after", ((IMicroElement) e.getChildAtIndex (52)).getTagName ());
+    assertSame (aChild50, e.getChildAtIndex (52).getPreviousSibling ());
+    assertEquals ("c51", ((IMicroElement) e.getChildAtIndex (52).getNextSibling ()).getTagName ());
+
+    // Insert beyond the end appends
+    e.insertAtIndex (1000, new MicroElement ("last"));
+    assertEquals ("last", ((IMicroElement) e.getLastChild ()).getTagName ());
+
+    // Remove
+    assertTrue (e.removeChild (aChild50).isChanged ());
+    assertNull (aChild50.getParent ());
+    assertTrue (e.removeChildAtIndex (0).isChanged ());
+    assertEquals (101, e.getChildCount ());
+    assertEquals (101, e.getChildren ().size ());
+    assertEquals ("c1", ((IMicroElement) e.getFirstChild ()).getTagName ());
+
+    assertTrue (e.removeAllChildren ().isChanged ());
+    assertFalse (e.hasChildren ());
+    assertNull (e.getChildren ());
+    assertNull (e.getFirstChild ());
+  }
 }
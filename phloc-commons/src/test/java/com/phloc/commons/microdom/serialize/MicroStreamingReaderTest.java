@@ -0,0 +1,143 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.microdom.serialize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.phloc.commons.callback.DoNothingExceptionHandler;
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.state.EContinue;
+import com.phloc.commons.xml.serialize.SAXReaderSettings;
+
+/**
+ * Test class for class {@link MicroStreamingReader}.
+ * 
+ * @author Philip Helger
+ */
+public final class MicroStreamingReaderTest
+{
+  private static final String XML = "<?xml version='1.0'?>" +
+                                     "<export xmlns='urn:test'>" +
+                                     "<header><item>not me</item></header>" +
+                                     "<items>" +
+                                     "<item id='1'>a<b>bold</b><!-- c --><![CDATA[<x>]]></item>" +
+                                     "<item id='2'><item id='nested'/></item>" +
+                                     "<other/>" +
+                                     "<item id='3'/>" +
+                                     "</items>" +
+                                     "</export>";
+
+  private static final class CollectingCallback implements IMicroStreamingCallback
+  {
+    private final List <IMicroElement> m_aElements = new ArrayList <IMicroElement> ();
+    private final int m_nMax;
+
+    CollectingCallback (final int nMax)
+    {
+      m_nMax = nMax;
+    }
+
+    @Nonnull
+    public EContinue onElement (@Nonnull final IMicroElement aElement)
+    {
+      m_aElements.add (aElement);
+      return EContinue.valueOf (m_aElements.size () < m_nMax);
+    }
+  }
+
+  @Test
+  public void testReadElements ()
+  {
+    final CollectingCallback aCB = new CollectingCallback (Integer.MAX_VALUE);
+    assertTrue (MicroStreamingReader.readMicroXML (XML, "export/items/item", null, aCB).isSuccess ());
+    assertEquals (3, aCB.m_aElements.size ());
+
+    // Must be equal to the elements of the full document
+    final IMicroDocument aDoc = MicroReader.readMicroXML (XML);
+    final List <IMicroElement> aExpected = aDoc.getDocumentElement ()
+                                               .getFirstChildElement ("urn:test", "items")
+                                               .getAllChildElements ("urn:test", "item");
+    assertEquals (3, aExpected.size ());
+    for (int i = 0; i < 3; ++i)
+    {
+      final IMicroElement aElement = aCB.m_aElements.get (i);
+      assertNull (aElement.getParent ());
+      assertEquals ("urn:test", aElement.getNamespaceURI ());
+      assertTrue (aElement.isEqualContent (aExpected.get (i)));
+    }
+  }
+
+  @Test
+  public void testWildcardAndSeparators ()
+  {
+    final CollectingCallback aCB = new CollectingCallback (Integer.MAX_VALUE);
+    assertTrue (MicroStreamingReader.readMicroXML (XML, "/*/*/", null, aCB).isSuccess ());
+    assertEquals (2, aCB.m_aElements.size ());
+    assertEquals ("header", aCB.m_aElements.get (0).getLocalName ());
+    assertEquals ("items", aCB.m_aElements.get (1).getLocalName ());
+
+    // Root element only
+    final CollectingCallback aCB2 = new CollectingCallback (Integer.MAX_VALUE);
+    assertTrue (MicroStreamingReader.readMicroXML (XML, "export", null, aCB2).isSuccess ());
+    assertEquals (1, aCB2.m_aElements.size ());
+
+    // Nothing matches
+    final CollectingCallback aCB3 = new CollectingCallback (Integer.MAX_VALUE);
+    assertTrue (MicroStreamingReader.readMicroXML (XML, "items/item", null, aCB3).isSuccess ());
+    assertEquals (0, aCB3.m_aElements.size ());
+
+    try
+    {
+      MicroStreamingReader.readMicroXML (XML, "export//item", null, aCB3);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
+  @Test
+  public void testStop ()
+  {
+    final CollectingCallback aCB = new CollectingCallback (2);
+    assertTrue (MicroStreamingReader.readMicroXML (XML, "export/items/item", null, aCB).isSuccess ());
+    assertEquals (2, aCB.m_aElements.size ());
+    assertEquals ("2", aCB.m_aElements.get (1).getAttribute ("id"));
+  }
+
+  @Test
+  public void testInvalidXML ()
+  {
+    final CollectingCallback aCB = new CollectingCallback (Integer.MAX_VALUE);
+    final SAXReaderSettings aSettings = new SAXReaderSettings ().setExceptionHandler (new DoNothingExceptionHandler ());
+    assertTrue (MicroStreamingReader.readMicroXML ("<export><items><item/><item>", "export/items/item", aSettings, aCB)
+                                    .isFailure ());
+    // The complete element was delivered before the error occurred
+    assertEquals (1, aCB.m_aElements.size ());
+  }
+}
@@ -22,10 +22,17 @@ import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
 import org.junit.Test;
 
 import com.phloc.commons.charset.CCharset;
 import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.commons.io.streams.NonBlockingStringWriter;
 import com.phloc.commons.microdom.IMicroDocument;
 import com.phloc.commons.microdom.IMicroElement;
 import com.phloc.commons.microdom.IMicroNode;
@@ -183,6 +190,25 @@ public final class MicroWriterTest
     {}
   }
 
+  @Test
+  public void testSaveToStreamCharsets ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    eRoot.setAttribute ("attr", "a<\"\u00e4\u20ac\ud83d\ude00\">");
+    eRoot.appendText ("Text & more: \u00e4\u00f6\u00fc \u20ac \ud83d\ude00 \u0800");
+    eRoot.appendElement ("child").appendCDATA ("cdata \u00df");
+
+    for (final String sCharset : new String [] { CCharset.CHARSET_UTF_8, CCharset.CHARSET_UTF_16 })
+    {
+      final XMLWriterSettings aSettings = new XMLWriterSettings ().setCharset (sCharset);
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      assertTrue (MicroWriter.writeToStream (aDoc, aBAOS, aSettings).isSuccess ());
+      // Must be identical to the String based version
+      assertEquals (sCharset, MicroWriter.getNodeAsString (aDoc, aSettings), aBAOS.getAsString (sCharset));
+    }
+  }
+
   @Test
   public void testXMLVersion ()
   {
@@ -278,6 +304,102 @@ public final class MicroWriterTest
                   + "</a:root>", s);
   }
 
+  @Test
+  public void testParallel ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    aDoc.appendComment ("head");
+    final IMicroElement eRoot = aDoc.appendElement ("ns1url", "root");
+    for (int i = 0; i < 1000; ++i)
+    {
+      switch (i % 4)
+      {
+        case 0:
+          eRoot.appendElement ("ns2url", "child").setAttribute ("id", Integer.toString (i)).appendText ("a<b & c");
+          break;
+        case 1:
+          eRoot.appendElement ("ns3url", "other").appendElement ("ns1url", "inner").appendCDATA ("x" + i);
+          break;
+        case 2:
+          eRoot.appendText ("text" + i);
+          break;
+        default:
+          eRoot.appendElement ("plain").appendElement ("ns2url", "deep").appendComment ("c" + i);
+          break;
+      }
+    }
+    aDoc.appendComment ("tail");
+
+    final MapBasedNamespaceContext aCtx = new MapBasedNamespaceContext ();
+    aCtx.addMapping ("xy", "ns2url");
+    final ExecutorService aExecutor = Executors.newFixedThreadPool (4);
+    try
+    {
+      for (final EXMLSerializeIndent eIndent : EXMLSerializeIndent.values ())
+        for (final boolean bInRoot : new boolean [] { false, true })
+        {
+          final XMLWriterSettings aSettings = new XMLWriterSettings ().setIndent (eIndent)
+                                                                      .setNamespaceContext (aCtx)
+                                                                      .setPutNamespaceContextPrefixesInRoot (bInRoot);
+          final String sExpected = MicroWriter.getNodeAsString (aDoc, aSettings);
+
+          // Writer
+          final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+          assertTrue (MicroWriter.writeToWriter (aDoc, aSW, aSettings, aExecutor).isSuccess ());
+          assertEquals (sExpected, aSW.getAsString ());
+
+          // Stream
+          final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+          assertTrue (MicroWriter.writeToStream (aDoc, aBAOS, aSettings, aExecutor).isSuccess ());
+          assertEquals (sExpected, aBAOS.getAsString (aSettings.getCharsetObj ()));
+
+          // Only an element is serialized
+          final NonBlockingStringWriter aSW2 = new NonBlockingStringWriter ();
+          assertTrue (MicroWriter.writeToWriter (eRoot, aSW2, aSettings, aExecutor).isSuccess ());
+          assertEquals (MicroWriter.getNodeAsString (eRoot, aSettings), aSW2.getAsString ());
+        }
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+  }
+
+  @Test
+  public void testParallelFromExecutorThread () throws Exception
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    for (int i = 0; i < 1000; ++i)
+      eRoot.appendElement ("child").setAttribute ("id", Integer.toString (i));
+    final String sExpected = MicroWriter.getNodeAsString (aDoc, XMLWriterSettings.DEFAULT_XML_SETTINGS);
+
+    // Serializing from the only thread of the executor must not deadlock
+    final ExecutorService aExecutor = Executors.newSingleThreadExecutor ();
+    try
+    {
+      final Future <String> aFuture = aExecutor.submit (new Callable <String> ()
+      {
+        public String call ()
+        {
+          final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+          MicroWriter.writeToWriter (aDoc, aSW, XMLWriterSettings.DEFAULT_XML_SETTINGS, aExecutor);
+          return aSW.getAsString ();
+        }
+      });
+      assertEquals (sExpected, aFuture.get (1, TimeUnit.MINUTES));
+    }
+    finally
+    {
+      aExecutor.shutdown ();
+    }
+
+    // A rejecting executor
+    final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+    assertTrue (MicroWriter.writeToWriter (aDoc, aSW, XMLWriterSettings.DEFAULT_XML_SETTINGS, aExecutor).isSuccess ());
+    assertEquals (sExpected, aSW.getAsString ());
+  }
+
   @Test
   public void testWithoutEmitNamespaces ()
   {
@@ -20,6 +20,7 @@ package com.phloc.commons.microdom.utils;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 import java.io.IOException;
@@ -199,4 +200,65 @@ public final class MicroUtilsTest
     assertEquals (BigInteger.valueOf (100234),
                   MicroUtils.getChildTextContentWithConversion (e, sNSURI, "y", BigInteger.class));
   }
+
+  @Test
+  public void testGetAllDescendantElementsWithName ()
+  {
+    final String sNSURI = "my-namespace-uri";
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    final IMicroElement eA = eRoot.appendElement ("a");
+    eA.appendElement ("x").setAttribute ("id", "x1");
+    eA.appendElement (sNSURI, "x");
+    eRoot.appendElement ("b").appendElement ("x").setAttribute ("id", "x3");
+
+    // With document index
+    assertEquals (3, MicroUtils.getAllDescendantElementsWithName (aDoc, null, "x").size ());
+    assertEquals (2, MicroUtils.getAllDescendantElementsWithName (eA, null, "x").size ());
+    assertEquals (1, MicroUtils.getAllDescendantElementsWithName (eA, sNSURI, "x").size ());
+    assertEquals (0, MicroUtils.getAllDescendantElementsWithName (eA, null, "a").size ());
+    assertEquals (1, MicroUtils.getAllDescendantElementsWithName (aDoc, null, "a").size ());
+    assertNotNull (MicroUtils.getDescendantElementWithID (aDoc, "x1"));
+    assertNotNull (MicroUtils.getDescendantElementWithID (eA, "x1"));
+    assertNull (MicroUtils.getDescendantElementWithID (eA, "x3"));
+    assertNull (MicroUtils.getDescendantElementWithID (eA, null));
+
+    // Without document
+    eRoot.detachFromParent ();
+    assertEquals (3, MicroUtils.getAllDescendantElementsWithName (eRoot, null, "x").size ());
+    assertEquals (1, MicroUtils.getAllDescendantElementsWithName (eRoot, sNSURI, "x").size ());
+    assertEquals (2, MicroUtils.getAllDescendantElementsWithName (eA, null, "x").size ());
+    assertEquals (0, MicroUtils.getAllDescendantElementsWithName (eRoot, null, "root").size ());
+    assertNotNull (MicroUtils.getDescendantElementWithID (eRoot, "x3"));
+    assertNull (MicroUtils.getDescendantElementWithID (eA, "x3"));
+  }
+
+  @Test
+  public void testGetDescendantElementWithDuplicateID ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("root");
+    final IMicroElement eA = eRoot.appendElement ("a");
+    eA.appendElement ("x").setAttribute ("id", "dup");
+    final IMicroElement eB = eRoot.appendElement ("b");
+    final IMicroElement eX2 = eB.appendElement ("x");
+    eX2.setAttribute ("id", "dup");
+    final IMicroElement eY = eB.appendElement ("y");
+    eY.setAttribute ("key", "k");
+
+    // The first element in document order is not below the start node
+    assertSame (eX2, MicroUtils.getDescendantElementWithID (eB, "dup"));
+    assertEquals (2, aDoc.getElementIndex ().getAllElementsWithID ("dup").size ());
+    assertEquals (1, MicroUtils.getAllDescendantElementsWithName (eRoot, null, "a").size ());
+    assertEquals (1, MicroUtils.getAllDescendantElementsWithName (eB, null, "x").size ());
+
+    // Additional ID attributes are considered with and without document
+    assertNull (MicroUtils.getDescendantElementWithID (eB, "k"));
+    aDoc.getElementIndex ().addIDAttributeName ("key");
+    assertSame (eY, MicroUtils.getDescendantElementWithID (eB, "k"));
+    eRoot.detachFromParent ();
+    assertNull (MicroUtils.getDescendantElementWithID (eB, "k"));
+    assertSame (eY, MicroUtils.getDescendantElementWithID (eB, "k", ContainerHelper.newSet ("id", "key")));
+    assertSame (eX2, MicroUtils.getDescendantElementWithID (eB, "dup"));
+  }
 }
@@ -0,0 +1,196 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.phloc.commons.concurrent.ManagedExecutorService;
+import com.phloc.commons.factory.FactoryConstantValue;
+import com.phloc.commons.factory.IFactory;
+import com.phloc.commons.filter.IFilter;
+import com.phloc.commons.stats.StatisticsManager;
+
+/**
+ * Test class for class {@link ConcurrentObjectPool}.
+ * 
+ * @author Philip Helger
+ */
+public final class ConcurrentObjectPoolTest
+{
+  private static final class MockFactory implements IFactory <StringBuilder>
+  {
+    final AtomicInteger m_aCreated = new AtomicInteger (0);
+
+    public StringBuilder create ()
+    {
+      return new StringBuilder ("o" + m_aCreated.incrementAndGet ());
+    }
+  }
+
+  @Test
+  public void testSimple ()
+  {
+    final int ITEMS = 5;
+    final ConcurrentObjectPool <String> aOP = new ConcurrentObjectPool <String> ("test-simple",
+                                                                                 ITEMS,
+                                                                                 new FactoryConstantValue <String> ("any"));
+    assertEquals (ITEMS, aOP.getItemCount ());
+    for (int i = 0; i < ITEMS; ++i)
+      assertEquals ("any", aOP.borrowObject ());
+    assertEquals (ITEMS, aOP.getBorrowedCount ());
+    assertEquals (0, aOP.getAvailableCount ());
+
+    // Pool is exhausted
+    assertNull (aOP.borrowObject (10, TimeUnit.MILLISECONDS));
+    assertEquals (1, StatisticsManager.getCounterHandler (ConcurrentObjectPool.STATISTICS_PREFIX +
+                                                          "test-simple$timeout").getCount ());
+
+    // Start returning
+    for (int i = 0; i < ITEMS; ++i)
+      assertTrue (aOP.returnObject ("any").isSuccess ());
+
+    // Cannot return more than that
+    assertFalse (aOP.returnObject ("any").isSuccess ());
+    assertEquals (ITEMS, aOP.getAvailableCount ());
+  }
+
+  @Test
+  public void testThreadAffinity ()
+  {
+    final MockFactory aFactory = new MockFactory ();
+    final ConcurrentObjectPool <StringBuilder> aOP = new ConcurrentObjectPool <StringBuilder> ("test-affinity",
+                                                                                               100,
+                                                                                               aFactory);
+    final StringBuilder a = aOP.borrowObject ();
+    final StringBuilder b = aOP.borrowObject ();
+    assertNotSame (a, b);
+    assertTrue (aOP.returnObject (a).isSuccess ());
+    assertTrue (aOP.returnObject (b).isSuccess ());
+    // The same thread gets the last object again
+    for (int i = 0; i < 10; ++i)
+    {
+      final StringBuilder c = aOP.borrowObject ();
+      assertTrue (c == a || c == b);
+      assertTrue (aOP.returnObject (c).isSuccess ());
+    }
+    assertEquals (2, aFactory.m_aCreated.get ());
+
+    // Foreign object
+    assertFalse (aOP.returnObject (new StringBuilder ()).isSuccess ());
+  }
+
+  @Test
+  public void testValidationAndEviction ()
+  {
+    final MockFactory aFactory = new MockFactory ();
+    final IFilter <StringBuilder> aValidator = new IFilter <StringBuilder> ()
+    {
+      public boolean matchesFilter (final StringBuilder aValue)
+      {
+        return aValue.length () < 5;
+      }
+    };
+    final ConcurrentObjectPool <StringBuilder> aOP = new ConcurrentObjectPool <StringBuilder> ("test-validate",
+                                                                                               3,
+                                                                                               aFactory,
+                                                                                               aValidator);
+    StringBuilder a = aOP.borrowObject ();
+    a.append ("xxx");
+    assertTrue (aOP.returnObject (a).isSuccess ());
+
+    // Invalid - a new object is created
+    final StringBuilder b = aOP.borrowObject ();
+    assertNotSame (a, b);
+    assertEquals (2, aFactory.m_aCreated.get ());
+
+    // Borrowed objects are not evicted
+    assertEquals (0, aOP.evictIdleObjects (0, TimeUnit.MILLISECONDS));
+    assertTrue (aOP.returnObject (b).isSuccess ());
+    assertEquals (1, aOP.evictIdleObjects (0, TimeUnit.MILLISECONDS));
+    assertEquals (0, aOP.evictIdleObjects (0, TimeUnit.MILLISECONDS));
+
+    a = aOP.borrowObject ();
+    assertNotNull (a);
+    assertEquals (3, aFactory.m_aCreated.get ());
+    assertEquals (0, aOP.evictIdleObjects (1, TimeUnit.HOURS));
+    assertTrue (aOP.returnObject (a).isSuccess ());
+    assertEquals (0, aOP.evictIdleObjects (1, TimeUnit.HOURS));
+  }
+
+  @Test
+  public void testConcurrent ()
+  {
+    final int ITEMS = 70;
+    final MockFactory aFactory = new MockFactory ();
+    final ConcurrentObjectPool <StringBuilder> aOP = new ConcurrentObjectPool <StringBuilder> ("test-concurrent",
+                                                                                               ITEMS,
+                                                                                               aFactory);
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (16);
+    for (int i = 0; i < 16; ++i)
+      aES.submit (new Runnable ()
+      {
+        public void run ()
+        {
+          for (int j = 0; j < 10000; ++j)
+          {
+            final StringBuilder aObj = aOP.borrowObject ();
+            // Objects may never be used by two threads at once
+            synchronized (aObj)
+            {
+              if (aObj.length () > 10)
+                aErrors.incrementAndGet ();
+              aObj.append ('x');
+              aObj.setLength (aObj.length () - 1);
+            }
+            if (aOP.returnObject (aObj).isFailure ())
+              aErrors.incrementAndGet ();
+          }
+        }
+      });
+    new ManagedExecutorService (aES).shutdownAndWaitUntilAllTasksAreFinished ();
+    assertEquals (0, aErrors.get ());
+    assertEquals (ITEMS, aOP.getAvailableCount ());
+    assertTrue (aFactory.m_aCreated.get () <= ITEMS);
+  }
+
+  @Test
+  public void testOneSlot ()
+  {
+    final ConcurrentObjectPool <StringBuilder> aOP = new ConcurrentObjectPool <StringBuilder> ("test-one",
+                                                                                               1,
+                                                                                               new MockFactory ());
+    final StringBuilder a = aOP.borrowObject ();
+    assertNull (aOP.borrowObject (0, TimeUnit.MILLISECONDS));
+    assertTrue (aOP.returnObject (a).isSuccess ());
+    assertSame (a, aOP.borrowObject (0, TimeUnit.MILLISECONDS));
+  }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.pool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.phloc.commons.factory.IFactoryWithParameter;
+
+/**
+ * Test class for class {@link KeyedObjectPool}.
+ * 
+ * @author Philip Helger
+ */
+public final class KeyedObjectPoolTest
+{
+  private static final class MockFactory implements IFactoryWithParameter <StringBuilder, String>
+  {
+    final AtomicInteger m_aCreated = new AtomicInteger (0);
+
+    public StringBuilder create (final String sKey)
+    {
+      return new StringBuilder (sKey + m_aCreated.incrementAndGet ());
+    }
+  }
+
+  private static final class BlockingFactory implements IFactoryWithParameter <StringBuilder, String>
+  {
+    final CountDownLatch m_aCreating = new CountDownLatch (1);
+    final CountDownLatch m_aCreate = new CountDownLatch (1);
+
+    public StringBuilder create (final String sKey)
+    {
+      m_aCreating.countDown ();
+      try
+      {
+        m_aCreate.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      return new StringBuilder (sKey);
+    }
+  }
+
+  @Test
+  public void testSimple ()
+  {
+    final MockFactory aFactory = new MockFactory ();
+    final KeyedObjectPool <String, StringBuilder> aPool = new KeyedObjectPool <String, StringBuilder> ("keyed-simple",
+                                                                                                     2,
+                                                                                                     2,
+                                                                                                     aFactory);
+    assertEquals (2, aPool.getItemCountPerKey ());
+    assertEquals (2, aPool.getMaxKeyCount ());
+    assertEquals (0, aPool.getKeyCount ());
+
+    final StringBuilder a1 = aPool.borrowObject ("a");
+    assertEquals ("a1", a1.toString ());
+    assertTrue (aPool.returnObject ("a", a1).isSuccess ());
+
+    // Same key -> same object
+    assertSame (a1, aPool.borrowObject ("a"));
+
+    // Different key -> different object
+    final StringBuilder b = aPool.borrowObject ("b");
+    assertEquals ("b2", b.toString ());
+    assertEquals (2, aPool.getKeyCount ());
+
+    // The object cannot be returned with a different key
+    assertTrue (aPool.returnObject ("b", a1).isFailure ());
+    assertTrue (aPool.returnObject ("a", a1).isSuccess ());
+
+    // Key limit reached - the least recently used key without borrowed
+    // objects is replaced
+    final StringBuilder c = aPool.borrowObject ("c");
+    assertEquals ("c3", c.toString ());
+    assertEquals (2, aPool.getKeyCount ());
+    assertTrue (aPool.returnObject ("a", a1).isFailure ());
+
+    // All keys have borrowed objects
+    assertNull (aPool.borrowObject ("d"));
+    assertTrue (aPool.returnObject ("d", new StringBuilder ()).isFailure ());
+    assertEquals (1, aPool.getUnpooledCount ());
+    assertTrue (aPool.returnObject ("b", b).isSuccess ());
+    assertTrue (aPool.returnObject ("c", c).isSuccess ());
+
+    assertEquals (4, aPool.getBorrowCount ());
+    assertEquals (3, aPool.getCreateCount ());
+    assertEquals (1, aPool.getHitCount ());
+  }
+
+  @Test
+  public void testEvictIdleObjects () throws InterruptedException
+  {
+    final MockFactory aFactory = new MockFactory ();
+    final KeyedObjectPool <String, StringBuilder> aPool = new KeyedObjectPool <String, StringBuilder> ("keyed-evict",
+                                                                                                     2,
+                                                                                                     2,
+                                                                                                     10,
+                                                                                                     aFactory);
+    assertEquals (10, aPool.getMaxIdleMillis ());
+    final StringBuilder a1 = aPool.borrowObject ("a");
+    assertEquals (0, aPool.evictIdleObjects (1, TimeUnit.HOURS));
+    assertTrue (aPool.returnObject ("a", a1).isSuccess ());
+    assertEquals (1, aPool.evictIdleObjects (0, TimeUnit.MILLISECONDS));
+    assertEquals (0, aPool.getKeyCount ());
+
+    // Idle objects are released automatically while borrowing
+    final StringBuilder a2 = aPool.borrowObject ("a");
+    assertEquals ("a2", a2.toString ());
+    assertTrue (aPool.returnObject ("a", a2).isSuccess ());
+    Thread.sleep (50);
+    final StringBuilder b = aPool.borrowObject ("b");
+    assertEquals (1, aPool.getKeyCount ());
+    assertTrue (aPool.returnObject ("b", b).isSuccess ());
+    assertNotSame (a2, aPool.borrowObject ("a"));
+  }
+
+  @Test
+  public void testEvictWhileBorrowed () throws InterruptedException
+  {
+    final BlockingFactory aFactory = new BlockingFactory ();
+    final KeyedObjectPool <String, StringBuilder> aPool = new KeyedObjectPool <String, StringBuilder> ("keyed-evict-borrowed",
+                                                                                                     2,
+                                                                                                     1,
+                                                                                                     aFactory);
+    final AtomicReference <StringBuilder> aBorrowed = new AtomicReference <StringBuilder> ();
+    final Thread aBorrower = new Thread (new Runnable ()
+    {
+      public void run ()
+      {
+        aBorrowed.set (aPool.borrowObject ("a"));
+      }
+    });
+    aBorrower.start ();
+    assertTrue (aFactory.m_aCreating.await (10, TimeUnit.SECONDS));
+
+    // Neither idle eviction nor the key limit removes the pool of "a" while
+    // the object is being borrowed
+    assertEquals (0, aPool.evictIdleObjects (0, TimeUnit.MILLISECONDS));
+    assertNull (aPool.borrowObject ("b"));
+    assertEquals (1, aPool.getKeyCount ());
+    aFactory.m_aCreate.countDown ();
+    aBorrower.join ();
+
+    // Still the same pool - not a newly created one
+    assertNotNull (aBorrowed.get ());
+    assertEquals (0, aPool.evictIdleObjects (0, TimeUnit.MILLISECONDS));
+    assertNull (aPool.borrowObject ("b"));
+    assertTrue (aPool.returnObject ("a", aBorrowed.get ()).isSuccess ());
+    assertSame (aBorrowed.get (), aPool.borrowObject ("a"));
+    assertTrue (aPool.returnObject ("a", aBorrowed.get ()).isSuccess ());
+
+    // Without borrowed objects the pool can be removed
+    assertEquals (1, aPool.evictIdleObjects (0, TimeUnit.MILLISECONDS));
+    assertEquals (0, aPool.getKeyCount ());
+    assertTrue (aPool.returnObject ("a", aBorrowed.get ()).isFailure ());
+  }
+
+  @Test
+  public void testDiscard ()
+  {
+    final MockFactory aFactory = new MockFactory ();
+    final KeyedObjectPool <String, StringBuilder> aPool = new KeyedObjectPool <String, StringBuilder> ("keyed-discard",
+                                                                                                     aFactory);
+    assertTrue (aPool.getItemCountPerKey () >= 5);
+
+    final StringBuilder a1 = aPool.borrowObject ("a");
+    assertNotNull (a1);
+    assertTrue (aPool.discardObject ("a", a1).isSuccess ());
+    assertTrue (aPool.discardObject ("a", a1).isFailure ());
+
+    // A new object is created
+    final StringBuilder a2 = aPool.borrowObject ("a");
+    assertNotSame (a1, a2);
+    assertEquals (2, aFactory.m_aCreated.get ());
+    assertTrue (aPool.returnObject ("a", a2).isSuccess ());
+  }
+}
@@ -0,0 +1,162 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.phloc.commons.CGlobal;
+
+/**
+ * Test class for class {@link LogLinearHistogram}.
+ * 
+ * @author Philip Helger
+ */
+public final class LogLinearHistogramTest
+{
+  @Test
+  public void testEmpty ()
+  {
+    final LogLinearHistogram aHG = new LogLinearHistogram ();
+    assertEquals (LogLinearHistogram.DEFAULT_PRECISION_BITS, aHG.getPrecisionBits ());
+    assertEquals (0, aHG.getTotalCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, aHG.getMaxValue ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, aHG.getValueAtPercentile (50));
+    assertNotNull (aHG.getAsString ());
+    assertNotNull (aHG.toString ());
+
+    try
+    {
+      new LogLinearHistogram (LogLinearHistogram.MIN_PRECISION_BITS - 1);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+    try
+    {
+      aHG.getValueAtPercentile (100.1);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
+  @Test
+  public void testExactValues ()
+  {
+    final LogLinearHistogram aHG = new LogLinearHistogram ();
+    // All values below 2^precisionBits are exact
+    for (int i = 1; i <= 20; ++i)
+      aHG.recordValue (i);
+    assertEquals (20, aHG.getTotalCount ());
+    assertEquals (20, aHG.getMaxValue ());
+    assertEquals (1, aHG.getValueAtPercentile (0));
+    assertEquals (10, aHG.getValueAtPercentile (50));
+    assertEquals (18, aHG.getValueAtPercentile (90));
+    assertEquals (20, aHG.getValueAtPercentile (100));
+
+    // Negative values are counted as 0
+    aHG.recordValue (-5);
+    assertEquals (0, aHG.getValueAtPercentile (0));
+  }
+
+  @Test
+  public void testRelativeError ()
+  {
+    for (int nBits = LogLinearHistogram.MIN_PRECISION_BITS; nBits <= LogLinearHistogram.MAX_PRECISION_BITS; ++nBits)
+    {
+      final double dMaxError = 1d / (1 << (nBits - 1));
+      for (long nValue = 1; nValue > 0 && nValue < Long.MAX_VALUE / 3; nValue = nValue * 3 + 1)
+      {
+        final LogLinearHistogram aHG = new LogLinearHistogram (nBits);
+        aHG.recordValue (nValue);
+        aHG.recordValue (Long.MAX_VALUE);
+        final long nReported = aHG.getValueAtPercentile (50);
+        assertTrue (nReported >= nValue);
+        assertTrue (nValue + " -> " + nReported, (nReported - nValue) / (double) nValue <= dMaxError);
+      }
+    }
+  }
+
+  @Test
+  public void testPercentiles ()
+  {
+    final LogLinearHistogram aHG = new LogLinearHistogram ();
+    for (int i = 1; i <= 10000; ++i)
+      aHG.recordValue (i);
+    assertEquals (10000, aHG.getTotalCount ());
+    final double dMaxError = 1d / (1 << (aHG.getPrecisionBits () - 1));
+    for (final double dPercentile : new double [] { 50, 90, 99, 99.9 })
+    {
+      final long nExpected = (long) (dPercentile * 100);
+      final long nReported = aHG.getValueAtPercentile (dPercentile);
+      assertTrue (nReported >= nExpected);
+      assertTrue ((nReported - nExpected) / (double) nExpected <= dMaxError);
+    }
+    assertEquals (10000, aHG.getValueAtPercentile (100));
+  }
+
+  @Test
+  public void testMergeAndReset ()
+  {
+    final LogLinearHistogram aHG1 = new LogLinearHistogram ();
+    final LogLinearHistogram aHG2 = new LogLinearHistogram ();
+    aHG1.recordValues (5, 3);
+    aHG2.recordValue (1000);
+    aHG1.add (aHG2);
+    assertEquals (4, aHG1.getTotalCount ());
+    assertEquals (1000, aHG1.getMaxValue ());
+    assertEquals (1, aHG2.getTotalCount ());
+
+    final LogLinearHistogram aInterval = aHG1.getAndReset ();
+    assertEquals (4, aInterval.getTotalCount ());
+    assertEquals (1000, aInterval.getMaxValue ());
+    assertEquals (5, aInterval.getValueAtPercentile (75));
+    assertEquals (0, aHG1.getTotalCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, aHG1.getMaxValue ());
+
+    aHG2.reset ();
+    assertEquals (0, aHG2.getTotalCount ());
+
+    try
+    {
+      aHG1.add (new LogLinearHistogram (LogLinearHistogram.DEFAULT_PRECISION_BITS + 1));
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
+  @Test
+  public void testCombinedPercentile ()
+  {
+    final LogLinearHistogram aHG1 = new LogLinearHistogram ();
+    final LogLinearHistogram aHG2 = new LogLinearHistogram ();
+    assertEquals (CGlobal.ILLEGAL_ULONG, aHG1.getValueAtPercentile (50, aHG2));
+    aHG1.recordValues (5, 3);
+    aHG2.recordValue (20);
+    assertEquals (5, aHG1.getValueAtPercentile (75, aHG2));
+    assertEquals (20, aHG1.getValueAtPercentile (100, aHG2));
+    assertEquals (20, aHG2.getValueAtPercentile (100, aHG1));
+    assertEquals (5, aHG1.getValueAtPercentile (100));
+  }
+}
@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import java.math.BigInteger;
+
+import org.junit.Test;
+
+import com.phloc.commons.CGlobal;
+
+/**
+ * Test class for class {@link StatisticsHandlerHistogramTimer}.
+ * 
+ * @author Philip Helger
+ */
+public final class StatisticsHandlerHistogramTimerTest
+{
+  @Test
+  public void testAll ()
+  {
+    final StatisticsHandlerHistogramTimer sh = new StatisticsHandlerHistogramTimer ();
+    assertEquals (0, sh.getInvocationCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getMin ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getMax ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getPercentile50 ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getPercentile999 ());
+    assertEquals (BigInteger.ZERO, sh.getSum ());
+
+    for (int i = 1; i <= 10; ++i)
+      sh.addTime (i);
+    assertEquals (10, sh.getInvocationCount ());
+    assertEquals (1, sh.getMin ());
+    assertEquals (5, sh.getAverage ());
+    assertEquals (10, sh.getMax ());
+    assertEquals (BigInteger.valueOf (55), sh.getSum ());
+    assertEquals (5, sh.getPercentile50 ());
+    assertEquals (9, sh.getPercentile90 ());
+    assertEquals (10, sh.getPercentile99 ());
+    assertEquals (10, sh.getPercentile999 ());
+
+    // Interval
+    LogLinearHistogram aInterval = sh.getAndResetIntervalHistogram ();
+    assertEquals (10, aInterval.getTotalCount ());
+    sh.addTime (20);
+    aInterval = sh.getAndResetIntervalHistogram ();
+    assertEquals (1, aInterval.getTotalCount ());
+    assertEquals (20, aInterval.getValueAtPercentile (50));
+    assertEquals (0, sh.getAndResetIntervalHistogram ().getTotalCount ());
+
+    // Overall values are retained
+    assertEquals (11, sh.getHistogram ().getTotalCount ());
+    assertEquals (20, sh.getPercentile999 ());
+    assertNotNull (sh.getAsString ());
+  }
+
+  @Test
+  public void testConcurrentIntervalReset () throws InterruptedException
+  {
+    final StatisticsHandlerHistogramTimer sh = new StatisticsHandlerHistogramTimer ();
+    final int nThreads = 4;
+    final int nValuesPerThread = 50000;
+    final Thread [] aThreads = new Thread [nThreads];
+    for (int i = 0; i < nThreads; ++i)
+    {
+      aThreads[i] = new Thread (new Runnable ()
+      {
+        public void run ()
+        {
+          for (int j = 0; j < nValuesPerThread; ++j)
+            sh.addTime (j % 100);
+        }
+      });
+      aThreads[i].start ();
+    }
+
+    // Reset the interval while values are recorded
+    long nIntervalTotal = 0;
+    boolean bAlive = true;
+    while (bAlive)
+    {
+      nIntervalTotal += sh.getAndResetIntervalHistogram ().getTotalCount ();
+      bAlive = false;
+      for (final Thread aThread : aThreads)
+        bAlive |= aThread.isAlive ();
+    }
+    for (final Thread aThread : aThreads)
+      aThread.join ();
+    nIntervalTotal += sh.getAndResetIntervalHistogram ().getTotalCount ();
+
+    // No value is lost or counted twice
+    assertEquals (nThreads * nValuesPerThread, nIntervalTotal);
+    assertEquals (nThreads * nValuesPerThread, sh.getHistogram ().getTotalCount ());
+  }
+}
@@ -19,6 +19,8 @@ package com.phloc.commons.stats;
 
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -241,4 +243,77 @@ public final class StatisticsManagerTest
     catch (final IllegalArgumentException ex)
     {}
   }
+
+  @Test
+  @SuppressFBWarnings (value = "NP_NONNULL_PARAM_VIOLATION")
+  public void testHistogramTimerHandler ()
+  {
+    assertNotNull (StatisticsManager.getHistogramTimerHandler (StatisticsManagerTest.class));
+    assertSame (StatisticsManager.getHistogramTimerHandler (StatisticsManagerTest.class),
+                StatisticsManager.getHistogramTimerHandler (StatisticsManagerTest.class));
+    assertFalse (StatisticsManager.getAllHistogramTimerHandler ().isEmpty ());
+    try
+    {
+      StatisticsManager.getHistogramTimerHandler ((Class <?>) null);
+      fail ();
+    }
+    catch (final NullPointerException ex)
+    {}
+    try
+    {
+      StatisticsManager.getHistogramTimerHandler ("");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
+  @Test
+  @SuppressFBWarnings (value = "NP_NONNULL_PARAM_VIOLATION")
+  public void testKeyedHistogramTimerHandler ()
+  {
+    assertNotNull (StatisticsManager.getKeyedHistogramTimerHandler (StatisticsManagerTest.class));
+    assertSame (StatisticsManager.getKeyedHistogramTimerHandler (StatisticsManagerTest.class),
+                StatisticsManager.getKeyedHistogramTimerHandler (StatisticsManagerTest.class));
+    assertFalse (StatisticsManager.getAllKeyedHistogramTimerHandler ().isEmpty ());
+    try
+    {
+      StatisticsManager.getKeyedHistogramTimerHandler ((Class <?>) null);
+      fail ();
+    }
+    catch (final NullPointerException ex)
+    {}
+    try
+    {
+      StatisticsManager.getKeyedHistogramTimerHandler ("");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+
+  @Test
+  public void testStripedHandlers ()
+  {
+    assertFalse (StatisticsManager.isStripedHandlersEnabled ());
+    StatisticsManager.setStripedHandlersEnabled (true);
+    try
+    {
+      assertTrue (StatisticsManager.isStripedHandlersEnabled ());
+      final String sName = StatisticsManagerTest.class.getName () + "$striped";
+      final IStatisticsHandlerTimer aTimer = StatisticsManager.getTimerHandler (sName);
+      assertTrue (aTimer instanceof StripedStatisticsHandlerTimer);
+      assertSame (aTimer, StatisticsManager.getTimerHandler (sName));
+      assertTrue (StatisticsManager.getCacheHandler (sName) instanceof StripedStatisticsHandlerCache);
+      assertTrue (StatisticsManager.getKeyedTimerHandler (sName) instanceof StripedStatisticsHandlerKeyedTimer);
+      assertTrue (StatisticsManager.getSizeHandler (sName) instanceof StripedStatisticsHandlerSize);
+      assertTrue (StatisticsManager.getKeyedSizeHandler (sName) instanceof StripedStatisticsHandlerKeyedSize);
+      assertTrue (StatisticsManager.getCounterHandler (sName) instanceof StripedStatisticsHandlerCounter);
+      assertTrue (StatisticsManager.getKeyedCounterHandler (sName) instanceof StripedStatisticsHandlerKeyedCounter);
+    }
+    finally
+    {
+      StatisticsManager.setStripedHandlersEnabled (StatisticsManager.DEFAULT_STRIPED_HANDLERS_ENABLED);
+    }
+  }
 }
@@ -0,0 +1,43 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link StripedStatisticsHandlerCounter}.
+ * 
+ * @author Philip Helger
+ */
+public final class StripedStatisticsHandlerCounterTest
+{
+  @Test
+  public void testAll ()
+  {
+    final StripedStatisticsHandlerCounter sh = new StripedStatisticsHandlerCounter ();
+    assertEquals (0, sh.getInvocationCount ());
+    sh.increment ();
+    assertEquals (1, sh.getInvocationCount ());
+    sh.increment (2);
+    assertEquals (2, sh.getInvocationCount ());
+    assertNotNull (sh.getAsString ());
+  }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.phloc.commons.CGlobal;
+
+/**
+ * Test class for class {@link StripedStatisticsHandlerKeyedCounter}.
+ * 
+ * @author Philip Helger
+ */
+public final class StripedStatisticsHandlerKeyedCounterTest
+{
+  @Test
+  public void testAll ()
+  {
+    final StripedStatisticsHandlerKeyedCounter sh = new StripedStatisticsHandlerKeyedCounter ();
+    assertEquals (0, sh.getInvocationCount ());
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getCount ("key1"));
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getCount ("key2"));
+    sh.increment ("key1");
+    assertEquals (1, sh.getInvocationCount ());
+    assertEquals (1L, sh.getCount ("key1"));
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getCount ("key2"));
+    sh.increment ("key1", 2);
+    assertEquals (2, sh.getInvocationCount ());
+    assertEquals (3L, sh.getCount ("key1"));
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getCount ("key2"));
+    sh.increment ("key2");
+    assertEquals (3, sh.getInvocationCount ());
+    assertEquals (3L, sh.getCount ("key1"));
+    assertEquals (1L, sh.getCount ("key2"));
+    assertEquals (2, sh.getAllKeys ().size ());
+    assertNotNull (sh.getAsString ());
+  }
+
+  @Test
+  public void testNullKey ()
+  {
+    final StripedStatisticsHandlerKeyedCounter sh = new StripedStatisticsHandlerKeyedCounter ();
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getCount (null));
+    sh.increment (null);
+    sh.increment (null, 4);
+    sh.increment ("key1");
+    assertEquals (3, sh.getInvocationCount ());
+    assertEquals (2, sh.getInvocationCount (null));
+    assertEquals (5L, sh.getCount (null));
+    assertEquals (1L, sh.getCount ("key1"));
+    assertEquals (2, sh.getAllKeys ().size ());
+    assertTrue (sh.getAllKeys ().contains (null));
+  }
+}
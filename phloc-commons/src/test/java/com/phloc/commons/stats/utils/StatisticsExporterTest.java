@@ -22,6 +22,7 @@ import static org.junit.Assert.assertNotNull;
 import org.junit.Test;
 
 import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.stats.StatisticsManager;
 
 /**
  * Test class for class {@link StatisticsExporter}.
@@ -33,6 +34,8 @@ public final class StatisticsExporterTest
   @Test
   public void testExportXML ()
   {
+    StatisticsManager.getHistogramTimerHandler (StatisticsExporterTest.class).addTime (5);
+    StatisticsManager.getKeyedHistogramTimerHandler (StatisticsExporterTest.class).addTime ("key", 5);
     final IMicroDocument aDoc = StatisticsExporter.getAsXMLDocument ();
     assertNotNull (aDoc);
   }
@@ -0,0 +1,127 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.supplementary.test.benchmark;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import com.phloc.commons.collections.LRUCache;
+import com.phloc.commons.collections.WTinyLFUEvictionPolicy;
+
+/**
+ * Compare the hit ratio of the default LRU eviction of {@link LRUCache} with
+ * the {@link WTinyLFUEvictionPolicy} on a Zipf distributed trace, on a Zipf
+ * trace interleaved with scans of one-time keys and on a loop trace that is
+ * slightly larger than the cache.
+ */
+public final class BenchmarkEvictionPolicyHitRatio extends AbstractBenchmarkTask
+{
+  private static final int CACHE_SIZE = 1000;
+  private static final int KEY_SPACE = 100000;
+  private static final int TRACE_LENGTH = 1000000;
+
+  private BenchmarkEvictionPolicyHitRatio ()
+  {}
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    logSystemInfo ();
+    findHitRatios ();
+  }
+
+  /**
+   * Create a Zipf distributed trace by inverting the cumulative distribution.
+   */
+  private static int [] _createZipfTrace (final Random aRandom, final double dExponent)
+  {
+    final double [] aCDF = new double [KEY_SPACE];
+    double dSum = 0;
+    for (int i = 0; i < KEY_SPACE; ++i)
+    {
+      dSum += 1 / Math.pow (i + 1, dExponent);
+      aCDF[i] = dSum;
+    }
+
+    final int [] ret = new int [TRACE_LENGTH];
+    for (int i = 0; i < TRACE_LENGTH; ++i)
+    {
+      final double dValue = aRandom.nextDouble () * dSum;
+      int nIndex = Arrays.binarySearch (aCDF, dValue);
+      if (nIndex < 0)
+        nIndex = -nIndex - 1;
+      ret[i] = nIndex;
+    }
+    return ret;
+  }
+
+  /**
+   * Replace every other block of the Zipf trace with a scan of keys that are
+   * used only once.
+   */
+  private static int [] _createScanTrace (final int [] aZipfTrace)
+  {
+    final int [] ret = aZipfTrace.clone ();
+    final int nBlockSize = CACHE_SIZE * 5;
+    int nScanKey = KEY_SPACE;
+    for (int nStart = nBlockSize; nStart < ret.length; nStart += 2 * nBlockSize)
+      for (int i = nStart; i < Math.min (nStart + nBlockSize, ret.length); ++i)
+        ret[i] = nScanKey++;
+    return ret;
+  }
+
+  private static int [] _createLoopTrace ()
+  {
+    final int [] ret = new int [TRACE_LENGTH];
+    final int nLoopSize = CACHE_SIZE + CACHE_SIZE / 4;
+    for (int i = 0; i < TRACE_LENGTH; ++i)
+      ret[i] = i % nLoopSize;
+    return ret;
+  }
+
+  private static double _getHitRatio (final LRUCache <Integer, Integer> aCache, final int [] aTrace)
+  {
+    int nHits = 0;
+    for (final int nKey : aTrace)
+    {
+      final Integer aKey = Integer.valueOf (nKey);
+      if (aCache.get (aKey) != null)
+        nHits++;
+      else
+        aCache.put (aKey, aKey);
+    }
+    return nHits * 100.0 / aTrace.length;
+  }
+
+  private static void _run (final String sTraceName, final int [] aTrace)
+  {
+    final double dLRU = _getHitRatio (new LRUCache <Integer, Integer> (CACHE_SIZE), aTrace);
+    final double dTinyLFU = _getHitRatio (new LRUCache <Integer, Integer> (CACHE_SIZE,
+                                                                           new WTinyLFUEvictionPolicy <Integer> (CACHE_SIZE)),
+                                          aTrace);
+    s_aLogger.info (sTraceName + ": LRU " + dLRU + "% - W-TinyLFU " + dTinyLFU + "%");
+  }
+
+  private static void findHitRatios ()
+  {
+    final Random aRandom = new Random (4711);
+    final int [] aZipfTrace = _createZipfTrace (aRandom, 0.9);
+    _run ("Zipf 0.9", aZipfTrace);
+    _run ("Zipf 0.9 with scans", _createScanTrace (aZipfTrace));
+    _run ("Loop", _createLoopTrace ());
+  }
+}
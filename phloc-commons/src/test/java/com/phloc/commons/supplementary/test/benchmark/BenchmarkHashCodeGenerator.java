@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.supplementary.test.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import com.phloc.commons.equals.EqualsUtils;
+import com.phloc.commons.hash.HashCodeGenerator;
+
+/**
+ * Benchmark {@link HashCodeGenerator} on object graphs. Each element of the
+ * graph is dispatched through the hash code implementation registry.
+ * 
+ * @author Philip Helger
+ */
+public final class BenchmarkHashCodeGenerator extends AbstractBenchmarkTask
+{
+  private BenchmarkHashCodeGenerator ()
+  {}
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    logSystemInfo ();
+
+    final Object aGraph = _createGraph (4, 8);
+    final double dTime = benchmarkTask (new GraphHasher (aGraph));
+    s_aLogger.info ("Time hashing object graph: " + dTime + " ns");
+
+    final double dObjectArray = benchmarkTask (new ObjectArrayHasher (_createObjectArray (1000)));
+    s_aLogger.info ("Time hashing Object[1000]: " + dObjectArray + " ns");
+
+    final byte [] aBytes = new byte [64 * 1024];
+    for (int i = 0; i < aBytes.length; ++i)
+      aBytes[i] = (byte) i;
+    final double dByteArray = benchmarkTask (new ObjectHasher (aBytes));
+    s_aLogger.info ("Time hashing byte[64k]: " + dByteArray + " ns");
+
+    final List <Integer> aIntList = new ArrayList <Integer> ();
+    for (int i = 0; i < 1000; ++i)
+      aIntList.add (Integer.valueOf (i));
+    final double dList = benchmarkTask (new ObjectHasher (aIntList));
+    s_aLogger.info ("Time hashing ArrayList<Integer>(1000): " + dList + " ns");
+
+    final double dLinkedList = benchmarkTask (new ObjectHasher (new LinkedList <Integer> (aIntList)));
+    s_aLogger.info ("Time hashing LinkedList<Integer>(1000): " + dLinkedList + " ns");
+
+    final double dEquals = benchmarkTask (new ListEquals (aIntList, new ArrayList <Integer> (aIntList)));
+    s_aLogger.info ("Time comparing ArrayList<Integer>(1000): " + dEquals + " ns");
+  }
+
+  @SuppressWarnings ("unchecked")
+  private static Object _createGraph (final int nDepth, final int nWidth)
+  {
+    if (nDepth == 0)
+      return new Object [] { "leaf", Integer.valueOf (nWidth), Double.valueOf (nWidth / 3d), new int [] { 1, 2, 3 } };
+
+    final Map <String, Object> aMap = new HashMap <String, Object> ();
+    final List <Object> aList = new ArrayList <Object> ();
+    for (int i = 0; i < nWidth; ++i)
+      aList.add (_createGraph (nDepth - 1, nWidth / 2 + 1));
+    aMap.put ("children", aList);
+    aMap.put ("name", "node" + nDepth);
+    aMap.put ("id", Long.valueOf (nDepth * 31L));
+    return aMap;
+  }
+
+  private static Object [] _createObjectArray (final int nLength)
+  {
+    final Object [] ret = new Object [nLength];
+    for (int i = 0; i < nLength; ++i)
+      ret[i] = i % 2 == 0 ? Integer.valueOf (i) : Integer.toString (i);
+    return ret;
+  }
+
+  private static final class GraphHasher implements Runnable
+  {
+    private final Object m_aGraph;
+
+    public GraphHasher (final Object aGraph)
+    {
+      m_aGraph = aGraph;
+    }
+
+    public void run ()
+    {
+      if (new HashCodeGenerator (m_aGraph).append (m_aGraph).getHashCode () == 0)
+        throw new IllegalStateException ();
+    }
+  }
+
+  private static final class ObjectArrayHasher implements Runnable
+  {
+    private final Object [] m_aArray;
+
+    public ObjectArrayHasher (final Object [] aArray)
+    {
+      m_aArray = aArray;
+    }
+
+    public void run ()
+    {
+      if (new HashCodeGenerator (m_aArray).append (m_aArray).getHashCode () == 0)
+        throw new IllegalStateException ();
+    }
+  }
+
+  private static final class ObjectHasher implements Runnable
+  {
+    private final Object m_aObj;
+
+    public ObjectHasher (final Object aObj)
+    {
+      m_aObj = aObj;
+    }
+
+    public void run ()
+    {
+      if (new HashCodeGenerator (this).append (m_aObj).getHashCode () == 0)
+        throw new IllegalStateException ();
+    }
+  }
+
+  private static final class ListEquals implements Runnable
+  {
+    private final List <?> m_aList1;
+    private final List <?> m_aList2;
+
+    public ListEquals (final List <?> aList1, final List <?> aList2)
+    {
+      m_aList1 = aList1;
+      m_aList2 = aList2;
+    }
+
+    public void run ()
+    {
+      if (!EqualsUtils.equals (m_aList1, m_aList2))
+        throw new IllegalStateException ();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.supplementary.test.benchmark;
+
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.impl.MicroDocument;
+import com.phloc.commons.microdom.serialize.MicroReader;
+import com.phloc.commons.microdom.serialize.MicroWriter;
+
+/**
+ * Benchmark the heap footprint and the creation time of large micro DOM
+ * documents.
+ * 
+ * @author Philip Helger
+ */
+public final class BenchmarkMicroDOMHeap extends AbstractBenchmarkTask
+{
+  private static final int ELEMENT_COUNT = 100000;
+
+  private BenchmarkMicroDOMHeap ()
+  {}
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    logSystemInfo ();
+
+    // Measure the heap footprint
+    final long nBefore = _getUsedMemory ();
+    final IMicroDocument aDoc = _createDocument ();
+    final long nAfter = _getUsedMemory ();
+    s_aLogger.info ("Heap used by " +
+                    ELEMENT_COUNT +
+                    " elements: " +
+                    ((nAfter - nBefore) / 1024) +
+                    " KiB (" +
+                    ((nAfter - nBefore) / ELEMENT_COUNT) +
+                    " bytes per element)");
+
+    final String sXML = MicroWriter.getXMLString (aDoc);
+    final long nBefore2 = _getUsedMemory ();
+    final IMicroDocument aReadDoc = MicroReader.readMicroXML (sXML);
+    final long nAfter2 = _getUsedMemory ();
+    s_aLogger.info ("Heap used by parsed document: " + ((nAfter2 - nBefore2) / 1024) + " KiB");
+    if (aReadDoc == null || aDoc.getDocumentElement ().getChildCount () == 0)
+      throw new IllegalStateException ();
+
+    // Measure the creation time
+    final double dCreateTime = benchmarkTask (new Create ());
+    s_aLogger.info ("Time to create document: " + dCreateTime + " ns");
+    final double dParseTime = benchmarkTask (new Parse (sXML));
+    s_aLogger.info ("Time to parse document:  " + dParseTime + " ns");
+  }
+
+  private static long _getUsedMemory ()
+  {
+    final Runtime aRuntime = Runtime.getRuntime ();
+    for (int i = 0; i < 4; ++i)
+      System.gc ();
+    return aRuntime.totalMemory () - aRuntime.freeMemory ();
+  }
+
+  private static IMicroDocument _createDocument ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("urn:bench", "root");
+    IMicroElement eParent = null;
+    for (int i = 0; i < ELEMENT_COUNT; ++i)
+    {
+      if ((i % 10) == 0)
+        eParent = eRoot.appendElement ("urn:bench", "group");
+      final IMicroElement e = eParent.appendElement ("urn:bench", "item");
+      e.setAttribute ("id", i);
+      e.setAttribute ("type", (i % 2) == 0 ? "even" : "odd");
+      e.appendText ("Value " + i);
+    }
+    return aDoc;
+  }
+
+  private static final class Create implements Runnable
+  {
+    public void run ()
+    {
+      if (_createDocument () == null)
+        throw new IllegalStateException ();
+    }
+  }
+
+  private static final class Parse implements Runnable
+  {
+    private final String m_sXML;
+
+    public Parse (final String sXML)
+    {
+      m_sXML = sXML;
+    }
+
+    public void run ()
+    {
+      if (MicroReader.readMicroXML (m_sXML) == null)
+        throw new IllegalStateException ();
+    }
+  }
+}
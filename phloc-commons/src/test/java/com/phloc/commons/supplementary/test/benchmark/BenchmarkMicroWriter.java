@@ -0,0 +1,136 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.supplementary.test.benchmark;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.io.streams.NonBlockingBufferedWriter;
+import com.phloc.commons.io.streams.NonBlockingByteArrayOutputStream;
+import com.phloc.commons.io.streams.StreamUtils;
+import com.phloc.commons.microdom.IMicroDocument;
+import com.phloc.commons.microdom.IMicroElement;
+import com.phloc.commons.microdom.impl.MicroDocument;
+import com.phloc.commons.microdom.serialize.MicroWriter;
+import com.phloc.commons.xml.serialize.IXMLWriterSettings;
+import com.phloc.commons.xml.serialize.XMLWriterSettings;
+
+/**
+ * Benchmark the serialization of micro DOM documents via the charset encoder
+ * based writer, the direct UTF-8 writer and into a String.
+ * 
+ * @author Philip Helger
+ */
+public final class BenchmarkMicroWriter extends AbstractBenchmarkTask
+{
+  private static final int ELEMENT_COUNT = 10000;
+
+  private BenchmarkMicroWriter ()
+  {}
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    logSystemInfo ();
+
+    final IMicroDocument aDoc = _createDocument ();
+    final IXMLWriterSettings aSettings = new XMLWriterSettings ().setCharset (CCharset.CHARSET_UTF_8_OBJ);
+
+    final double dEncoderTime = benchmarkTask (new WriteWithEncoder (aDoc, aSettings));
+    s_aLogger.info ("Time with CharsetEncoder: " + dEncoderTime + " ns");
+    final double dUTF8Time = benchmarkTask (new WriteDirectUTF8 (aDoc, aSettings));
+    s_aLogger.info ("Time with direct UTF-8:   " + dUTF8Time + " ns = " + (dUTF8Time * 100 / dEncoderTime) + "%");
+    final double dStringTime = benchmarkTask (new WriteToString (aDoc, aSettings));
+    s_aLogger.info ("Time to String:           " + dStringTime + " ns = " + (dStringTime * 100 / dEncoderTime) + "%");
+  }
+
+  private static IMicroDocument _createDocument ()
+  {
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("urn:bench", "root");
+    IMicroElement eParent = null;
+    for (int i = 0; i < ELEMENT_COUNT; ++i)
+    {
+      if ((i % 10) == 0)
+        eParent = eRoot.appendElement ("urn:bench", "group");
+      final IMicroElement e = eParent.appendElement ("urn:bench", "item");
+      e.setAttribute ("id", i);
+      e.setAttribute ("title", "Item \"" + i + "\" <" + ((i % 2) == 0 ? "even" : "odd") + ">");
+      e.appendText ("Value " + i + " & some more text with umlauts \u00e4\u00f6\u00fc and a \u20ac sign");
+    }
+    return aDoc;
+  }
+
+  private abstract static class AbstractWriteTask implements Runnable
+  {
+    protected final IMicroDocument m_aDoc;
+    protected final IXMLWriterSettings m_aSettings;
+
+    protected AbstractWriteTask (final IMicroDocument aDoc, final IXMLWriterSettings aSettings)
+    {
+      m_aDoc = aDoc;
+      m_aSettings = aSettings;
+    }
+  }
+
+  private static final class WriteWithEncoder extends AbstractWriteTask
+  {
+    public WriteWithEncoder (final IMicroDocument aDoc, final IXMLWriterSettings aSettings)
+    {
+      super (aDoc, aSettings);
+    }
+
+    public void run ()
+    {
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      MicroWriter.writeToWriter (m_aDoc,
+                                 new NonBlockingBufferedWriter (StreamUtils.createWriter (aBAOS,
+                                                                                          m_aSettings.getCharsetObj ())),
+                                 m_aSettings);
+      if (aBAOS.size () == 0)
+        throw new IllegalStateException ();
+    }
+  }
+
+  private static final class WriteDirectUTF8 extends AbstractWriteTask
+  {
+    public WriteDirectUTF8 (final IMicroDocument aDoc, final IXMLWriterSettings aSettings)
+    {
+      super (aDoc, aSettings);
+    }
+
+    public void run ()
+    {
+      final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+      MicroWriter.writeToStream (m_aDoc, aBAOS, m_aSettings);
+      if (aBAOS.size () == 0)
+        throw new IllegalStateException ();
+    }
+  }
+
+  private static final class WriteToString extends AbstractWriteTask
+  {
+    public WriteToString (final IMicroDocument aDoc, final IXMLWriterSettings aSettings)
+    {
+      super (aDoc, aSettings);
+    }
+
+    public void run ()
+    {
+      if (MicroWriter.getNodeAsString (m_aDoc, m_aSettings) == null)
+        throw new IllegalStateException ();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.supplementary.test.benchmark;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import com.phloc.commons.concurrent.ManagedExecutorService;
+import com.phloc.commons.stats.IStatisticsHandlerCache;
+import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerKeyedTimer;
+import com.phloc.commons.stats.IStatisticsHandlerTimer;
+import com.phloc.commons.stats.StatisticsManager;
+import com.phloc.commons.system.SystemHelper;
+
+/**
+ * Compare the lock based statistics handlers with the lock free striped
+ * statistics handlers when updated from multiple threads.
+ */
+public final class BenchmarkStatisticsHandler extends AbstractBenchmarkTask
+{
+  private static final int RUNS_PER_THREAD = 10000;
+
+  private BenchmarkStatisticsHandler ()
+  {}
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    logSystemInfo ();
+    findWhetherLockedOrStripedIsFaster ();
+  }
+
+  private static Runnable _getRunnable (final int nThreads, final Runnable aObj)
+  {
+    if (nThreads == 1)
+      return aObj;
+
+    return new Runnable ()
+    {
+      public void run ()
+      {
+        final ExecutorService aExecSvc = Executors.newFixedThreadPool (nThreads);
+        for (int i = 0; i < nThreads; ++i)
+          aExecSvc.submit (aObj);
+        new ManagedExecutorService (aExecSvc).shutdownAndWaitUntilAllTasksAreFinished ();
+      }
+    };
+  }
+
+  private static void _run (final int nThreads, final boolean bStriped)
+  {
+    StatisticsManager.setStripedHandlersEnabled (bStriped);
+    final String sPrefix = BenchmarkStatisticsHandler.class.getName () + (bStriped ? "$striped" : "$locked");
+    final String sType = bStriped ? "striped" : "locked";
+
+    final IStatisticsHandlerTimer aTimer = StatisticsManager.getTimerHandler (sPrefix);
+    double dTime = benchmarkTask (_getRunnable (nThreads, new Runnable ()
+    {
+      public void run ()
+      {
+        for (int i = 0; i < RUNS_PER_THREAD; ++i)
+          aTimer.addTime (i);
+      }
+    }));
+    s_aLogger.info ("Time using " + sType + " timer[" + nThreads + "]:       " + dTime + " ns");
+
+    final IStatisticsHandlerKeyedTimer aKeyedTimer = StatisticsManager.getKeyedTimerHandler (sPrefix);
+    dTime = benchmarkTask (_getRunnable (nThreads, new Runnable ()
+    {
+      public void run ()
+      {
+        for (int i = 0; i < RUNS_PER_THREAD; ++i)
+          aKeyedTimer.addTime ((i & 7) == 0 ? "key1" : "key2", i);
+      }
+    }));
+    s_aLogger.info ("Time using " + sType + " keyed timer[" + nThreads + "]: " + dTime + " ns");
+
+    final IStatisticsHandlerCounter aCounter = StatisticsManager.getCounterHandler (sPrefix);
+    dTime = benchmarkTask (_getRunnable (nThreads, new Runnable ()
+    {
+      public void run ()
+      {
+        for (int i = 0; i < RUNS_PER_THREAD; ++i)
+          aCounter.increment ();
+      }
+    }));
+    s_aLogger.info ("Time using " + sType + " counter[" + nThreads + "]:     " + dTime + " ns");
+
+    final IStatisticsHandlerCache aCache = StatisticsManager.getCacheHandler (sPrefix);
+    dTime = benchmarkTask (_getRunnable (nThreads, new Runnable ()
+    {
+      public void run ()
+      {
+        for (int i = 0; i < RUNS_PER_THREAD; ++i)
+          if ((i & 3) == 0)
+            aCache.cacheMiss ();
+          else
+            aCache.cacheHit ();
+      }
+    }));
+    s_aLogger.info ("Time using " + sType + " cache[" + nThreads + "]:       " + dTime + " ns");
+  }
+
+  private static void findWhetherLockedOrStripedIsFaster ()
+  {
+    for (int i = 1; i <= SystemHelper.getNumberOfProcessors () * 2; i *= 2)
+    {
+      _run (i, false);
+      _run (i, true);
+    }
+    StatisticsManager.setStripedHandlersEnabled (StatisticsManager.DEFAULT_STRIPED_HANDLERS_ENABLED);
+  }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.supplementary.test.benchmark;
+
+import com.phloc.commons.mutable.MutableInt;
+import com.phloc.commons.typeconvert.TypeConverter;
+
+/**
+ * Benchmark the primitive conversion methods of {@link TypeConverter} against
+ * the conversion via the boxed destination type.
+ * 
+ * @author Philip Helger
+ */
+public final class BenchmarkTypeConverterPrimitive extends AbstractBenchmarkTask
+{
+  private static final int RUNS = 1000;
+
+  private BenchmarkTypeConverterPrimitive ()
+  {}
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    logSystemInfo ();
+    final Object [] aSources = new Object [] { "4711", Integer.valueOf (4711), Double.valueOf (47.11), new MutableInt (4711) };
+    for (final Object aSource : aSources)
+    {
+      final String sName = aSource.getClass ().getSimpleName ();
+      final double dBoxed = benchmarkTask (new ViaBoxed (aSource));
+      s_aLogger.info ("Time converting " + sName + " via Integer: " + dBoxed + " ns");
+
+      final double dPrimitive = benchmarkTask (new ViaPrimitive (aSource));
+      s_aLogger.info ("Time converting " + sName + " directly:    " + dPrimitive + " ns");
+    }
+  }
+
+  private static final class ViaBoxed implements Runnable
+  {
+    private final Object m_aSource;
+
+    public ViaBoxed (final Object aSource)
+    {
+      m_aSource = aSource;
+    }
+
+    public void run ()
+    {
+      long nSum = 0;
+      for (int i = 0; i < RUNS; i++)
+        nSum += TypeConverter.convertIfNecessary (m_aSource, Integer.class).intValue ();
+      if (nSum == 0)
+        throw new IllegalStateException ();
+    }
+  }
+
+  private static final class ViaPrimitive implements Runnable
+  {
+    private final Object m_aSource;
+
+    public ViaPrimitive (final Object aSource)
+    {
+      m_aSource = aSource;
+    }
+
+    public void run ()
+    {
+      long nSum = 0;
+      for (int i = 0; i < RUNS; i++)
+        nSum += TypeConverter.convertToInt (m_aSource);
+      if (nSum == 0)
+        throw new IllegalStateException ();
+    }
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.supplementary.test.benchmark;
+
+import java.io.IOException;
+
+import com.phloc.commons.io.streams.NonBlockingStringWriter;
+import com.phloc.commons.string.StringHelper;
+import com.phloc.commons.xml.EXMLCharMode;
+import com.phloc.commons.xml.EXMLIncorrectCharacterHandling;
+import com.phloc.commons.xml.serialize.EXMLSerializeVersion;
+import com.phloc.commons.xml.serialize.XMLMaskHelper;
+
+/**
+ * Benchmark the masking of typical XHTML text and attribute values with a
+ * linear search over the characters to mask versus the lookup table based
+ * masking of {@link XMLMaskHelper}.
+ * 
+ * @author Philip Helger
+ */
+public final class BenchmarkXMLMask extends AbstractBenchmarkTask
+{
+  private static final String [] PAYLOAD = new String [] { "Welcome to our homepage",
+                                                           "Please read the terms & conditions before you continue.",
+                                                           "http://www.example.org/page?id=4711&lang=en",
+                                                           "main-navigation",
+                                                           "The quick brown fox jumps over the lazy dog. The quick brown fox jumps over the lazy dog.",
+                                                           "Price: 12,50 \u20ac - \"special\" offer for <b>you</b>",
+                                                           "M\u00fcller & S\u00f6hne GmbH",
+                                                           "col-md-6 col-sm-12 text-center" };
+  private static final char [] LINEAR_SRC;
+  private static final char [] [] LINEAR_DST;
+
+  static
+  {
+    // Same characters as masked by XMLMaskHelper for XHTML text
+    final StringBuilder aSB = new StringBuilder ("&\"<>'");
+    for (char c = 0x80; c <= 0x9f; ++c)
+      aSB.append (c);
+    LINEAR_SRC = aSB.toString ().toCharArray ();
+    LINEAR_DST = new char [LINEAR_SRC.length] [];
+    for (int i = 0; i < LINEAR_SRC.length; ++i)
+      LINEAR_DST[i] = XMLMaskHelper.getHTMLEntityReferenceString (LINEAR_SRC[i]).toCharArray ();
+  }
+
+  private BenchmarkXMLMask ()
+  {}
+
+  public static void main (final String [] aArgs) throws Exception
+  {
+    logSystemInfo ();
+
+    final double dLinearTime = benchmarkTask (new LinearSearch ());
+    s_aLogger.info ("Time with linear search: " + dLinearTime + " ns");
+    final double dLookupTime = benchmarkTask (new LookupTable ());
+    s_aLogger.info ("Time with lookup table:  " + dLookupTime + " ns = " + (dLookupTime * 100 / dLinearTime) + "%");
+  }
+
+  private static final class LinearSearch implements Runnable
+  {
+    private final NonBlockingStringWriter m_aSW = new NonBlockingStringWriter (1024);
+
+    public void run ()
+    {
+      try
+      {
+        m_aSW.directGetStringBuilder ().setLength (0);
+        for (final String s : PAYLOAD)
+          StringHelper.replaceMultipleTo (s, LINEAR_SRC, LINEAR_DST, m_aSW);
+        if (m_aSW.size () == 0)
+          throw new IllegalStateException ();
+      }
+      catch (final IOException ex)
+      {
+        throw new IllegalStateException (ex);
+      }
+    }
+  }
+
+  private static final class LookupTable implements Runnable
+  {
+    private final NonBlockingStringWriter m_aSW = new NonBlockingStringWriter (1024);
+
+    public void run ()
+    {
+      try
+      {
+        m_aSW.directGetStringBuilder ().setLength (0);
+        for (final String s : PAYLOAD)
+          XMLMaskHelper.maskXMLTextTo (EXMLSerializeVersion.XHTML,
+                                       EXMLCharMode.TEXT,
+                                       EXMLIncorrectCharacterHandling.DEFAULT,
+                                       s,
+                                       m_aSW);
+        if (m_aSW.size () == 0)
+          throw new IllegalStateException ();
+      }
+      catch (final IOException ex)
+      {
+        throw new IllegalStateException (ex);
+      }
+    }
+  }
+}
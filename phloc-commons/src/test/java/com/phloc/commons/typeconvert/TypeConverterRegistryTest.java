@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.typeconvert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link TypeConverterRegistry}.
+ * 
+ * @author Philip Helger
+ */
+public final class TypeConverterRegistryTest
+{
+  public static final class MockSrc
+  {}
+
+  public static class MockDstBase
+  {}
+
+  public static final class MockDst extends MockDstBase
+  {}
+
+  @Nonnull
+  private static WeakReference <Class <?>> _resolveWithDiscardedClassLoader () throws Exception
+  {
+    final URL aURL = TypeConverterRegistryTest.class.getProtectionDomain ().getCodeSource ().getLocation ();
+    final URLClassLoader aLoader = new URLClassLoader (new URL [] { aURL }, null);
+    try
+    {
+      final Class <?> aClass = aLoader.loadClass (MockSrc.class.getName ());
+      assertNotSame (MockSrc.class, aClass);
+      // Resolve as source and as destination class - including negative results
+      TypeConverterRegistry.getBestMatchConverter (aClass, String.class);
+      TypeConverterRegistry.getBestMatchConverter (String.class, aClass);
+      assertNull (TypeConverterRegistry.getBestMatchConverter (aClass, MockDst.class));
+      assertNull (TypeConverterRegistry.getBestMatchConverter (MockSrc.class, aClass));
+      return new WeakReference <Class <?>> (aClass);
+    }
+    finally
+    {
+      aLoader.close ();
+    }
+  }
+
+  @Test
+  public void testResolvedConverterCacheDoesNotPinClasses () throws Exception
+  {
+    final WeakReference <Class <?>> aClassRef = _resolveWithDiscardedClassLoader ();
+    for (int i = 0; i < 100 && aClassRef.get () != null; ++i)
+    {
+      System.gc ();
+      Thread.sleep (10);
+    }
+    // The class and its class loader can be unloaded
+    assertNull (aClassRef.get ());
+  }
+
+  @Test
+  public void testResolvedConverterCache ()
+  {
+    // Negative result is cached
+    assertNull (TypeConverterRegistry.getBestMatchConverter (MockSrc.class, MockDst.class));
+    assertNull (TypeConverterRegistry.getBestMatchConverter (MockSrc.class, MockDst.class));
+    assertNull (TypeConverterRegistry.getBestMatchConverter (null, MockDst.class));
+    assertNull (TypeConverterRegistry.getBestMatchConverter (MockSrc.class, null));
+
+    final int nCount = TypeConverterRegistry.getRegisteredTypeConverterCount ();
+    final ITypeConverter aConverter = new ITypeConverter ()
+    {
+      public Object convert (@Nonnull final Object aSource)
+      {
+        return new MockDst ();
+      }
+    };
+    TypeConverterRegistry.getInstanceForTest ().registerTypeConverter (MockSrc.class, MockDst.class, aConverter);
+    // Destination class and its super classes are registered
+    assertTrue (TypeConverterRegistry.getRegisteredTypeConverterCount () > nCount);
+
+    // Registration invalidates the cached negative result
+    assertSame (aConverter, TypeConverterRegistry.getBestMatchConverter (MockSrc.class, MockDst.class));
+    assertSame (aConverter, TypeConverterRegistry.getBestMatchConverter (MockSrc.class, MockDst.class));
+    assertSame (aConverter, TypeConverterRegistry.getExactConverter (MockSrc.class, MockDstBase.class));
+    assertSame (aConverter, TypeConverterProviderBestMatch.getInstance ().getTypeConverter (MockSrc.class,
+                                                                                             MockDst.class));
+    assertEquals (MockDst.class, TypeConverter.convertIfNecessary (new MockSrc (), MockDst.class).getClass ());
+
+    try
+    {
+      // Already registered
+      TypeConverterRegistry.getInstanceForTest ().registerTypeConverter (MockSrc.class, MockDst.class, aConverter);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {}
+  }
+}
@@ -469,4 +469,123 @@ public final class TypeConverterTest extends AbstractPhlocTestCase
     assertEquals ("5", TypeConverter.convert ((short) 5, String.class));
     assertEquals ("-6", TypeConverter.convert ((short) -6, String.class));
   }
+
+  @Test
+  public void testConvertToPrimitiveEqualsBoxedConversion ()
+  {
+    final Object [] aSources = new Object [] { "0",
+                                              "17",
+                                              "-4",
+                                              "true",
+                                              "FALSE",
+                                              "3.5",
+                                              "1,25",
+                                              Boolean.TRUE,
+                                              Boolean.FALSE,
+                                              Character.valueOf ('a'),
+                                              Byte.valueOf ((byte) 5),
+                                              Short.valueOf ((short) -3),
+                                              Integer.valueOf (4711),
+                                              Long.valueOf (Long.MAX_VALUE),
+                                              Float.valueOf (2.5f),
+                                              Double.valueOf (-7.75),
+                                              BigInteger.TEN,
+                                              new BigDecimal ("12.5"),
+                                              new AtomicBoolean (true),
+                                              new AtomicInteger (300),
+                                              new AtomicLong (-5),
+                                              new MutableBoolean (true),
+                                              new MutableByte (9),
+                                              new MutableChar ('x'),
+                                              new MutableDouble (1.5),
+                                              new MutableFloat (-2.5f),
+                                              new MutableInt (1000),
+                                              new MutableLong (1L << 40),
+                                              new MutableShort (12) };
+    for (final Object aSource : aSources)
+    {
+      assertEquals (aSource.toString (),
+                    TypeConverter.convertIfNecessary (aSource, Boolean.class).booleanValue (),
+                    TypeConverter.convertToBoolean (aSource));
+      _checkSameResult (aSource, Integer.class);
+      _checkSameResult (aSource, Long.class);
+      _checkSameResult (aSource, Double.class);
+    }
+  }
+
+  private static void _checkSameResult (@Nonnull final Object aSource, @Nonnull final Class <?> aDstClass)
+  {
+    Object aExpected;
+    try
+    {
+      aExpected = TypeConverter.convertIfNecessary (aSource, aDstClass);
+    }
+    catch (final TypeConverterException ex)
+    {
+      aExpected = ex.getReason ();
+    }
+
+    Object aPrimitive;
+    try
+    {
+      if (aDstClass == Integer.class)
+        aPrimitive = Integer.valueOf (TypeConverter.convertToInt (aSource));
+      else
+        if (aDstClass == Long.class)
+          aPrimitive = Long.valueOf (TypeConverter.convertToLong (aSource));
+        else
+          aPrimitive = Double.valueOf (TypeConverter.convertToDouble (aSource));
+    }
+    catch (final TypeConverterException ex)
+    {
+      aPrimitive = ex.getReason ();
+    }
+    assertEquals (aSource + " to " + aDstClass, aExpected, aPrimitive);
+  }
+
+  @Test
+  public void testConvertToPrimitiveFailure ()
+  {
+    for (final String sSource : new String [] { "", "abc", "1.5.3", "NaN" })
+    {
+      try
+      {
+        TypeConverter.convertToInt (sSource);
+        fail ();
+      }
+      catch (final TypeConverterException ex)
+      {
+        assertEquals (EReason.CONVERSION_FAILED, ex.getReason ());
+      }
+      try
+      {
+        TypeConverter.convertToLong (sSource);
+        fail ();
+      }
+      catch (final TypeConverterException ex)
+      {
+        assertEquals (EReason.CONVERSION_FAILED, ex.getReason ());
+      }
+      try
+      {
+        TypeConverter.convertToDouble (sSource);
+        fail ();
+      }
+      catch (final TypeConverterException ex)
+      {
+        assertEquals (EReason.CONVERSION_FAILED, ex.getReason ());
+      }
+    }
+  }
+
+  @Test
+  public void testFixedSourceRuleWithDifferentDestinations ()
+  {
+    // The same rule is used for both destination classes
+    final AtomicInteger aSource = new AtomicInteger (65);
+    assertEquals (Long.valueOf (65), TypeConverter.convertIfNecessary (aSource, Long.class));
+    assertEquals ("65", TypeConverter.convertIfNecessary (aSource, String.class));
+    assertEquals (Long.valueOf (65), TypeConverter.convertIfNecessary (aSource, Long.class));
+    assertEquals (65L, TypeConverter.convertToLong (aSource));
+  }
 }
@@ -17,6 +17,7 @@
  */
 package com.phloc.commons.xml.serialize;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import org.junit.AfterClass;
@@ -24,12 +25,15 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xml.sax.ext.DefaultHandler2;
 import org.xml.sax.helpers.DefaultHandler;
 
 import com.phloc.commons.callback.DoNothingExceptionHandler;
 import com.phloc.commons.callback.IThrowingRunnable;
 import com.phloc.commons.io.resource.ClassPathResource;
 import com.phloc.commons.mock.PhlocTestUtils;
+import com.phloc.commons.pool.KeyedObjectPool;
+import com.phloc.commons.xml.EXMLParserFeature;
 import com.phloc.commons.xml.sax.CachingSAXInputSource;
 
 /**
@@ -81,4 +85,58 @@ public final class SAXReaderTest
       }
     });
   }
+
+  @Test
+  public void testParserPoolWithNonDefaultSettings ()
+  {
+    final KeyedObjectPool <?, org.xml.sax.XMLReader> aPool = SAXReader.getParserPool ();
+    final long nCreated = aPool.getCreateCount ();
+    final long nBorrowed = aPool.getBorrowCount ();
+    for (int i = 0; i < 10; ++i)
+    {
+      // Handlers are different for each parsing
+      final DefaultHandler2 aHandler = new DefaultHandler2 ();
+      assertTrue (SAXReader.readXMLSAX ("<root><!-- comment --></root>",
+                                        new SAXReaderSettings ().setContentHandler (aHandler)
+                                                                .setLexicalHandler (aHandler)
+                                                                .setFeatureValue (EXMLParserFeature.NAMESPACES, true))
+                           .isSuccess ());
+      // Parsing errors don't prevent reuse
+      assertTrue (SAXReader.readXMLSAX ("<root>", new SAXReaderSettings ().setContentHandler (aHandler)
+                                                                          .setLexicalHandler (aHandler)
+                                                                          .setFeatureValue (EXMLParserFeature.NAMESPACES,
+                                                                                            true)).isFailure ());
+    }
+    assertEquals (nBorrowed + 20, aPool.getBorrowCount ());
+    // At most one parser was created for this configuration
+    assertTrue (aPool.getCreateCount () - nCreated <= 1);
+
+    // Explicitly requesting a new parser bypasses the pool
+    assertTrue (SAXReader.readXMLSAX ("<root/>",
+                                      new SAXReaderSettings ().setContentHandler (new DefaultHandler ())
+                                                              .setRequiresNewXMLParserExplicitly (true)).isSuccess ());
+    assertEquals (nBorrowed + 20, aPool.getBorrowCount ());
+  }
+
+  @Test
+  public void testSettingsKey ()
+  {
+    final DefaultHandler2 aHandler1 = new DefaultHandler2 ();
+    final DefaultHandler2 aHandler2 = new DefaultHandler2 ();
+    final XMLReaderSettingsKey aKey1 = XMLReaderSettingsKey.createForSAX (new SAXReaderSettings ().setContentHandler (aHandler1)
+                                                                                                  .setLexicalHandler (aHandler1));
+    final XMLReaderSettingsKey aKey2 = XMLReaderSettingsKey.createForSAX (new SAXReaderSettings ().setContentHandler (aHandler2)
+                                                                                                  .setLexicalHandler (aHandler2));
+    // Handler instances are not part of the key
+    PhlocTestUtils.testDefaultImplementationWithEqualContentObject (aKey1, aKey2);
+
+    // Lexical handler presence and features are part of the key
+    final XMLReaderSettingsKey aKey3 = XMLReaderSettingsKey.createForSAX (new SAXReaderSettings ().setContentHandler (aHandler1));
+    PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (aKey1, aKey3);
+    final XMLReaderSettingsKey aKey4 = XMLReaderSettingsKey.createForSAX (new SAXReaderSettings ().setContentHandler (aHandler1)
+                                                                                                  .setLexicalHandler (aHandler1)
+                                                                                                  .setFeatureValue (EXMLParserFeature.NAMESPACES,
+                                                                                                                    false));
+    PhlocTestUtils.testDefaultImplementationWithDifferentContentObject (aKey1, aKey4);
+  }
 }
@@ -21,9 +21,12 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+
 import org.junit.Test;
 
 import com.phloc.commons.collections.ArrayHelper;
+import com.phloc.commons.io.streams.NonBlockingStringWriter;
 import com.phloc.commons.mock.AbstractPhlocTestCase;
 import com.phloc.commons.xml.EXMLCharMode;
 import com.phloc.commons.xml.EXMLIncorrectCharacterHandling;
@@ -301,4 +304,54 @@ public final class XMLMaskHelperTest extends AbstractPhlocTestCase
                                                         EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
                                                         "1 & \u0001"));
   }
+
+  @Test
+  public void testMaskXMLTextTo () throws IOException
+  {
+    final String [] aTexts = new String [] { "abc",
+                                             "1 & \u0001",
+                                             "<a href=\"x\">'y'</a>",
+                                             "&&&",
+                                             "\u0000\u0001\u0002 middle \u0003",
+                                             "\u00e4\u00f6\u00fc\n\t\r<>" };
+    for (final EXMLSerializeVersion eVersion : EXMLSerializeVersion.values ())
+      for (final EXMLCharMode eMode : EXMLCharMode.values ())
+        for (final EXMLIncorrectCharacterHandling eHandling : new EXMLIncorrectCharacterHandling [] { EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
+                                                                                                      EXMLIncorrectCharacterHandling.DO_NOT_WRITE_NO_LOG })
+          for (final String sText : aTexts)
+          {
+            final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+            XMLMaskHelper.maskXMLTextTo (eVersion, eMode, eHandling, sText, aSW);
+            // Writing to a Writer must be identical to the array based version
+            assertEquals (new String (XMLMaskHelper.getMaskedXMLText (eVersion, eMode, eHandling, sText)),
+                          aSW.getAsString ());
+          }
+  }
+
+  @Test
+  public void testGetFirstIndexToMask ()
+  {
+    assertEquals (-1, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_10, EXMLCharMode.TEXT, null));
+    assertEquals (-1, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_10, EXMLCharMode.TEXT, ""));
+    assertEquals (-1, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_10, EXMLCharMode.TEXT, "abc \"'"));
+    assertEquals (3, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_10, EXMLCharMode.TEXT, "abc<&"));
+    assertEquals (3,
+                  XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_10,
+                                                     EXMLCharMode.ATTRIBUTE_VALUE_DOUBLE_QUOTES,
+                                                     "abc\"'"));
+    assertEquals (4,
+                  XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_10,
+                                                     EXMLCharMode.ATTRIBUTE_VALUE_SINGLE_QUOTES,
+                                                     "abc\"'"));
+    // Names and CDATA are never masked
+    assertEquals (-1, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_10, EXMLCharMode.CDATA, "<&>"));
+    // Highest masked character in XML 1.1 text
+    assertEquals (1, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_11, EXMLCharMode.TEXT, "a\u2028"));
+    assertEquals (-1, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XML_11, EXMLCharMode.TEXT, "a\u2029"));
+
+    final char [] aChars = "<abc&".toCharArray ();
+    assertEquals (4, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XHTML, EXMLCharMode.TEXT, aChars, 1, 4));
+    assertEquals (-1, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XHTML, EXMLCharMode.TEXT, aChars, 1, 3));
+    assertEquals (0, XMLMaskHelper.getFirstIndexToMask (EXMLSerializeVersion.XHTML, EXMLCharMode.TEXT, aChars, 0, 5));
+  }
 }
@@ -29,6 +29,7 @@ import java.io.InputStream;
 import java.io.Reader;
 import java.net.MalformedURLException;
 
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.validation.Schema;
 
 import org.junit.Test;
@@ -51,6 +52,7 @@ import com.phloc.commons.io.streams.NonBlockingStringReader;
 import com.phloc.commons.io.streams.StreamUtils;
 import com.phloc.commons.io.streams.StringInputStream;
 import com.phloc.commons.mock.PhlocTestUtils;
+import com.phloc.commons.pool.KeyedObjectPool;
 import com.phloc.commons.string.StringHelper;
 import com.phloc.commons.xml.EXMLParserFeature;
 import com.phloc.commons.xml.sax.CachingSAXInputSource;
@@ -454,4 +456,29 @@ public final class XMLReaderTest
       assertTrue (ex.getMessage ().contains ("entity expansions"));
     }
   }
+
+  @Test
+  public void testParserPoolWithNonDefaultSettings () throws SAXException
+  {
+    final KeyedObjectPool <?, DocumentBuilder> aPool = XMLReader.getParserPool ();
+    final long nCreated = aPool.getCreateCount ();
+    final long nBorrowed = aPool.getBorrowCount ();
+    for (int i = 0; i < 10; ++i)
+    {
+      final Document aDoc = XMLReader.readXMLDOM ("<root><!-- comment --></root>",
+                                                  new DOMReaderSettings ().setIgnoringComments (false));
+      assertNotNull (aDoc);
+      // The comment must be contained
+      assertEquals (1, aDoc.getDocumentElement ().getChildNodes ().getLength ());
+    }
+    assertEquals (nBorrowed + 10, aPool.getBorrowCount ());
+    // At most one document builder was created for this configuration
+    assertTrue (aPool.getCreateCount () - nCreated <= 1);
+
+    // Different settings must not share document builders
+    final Document aDoc = XMLReader.readXMLDOM ("<root><!-- comment --></root>",
+                                                new DOMReaderSettings ().setIgnoringComments (true));
+    assertNotNull (aDoc);
+    assertEquals (0, aDoc.getDocumentElement ().getChildNodes ().getLength ());
+  }
 }
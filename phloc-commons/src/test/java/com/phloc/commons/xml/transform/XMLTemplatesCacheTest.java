@@ -0,0 +1,156 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.xml.transform;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import javax.annotation.Nonnull;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerFactory;
+
+import org.junit.Test;
+
+import com.phloc.commons.charset.CCharset;
+import com.phloc.commons.concurrent.ThreadUtils;
+import com.phloc.commons.io.file.FileOperations;
+import com.phloc.commons.io.file.SimpleFileIO;
+import com.phloc.commons.io.monitor.FileMonitorManager;
+import com.phloc.commons.io.resource.ClassPathResource;
+import com.phloc.commons.io.resource.FileSystemResource;
+
+/**
+ * Test class for class {@link XMLTemplatesCache}.
+ * 
+ * @author Philip Helger
+ */
+public final class XMLTemplatesCacheTest
+{
+  @Nonnull
+  private static String _getXSLT (@Nonnull final String sText)
+  {
+    return "<xsl:stylesheet version='1.0' xmlns:xsl='http://www.w3.org/1999/XSL/Transform'>"
+           + "<xsl:output method='text' />"
+           + "<xsl:template match='/'>"
+           + sText
+           + "</xsl:template>"
+           + "</xsl:stylesheet>";
+  }
+
+  @Nonnull
+  private static String _transform (@Nonnull final Transformer aTransformer) throws Exception
+  {
+    final StringStreamResult aResult = new StringStreamResult ();
+    aTransformer.transform (TransformSourceFactory.create ("<root/>"), aResult);
+    return aResult.getAsString ();
+  }
+
+  @Test
+  public void testClassPath ()
+  {
+    final XMLTemplatesCache aCache = new XMLTemplatesCache (TransformerFactory.newInstance ());
+    assertFalse (aCache.isFileMonitoringEnabled ());
+
+    final Templates t1 = aCache.getTemplates (new ClassPathResource ("xml/test1.xslt"));
+    assertNotNull (t1);
+    assertSame (t1, aCache.getTemplates (new ClassPathResource ("xml/test1.xslt")));
+    assertEquals (1, aCache.size ());
+
+    // With import
+    final Transformer aTransformer = aCache.newTransformer (new ClassPathResource ("xml/test2.xslt"));
+    assertNotNull (aTransformer);
+    assertNotSame (aTransformer, aCache.newTransformer (new ClassPathResource ("xml/test2.xslt")));
+    assertEquals (2, aCache.size ());
+
+    // Invalid and non-existing stylesheets are not cached
+    assertNull (aCache.getTemplates (new ClassPathResource ("test1.txt")));
+    assertNull (aCache.newTransformer (new ClassPathResource ("does-not-exist.xslt")));
+    assertEquals (2, aCache.size ());
+  }
+
+  @Test
+  public void testFileChange () throws Exception
+  {
+    final File aFile = File.createTempFile ("phloc", ".xslt");
+    try
+    {
+      SimpleFileIO.writeFile (aFile, _getXSLT ("a"), CCharset.CHARSET_ISO_8859_1_OBJ);
+      final FileSystemResource aRes = new FileSystemResource (aFile);
+
+      final XMLTemplatesCache aCache = new XMLTemplatesCache (TransformerFactory.newInstance ());
+      final Templates t1 = aCache.getTemplates (aRes);
+      assertEquals ("a", _transform (t1.newTransformer ()));
+      assertSame (t1, aCache.getTemplates (aRes));
+
+      // Change the file - the modification time is checked upon access
+      SimpleFileIO.writeFile (aFile, _getXSLT ("b"), CCharset.CHARSET_ISO_8859_1_OBJ);
+      assertTrue (aFile.setLastModified (aFile.lastModified () + 2000));
+      final Templates t2 = aCache.getTemplates (aRes);
+      assertNotSame (t1, t2);
+      assertEquals ("b", _transform (aCache.newTransformer (aRes)));
+      assertEquals (1, aCache.size ());
+    }
+    finally
+    {
+      FileOperations.deleteFile (aFile);
+    }
+  }
+
+  @Test
+  public void testFileMonitor () throws Exception
+  {
+    final File aFile = File.createTempFile ("phloc", ".xslt");
+    final FileMonitorManager aMgr = new FileMonitorManager ().setDelay (10);
+    try
+    {
+      SimpleFileIO.writeFile (aFile, _getXSLT ("a"), CCharset.CHARSET_ISO_8859_1_OBJ);
+      final FileSystemResource aRes = new FileSystemResource (aFile);
+
+      final XMLTemplatesCache aCache = new XMLTemplatesCache (TransformerFactory.newInstance ());
+      final Templates t1 = aCache.getTemplates (aRes);
+      assertNotNull (aCache.enableFileMonitoring (aMgr));
+      assertTrue (aCache.isFileMonitoringEnabled ());
+      assertEquals (1, aMgr.getFileMonitorCount ());
+      aMgr.start ();
+
+      SimpleFileIO.writeFile (aFile, _getXSLT ("b"), CCharset.CHARSET_ISO_8859_1_OBJ);
+      assertTrue (aFile.setLastModified (aFile.lastModified () + 2000));
+
+      // Wait until the monitor detected the change
+      for (int i = 0; i < 500 && aCache.size () > 0; ++i)
+        ThreadUtils.sleep (10);
+      assertEquals (0, aCache.size ());
+      final Templates t2 = aCache.getTemplates (aRes);
+      assertNotSame (t1, t2);
+      assertEquals ("b", _transform (t2.newTransformer ()));
+    }
+    finally
+    {
+      aMgr.stop ();
+      FileOperations.deleteFile (aFile);
+    }
+  }
+}
@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.commons.xml.xpath;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.namespace.NamespaceContext;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathFunctionResolver;
+
+import org.junit.Test;
+import org.w3c.dom.Document;
+
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.commons.xml.namespace.MapBasedNamespaceContext;
+import com.phloc.commons.xml.serialize.XMLReader;
+
+/**
+ * Test class for class {@link XPathExpressionCache}.
+ * 
+ * @author Philip Helger
+ */
+public final class XPathExpressionCacheTest
+{
+  private static final String TEST_XML = "<root xmlns:x='urn:x'><a>1</a><a>2</a><x:b>3</x:b></root>";
+
+  @Test
+  public void testEvaluate () throws Exception
+  {
+    final Document aDoc = XMLReader.readXMLDOM (TEST_XML);
+    XPathExpressionCache.clearExpressionCache ();
+
+    final int nCompiles = XPathExpressionCache.getCompileCount ();
+    for (int i = 0; i < 10; ++i)
+      assertEquals (Double.valueOf (3),
+                    XPathExpressionCache.evaluate (null, null, null, "sum(//a)", aDoc, XPathConstants.NUMBER));
+    assertEquals (1, XPathExpressionCache.getCachedExpressionCount ());
+    assertEquals (nCompiles + 1, XPathExpressionCache.getCompileCount ());
+
+    // Namespace context is part of the key
+    final MapBasedNamespaceContext aCtx = new MapBasedNamespaceContext ();
+    aCtx.addMapping ("y", "urn:x");
+    assertEquals ("3", XPathExpressionCache.evaluate (null, null, aCtx, "//y:b", aDoc, XPathConstants.STRING));
+    assertEquals ("3", XPathExpressionHelper.evalXPathToString (null, null, aCtx, "//y:b", aDoc));
+    assertEquals (2, XPathExpressionCache.getCachedExpressionCount ());
+
+    // Expressions with a variable resolver are not cached
+    final MapBasedXPathVariableResolver aVars1 = new MapBasedXPathVariableResolver (ContainerHelper.newMap ("v",
+                                                                                                          "1"));
+    final MapBasedXPathVariableResolver aVars2 = new MapBasedXPathVariableResolver (ContainerHelper.newMap ("v",
+                                                                                                          "1"));
+    assertEquals (aVars1, aVars2);
+    final int nCompilesBeforeVars = XPathExpressionCache.getCompileCount ();
+    assertEquals (Double.valueOf (1),
+                  XPathExpressionHelper.evalXPathToNumber (aVars1, null, null, "count(//a[.=$v])", aDoc));
+    assertEquals (Double.valueOf (1),
+                  XPathExpressionHelper.evalXPathToNumber (aVars2, null, null, "count(//a[.=$v])", aDoc));
+    assertEquals (2, XPathExpressionCache.getCachedExpressionCount ());
+    assertEquals (nCompilesBeforeVars + 2, XPathExpressionCache.getCompileCount ());
+    aVars1.setAllVariables (ContainerHelper.newMap ("v", "3"));
+    assertEquals (Double.valueOf (0),
+                  XPathExpressionHelper.evalXPathToNumber (aVars1, null, null, "count(//a[.=$v])", aDoc));
+    assertEquals (Double.valueOf (1),
+                  XPathExpressionHelper.evalXPathToNumber (aVars2, null, null, "count(//a[.=$v])", aDoc));
+
+    assertTrue (XPathExpressionCache.clearExpressionCache ().isChanged ());
+    assertEquals (0, XPathExpressionCache.getCachedExpressionCount ());
+  }
+
+  @Test
+  public void testInvalid ()
+  {
+    XPathExpressionCache.clearExpressionCache ();
+    try
+    {
+      XPathExpressionCache.evaluate (null, null, null, "//[", null, XPathConstants.NODE);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+    catch (final Exception ex)
+    {
+      fail (ex.toString ());
+    }
+    assertEquals (0, XPathExpressionCache.getCachedExpressionCount ());
+  }
+
+  @Test
+  public void testConcurrent () throws Exception
+  {
+    final Document aDoc = XMLReader.readXMLDOM (TEST_XML);
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    try
+    {
+      final List <Future <Void>> aFutures = new ArrayList <Future <Void>> ();
+      for (int i = 0; i < 16; ++i)
+      {
+        final int nIndex = i;
+        aFutures.add (aES.submit (new Callable <Void> ()
+        {
+          public Void call () throws Exception
+          {
+            for (int j = 0; j < 500; ++j)
+            {
+              final String sXPath = "count(//a) + " + ((nIndex + j) % 4);
+              final Object aResult = XPathExpressionCache.evaluate (null,
+                                                                    (XPathFunctionResolver) null,
+                                                                    (NamespaceContext) null,
+                                                                    sXPath,
+                                                                    aDoc,
+                                                                    XPathConstants.NUMBER);
+              assertEquals (Double.valueOf (2 + (nIndex + j) % 4), aResult);
+            }
+            return null;
+          }
+        }));
+      }
+      for (final Future <Void> aFuture : aFutures)
+        aFuture.get ();
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+  }
+}
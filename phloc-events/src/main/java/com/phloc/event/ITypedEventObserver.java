@@ -0,0 +1,47 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event;
+
+import java.util.Set;
+
+import javax.annotation.Nonnull;
+
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+
+/**
+ * Special event observer that only handles events of a fixed set of event
+ * types. This allows observer queues to index the observers by event type, so
+ * that {@link #canHandleEvent(IEvent)} is only called for the observers that
+ * are registered for the type of the dispatched event.<br>
+ * Implementations must ensure that {@link #canHandleEvent(IEvent)} returns
+ * {@link EEventObserverHandlerType#CANNOT_HANDLE} for all events whose type is
+ * not contained in {@link #getAllHandledEventTypes()}, and that the set of
+ * handled event types never changes.
+ * 
+ * @author philip
+ */
+public interface ITypedEventObserver extends IEventObserver
+{
+  /**
+   * @return All event types this observer is interested in. Never
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  Set <IEventType> getAllHandledEventTypes ();
+}
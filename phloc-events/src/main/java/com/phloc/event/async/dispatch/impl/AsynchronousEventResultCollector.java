@@ -27,6 +27,15 @@ import javax.annotation.Nonnull;
 import com.phloc.commons.aggregate.IAggregator;
 import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
 
+/**
+ * Collects the results of all observers of a single asynchronous dispatch in a
+ * separate thread.
+ * 
+ * @author philip
+ * @deprecated Use {@link AsynchronousEventResultCountDown} instead, which does
+ *             not need a thread per dispatch.
+ */
+@Deprecated
 public final class AsynchronousEventResultCollector extends Thread implements
                                                                   INonThrowingRunnableWithParameter <Object>
 {
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.aggregate.IAggregator;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.string.ToStringGenerator;
+
+/**
+ * Collects the results of all observers of a single asynchronous dispatch
+ * without a dedicated thread. Each observer result is stored in a pre-sized
+ * array and a counter is decremented afterwards. The observer that delivers
+ * the last expected result aggregates all results with the
+ * {@link IAggregator} and invokes the overall result callback in its own
+ * thread.
+ * 
+ * @author philip
+ */
+@ThreadSafe
+public final class AsynchronousEventResultCountDown implements INonThrowingRunnableWithParameter <Object>
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (AsynchronousEventResultCountDown.class);
+
+  // Plain array: each write happens-before the decrement of m_aRemaining, so
+  // the thread that counts down to 0 sees all results
+  private final Object [] m_aResults;
+  private final AtomicInteger m_aNextIndex = new AtomicInteger ();
+  private final AtomicInteger m_aRemaining;
+  private final IAggregator <Object, ?> m_aResultAggregator;
+  private final INonThrowingRunnableWithParameter <Object> m_aResultCallback;
+
+  public AsynchronousEventResultCountDown (@Nonnegative final int nObserverWithReturn,
+                                           @Nonnull final IAggregator <Object, ?> aResultAggregator,
+                                           @Nonnull final INonThrowingRunnableWithParameter <Object> aResultCallback)
+  {
+    if (nObserverWithReturn < 1)
+      throw new IllegalArgumentException ("too little observers");
+    if (aResultAggregator == null)
+      throw new NullPointerException ("resultAggregator");
+    if (aResultCallback == null)
+      throw new NullPointerException ("resultCallback");
+
+    m_aResults = new Object [nObserverWithReturn];
+    m_aRemaining = new AtomicInteger (nObserverWithReturn);
+    m_aResultAggregator = aResultAggregator;
+    m_aResultCallback = aResultCallback;
+  }
+
+  /**
+   * @return The number of results that are still missing. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getRemainingResultCount ()
+  {
+    return Math.max (m_aRemaining.get (), 0);
+  }
+
+  // Called from each observer upon completion
+  public void run (final Object aObserverResult)
+  {
+    final int nIndex = m_aNextIndex.getAndIncrement ();
+    if (nIndex >= m_aResults.length)
+    {
+      s_aLogger.warn ("Ignoring unexpected additional observer result " + aObserverResult);
+      return;
+    }
+
+    m_aResults[nIndex] = aObserverResult;
+    if (m_aRemaining.decrementAndGet () == 0)
+    {
+      // We have all
+      try
+      {
+        m_aResultCallback.run (m_aResultAggregator.aggregate (Arrays.asList (m_aResults)));
+      }
+      catch (final Throwable t)
+      {
+        // Don't let the exception propagate to the observer
+        s_aLogger.error ("Failed to handle the aggregated event result", t);
+      }
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("expected", m_aResults.length)
+                                       .append ("remaining", getRemainingResultCount ())
+                                       .append ("resultAggregator", m_aResultAggregator)
+                                       .toString ();
+  }
+}
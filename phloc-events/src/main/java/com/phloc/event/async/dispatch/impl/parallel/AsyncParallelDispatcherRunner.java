@@ -26,7 +26,7 @@ import org.slf4j.LoggerFactory;
 import com.phloc.event.IEvent;
 import com.phloc.event.IEventObserver;
 import com.phloc.event.IEventObservingExceptionHandler;
-import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCollector;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
 import com.phloc.event.impl.EventObservingExceptionHandler;
 import com.phloc.event.impl.EventObservingExceptionWrapper;
 
@@ -36,12 +36,12 @@ final class AsyncParallelDispatcherRunner implements Runnable
 
   private final IEvent m_aEvent;
   private final IEventObserver m_aHandlingObserver;
-  private final AsynchronousEventResultCollector m_aLocalResultCallback;
+  private final AsynchronousEventResultCountDown m_aLocalResultCallback;
   private final IEventObservingExceptionHandler m_aExceptionHandler;
 
   AsyncParallelDispatcherRunner (@Nonnull final IEvent aEvent,
                                  @Nonnull final IEventObserver aObserver,
-                                 final AsynchronousEventResultCollector aLocalResultCallback,
+                                 final AsynchronousEventResultCountDown aLocalResultCallback,
                                  @Nullable final IEventObservingExceptionHandler aExceptionHandler)
   {
     if (aEvent == null)
@@ -19,7 +19,6 @@ package com.phloc.event.async.dispatch.impl.parallel;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -31,17 +30,15 @@ import javax.annotation.Nullable;
 
 import com.phloc.commons.aggregate.IAggregatorFactory;
 import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
-import com.phloc.commons.collections.pair.IReadonlyPair;
 import com.phloc.commons.concurrent.IExecutorServiceFactory;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.state.EChange;
-import com.phloc.event.EEventObserverHandlerType;
 import com.phloc.event.IEvent;
-import com.phloc.event.IEventObserver;
 import com.phloc.event.IEventObservingExceptionHandler;
 import com.phloc.event.async.dispatch.IAsynchronousEventDispatcher;
-import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCollector;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
 import com.phloc.event.impl.AbstractEventDispatcher;
+import com.phloc.event.impl.HandlingEventObservers;
 import com.phloc.event.observerqueue.IEventObserverQueue;
 
 /**
@@ -78,11 +75,8 @@ public class AsynchronousParallelEventDispatcher extends AbstractEventDispatcher
       throw new NullPointerException ("observerQueue");
 
     // find all observers that can handle the passed event
-    final IReadonlyPair <Integer, Map <IEventObserver, EEventObserverHandlerType>> aHandlingInfo = getListOfObserversThatCanHandleTheEvent (aEvent,
-                                                                                                                                            aObservers);
-
-    final int nHandlingObserverCountWithReturnValue = aHandlingInfo.getFirst ().intValue ();
-    final Map <IEventObserver, EEventObserverHandlerType> aHandlingObservers = aHandlingInfo.getSecond ();
+    final HandlingEventObservers aHandlingObservers = getHandlingObservers (aEvent, aObservers);
+    final int nHandlingObserverCountWithReturnValue = aHandlingObservers.getCountWithReturnValue ();
 
     if (!aHandlingObservers.isEmpty ())
     {
@@ -90,33 +84,33 @@ public class AsynchronousParallelEventDispatcher extends AbstractEventDispatcher
       try
       {
         // At least one handler was found
-        AsynchronousEventResultCollector aLocalResultCallback = null;
+        AsynchronousEventResultCountDown aLocalResultCallback = null;
         if (nHandlingObserverCountWithReturnValue > 0)
         {
           // If we have handling observers, we need an overall result callback!
           if (aOverallResultCallback == null)
             throw new IllegalStateException ("Are you possibly using a unicast event manager and sending an event that has a return value?");
 
-          // Create collector and start thread only if we expect a result
-          aLocalResultCallback = new AsynchronousEventResultCollector (nHandlingObserverCountWithReturnValue,
+          // Create collector only if we expect a result
+          aLocalResultCallback = new AsynchronousEventResultCountDown (nHandlingObserverCountWithReturnValue,
                                                                        m_aResultAggregator,
                                                                        aOverallResultCallback);
-          aLocalResultCallback.start ();
         }
 
         // Iterate all handling observers
         final List <Callable <Object>> aCallables = new ArrayList <Callable <Object>> ();
-        for (final Map.Entry <IEventObserver, EEventObserverHandlerType> aEntry : aHandlingObservers.entrySet ())
+        for (int i = 0; i < aHandlingObservers.getCount (); ++i)
         {
           aCallables.add (Executors.callable (new AsyncParallelDispatcherRunner (aEvent,
-                                                                                 aEntry.getKey (),
-                                                                                 aEntry.getValue ().hasReturnValue () ? aLocalResultCallback
+                                                                                 aHandlingObservers.getObserver (i),
+                                                                                 aHandlingObservers.getHandlerType (i)
+                                                                                                   .hasReturnValue () ? aLocalResultCallback
                                                                                                                      : null,
                                                                                  m_aExceptionHandler)));
         }
 
         // Create a thread pool with at maximum the number of observers
-        final ExecutorService aExecutor = m_aExecutorServiceFactory.getExecutorService (aHandlingObservers.size ());
+        final ExecutorService aExecutor = m_aExecutorServiceFactory.getExecutorService (aHandlingObservers.getCount ());
         try
         {
           aExecutor.invokeAll (aCallables);
@@ -0,0 +1,413 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.parallel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.aggregate.IAggregatorFactory;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.concurrent.ExtendedDefaultThreadFactory;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.state.EChange;
+import com.phloc.commons.stats.IStatisticsHandlerCounter;
+import com.phloc.commons.stats.IStatisticsHandlerKeyedTimer;
+import com.phloc.commons.stats.IStatisticsHandlerTimer;
+import com.phloc.commons.stats.StatisticsManager;
+import com.phloc.commons.timing.StopWatch;
+import com.phloc.event.EEventObserverHandlerType;
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventObserver;
+import com.phloc.event.IEventObservingExceptionHandler;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcher;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
+import com.phloc.event.impl.AbstractEventDispatcher;
+import com.phloc.event.impl.EventObservingExceptionWrapper;
+import com.phloc.event.impl.HandlingEventObservers;
+import com.phloc.event.observerqueue.IEventObserverQueue;
+
+/**
+ * Event dispatcher that notifies the observers in parallel using a single
+ * long-lived executor that is created together with the dispatcher and shut
+ * down in {@link #stop()}. In contrast to
+ * {@link AsynchronousParallelEventDispatcher} no thread pool is created per
+ * event and no dispatcher-wide lock is held.<br>
+ * The handling observers of an event are split into at most as many batches as
+ * the executor has threads, and each batch is handed off as a single task.
+ * Every pending batch occupies one permit of a semaphore, so if the observers
+ * fall behind, {@link #dispatch(IEvent, IEventObserverQueue, INonThrowingRunnableWithParameter)}
+ * blocks until a permit becomes available (backpressure). If an observer
+ * dispatches an event itself, it is running on a pool thread and never blocks:
+ * if no permit is available, the batch is executed directly in the observer's
+ * thread, because waiting for a permit could deadlock if all pool threads
+ * wait.<br>
+ * If the executor rejects a batch, all observers that were not yet handed off
+ * deliver an {@link EventObservingExceptionWrapper} as their result, so that
+ * the overall result callback is still invoked.<br>
+ * The time spent waiting for a permit as well as the execution time of each
+ * observer (keyed by the observer class name) is recorded in the
+ * {@link StatisticsManager}.
+ * 
+ * @author philip
+ */
+@ThreadSafe
+public class AsynchronousPooledParallelEventDispatcher extends AbstractEventDispatcher implements IAsynchronousEventDispatcher
+{
+  /** The default number of batches that may be pending at once */
+  public static final int DEFAULT_MAX_PENDING_BATCHES = 1024;
+
+  private static final IStatisticsHandlerTimer s_aWaitTimerHdl = StatisticsManager.getTimerHandler (AsynchronousPooledParallelEventDispatcher.class.getName () +
+                                                                                                      "$wait");
+  private static final IStatisticsHandlerCounter s_aWaitCounterHdl = StatisticsManager.getCounterHandler (AsynchronousPooledParallelEventDispatcher.class.getName () +
+                                                                                                          "$wait");
+  private static final IStatisticsHandlerKeyedTimer s_aObserverTimerHdl = StatisticsManager.getKeyedTimerHandler (AsynchronousPooledParallelEventDispatcher.class.getName () +
+                                                                                                                  "$observer");
+
+  /**
+   * A set of observers that is notified sequentially in a single executor task.
+   */
+  private static final class ObserverBatch implements Runnable
+  {
+    private final IEvent m_aEvent;
+    private final List <IEventObserver> m_aObservers;
+    private final List <EEventObserverHandlerType> m_aHandlerTypes;
+    private final AsynchronousEventResultCountDown m_aResultCollector;
+    private final IEventObservingExceptionHandler m_aExceptionHandler;
+    private final Semaphore m_aPermits;
+    private final ThreadLocal <Boolean> m_aPoolThread;
+
+    ObserverBatch (@Nonnull final IEvent aEvent,
+                   @Nonnegative final int nCapacity,
+                   @Nullable final AsynchronousEventResultCountDown aResultCollector,
+                   @Nullable final IEventObservingExceptionHandler aExceptionHandler,
+                   @Nonnull final Semaphore aPermits,
+                   @Nonnull final ThreadLocal <Boolean> aPoolThread)
+    {
+      m_aEvent = aEvent;
+      m_aObservers = new ArrayList <IEventObserver> (nCapacity);
+      m_aHandlerTypes = new ArrayList <EEventObserverHandlerType> (nCapacity);
+      m_aResultCollector = aResultCollector;
+      m_aExceptionHandler = aExceptionHandler;
+      m_aPermits = aPermits;
+      m_aPoolThread = aPoolThread;
+    }
+
+    void add (@Nonnull final IEventObserver aObserver, @Nonnull final EEventObserverHandlerType eHandlerType)
+    {
+      m_aObservers.add (aObserver);
+      m_aHandlerTypes.add (eHandlerType);
+    }
+
+    @Nonnegative
+    int size ()
+    {
+      return m_aObservers.size ();
+    }
+
+    /**
+     * Notify all observers in the current thread without using a permit.
+     */
+    void runInline ()
+    {
+      for (int i = 0; i < m_aObservers.size (); ++i)
+      {
+        final IEventObserver aObserver = m_aObservers.get (i);
+        final StopWatch aSW = new StopWatch (true);
+        new AsyncParallelDispatcherRunner (m_aEvent,
+                                           aObserver,
+                                           m_aHandlerTypes.get (i).hasReturnValue () ? m_aResultCollector : null,
+                                           m_aExceptionHandler).run ();
+        s_aObserverTimerHdl.addTime (aObserver.getClass ().getName (), aSW.stopAndGetMillis ());
+      }
+    }
+
+    /**
+     * Deliver the passed exception as the result of all observers with a
+     * return value, because the observers will never be notified.
+     */
+    void reject (@Nonnull final Throwable t)
+    {
+      if (m_aResultCollector != null)
+        for (int i = 0; i < m_aObservers.size (); ++i)
+          if (m_aHandlerTypes.get (i).hasReturnValue ())
+            m_aResultCollector.run (new EventObservingExceptionWrapper (m_aObservers.get (i), m_aEvent, t));
+    }
+
+    public void run ()
+    {
+      m_aPoolThread.set (Boolean.TRUE);
+      try
+      {
+        runInline ();
+      }
+      finally
+      {
+        m_aPoolThread.remove ();
+        m_aPermits.release ();
+      }
+    }
+  }
+
+  private final ExecutorService m_aExecutor;
+  private final int m_nMaxBatchesPerEvent;
+  private final Semaphore m_aPermits;
+  // Set while a batch of this dispatcher is executed in the current thread
+  private final ThreadLocal <Boolean> m_aPoolThread = new ThreadLocal <Boolean> ();
+  private final IEventObservingExceptionHandler m_aExceptionHandler;
+
+  /**
+   * Constructor using a fixed thread pool with one thread per processor and
+   * the default number of pending batches.
+   * 
+   * @param aResultAggregatorFactory
+   *        The result aggregator factory to use. May not be <code>null</code>.
+   * @param aExceptionHandler
+   *        The exception handler to use. May be <code>null</code>.
+   */
+  public AsynchronousPooledParallelEventDispatcher (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregatorFactory,
+                                                    @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    this (aResultAggregatorFactory,
+          Runtime.getRuntime ().availableProcessors (),
+          DEFAULT_MAX_PENDING_BATCHES,
+          aExceptionHandler);
+  }
+
+  /**
+   * Constructor using a fixed thread pool.
+   * 
+   * @param aResultAggregatorFactory
+   *        The result aggregator factory to use. May not be <code>null</code>.
+   * @param nThreads
+   *        The number of threads in the pool. Must be &gt; 0.
+   * @param nMaxPendingBatches
+   *        The maximum number of batches that may be pending before
+   *        dispatching blocks. Must be &gt; 0.
+   * @param aExceptionHandler
+   *        The exception handler to use. May be <code>null</code>.
+   */
+  public AsynchronousPooledParallelEventDispatcher (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregatorFactory,
+                                                    @Nonnegative final int nThreads,
+                                                    @Nonnegative final int nMaxPendingBatches,
+                                                    @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    this (aResultAggregatorFactory,
+          _createFixedThreadPool (nThreads),
+          nThreads,
+          nMaxPendingBatches,
+          aExceptionHandler);
+  }
+
+  /**
+   * Constructor using an arbitrary executor, e.g. one that creates a virtual
+   * thread per task. The executor is owned by this dispatcher and is shut down
+   * in {@link #stop()}.
+   * 
+   * @param aResultAggregatorFactory
+   *        The result aggregator factory to use. May not be <code>null</code>.
+   * @param aExecutor
+   *        The executor to run the observers. May not be <code>null</code>.
+   * @param nMaxBatchesPerEvent
+   *        The maximum number of batches the observers of a single event are
+   *        split into. Should be the number of threads of the executor. Must be
+   *        &gt; 0.
+   * @param nMaxPendingBatches
+   *        The maximum number of batches that may be pending before
+   *        dispatching blocks. Must be &gt; 0.
+   * @param aExceptionHandler
+   *        The exception handler to use. May be <code>null</code>.
+   */
+  public AsynchronousPooledParallelEventDispatcher (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregatorFactory,
+                                                    @Nonnull final ExecutorService aExecutor,
+                                                    @Nonnegative final int nMaxBatchesPerEvent,
+                                                    @Nonnegative final int nMaxPendingBatches,
+                                                    @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    super (aResultAggregatorFactory);
+
+    if (aExecutor == null)
+      throw new NullPointerException ("executor");
+    if (nMaxBatchesPerEvent < 1)
+      throw new IllegalArgumentException ("The passed number of batches per event is illegal: " + nMaxBatchesPerEvent);
+    if (nMaxPendingBatches < 1)
+      throw new IllegalArgumentException ("The passed number of pending batches is illegal: " + nMaxPendingBatches);
+    m_aExecutor = aExecutor;
+    m_nMaxBatchesPerEvent = nMaxBatchesPerEvent;
+    m_aPermits = new Semaphore (nMaxPendingBatches);
+    m_aExceptionHandler = aExceptionHandler;
+  }
+
+  @Nonnull
+  private static ExecutorService _createFixedThreadPool (final int nThreads)
+  {
+    if (nThreads < 1)
+      throw new IllegalArgumentException ("The passed number of threads in the pool is illegal: " + nThreads);
+    return Executors.newFixedThreadPool (nThreads,
+                                         new ExtendedDefaultThreadFactory (AsynchronousPooledParallelEventDispatcher.class.getSimpleName ()));
+  }
+
+  /**
+   * @return The number of batches that may currently be handed off without
+   *         blocking.
+   */
+  @Nonnegative
+  public int getAvailablePermits ()
+  {
+    return m_aPermits.availablePermits ();
+  }
+
+  /**
+   * Acquire a permit for handing off a batch.
+   * 
+   * @return <code>true</code> if a permit was acquired, <code>false</code> if
+   *         the batch must be executed in the current thread.
+   */
+  private boolean _acquirePermit ()
+  {
+    if (m_aPermits.tryAcquire ())
+      return true;
+
+    // An observer dispatching from a pool thread must not wait for the other
+    // pool threads, which may themselves be waiting for a permit
+    if (m_aPoolThread.get () != null)
+      return false;
+
+    // The observers are falling behind - wait for a free slot
+    s_aWaitCounterHdl.increment ();
+    final StopWatch aSW = new StopWatch (true);
+    m_aPermits.acquireUninterruptibly ();
+    s_aWaitTimerHdl.addTime (aSW.stopAndGetMillis ());
+    return true;
+  }
+
+  public void dispatch (@Nonnull final IEvent aEvent,
+                        @Nonnull final IEventObserverQueue aObservers,
+                        final INonThrowingRunnableWithParameter <Object> aOverallResultCallback)
+  {
+    if (aEvent == null)
+      throw new NullPointerException ("event");
+    if (aObservers == null)
+      throw new NullPointerException ("observerQueue");
+
+    // find all observers that can handle the passed event
+    final HandlingEventObservers aHandlingObservers = getHandlingObservers (aEvent, aObservers);
+    final int nHandlingObserverCountWithReturnValue = aHandlingObservers.getCountWithReturnValue ();
+
+    if (!aHandlingObservers.isEmpty ())
+    {
+      if (m_aExecutor.isShutdown ())
+        throw new IllegalStateException ("The dispatcher was already stopped!");
+
+      // At least one handler was found
+      AsynchronousEventResultCountDown aLocalResultCallback = null;
+      if (nHandlingObserverCountWithReturnValue > 0)
+      {
+        // If we have handling observers, we need an overall result callback!
+        if (aOverallResultCallback == null)
+          throw new IllegalStateException ("Are you possibly using a unicast event manager and sending an event that has a return value?");
+
+        // Create collector only if we expect a result
+        aLocalResultCallback = new AsynchronousEventResultCountDown (nHandlingObserverCountWithReturnValue,
+                                                                     m_aResultAggregator,
+                                                                     aOverallResultCallback);
+      }
+
+      // Split the observers into batches of equal size
+      final int nObservers = aHandlingObservers.getCount ();
+      final int nBatches = Math.min (nObservers, m_nMaxBatchesPerEvent);
+      final int nBatchSize = (nObservers + nBatches - 1) / nBatches;
+      final List <ObserverBatch> aBatches = new ArrayList <ObserverBatch> (nBatches);
+      ObserverBatch aBatch = null;
+      for (int i = 0; i < nObservers; ++i)
+      {
+        if (aBatch == null)
+        {
+          aBatch = new ObserverBatch (aEvent,
+                                      nBatchSize,
+                                      aLocalResultCallback,
+                                      m_aExceptionHandler,
+                                      m_aPermits,
+                                      m_aPoolThread);
+          aBatches.add (aBatch);
+        }
+        aBatch.add (aHandlingObservers.getObserver (i), aHandlingObservers.getHandlerType (i));
+        if (aBatch.size () == nBatchSize)
+          aBatch = null;
+      }
+
+      for (int i = 0; i < aBatches.size (); ++i)
+      {
+        final ObserverBatch aCurBatch = aBatches.get (i);
+        if (!_acquirePermit ())
+        {
+          aCurBatch.runInline ();
+          continue;
+        }
+        try
+        {
+          m_aExecutor.execute (aCurBatch);
+        }
+        catch (final RejectedExecutionException ex)
+        {
+          m_aPermits.release ();
+          // The remaining observers are never notified - complete their
+          // results so that the overall result callback is invoked
+          for (final ObserverBatch aRejectedBatch : aBatches.subList (i, aBatches.size ()))
+            aRejectedBatch.reject (ex);
+          throw new IllegalStateException ("Failed to hand off observers - the dispatcher was stopped", ex);
+        }
+      }
+    }
+  }
+
+  @Nonnull
+  public EChange stop ()
+  {
+    if (m_aExecutor.isShutdown ())
+      return EChange.UNCHANGED;
+    // Already pending batches are still executed
+    m_aExecutor.shutdown ();
+    return EChange.CHANGED;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!(o instanceof AsynchronousPooledParallelEventDispatcher))
+      return false;
+    final AsynchronousPooledParallelEventDispatcher rhs = (AsynchronousPooledParallelEventDispatcher) o;
+    return m_aResultAggregator.equals (rhs.m_aResultAggregator) && m_aExecutor.equals (rhs.m_aExecutor);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aResultAggregator).append (m_aExecutor).getHashCode ();
+  }
+}
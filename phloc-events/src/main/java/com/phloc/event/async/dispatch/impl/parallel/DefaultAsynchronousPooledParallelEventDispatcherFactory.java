@@ -0,0 +1,77 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.parallel;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.phloc.commons.aggregate.IAggregatorFactory;
+import com.phloc.event.IEventObservingExceptionHandler;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcher;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcherFactory;
+
+/**
+ * Factory for {@link AsynchronousPooledParallelEventDispatcher} objects. Each
+ * created dispatcher owns its own thread pool.
+ * 
+ * @author philip
+ */
+public class DefaultAsynchronousPooledParallelEventDispatcherFactory implements IAsynchronousEventDispatcherFactory
+{
+  private final IAggregatorFactory <Object, Object> m_aResultAggregateFactory;
+  private final int m_nThreads;
+  private final int m_nMaxPendingBatches;
+  private final IEventObservingExceptionHandler m_aExceptionHandler;
+
+  public DefaultAsynchronousPooledParallelEventDispatcherFactory (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregateFactory,
+                                                                  @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    this (aResultAggregateFactory,
+          Runtime.getRuntime ().availableProcessors (),
+          AsynchronousPooledParallelEventDispatcher.DEFAULT_MAX_PENDING_BATCHES,
+          aExceptionHandler);
+  }
+
+  public DefaultAsynchronousPooledParallelEventDispatcherFactory (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregateFactory,
+                                                                  @Nonnegative final int nThreads,
+                                                                  @Nonnegative final int nMaxPendingBatches,
+                                                                  @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    if (aResultAggregateFactory == null)
+      throw new NullPointerException ("resultAggregatorFactory");
+    if (nThreads < 1)
+      throw new IllegalArgumentException ("The passed number of threads in the pool is illegal: " + nThreads);
+    if (nMaxPendingBatches < 1)
+      throw new IllegalArgumentException ("The passed number of pending batches is illegal: " + nMaxPendingBatches);
+
+    m_aResultAggregateFactory = aResultAggregateFactory;
+    m_nThreads = nThreads;
+    m_nMaxPendingBatches = nMaxPendingBatches;
+    m_aExceptionHandler = aExceptionHandler;
+  }
+
+  @Nonnull
+  public IAsynchronousEventDispatcher create ()
+  {
+    return new AsynchronousPooledParallelEventDispatcher (m_aResultAggregateFactory,
+                                                          m_nThreads,
+                                                          m_nMaxPendingBatches,
+                                                          m_aExceptionHandler);
+  }
+}
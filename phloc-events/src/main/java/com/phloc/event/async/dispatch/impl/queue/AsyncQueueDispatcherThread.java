@@ -30,26 +30,26 @@ import com.phloc.commons.collections.triple.ReadonlyTriple;
 import com.phloc.event.IEvent;
 import com.phloc.event.IEventObserver;
 import com.phloc.event.IEventObservingExceptionHandler;
-import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCollector;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
 import com.phloc.event.impl.EventObservingExceptionHandler;
 import com.phloc.event.impl.EventObservingExceptionWrapper;
 
 final class AsyncQueueDispatcherThread extends Thread
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (AsyncQueueDispatcherThread.class);
-  private final BlockingQueue <IReadonlyTriple <IEvent, IEventObserver, AsynchronousEventResultCollector>> m_aQueue;
+  private final BlockingQueue <IReadonlyTriple <IEvent, IEventObserver, AsynchronousEventResultCountDown>> m_aQueue;
   private final IEventObservingExceptionHandler m_aExceptionHandler;
 
   public AsyncQueueDispatcherThread (@Nullable final IEventObservingExceptionHandler aExceptionHandler)
   {
     super ("async-queue-dispatcher-thread");
-    m_aQueue = new LinkedBlockingQueue <IReadonlyTriple <IEvent, IEventObserver, AsynchronousEventResultCollector>> ();
+    m_aQueue = new LinkedBlockingQueue <IReadonlyTriple <IEvent, IEventObserver, AsynchronousEventResultCountDown>> ();
     m_aExceptionHandler = aExceptionHandler != null ? aExceptionHandler : EventObservingExceptionHandler.getInstance ();
   }
 
   public void addToQueue (final IEvent aEvent,
                           final IEventObserver aObserver,
-                          final AsynchronousEventResultCollector aResultCollector)
+                          final AsynchronousEventResultCountDown aResultCollector)
   {
     try
     {
@@ -69,10 +69,10 @@ final class AsyncQueueDispatcherThread extends Thread
       while (!isInterrupted ())
       {
         // get current element
-        final IReadonlyTriple <IEvent, IEventObserver, AsynchronousEventResultCollector> aElement = m_aQueue.take ();
+        final IReadonlyTriple <IEvent, IEventObserver, AsynchronousEventResultCountDown> aElement = m_aQueue.take ();
         final IEvent aEvent = aElement.getFirst ();
         final IEventObserver aObserver = aElement.getSecond ();
-        final AsynchronousEventResultCollector aCollector = aElement.getThird ();
+        final AsynchronousEventResultCountDown aCollector = aElement.getThird ();
 
         try
         {
@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.ringbuffer;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventObserver;
+import com.phloc.event.IEventObservingExceptionHandler;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
+import com.phloc.event.impl.EventObservingExceptionHandler;
+import com.phloc.event.impl.EventObservingExceptionWrapper;
+
+/**
+ * A consumer thread with its own preallocated ring buffer. Producers claim a
+ * sequence, fill the respective slot and publish it. The thread processes all
+ * published slots in a row and frees them in one step afterwards.
+ * 
+ * @author philip
+ */
+final class AsyncRingBufferDispatcherThread extends Thread
+{
+  /**
+   * A single entry of the ring buffer: one event with all observers of this
+   * thread. The observer arrays are reused when the slot is reused.
+   */
+  static final class Slot
+  {
+    private static final int INITIAL_CAPACITY = 4;
+
+    // The sequence this slot was last published for
+    private volatile long m_nSequence = -1;
+    private IEvent m_aEvent;
+    private AsynchronousEventResultCountDown m_aResultCollector;
+    private IEventObserver [] m_aObservers = new IEventObserver [INITIAL_CAPACITY];
+    private boolean [] m_aWithReturnValue = new boolean [INITIAL_CAPACITY];
+    private int m_nCount;
+
+    void setEvent (@Nonnull final IEvent aEvent, @Nullable final AsynchronousEventResultCountDown aResultCollector)
+    {
+      m_aEvent = aEvent;
+      m_aResultCollector = aResultCollector;
+    }
+
+    void addObserver (@Nonnull final IEventObserver aObserver, final boolean bWithReturnValue)
+    {
+      if (m_nCount == m_aObservers.length)
+      {
+        m_aObservers = Arrays.copyOf (m_aObservers, m_nCount * 2);
+        m_aWithReturnValue = Arrays.copyOf (m_aWithReturnValue, m_nCount * 2);
+      }
+      m_aObservers[m_nCount] = aObserver;
+      m_aWithReturnValue[m_nCount] = bWithReturnValue;
+      m_nCount++;
+    }
+
+    void clear ()
+    {
+      // Don't keep the objects from being garbage collected
+      Arrays.fill (m_aObservers, 0, m_nCount, null);
+      m_aEvent = null;
+      m_aResultCollector = null;
+      m_nCount = 0;
+    }
+  }
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (AsyncRingBufferDispatcherThread.class);
+  // The claim sequence after the thread was stopped and all claimed slots were
+  // processed - no further claims are possible
+  private static final long CLOSED = Long.MIN_VALUE;
+
+  // The dispatcher this consumer belongs to
+  private final Object m_aOwner;
+  private final Slot [] m_aSlots;
+  private final int m_nMask;
+  private final EWaitStrategy m_eWaitStrategy;
+  private final IEventObservingExceptionHandler m_aExceptionHandler;
+  // The next sequence to be claimed by a producer
+  private final AtomicLong m_aClaimSequence = new AtomicLong ();
+  // The next sequence to be processed - all slots below are free
+  private final AtomicLong m_aConsumedSequence = new AtomicLong ();
+  private volatile boolean m_bStopped = false;
+  // Is the consumer about to park? Only used with EWaitStrategy.PARK
+  private volatile boolean m_bConsumerWaiting = false;
+
+  AsyncRingBufferDispatcherThread (@Nonnull final Object aOwner,
+                                   @Nonnull final String sName,
+                                   @Nonnegative final int nBufferSize,
+                                   @Nonnull final EWaitStrategy eWaitStrategy,
+                                   @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    super (sName);
+    m_aOwner = aOwner;
+    m_aSlots = new Slot [nBufferSize];
+    for (int i = 0; i < nBufferSize; ++i)
+      m_aSlots[i] = new Slot ();
+    m_nMask = nBufferSize - 1;
+    m_eWaitStrategy = eWaitStrategy;
+    m_aExceptionHandler = aExceptionHandler != null ? aExceptionHandler : EventObservingExceptionHandler.getInstance ();
+  }
+
+  /**
+   * Check if the current thread is a consumer thread of the same dispatcher as
+   * this thread.
+   * 
+   * @return <code>true</code> if the current thread is this thread or another
+   *         consumer of the same dispatcher.
+   */
+  private boolean _isCalledFromSiblingConsumer ()
+  {
+    final Thread aCurrentThread = Thread.currentThread ();
+    return aCurrentThread instanceof AsyncRingBufferDispatcherThread &&
+           ((AsyncRingBufferDispatcherThread) aCurrentThread).m_aOwner == m_aOwner;
+  }
+
+  /**
+   * Claim the next sequence. Waits until the respective slot is free, unless
+   * it is called from any consumer thread of the same dispatcher, e.g. by an
+   * observer that dispatches another event. Waiting could never end if it is
+   * this consumer thread itself, and two consumers that dispatch into each
+   * other's full buffer would wait for each other.
+   * 
+   * @return The claimed sequence. It must be published with
+   *         {@link #publish(long)} after the slot was filled. -1 if the buffer
+   *         is full and this method is called from a consumer thread of the
+   *         same dispatcher.
+   * @throws IllegalStateException
+   *         If this thread was stopped and no more events are accepted.
+   */
+  long claim ()
+  {
+    while (true)
+    {
+      final long nSequence = m_aClaimSequence.get ();
+      if (nSequence == CLOSED)
+        throw new IllegalStateException ("The dispatcher thread was stopped");
+      if (nSequence - m_aConsumedSequence.get () >= m_aSlots.length)
+      {
+        // Buffer is full
+        if (_isCalledFromSiblingConsumer ())
+          return -1;
+        m_eWaitStrategy.idle ();
+      }
+      else
+        if (m_aClaimSequence.compareAndSet (nSequence, nSequence + 1))
+          return nSequence;
+    }
+  }
+
+  @Nonnull
+  Slot getSlot (final long nSequence)
+  {
+    return m_aSlots[(int) nSequence & m_nMask];
+  }
+
+  void publish (final long nSequence)
+  {
+    getSlot (nSequence).m_nSequence = nSequence;
+    if (m_bConsumerWaiting)
+      LockSupport.unpark (this);
+  }
+
+  /**
+   * Notify the observers of the passed slot directly in the current thread.
+   * Used if the buffer is full and the event is dispatched from a consumer
+   * thread of the same dispatcher.
+   * 
+   * @param aSlot
+   *        The slot that is not part of the ring buffer. May not be
+   *        <code>null</code>.
+   */
+  void processInline (@Nonnull final Slot aSlot)
+  {
+    _process (aSlot);
+  }
+
+  /**
+   * Stop the thread after all published slots were processed.
+   */
+  void stopAfterDraining ()
+  {
+    m_bStopped = true;
+    LockSupport.unpark (this);
+  }
+
+  boolean isStopped ()
+  {
+    return m_bStopped;
+  }
+
+  private void _process (@Nonnull final Slot aSlot)
+  {
+    final IEvent aEvent = aSlot.m_aEvent;
+    final AsynchronousEventResultCountDown aCollector = aSlot.m_aResultCollector;
+    for (int i = 0; i < aSlot.m_nCount; ++i)
+    {
+      final IEventObserver aObserver = aSlot.m_aObservers[i];
+      final boolean bWithReturnValue = aSlot.m_aWithReturnValue[i];
+      try
+      {
+        // main dispatch
+        aObserver.onEvent (aEvent, bWithReturnValue ? aCollector : null);
+      }
+      catch (final Throwable t)
+      {
+        m_aExceptionHandler.handleObservingException (t);
+        s_aLogger.error ("Failed to notify " + aObserver + " on " + aEvent, t);
+
+        // Notify on exception
+        if (bWithReturnValue && aCollector != null)
+        {
+          // Put exception in result list
+          aCollector.run (new EventObservingExceptionWrapper (aObserver, aEvent, t));
+        }
+      }
+    }
+  }
+
+  @Override
+  public void run ()
+  {
+    long nNext = 0;
+    while (true)
+    {
+      // Determine all published slots
+      long nEnd = nNext;
+      while (nEnd - nNext < m_aSlots.length && getSlot (nEnd).m_nSequence == nEnd)
+        nEnd++;
+
+      if (nEnd == nNext)
+      {
+        // Nothing published
+        if (m_bStopped && m_aClaimSequence.compareAndSet (nNext, CLOSED))
+        {
+          // All claimed slots were processed and no more slots can be claimed
+          break;
+        }
+        if (m_eWaitStrategy == EWaitStrategy.PARK)
+        {
+          // Check again after announcing the wait, as the publisher only
+          // unparks a waiting consumer. Stopping always unparks.
+          m_bConsumerWaiting = true;
+          if (getSlot (nNext).m_nSequence != nNext)
+            m_eWaitStrategy.idleConsumer ();
+          m_bConsumerWaiting = false;
+        }
+        else
+          m_eWaitStrategy.idleConsumer ();
+        continue;
+      }
+
+      // Process the whole batch
+      for (long nSequence = nNext; nSequence < nEnd; ++nSequence)
+      {
+        final Slot aSlot = getSlot (nSequence);
+        _process (aSlot);
+        aSlot.clear ();
+      }
+
+      // Free all slots of the batch at once
+      nNext = nEnd;
+      m_aConsumedSequence.lazySet (nNext);
+    }
+  }
+}
@@ -0,0 +1,265 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.ringbuffer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.aggregate.IAggregatorFactory;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.state.EChange;
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventObserver;
+import com.phloc.event.IEventObservingExceptionHandler;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcher;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
+import com.phloc.event.impl.AbstractEventDispatcher;
+import com.phloc.event.impl.EventObservingExceptionWrapper;
+import com.phloc.event.impl.HandlingEventObservers;
+import com.phloc.event.observerqueue.IEventObserverQueue;
+
+/**
+ * Dispatch events based on preallocated ring buffers. Each consumer thread has
+ * its own ring buffer, and each observer is always notified by the same
+ * consumer thread, so the events are delivered to an observer in the order
+ * they were dispatched. For each event a single slot per consumer is used that
+ * holds all observers of this consumer, so no object is allocated per observer
+ * and the consumers drain all available slots at once.<br>
+ * If a ring buffer is full, dispatching waits until the consumer frees a slot.
+ * If an observer dispatches an event from any consumer thread of this
+ * dispatcher into a full ring buffer, the observers of the target consumer are
+ * notified directly in the observer's thread. Waiting could otherwise deadlock
+ * if the consumer waited for itself or if two consumers waited for each other.
+ * Cycles between different dispatchers are not detected.<br>
+ * How the consumers and the producers wait is defined by the
+ * {@link EWaitStrategy}.
+ * 
+ * @author philip
+ */
+@ThreadSafe
+public final class AsynchronousRingBufferEventDispatcher extends AbstractEventDispatcher implements
+                                                                                       IAsynchronousEventDispatcher
+{
+  /** The default number of slots per ring buffer */
+  public static final int DEFAULT_BUFFER_SIZE = 1024;
+  /** The default wait strategy */
+  public static final EWaitStrategy DEFAULT_WAIT_STRATEGY = EWaitStrategy.PARK;
+
+  private final AsyncRingBufferDispatcherThread [] m_aThreads;
+  private final EWaitStrategy m_eWaitStrategy;
+
+  /**
+   * Constructor with a single consumer thread, the default buffer size and the
+   * default wait strategy.
+   * 
+   * @param aResultAggregatorFactory
+   *        The result aggregator factory to use. May not be <code>null</code>.
+   * @param aExceptionHandler
+   *        The exception handler to use. May be <code>null</code>.
+   */
+  public AsynchronousRingBufferEventDispatcher (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregatorFactory,
+                                                @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    this (aResultAggregatorFactory, 1, DEFAULT_BUFFER_SIZE, DEFAULT_WAIT_STRATEGY, aExceptionHandler);
+  }
+
+  /**
+   * Constructor
+   * 
+   * @param aResultAggregatorFactory
+   *        The result aggregator factory to use. May not be <code>null</code>.
+   * @param nConsumers
+   *        The number of consumer threads. Must be &gt; 0.
+   * @param nBufferSize
+   *        The number of slots of each ring buffer. Must be a power of 2.
+   * @param eWaitStrategy
+   *        The wait strategy to use. May not be <code>null</code>.
+   * @param aExceptionHandler
+   *        The exception handler to use. May be <code>null</code>.
+   */
+  public AsynchronousRingBufferEventDispatcher (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregatorFactory,
+                                                @Nonnegative final int nConsumers,
+                                                @Nonnegative final int nBufferSize,
+                                                @Nonnull final EWaitStrategy eWaitStrategy,
+                                                @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    super (aResultAggregatorFactory);
+
+    if (nConsumers < 1)
+      throw new IllegalArgumentException ("The passed number of consumers is illegal: " + nConsumers);
+    if (nBufferSize < 1 || Integer.bitCount (nBufferSize) != 1)
+      throw new IllegalArgumentException ("The buffer size must be a power of 2: " + nBufferSize);
+    if (eWaitStrategy == null)
+      throw new NullPointerException ("waitStrategy");
+
+    m_eWaitStrategy = eWaitStrategy;
+    m_aThreads = new AsyncRingBufferDispatcherThread [nConsumers];
+    for (int i = 0; i < nConsumers; ++i)
+    {
+      m_aThreads[i] = new AsyncRingBufferDispatcherThread (this,
+                                                           "async-ring-buffer-dispatcher-thread-" + i,
+                                                           nBufferSize,
+                                                           eWaitStrategy,
+                                                           aExceptionHandler);
+      m_aThreads[i].start ();
+    }
+  }
+
+  /**
+   * @return The number of consumer threads.
+   */
+  @Nonnegative
+  public int getConsumerCount ()
+  {
+    return m_aThreads.length;
+  }
+
+  @Nonnull
+  public EWaitStrategy getWaitStrategy ()
+  {
+    return m_eWaitStrategy;
+  }
+
+  private static int _getConsumerIndex (@Nonnull final IEventObserver aObserver, final int nConsumers)
+  {
+    return (System.identityHashCode (aObserver) & Integer.MAX_VALUE) % nConsumers;
+  }
+
+  public void dispatch (@Nonnull final IEvent aEvent,
+                        @Nonnull final IEventObserverQueue aObservers,
+                        final INonThrowingRunnableWithParameter <Object> aOverallResultCallback)
+  {
+    if (aEvent == null)
+      throw new NullPointerException ("event");
+    if (aObservers == null)
+      throw new NullPointerException ("observerQueue");
+
+    // find all observers that can handle the passed event
+    final HandlingEventObservers aHandlingObservers = getHandlingObservers (aEvent, aObservers);
+    final int nHandlingObserverCountWithReturnValue = aHandlingObservers.getCountWithReturnValue ();
+
+    if (!aHandlingObservers.isEmpty ())
+    {
+      if (m_aThreads[0].isStopped ())
+        throw new IllegalStateException ("The dispatcher was already stopped!");
+
+      // At least one handler was found
+      AsynchronousEventResultCountDown aLocalResultCallback = null;
+      if (nHandlingObserverCountWithReturnValue > 0)
+      {
+        // If we have handling observers, we need an overall result callback!
+        if (aOverallResultCallback == null)
+          throw new IllegalStateException ("Are you possibly using a unicast event manager and sending an event that has a return value?");
+
+        // Create collector only if we expect a result
+        aLocalResultCallback = new AsynchronousEventResultCountDown (nHandlingObserverCountWithReturnValue,
+                                                                     m_aResultAggregator,
+                                                                     aOverallResultCallback);
+      }
+
+      // Use one slot per consumer that has at least one observer
+      final int nConsumers = m_aThreads.length;
+      int nConsumer = 0;
+      try
+      {
+        for (; nConsumer < nConsumers; ++nConsumer)
+        {
+          final AsyncRingBufferDispatcherThread aThread = m_aThreads[nConsumer];
+          long nSequence = -1;
+          AsyncRingBufferDispatcherThread.Slot aSlot = null;
+          for (int i = 0; i < aHandlingObservers.getCount (); ++i)
+          {
+            final IEventObserver aObserver = aHandlingObservers.getObserver (i);
+            if (nConsumers == 1 || _getConsumerIndex (aObserver, nConsumers) == nConsumer)
+            {
+              if (aSlot == null)
+              {
+                nSequence = aThread.claim ();
+                // Buffer is full and we're in a consumer thread of this
+                // dispatcher
+                aSlot = nSequence < 0 ? new AsyncRingBufferDispatcherThread.Slot () : aThread.getSlot (nSequence);
+                aSlot.setEvent (aEvent, aLocalResultCallback);
+              }
+              aSlot.addObserver (aObserver, aHandlingObservers.getHandlerType (i).hasReturnValue ());
+            }
+          }
+          if (aSlot != null)
+          {
+            if (nSequence < 0)
+              aThread.processInline (aSlot);
+            else
+              aThread.publish (nSequence);
+          }
+        }
+      }
+      catch (final IllegalStateException ex)
+      {
+        // The dispatcher was stopped concurrently: the observers of the
+        // remaining consumers are never notified
+        if (aLocalResultCallback != null)
+          for (int i = 0; i < aHandlingObservers.getCount (); ++i)
+          {
+            final IEventObserver aObserver = aHandlingObservers.getObserver (i);
+            if (aHandlingObservers.getHandlerType (i).hasReturnValue () &&
+                (nConsumers == 1 || _getConsumerIndex (aObserver, nConsumers) >= nConsumer))
+              aLocalResultCallback.run (new EventObservingExceptionWrapper (aObserver, aEvent, ex));
+          }
+        throw ex;
+      }
+    }
+  }
+
+  /**
+   * Stop all consumer threads. All events that were already dispatched are
+   * still delivered.
+   */
+  @Nonnull
+  public EChange stop ()
+  {
+    if (m_aThreads[0].isStopped ())
+      return EChange.UNCHANGED;
+    for (final AsyncRingBufferDispatcherThread aThread : m_aThreads)
+      aThread.stopAfterDraining ();
+    return EChange.CHANGED;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!(o instanceof AsynchronousRingBufferEventDispatcher))
+      return false;
+    final AsynchronousRingBufferEventDispatcher rhs = (AsynchronousRingBufferEventDispatcher) o;
+    return m_aResultAggregator.equals (rhs.m_aResultAggregator) &&
+           m_aThreads.length == rhs.m_aThreads.length &&
+           m_eWaitStrategy.equals (rhs.m_eWaitStrategy);
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (m_aResultAggregator)
+                                       .append (m_aThreads.length)
+                                       .append (m_eWaitStrategy)
+                                       .getHashCode ();
+  }
+}
@@ -0,0 +1,83 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.ringbuffer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.phloc.commons.aggregate.IAggregatorFactory;
+import com.phloc.event.IEventObservingExceptionHandler;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcher;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcherFactory;
+
+/**
+ * Factory for {@link AsynchronousRingBufferEventDispatcher} objects.
+ * 
+ * @author philip
+ */
+public class DefaultAsynchronousRingBufferEventDispatcherFactory implements IAsynchronousEventDispatcherFactory
+{
+  private final IAggregatorFactory <Object, Object> m_aResultAggregateFactory;
+  private final int m_nConsumers;
+  private final int m_nBufferSize;
+  private final EWaitStrategy m_eWaitStrategy;
+  private final IEventObservingExceptionHandler m_aExceptionHandler;
+
+  public DefaultAsynchronousRingBufferEventDispatcherFactory (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregateFactory,
+                                                              @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    this (aResultAggregateFactory,
+          1,
+          AsynchronousRingBufferEventDispatcher.DEFAULT_BUFFER_SIZE,
+          AsynchronousRingBufferEventDispatcher.DEFAULT_WAIT_STRATEGY,
+          aExceptionHandler);
+  }
+
+  public DefaultAsynchronousRingBufferEventDispatcherFactory (@Nonnull final IAggregatorFactory <Object, Object> aResultAggregateFactory,
+                                                              @Nonnegative final int nConsumers,
+                                                              @Nonnegative final int nBufferSize,
+                                                              @Nonnull final EWaitStrategy eWaitStrategy,
+                                                              @Nullable final IEventObservingExceptionHandler aExceptionHandler)
+  {
+    if (aResultAggregateFactory == null)
+      throw new NullPointerException ("resultAggregatorFactory");
+    if (nConsumers < 1)
+      throw new IllegalArgumentException ("The passed number of consumers is illegal: " + nConsumers);
+    if (nBufferSize < 1 || Integer.bitCount (nBufferSize) != 1)
+      throw new IllegalArgumentException ("The buffer size must be a power of 2: " + nBufferSize);
+    if (eWaitStrategy == null)
+      throw new NullPointerException ("waitStrategy");
+
+    m_aResultAggregateFactory = aResultAggregateFactory;
+    m_nConsumers = nConsumers;
+    m_nBufferSize = nBufferSize;
+    m_eWaitStrategy = eWaitStrategy;
+    m_aExceptionHandler = aExceptionHandler;
+  }
+
+  @Nonnull
+  public IAsynchronousEventDispatcher create ()
+  {
+    return new AsynchronousRingBufferEventDispatcher (m_aResultAggregateFactory,
+                                                      m_nConsumers,
+                                                      m_nBufferSize,
+                                                      m_eWaitStrategy,
+                                                      m_aExceptionHandler);
+  }
+}
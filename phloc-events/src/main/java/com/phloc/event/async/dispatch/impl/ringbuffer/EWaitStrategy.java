@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.ringbuffer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Defines what a thread does while waiting for a ring buffer, i.e. a consumer
+ * thread waiting for new events or a producer waiting for a free slot.
+ * 
+ * @author philip
+ */
+public enum EWaitStrategy
+{
+  /**
+   * Spin without giving up the CPU. Lowest latency, but each waiting thread
+   * fully occupies a core.
+   */
+  BUSY_SPIN,
+
+  /**
+   * Call {@link Thread#yield()} so that other threads may run. Low latency
+   * with less CPU pressure than {@link #BUSY_SPIN}, but still no idle CPU.
+   */
+  YIELD,
+
+  /**
+   * Park the thread. A consumer thread is parked until a new event is
+   * published, a producer waiting for a free slot is parked for a short time.
+   * Higher latency but no busy CPU while idle.
+   */
+  PARK;
+
+  /**
+   * The number of nanoseconds a producer waiting for a free slot is parked with
+   * {@link #PARK}
+   */
+  public static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos (50);
+
+  /**
+   * Wait once for a free slot. Called repeatedly until the condition the thread
+   * is waiting for is fulfilled.
+   */
+  public void idle ()
+  {
+    switch (this)
+    {
+      case BUSY_SPIN:
+        // Nothing to do
+        break;
+      case YIELD:
+        Thread.yield ();
+        break;
+      case PARK:
+        LockSupport.parkNanos (PARK_NANOS);
+        break;
+    }
+  }
+
+  /**
+   * Wait once for a new event in a consumer thread. Called repeatedly until an
+   * event was published. With {@link #PARK} the thread is parked until it is
+   * unparked by a producer, so an idle consumer causes no wake ups.
+   */
+  void idleConsumer ()
+  {
+    if (this == PARK)
+      LockSupport.park (this);
+    else
+      idle ();
+  }
+}
@@ -17,33 +17,31 @@
  */
 package com.phloc.event.async.dispatch.impl.serial;
 
-import java.util.Map;
-
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.phloc.event.EEventObserverHandlerType;
 import com.phloc.event.IEvent;
 import com.phloc.event.IEventObserver;
 import com.phloc.event.IEventObservingExceptionHandler;
-import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCollector;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
 import com.phloc.event.impl.EventObservingExceptionHandler;
 import com.phloc.event.impl.EventObservingExceptionWrapper;
+import com.phloc.event.impl.HandlingEventObservers;
 
 final class AsyncSerialDispatcherThread extends Thread
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (AsyncSerialDispatcherThread.class);
   private final IEvent m_aEvent;
-  private final Map <IEventObserver, EEventObserverHandlerType> m_aHandlingObservers;
-  private final AsynchronousEventResultCollector m_aLocalResultCallback;
+  private final HandlingEventObservers m_aHandlingObservers;
+  private final AsynchronousEventResultCountDown m_aLocalResultCallback;
   private final IEventObservingExceptionHandler m_aExceptionHandler;
 
   AsyncSerialDispatcherThread (@Nonnull final IEvent aEvent,
-                               @Nonnull final Map <IEventObserver, EEventObserverHandlerType> aHandlingObservers,
-                               final AsynchronousEventResultCollector aLocalResultCallback,
+                               @Nonnull final HandlingEventObservers aHandlingObservers,
+                               final AsynchronousEventResultCountDown aLocalResultCallback,
                                @Nullable final IEventObservingExceptionHandler aExceptionHandler)
   {
     super ("serial-event-dispatcher-thread");
@@ -79,7 +77,7 @@ final class AsyncSerialDispatcherThread extends Thread
   public void run ()
   {
     // Iterate all handling observers
-    for (final Map.Entry <IEventObserver, EEventObserverHandlerType> aEntry : m_aHandlingObservers.entrySet ())
-      _callSingleObserver (aEntry.getKey (), aEntry.getValue ().hasReturnValue ());
+    for (int i = 0; i < m_aHandlingObservers.getCount (); ++i)
+      _callSingleObserver (m_aHandlingObservers.getObserver (i), m_aHandlingObservers.getHandlerType (i).hasReturnValue ());
   }
 }
@@ -17,23 +17,20 @@
  */
 package com.phloc.event.async.dispatch.impl.serial;
 
-import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import com.phloc.commons.aggregate.IAggregatorFactory;
 import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
-import com.phloc.commons.collections.pair.IReadonlyPair;
 import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.state.EChange;
-import com.phloc.event.EEventObserverHandlerType;
 import com.phloc.event.IEvent;
-import com.phloc.event.IEventObserver;
 import com.phloc.event.IEventObservingExceptionHandler;
 import com.phloc.event.async.dispatch.IAsynchronousEventDispatcher;
-import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCollector;
+import com.phloc.event.async.dispatch.impl.AsynchronousEventResultCountDown;
 import com.phloc.event.impl.AbstractEventDispatcher;
+import com.phloc.event.impl.HandlingEventObservers;
 import com.phloc.event.observerqueue.IEventObserverQueue;
 
 /**
@@ -63,27 +60,23 @@ public class AsynchronousSerialEventDispatcher extends AbstractEventDispatcher i
       throw new NullPointerException ("observerQueue");
 
     // find all observers that can handle the passed event
-    final IReadonlyPair <Integer, Map <IEventObserver, EEventObserverHandlerType>> aHandlingInfo = getListOfObserversThatCanHandleTheEvent (aEvent,
-                                                                                                                                            aObservers);
-
-    final int nHandlingObserverCountWithReturnValue = aHandlingInfo.getFirst ().intValue ();
-    final Map <IEventObserver, EEventObserverHandlerType> aHandlingObservers = aHandlingInfo.getSecond ();
+    final HandlingEventObservers aHandlingObservers = getHandlingObservers (aEvent, aObservers);
+    final int nHandlingObserverCountWithReturnValue = aHandlingObservers.getCountWithReturnValue ();
 
     if (!aHandlingObservers.isEmpty ())
     {
       // At least one handler was found
-      AsynchronousEventResultCollector aLocalResultCallback = null;
+      AsynchronousEventResultCountDown aLocalResultCallback = null;
       if (nHandlingObserverCountWithReturnValue > 0)
       {
         // If we have handling observers, we need an overall result callback!
         if (aOverallResultCallback == null)
           throw new IllegalStateException ("Are you possibly using a unicast event manager and sending an event that has a return value?");
 
-        // Create collector and start thread only if we expect a result
-        aLocalResultCallback = new AsynchronousEventResultCollector (nHandlingObserverCountWithReturnValue,
+        // Create collector only if we expect a result
+        aLocalResultCallback = new AsynchronousEventResultCountDown (nHandlingObserverCountWithReturnValue,
                                                                      m_aResultAggregator,
                                                                      aOverallResultCallback);
-        aLocalResultCallback.start ();
       }
 
       // Spawn a separate thread for each event that is triggered
@@ -18,6 +18,7 @@
 package com.phloc.event.impl;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.annotation.Nonnull;
@@ -31,6 +32,7 @@ import com.phloc.event.IEvent;
 import com.phloc.event.IEventObserver;
 import com.phloc.event.IOnlyOnceEventObserver;
 import com.phloc.event.observerqueue.IEventObserverQueue;
+import com.phloc.event.observerqueue.IEventTypeIndexedEventObserverQueue;
 
 public abstract class AbstractEventDispatcher
 {
@@ -46,6 +48,20 @@ public abstract class AbstractEventDispatcher
       throw new IllegalArgumentException ("No dispatch result aggregator was created");
   }
 
+  /**
+   * Determine all observers that can handle the passed event and remove all
+   * handling {@link IOnlyOnceEventObserver} objects from the passed queue.
+   * 
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aObservers
+   *        The observer queue. May not be <code>null</code>.
+   * @return The handling observers in the order of the queue. Never
+   *         <code>null</code>.
+   * @deprecated Use {@link #getHandlingObservers(IEvent, IEventObserverQueue)}
+   *             instead, which does not need a map per event.
+   */
+  @Deprecated
   @Nonnull
   protected static final IReadonlyPair <Integer, Map <IEventObserver, EEventObserverHandlerType>> getListOfObserversThatCanHandleTheEvent (@Nonnull final IEvent aEvent,
                                                                                                                                            @Nonnull final IEventObserverQueue aObservers)
@@ -75,4 +91,67 @@ public abstract class AbstractEventDispatcher
     // return number of handling + handling observer map
     return ReadonlyPair.create (Integer.valueOf (nHandlingObserverCountWithReturnValue), aHandler);
   }
+
+  /**
+   * Determine all observers that can handle the passed event and remove all
+   * handling {@link IOnlyOnceEventObserver} objects from the passed queue. The
+   * mutable copy of the observer list returned by the queue is compacted in
+   * place, so apart from that copy only a single array is allocated - and only
+   * if at least one observer can handle the event. If the queue is an
+   * {@link IEventTypeIndexedEventObserverQueue} only the observers for the type
+   * of the event are checked.
+   * 
+   * @param aEvent
+   *        The event to be dispatched. May not be <code>null</code>.
+   * @param aObservers
+   *        The observer queue. May not be <code>null</code>.
+   * @return The handling observers in the order of the queue. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  protected static final HandlingEventObservers getHandlingObservers (@Nonnull final IEvent aEvent,
+                                                                      @Nonnull final IEventObserverQueue aObservers)
+  {
+    // find all handling observers - use the index if possible
+    final List <IEventObserver> aList;
+    if (aObservers instanceof IEventTypeIndexedEventObserverQueue)
+      aList = ((IEventTypeIndexedEventObserverQueue) aObservers).getAllObservers (aEvent.getEventType ());
+    else
+      aList = aObservers.getAllObservers ();
+    final int nObservers = aList.size ();
+    EEventObserverHandlerType [] aHandlerTypes = null;
+    int nHandlingObserverCount = 0;
+    int nHandlingObserverCountWithReturnValue = 0;
+    for (int i = 0; i < nObservers; ++i)
+    {
+      final IEventObserver aObserver = aList.get (i);
+      final EEventObserverHandlerType eHandleType = aObserver.canHandleEvent (aEvent);
+      if (eHandleType.isHandling ())
+      {
+        if (aHandlerTypes == null)
+          aHandlerTypes = new EEventObserverHandlerType [nObservers - i];
+        // Move to the front of the list
+        aList.set (nHandlingObserverCount, aObserver);
+        aHandlerTypes[nHandlingObserverCount] = eHandleType;
+        nHandlingObserverCount++;
+        if (eHandleType.hasReturnValue ())
+          nHandlingObserverCountWithReturnValue++;
+      }
+    }
+
+    // remove all "only once" observers
+    // Note: iterate only the "handling" observers
+    for (int i = 0; i < nHandlingObserverCount; ++i)
+    {
+      final IEventObserver aObserver = aList.get (i);
+      if (aObserver instanceof IOnlyOnceEventObserver)
+        if (aObservers.removeObserver (aObserver).isUnchanged ())
+          throw new IllegalStateException ("Failed to remove observer " + aObserver + " from " + aObservers);
+    }
+
+    return new HandlingEventObservers (aList,
+                                       aHandlerTypes,
+                                       nHandlingObserverCount,
+                                       nHandlingObserverCountWithReturnValue);
+  }
 }
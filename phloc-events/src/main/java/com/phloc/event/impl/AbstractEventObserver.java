@@ -22,20 +22,21 @@ import java.util.Set;
 import javax.annotation.Nonnull;
 
 import com.phloc.commons.annotations.DevelopersNote;
+import com.phloc.commons.annotations.ReturnsMutableCopy;
 import com.phloc.commons.annotations.UnsupportedOperation;
 import com.phloc.commons.collections.ArrayHelper;
 import com.phloc.commons.collections.ContainerHelper;
 import com.phloc.event.EEventObserverHandlerType;
 import com.phloc.event.IEvent;
-import com.phloc.event.IEventObserver;
 import com.phloc.event.IEventType;
+import com.phloc.event.ITypedEventObserver;
 
 /**
  * Abstract base class for a simple event observer.
  * 
  * @author philip
  */
-public abstract class AbstractEventObserver implements IEventObserver
+public abstract class AbstractEventObserver implements ITypedEventObserver
 {
   private final EEventObserverHandlerType m_eHandlerType;
   private final Set <IEventType> m_aHandledEventTypes;
@@ -82,4 +83,11 @@ public abstract class AbstractEventObserver implements IEventObserver
     return m_aHandledEventTypes.contains (aEvent.getEventType ()) ? m_eHandlerType
                                                                  : EEventObserverHandlerType.CANNOT_HANDLE;
   }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public final Set <IEventType> getAllHandledEventTypes ()
+  {
+    return ContainerHelper.newSet (m_aHandledEventTypes);
+  }
 }
@@ -0,0 +1,135 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.impl;
+
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.event.EEventObserverHandlerType;
+import com.phloc.event.IEventObserver;
+
+/**
+ * The observers that can handle a single event together with their handler
+ * type. Uses the (mutable copy of the) observer list of the queue and a plain
+ * array instead of a map, so that determining the handling observers of an
+ * event allocates as little as possible.
+ * 
+ * @author philip
+ */
+@Immutable
+public final class HandlingEventObservers
+{
+  private final List <IEventObserver> m_aObservers;
+  private final EEventObserverHandlerType [] m_aHandlerTypes;
+  private final int m_nCount;
+  private final int m_nCountWithReturnValue;
+
+  /**
+   * Constructor
+   * 
+   * @param aObservers
+   *        The list that contains the handling observers at the first
+   *        <code>nCount</code> indices. May only be <code>null</code> if
+   *        <code>nCount</code> is 0.
+   * @param aHandlerTypes
+   *        The handler types of the observers with the same indices. May only
+   *        be <code>null</code> if <code>nCount</code> is 0.
+   * @param nCount
+   *        The number of handling observers.
+   * @param nCountWithReturnValue
+   *        The number of handling observers with a return value.
+   */
+  HandlingEventObservers (@Nullable final List <IEventObserver> aObservers,
+                          @Nullable final EEventObserverHandlerType [] aHandlerTypes,
+                          @Nonnegative final int nCount,
+                          @Nonnegative final int nCountWithReturnValue)
+  {
+    m_aObservers = aObservers;
+    m_aHandlerTypes = aHandlerTypes;
+    m_nCount = nCount;
+    m_nCountWithReturnValue = nCountWithReturnValue;
+  }
+
+  /**
+   * @return <code>true</code> if no observer can handle the event.
+   */
+  public boolean isEmpty ()
+  {
+    return m_nCount == 0;
+  }
+
+  /**
+   * @return The number of observers that can handle the event.
+   */
+  @Nonnegative
+  public int getCount ()
+  {
+    return m_nCount;
+  }
+
+  /**
+   * @return The number of observers that can handle the event and have a
+   *         return value.
+   */
+  @Nonnegative
+  public int getCountWithReturnValue ()
+  {
+    return m_nCountWithReturnValue;
+  }
+
+  /**
+   * @param nIndex
+   *        The index of the observer. Must be &ge; 0 and &lt;
+   *        {@link #getCount()}.
+   * @return The handling observer at the specified index.
+   */
+  @Nonnull
+  public IEventObserver getObserver (@Nonnegative final int nIndex)
+  {
+    if (nIndex < 0 || nIndex >= m_nCount)
+      throw new IllegalArgumentException ("Invalid index " + nIndex);
+    return m_aObservers.get (nIndex);
+  }
+
+  /**
+   * @param nIndex
+   *        The index of the observer. Must be &ge; 0 and &lt;
+   *        {@link #getCount()}.
+   * @return The handler type of the observer at the specified index.
+   */
+  @Nonnull
+  public EEventObserverHandlerType getHandlerType (@Nonnegative final int nIndex)
+  {
+    if (nIndex < 0 || nIndex >= m_nCount)
+      throw new IllegalArgumentException ("Invalid index " + nIndex);
+    return m_aHandlerTypes[nIndex];
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("count", m_nCount)
+                                       .append ("countWithReturnValue", m_nCountWithReturnValue)
+                                       .toString ();
+  }
+}
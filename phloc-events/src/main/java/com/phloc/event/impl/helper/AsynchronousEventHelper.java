@@ -25,7 +25,9 @@ import com.phloc.commons.concurrent.IExecutorServiceFactory;
 import com.phloc.event.IEventObservingExceptionHandler;
 import com.phloc.event.async.dispatch.IAsynchronousEventDispatcherFactory;
 import com.phloc.event.async.dispatch.impl.parallel.DefaultAsynchronousParallelEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.parallel.DefaultAsynchronousPooledParallelEventDispatcherFactory;
 import com.phloc.event.async.dispatch.impl.queue.DefaultAsynchronousQueueEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.ringbuffer.DefaultAsynchronousRingBufferEventDispatcherFactory;
 import com.phloc.event.async.dispatch.impl.serial.DefaultAsynchronousSerialEventDispatcherFactory;
 import com.phloc.event.async.impl.NewThreadPoolExecutorServiceFactory;
 import com.phloc.event.async.mgr.impl.BidirectionalAsynchronousMulticastEventManager;
@@ -40,7 +42,9 @@ public final class AsynchronousEventHelper extends AbstractEventHelper
   {
     QUEUE,
     SERIAL,
-    PARALLEL;
+    PARALLEL,
+    POOLED_PARALLEL,
+    RING_BUFFER;
   }
 
   private AsynchronousEventHelper ()
@@ -62,7 +66,7 @@ public final class AsynchronousEventHelper extends AbstractEventHelper
   public static IAsynchronousEventDispatcherFactory createEventDispFactory (@Nonnull final Class <? extends IAggregator <Object, ?>> aClass,
                                                                             @Nullable final IEventObservingExceptionHandler aExceptionHandler)
   {
-    // switch between parallel, serial and queue
+    // switch between parallel, pooled parallel, serial, queue and ring buffer
     switch (_getDefaultDispatcherType ())
     {
       case QUEUE:
@@ -75,6 +79,12 @@ public final class AsynchronousEventHelper extends AbstractEventHelper
         return new DefaultAsynchronousParallelEventDispatcherFactory (createDispatchResultAggregatorFactory (aClass),
                                                                       createExecutorServiceFactory (),
                                                                       aExceptionHandler);
+      case POOLED_PARALLEL:
+        return new DefaultAsynchronousPooledParallelEventDispatcherFactory (createDispatchResultAggregatorFactory (aClass),
+                                                                            aExceptionHandler);
+      case RING_BUFFER:
+        return new DefaultAsynchronousRingBufferEventDispatcherFactory (createDispatchResultAggregatorFactory (aClass),
+                                                                        aExceptionHandler);
       default:
         throw new IllegalStateException ("Illegal event dispatcher type!");
     }
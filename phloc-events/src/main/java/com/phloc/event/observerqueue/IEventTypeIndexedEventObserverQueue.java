@@ -0,0 +1,48 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.observerqueue;
+
+import java.util.List;
+
+import javax.annotation.Nonnull;
+
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.event.IEventObserver;
+import com.phloc.event.IEventType;
+import com.phloc.event.ITypedEventObserver;
+
+/**
+ * Special {@link IEventObserverQueue} that indexes its observers by event type.
+ * 
+ * @author philip
+ */
+public interface IEventTypeIndexedEventObserverQueue extends IEventObserverQueue
+{
+  /**
+   * Get all observers that may handle events of the passed type. These are all
+   * {@link ITypedEventObserver} objects registered for the passed type and all
+   * other observers, in the order of the queue.
+   * 
+   * @param aEventType
+   *        The event type to query. May not be <code>null</code>.
+   * @return A list of the matching observers. Never <code>null</code>
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  List <IEventObserver> getAllObservers (@Nonnull IEventType aEventType);
+}
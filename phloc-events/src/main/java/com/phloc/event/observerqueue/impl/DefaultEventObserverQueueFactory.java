@@ -26,7 +26,7 @@ import com.phloc.event.observerqueue.IEventObserverQueueFactory;
 
 /**
  * Default implementation of {@link IEventObserverQueueFactory} always returning
- * an {@link EventObserverQueueOrderedSet}.
+ * an {@link EventObserverQueueIndexedByEventType}.
  * 
  * @author philip
  */
@@ -49,7 +49,7 @@ public final class DefaultEventObserverQueueFactory implements IEventObserverQue
   {
     // By default a non-weak set is used, because observers are quite regular
     // inline classes which tend to be garbage collected very easily!
-    return new EventObserverQueueOrderedSet ();
+    return new EventObserverQueueIndexedByEventType ();
   }
 
   @Override
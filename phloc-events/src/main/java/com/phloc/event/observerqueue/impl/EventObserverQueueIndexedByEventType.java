@@ -0,0 +1,236 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.observerqueue.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.phloc.commons.annotations.ReturnsMutableCopy;
+import com.phloc.commons.hash.HashCodeGenerator;
+import com.phloc.commons.state.EChange;
+import com.phloc.commons.string.ToStringGenerator;
+import com.phloc.event.IEventObserver;
+import com.phloc.event.IEventType;
+import com.phloc.event.ITypedEventObserver;
+import com.phloc.event.observerqueue.IEventTypeIndexedEventObserverQueue;
+
+/**
+ * Implementation of {@link IEventTypeIndexedEventObserverQueue} based on a
+ * {@link LinkedHashSet}. Order of observers is maintained!<br>
+ * For dispatching, an immutable routing table from event type to the matching
+ * observers is used. It is built copy-on-write: adding or removing an observer
+ * discards the current table and the next read builds a new one. So reading
+ * never locks while the observers don't change, and registering many observers
+ * in a row does not rebuild the table for each observer.
+ * {@link ITypedEventObserver} objects are only contained in the entries of
+ * their event types, all other observers are contained in all entries.
+ * 
+ * @author philip
+ */
+@ThreadSafe
+public final class EventObserverQueueIndexedByEventType extends AbstractEventObserverQueue implements
+                                                                                         IEventTypeIndexedEventObserverQueue
+{
+  /**
+   * The immutable routing table.
+   */
+  @Immutable
+  private static final class RoutingTable
+  {
+    private final IEventObserver [] m_aAllObservers;
+    private final Map <IEventType, IEventObserver []> m_aTypedObservers;
+    // Observers that are not typed
+    private final IEventObserver [] m_aUntypedObservers;
+
+    RoutingTable (@Nonnull final Set <IEventObserver> aObservers)
+    {
+      m_aAllObservers = aObservers.toArray (new IEventObserver [aObservers.size ()]);
+
+      // Determine all event types
+      final Map <IEventType, List <IEventObserver>> aMap = new HashMap <IEventType, List <IEventObserver>> ();
+      for (final IEventObserver aObserver : m_aAllObservers)
+        if (aObserver instanceof ITypedEventObserver)
+          for (final IEventType aEventType : ((ITypedEventObserver) aObserver).getAllHandledEventTypes ())
+            if (!aMap.containsKey (aEventType))
+              aMap.put (aEventType, new ArrayList <IEventObserver> ());
+
+      // Fill the lists in the order of the observers
+      final List <IEventObserver> aUntyped = new ArrayList <IEventObserver> ();
+      for (final IEventObserver aObserver : m_aAllObservers)
+        if (aObserver instanceof ITypedEventObserver)
+        {
+          for (final IEventType aEventType : ((ITypedEventObserver) aObserver).getAllHandledEventTypes ())
+            aMap.get (aEventType).add (aObserver);
+        }
+        else
+        {
+          aUntyped.add (aObserver);
+          for (final List <IEventObserver> aList : aMap.values ())
+            aList.add (aObserver);
+        }
+
+      m_aTypedObservers = new HashMap <IEventType, IEventObserver []> (aMap.size ());
+      for (final Map.Entry <IEventType, List <IEventObserver>> aEntry : aMap.entrySet ())
+        m_aTypedObservers.put (aEntry.getKey (),
+                               aEntry.getValue ().toArray (new IEventObserver [aEntry.getValue ().size ()]));
+      m_aUntypedObservers = aUntyped.toArray (new IEventObserver [aUntyped.size ()]);
+    }
+
+    @Nonnull
+    IEventObserver [] getAllObservers (@Nonnull final IEventType aEventType)
+    {
+      final IEventObserver [] ret = m_aTypedObservers.get (aEventType);
+      return ret != null ? ret : m_aUntypedObservers;
+    }
+  }
+
+  private final Lock m_aLock = new ReentrantLock ();
+  private final Set <IEventObserver> m_aSet = new LinkedHashSet <IEventObserver> ();
+  // The current routing table or null if it needs to be rebuilt
+  private volatile RoutingTable m_aRoutingTable;
+
+  public EventObserverQueueIndexedByEventType ()
+  {}
+
+  @Nonnull
+  private RoutingTable _getRoutingTable ()
+  {
+    RoutingTable ret = m_aRoutingTable;
+    if (ret == null)
+    {
+      m_aLock.lock ();
+      try
+      {
+        ret = m_aRoutingTable;
+        if (ret == null)
+        {
+          ret = new RoutingTable (m_aSet);
+          m_aRoutingTable = ret;
+        }
+      }
+      finally
+      {
+        m_aLock.unlock ();
+      }
+    }
+    return ret;
+  }
+
+  @Nonnull
+  public EChange addObserver (@Nonnull final IEventObserver aObserver)
+  {
+    if (aObserver == null)
+      throw new NullPointerException ("observer");
+
+    m_aLock.lock ();
+    try
+    {
+      if (!m_aSet.add (aObserver))
+        return EChange.UNCHANGED;
+      m_aRoutingTable = null;
+      return EChange.CHANGED;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Nonnull
+  public EChange removeObserver (@Nonnull final IEventObserver aObserver)
+  {
+    if (aObserver == null)
+      throw new NullPointerException ("observer");
+
+    m_aLock.lock ();
+    try
+    {
+      if (!m_aSet.remove (aObserver))
+        return EChange.UNCHANGED;
+      m_aRoutingTable = null;
+      return EChange.CHANGED;
+    }
+    finally
+    {
+      m_aLock.unlock ();
+    }
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  private static List <IEventObserver> _newList (@Nonnull final IEventObserver [] aObservers)
+  {
+    return new ArrayList <IEventObserver> (Arrays.asList (aObservers));
+  }
+
+  public boolean isEmpty ()
+  {
+    return _getRoutingTable ().m_aAllObservers.length == 0;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IEventObserver> getAllObservers ()
+  {
+    return _newList (_getRoutingTable ().m_aAllObservers);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public List <IEventObserver> getAllObservers (@Nonnull final IEventType aEventType)
+  {
+    if (aEventType == null)
+      throw new NullPointerException ("eventType");
+
+    return _newList (_getRoutingTable ().getAllObservers (aEventType));
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!(o instanceof EventObserverQueueIndexedByEventType))
+      return false;
+    final EventObserverQueueIndexedByEventType rhs = (EventObserverQueueIndexedByEventType) o;
+    return getAllObservers ().equals (rhs.getAllObservers ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    return new HashCodeGenerator (this).append (getAllObservers ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("observers", getAllObservers ()).toString ();
+  }
+}
@@ -19,7 +19,6 @@ package com.phloc.event.sync.dispatch.impl;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -33,13 +32,13 @@ import com.phloc.commons.hash.HashCodeGenerator;
 import com.phloc.commons.mock.IMockException;
 import com.phloc.commons.state.EChange;
 import com.phloc.commons.string.ToStringGenerator;
-import com.phloc.event.EEventObserverHandlerType;
 import com.phloc.event.IEvent;
 import com.phloc.event.IEventObserver;
 import com.phloc.event.IEventObservingExceptionHandler;
 import com.phloc.event.impl.AbstractEventDispatcher;
 import com.phloc.event.impl.EventObservingExceptionHandler;
 import com.phloc.event.impl.EventObservingExceptionWrapper;
+import com.phloc.event.impl.HandlingEventObservers;
 import com.phloc.event.observerqueue.IEventObserverQueue;
 import com.phloc.event.sync.dispatch.ISynchronousEventDispatcher;
 
@@ -65,8 +64,7 @@ public class SynchronousEventDispatcher extends AbstractEventDispatcher implemen
       throw new NullPointerException ("observers");
 
     // find all observers that can handle the passed event
-    final Map <IEventObserver, EEventObserverHandlerType> aHandlingObservers = getListOfObserversThatCanHandleTheEvent (aEvent,
-                                                                                                                        aObservers).getSecond ();
+    final HandlingEventObservers aHandlingObservers = getHandlingObservers (aEvent, aObservers);
 
     Object aDispatchResult;
     if (aHandlingObservers.isEmpty ())
@@ -79,7 +77,7 @@ public class SynchronousEventDispatcher extends AbstractEventDispatcher implemen
       // At least one handler was found
 
       // The list of all callback return values
-      final List <Object> aCallbackReturnValues = new ArrayList <Object> ();
+      final List <Object> aCallbackReturnValues = new ArrayList <Object> (aHandlingObservers.getCountWithReturnValue ());
 
       // The local result callback that puts the different values into the list
       final INonThrowingRunnableWithParameter <Object> aResultCallback = new INonThrowingRunnableWithParameter <Object> ()
@@ -91,10 +89,10 @@ public class SynchronousEventDispatcher extends AbstractEventDispatcher implemen
       };
 
       // Iterate all handling observers
-      for (final Map.Entry <IEventObserver, EEventObserverHandlerType> aEntry : aHandlingObservers.entrySet ())
+      for (int i = 0; i < aHandlingObservers.getCount (); ++i)
       {
-        final boolean bHasReturnValue = aEntry.getValue ().hasReturnValue ();
-        final IEventObserver aObserver = aEntry.getKey ();
+        final boolean bHasReturnValue = aHandlingObservers.getHandlerType (i).hasReturnValue ();
+        final IEventObserver aObserver = aHandlingObservers.getObserver (i);
         final int nOldSize = aCallbackReturnValues.size ();
 
         try
@@ -0,0 +1,128 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.event.resultaggregator.impl.DispatchResultAggregatorUseAll;
+
+/**
+ * Test class for class {@link AsynchronousEventResultCountDown}.
+ * 
+ * @author philip
+ */
+public final class AsynchronousEventResultCountDownTest
+{
+  @Test
+  public void testConcurrentResults () throws InterruptedException
+  {
+    final int RESULTS = 1000;
+    final AtomicInteger aCalls = new AtomicInteger ();
+    final AtomicReference <Object> aResult = new AtomicReference <Object> ();
+    final CountDownLatch aDone = new CountDownLatch (1);
+    final AsynchronousEventResultCountDown aCountDown = new AsynchronousEventResultCountDown (RESULTS,
+                                                                                              new DispatchResultAggregatorUseAll (),
+                                                                                              new INonThrowingRunnableWithParameter <Object> ()
+                                                                                              {
+                                                                                                public void run (final Object aCurrentObject)
+                                                                                                {
+                                                                                                  aCalls.incrementAndGet ();
+                                                                                                  aResult.set (aCurrentObject);
+                                                                                                  aDone.countDown ();
+                                                                                                }
+                                                                                              });
+    assertEquals (RESULTS, aCountDown.getRemainingResultCount ());
+
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < RESULTS; ++i)
+    {
+      final Integer aValue = Integer.valueOf (i);
+      aES.execute (new Runnable ()
+      {
+        public void run ()
+        {
+          aCountDown.run (aValue);
+        }
+      });
+    }
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+    assertTrue (aDone.await (10, TimeUnit.SECONDS));
+
+    // Callback was invoked exactly once with all results
+    assertEquals (1, aCalls.get ());
+    assertEquals (0, aCountDown.getRemainingResultCount ());
+    final List <Integer> aValues = new ArrayList <Integer> ();
+    for (final Object o : (List <?>) aResult.get ())
+      aValues.add ((Integer) o);
+    Collections.sort (aValues);
+    assertEquals (RESULTS, aValues.size ());
+    for (int i = 0; i < RESULTS; ++i)
+      assertEquals (i, aValues.get (i).intValue ());
+
+    // Additional results are ignored
+    aCountDown.run ("too much");
+    assertEquals (1, aCalls.get ());
+  }
+
+  @Test
+  public void testCallbackException ()
+  {
+    final AsynchronousEventResultCountDown aCountDown = new AsynchronousEventResultCountDown (1,
+                                                                                              new DispatchResultAggregatorUseAll (),
+                                                                                              new INonThrowingRunnableWithParameter <Object> ()
+                                                                                              {
+                                                                                                public void run (final Object aCurrentObject)
+                                                                                                {
+                                                                                                  throw new IllegalStateException ("Expected");
+                                                                                                }
+                                                                                              });
+    // Must not propagate to the observer
+    aCountDown.run ("any");
+    assertEquals (0, aCountDown.getRemainingResultCount ());
+
+    try
+    {
+      new AsynchronousEventResultCountDown (0, new DispatchResultAggregatorUseAll (), new INonThrowingRunnableWithParameter <Object> ()
+      {
+        public void run (final Object aCurrentObject)
+        {}
+      });
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+  }
+}
@@ -0,0 +1,310 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.parallel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.state.EChange;
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventType;
+import com.phloc.event.impl.AbstractEventObserver;
+import com.phloc.event.impl.BaseEvent;
+import com.phloc.event.impl.EventObservingExceptionWrapper;
+import com.phloc.event.impl.EventTypeRegistry;
+import com.phloc.event.impl.helper.AbstractEventHelper;
+import com.phloc.event.observerqueue.IEventObserverQueue;
+import com.phloc.event.resultaggregator.impl.DispatchResultAggregatorUseAll;
+
+/**
+ * Test class for class {@link AsynchronousPooledParallelEventDispatcher}.
+ * 
+ * @author philip
+ */
+public final class AsynchronousPooledParallelEventDispatcherTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (AsynchronousPooledParallelEventDispatcherTest.class.getName ());
+
+  @Nonnull
+  private static AsynchronousPooledParallelEventDispatcher _createDispatcher (final int nThreads,
+                                                                              final int nMaxPendingBatches)
+  {
+    return new AsynchronousPooledParallelEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                          nThreads,
+                                                          nMaxPendingBatches,
+                                                          null);
+  }
+
+  @Test
+  public void testDispatchWithResults () throws InterruptedException
+  {
+    final int OBSERVERS = 1000;
+    final int EVENTS = 50;
+    final AsynchronousPooledParallelEventDispatcher aDispatcher = _createDispatcher (4, 8);
+    try
+    {
+      final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+      for (int i = 0; i < OBSERVERS; ++i)
+      {
+        final String sResult = Integer.toString (i);
+        aQueue.addObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent,
+                               @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+          {
+            assertNotNull (aResultCallback);
+            aResultCallback.run (sResult);
+          }
+        });
+      }
+
+      final CountDownLatch aDone = new CountDownLatch (EVENTS);
+      final AtomicReference <Object> aWrongResult = new AtomicReference <Object> ();
+      for (int i = 0; i < EVENTS; ++i)
+        aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, new INonThrowingRunnableWithParameter <Object> ()
+        {
+          public void run (final Object aResult)
+          {
+            if (!(aResult instanceof List <?>) || ((List <?>) aResult).size () != OBSERVERS)
+              aWrongResult.set (aResult);
+            aDone.countDown ();
+          }
+        });
+      assertTrue (aDone.await (30, TimeUnit.SECONDS));
+      assertEquals (null, aWrongResult.get ());
+    }
+    finally
+    {
+      assertEquals (EChange.CHANGED, aDispatcher.stop ());
+    }
+  }
+
+  @Test
+  public void testBackpressure () throws InterruptedException
+  {
+    // One thread and only one pending batch
+    final AsynchronousPooledParallelEventDispatcher aDispatcher = _createDispatcher (1, 1);
+    try
+    {
+      final CountDownLatch aBlock = new CountDownLatch (1);
+      final CountDownLatch aCalled = new CountDownLatch (2);
+      final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+      aQueue.addObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          try
+          {
+            aBlock.await ();
+          }
+          catch (final InterruptedException ex)
+          {
+            Thread.currentThread ().interrupt ();
+          }
+          aCalled.countDown ();
+        }
+      });
+
+      // The first dispatch occupies the only permit
+      aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, null);
+      assertEquals (0, aDispatcher.getAvailablePermits ());
+
+      // The second dispatch must block until the first one is done
+      final CountDownLatch aSecondDispatched = new CountDownLatch (1);
+      final Thread aSender = new Thread (new Runnable ()
+      {
+        public void run ()
+        {
+          aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, null);
+          aSecondDispatched.countDown ();
+        }
+      });
+      aSender.start ();
+      assertTrue (!aSecondDispatched.await (200, TimeUnit.MILLISECONDS));
+
+      aBlock.countDown ();
+      assertTrue (aSecondDispatched.await (10, TimeUnit.SECONDS));
+      assertTrue (aCalled.await (10, TimeUnit.SECONDS));
+      aSender.join ();
+    }
+    finally
+    {
+      aDispatcher.stop ();
+    }
+  }
+
+  @Test
+  public void testDispatchFromObserver () throws InterruptedException
+  {
+    // One thread and only one pending batch - the nested dispatch cannot get
+    // a permit and must not wait for it
+    final AsynchronousPooledParallelEventDispatcher aDispatcher = _createDispatcher (1, 1);
+    try
+    {
+      final CountDownLatch aNestedCalled = new CountDownLatch (1);
+      final IEventObserverQueue aNestedQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+      aNestedQueue.addObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          aNestedCalled.countDown ();
+        }
+      });
+      final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+      aQueue.addObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          aDispatcher.dispatch (new BaseEvent (EV_TYPE), aNestedQueue, null);
+        }
+      });
+
+      aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, null);
+      assertTrue (aNestedCalled.await (10, TimeUnit.SECONDS));
+    }
+    finally
+    {
+      aDispatcher.stop ();
+    }
+  }
+
+  @Test
+  public void testRejectedBatch ()
+  {
+    // Executes the first batch directly and rejects all others
+    final ExecutorService aExecutor = new AbstractExecutorService ()
+    {
+      private final AtomicInteger m_aCount = new AtomicInteger (0);
+
+      public void execute (final Runnable aCommand)
+      {
+        if (m_aCount.getAndIncrement () > 0)
+          throw new RejectedExecutionException ("full");
+        aCommand.run ();
+      }
+
+      public void shutdown ()
+      {}
+
+      public List <Runnable> shutdownNow ()
+      {
+        return new ArrayList <Runnable> ();
+      }
+
+      public boolean isShutdown ()
+      {
+        return false;
+      }
+
+      public boolean isTerminated ()
+      {
+        return false;
+      }
+
+      public boolean awaitTermination (final long nTimeout, final TimeUnit eUnit)
+      {
+        return true;
+      }
+    };
+    final AsynchronousPooledParallelEventDispatcher aDispatcher = new AsynchronousPooledParallelEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                                                                                 aExecutor,
+                                                                                                                 3,
+                                                                                                                 10,
+                                                                                                                 null);
+    final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+    for (int i = 0; i < 3; ++i)
+      aQueue.addObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          aResultCallback.run ("ok");
+        }
+      });
+
+    final AtomicReference <Object> aResult = new AtomicReference <Object> ();
+    try
+    {
+      aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, new INonThrowingRunnableWithParameter <Object> ()
+      {
+        public void run (final Object aCurrentResult)
+        {
+          aResult.set (aCurrentResult);
+        }
+      });
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+
+    // The overall result is delivered nevertheless
+    assertTrue (aResult.get () instanceof List <?>);
+    final List <?> aResults = (List <?>) aResult.get ();
+    assertEquals (3, aResults.size ());
+    assertEquals ("ok", aResults.get (0));
+    assertTrue (aResults.get (1) instanceof EventObservingExceptionWrapper);
+    assertTrue (aResults.get (2) instanceof EventObservingExceptionWrapper);
+  }
+
+  @Test
+  public void testStop ()
+  {
+    final AsynchronousPooledParallelEventDispatcher aDispatcher = _createDispatcher (2, 2);
+    final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+    aQueue.addObserver (new AbstractEventObserver (false, EV_TYPE)
+    {
+      public void onEvent (@Nonnull final IEvent aEvent,
+                           @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+      {}
+    });
+    assertEquals (EChange.CHANGED, aDispatcher.stop ());
+    assertEquals (EChange.UNCHANGED, aDispatcher.stop ());
+    try
+    {
+      aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, null);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+  }
+}
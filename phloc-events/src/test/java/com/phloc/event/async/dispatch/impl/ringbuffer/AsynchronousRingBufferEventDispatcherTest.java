@@ -0,0 +1,495 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.async.dispatch.impl.ringbuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.mock.MockRuntimeException;
+import com.phloc.commons.state.EChange;
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventType;
+import com.phloc.event.impl.AbstractEventObserver;
+import com.phloc.event.impl.BaseEvent;
+import com.phloc.event.impl.EventObservingExceptionWrapper;
+import com.phloc.event.impl.EventTypeRegistry;
+import com.phloc.event.impl.helper.AbstractEventHelper;
+import com.phloc.event.observerqueue.IEventObserverQueue;
+import com.phloc.event.resultaggregator.impl.DispatchResultAggregatorUseAll;
+
+/**
+ * Test class for class {@link AsynchronousRingBufferEventDispatcher}.
+ * 
+ * @author philip
+ */
+public final class AsynchronousRingBufferEventDispatcherTest
+{
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (AsynchronousRingBufferEventDispatcherTest.class.getName ());
+
+  /**
+   * Event with a running number
+   */
+  private static final class MockEvent extends BaseEvent
+  {
+    private final int m_nIndex;
+
+    MockEvent (final int nIndex)
+    {
+      super (EV_TYPE);
+      m_nIndex = nIndex;
+    }
+  }
+
+  /**
+   * Observer that checks that the events are received in order
+   */
+  private static final class MockOrderedObserver extends AbstractEventObserver
+  {
+    private final AtomicInteger m_aReceived = new AtomicInteger ();
+    private final AtomicInteger m_aOutOfOrder = new AtomicInteger ();
+    private int m_nLastIndex = -1;
+
+    MockOrderedObserver ()
+    {
+      super (true, EV_TYPE);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent,
+                         @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+    {
+      final int nIndex = ((MockEvent) aEvent).m_nIndex;
+      if (nIndex != m_nLastIndex + 1)
+        m_aOutOfOrder.incrementAndGet ();
+      m_nLastIndex = nIndex;
+      m_aReceived.incrementAndGet ();
+      aResultCallback.run (Integer.valueOf (nIndex));
+    }
+  }
+
+  private static void _testOrderedDispatch (final int nConsumers, @Nonnull final EWaitStrategy eWaitStrategy) throws InterruptedException
+  {
+    final int OBSERVERS = 20;
+    final int EVENTS = 2000;
+    // Small buffer so that the ring wraps often
+    final AsynchronousRingBufferEventDispatcher aDispatcher = new AsynchronousRingBufferEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                                                                        nConsumers,
+                                                                                                        8,
+                                                                                                        eWaitStrategy,
+                                                                                                        null);
+    try
+    {
+      assertEquals (nConsumers, aDispatcher.getConsumerCount ());
+      assertEquals (eWaitStrategy, aDispatcher.getWaitStrategy ());
+
+      final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+      final MockOrderedObserver [] aObservers = new MockOrderedObserver [OBSERVERS];
+      for (int i = 0; i < OBSERVERS; ++i)
+      {
+        aObservers[i] = new MockOrderedObserver ();
+        aQueue.addObserver (aObservers[i]);
+      }
+
+      final CountDownLatch aDone = new CountDownLatch (EVENTS);
+      final AtomicInteger aWrongResults = new AtomicInteger ();
+      for (int i = 0; i < EVENTS; ++i)
+      {
+        final Integer aExpected = Integer.valueOf (i);
+        aDispatcher.dispatch (new MockEvent (i), aQueue, new INonThrowingRunnableWithParameter <Object> ()
+        {
+          public void run (final Object aResult)
+          {
+            final List <?> aList = (List <?>) aResult;
+            if (aList.size () != OBSERVERS)
+              aWrongResults.incrementAndGet ();
+            for (final Object o : aList)
+              if (!aExpected.equals (o))
+                aWrongResults.incrementAndGet ();
+            aDone.countDown ();
+          }
+        });
+      }
+      assertTrue (aDone.await (30, TimeUnit.SECONDS));
+      assertEquals (0, aWrongResults.get ());
+      for (final MockOrderedObserver aObserver : aObservers)
+      {
+        assertEquals (EVENTS, aObserver.m_aReceived.get ());
+        assertEquals (0, aObserver.m_aOutOfOrder.get ());
+      }
+    }
+    finally
+    {
+      assertEquals (EChange.CHANGED, aDispatcher.stop ());
+      assertEquals (EChange.UNCHANGED, aDispatcher.stop ());
+    }
+  }
+
+  @Test
+  public void testOrderedDispatch () throws InterruptedException
+  {
+    for (final EWaitStrategy eWaitStrategy : EWaitStrategy.values ())
+    {
+      _testOrderedDispatch (1, eWaitStrategy);
+      _testOrderedDispatch (3, eWaitStrategy);
+    }
+  }
+
+  private static void _testMultipleProducers (@Nonnull final EWaitStrategy eWaitStrategy) throws InterruptedException
+  {
+    final int PRODUCERS = 4;
+    final int OBSERVERS = 5;
+    final int EVENTS = 500;
+    final AsynchronousRingBufferEventDispatcher aDispatcher = new AsynchronousRingBufferEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                                                                        2,
+                                                                                                        4,
+                                                                                                        eWaitStrategy,
+                                                                                                        null);
+    final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+    final AtomicInteger aReceived = new AtomicInteger ();
+    for (int i = 0; i < OBSERVERS; ++i)
+      aQueue.addObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          aReceived.incrementAndGet ();
+          aResultCallback.run (Integer.valueOf (((MockEvent) aEvent).m_nIndex));
+        }
+      });
+
+    final CountDownLatch aDone = new CountDownLatch (PRODUCERS * EVENTS);
+    final AtomicInteger aWrongResults = new AtomicInteger ();
+    final INonThrowingRunnableWithParameter <Object> aCallback = new INonThrowingRunnableWithParameter <Object> ()
+    {
+      public void run (final Object aResult)
+      {
+        if (((List <?>) aResult).size () != OBSERVERS)
+          aWrongResults.incrementAndGet ();
+        aDone.countDown ();
+      }
+    };
+    final Thread [] aProducers = new Thread [PRODUCERS];
+    for (int nProducer = 0; nProducer < PRODUCERS; ++nProducer)
+    {
+      aProducers[nProducer] = new Thread ()
+      {
+        @Override
+        public void run ()
+        {
+          for (int i = 0; i < EVENTS; ++i)
+            aDispatcher.dispatch (new MockEvent (i), aQueue, aCallback);
+        }
+      };
+      aProducers[nProducer].start ();
+    }
+    try
+    {
+      for (final Thread aProducer : aProducers)
+        aProducer.join ();
+      assertTrue (aDone.await (30, TimeUnit.SECONDS));
+      assertEquals (0, aWrongResults.get ());
+      assertEquals (PRODUCERS * EVENTS * OBSERVERS, aReceived.get ());
+    }
+    finally
+    {
+      aDispatcher.stop ();
+    }
+  }
+
+  @Test
+  public void testMultipleProducers () throws InterruptedException
+  {
+    for (final EWaitStrategy eWaitStrategy : EWaitStrategy.values ())
+      _testMultipleProducers (eWaitStrategy);
+  }
+
+  @Test
+  public void testStopWhileDispatching () throws InterruptedException
+  {
+    final int PRODUCERS = 4;
+    final AsynchronousRingBufferEventDispatcher aDispatcher = new AsynchronousRingBufferEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                                                                        1,
+                                                                                                        4,
+                                                                                                        EWaitStrategy.PARK,
+                                                                                                        null);
+    final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+    aQueue.addObserver (new AbstractEventObserver (true, EV_TYPE)
+    {
+      public void onEvent (@Nonnull final IEvent aEvent,
+                           @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+      {
+        aResultCallback.run (Boolean.TRUE);
+      }
+    });
+
+    // Each event that was accepted must be delivered, even if the dispatcher is
+    // stopped concurrently
+    final AtomicInteger aAccepted = new AtomicInteger ();
+    final AtomicInteger aDelivered = new AtomicInteger ();
+    final INonThrowingRunnableWithParameter <Object> aCallback = new INonThrowingRunnableWithParameter <Object> ()
+    {
+      public void run (final Object aResult)
+      {
+        if (Boolean.TRUE.equals (((List <?>) aResult).get (0)))
+          aDelivered.incrementAndGet ();
+      }
+    };
+    final Thread [] aProducers = new Thread [PRODUCERS];
+    for (int nProducer = 0; nProducer < PRODUCERS; ++nProducer)
+    {
+      aProducers[nProducer] = new Thread ()
+      {
+        @Override
+        public void run ()
+        {
+          try
+          {
+            while (true)
+            {
+              aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, aCallback);
+              aAccepted.incrementAndGet ();
+            }
+          }
+          catch (final IllegalStateException ex)
+          {
+            // stopped
+          }
+        }
+      };
+      aProducers[nProducer].start ();
+    }
+    Thread.sleep (50);
+    aDispatcher.stop ();
+    for (final Thread aProducer : aProducers)
+      aProducer.join ();
+
+    for (int i = 0; i < 1000 && aDelivered.get () != aAccepted.get (); ++i)
+      Thread.sleep (10);
+    assertTrue (aAccepted.get () > 0);
+    assertEquals (aAccepted.get (), aDelivered.get ());
+  }
+
+  @Test
+  public void testDispatchFromObserverWithFullBuffer () throws InterruptedException
+  {
+    final int NESTED = 5;
+    // A single slot is full while the consumer processes it
+    final AsynchronousRingBufferEventDispatcher aDispatcher = new AsynchronousRingBufferEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                                                                        1,
+                                                                                                        1,
+                                                                                                        EWaitStrategy.PARK,
+                                                                                                        null);
+    try
+    {
+      final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+      final CountDownLatch aDone = new CountDownLatch (1 + NESTED);
+      aQueue.addObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          aDone.countDown ();
+          if (((MockEvent) aEvent).m_nIndex == 0)
+            for (int i = 1; i <= NESTED; ++i)
+              aDispatcher.dispatch (new MockEvent (i), aQueue, null);
+        }
+      });
+      aDispatcher.dispatch (new MockEvent (0), aQueue, null);
+      assertTrue (aDone.await (10, TimeUnit.SECONDS));
+    }
+    finally
+    {
+      aDispatcher.stop ();
+    }
+  }
+
+  /**
+   * Observer that dispatches nested events into another observer queue once
+   * both observers are processing their first event
+   */
+  private static final class MockCrossDispatchingObserver extends AbstractEventObserver
+  {
+    private final AsynchronousRingBufferEventDispatcher m_aDispatcher;
+    private final CountDownLatch m_aBothProcessing;
+    private final CountDownLatch m_aDone;
+    private IEventObserverQueue m_aTargetQueue;
+
+    MockCrossDispatchingObserver (@Nonnull final AsynchronousRingBufferEventDispatcher aDispatcher,
+                                  @Nonnull final CountDownLatch aBothProcessing,
+                                  @Nonnull final CountDownLatch aDone)
+    {
+      super (false, EV_TYPE);
+      m_aDispatcher = aDispatcher;
+      m_aBothProcessing = aBothProcessing;
+      m_aDone = aDone;
+    }
+
+    int getConsumerIndex (final int nConsumers)
+    {
+      return (System.identityHashCode (this) & Integer.MAX_VALUE) % nConsumers;
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent,
+                         @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+    {
+      m_aDone.countDown ();
+      if (((MockEvent) aEvent).m_nIndex == 0)
+      {
+        // Both consumers are now busy with a full buffer
+        m_aBothProcessing.countDown ();
+        try
+        {
+          if (!m_aBothProcessing.await (10, TimeUnit.SECONDS))
+            return;
+        }
+        catch (final InterruptedException ex)
+        {
+          return;
+        }
+        for (int i = 1; i <= 5; ++i)
+          m_aDispatcher.dispatch (new MockEvent (i), m_aTargetQueue, null);
+      }
+    }
+  }
+
+  @Test
+  public void testCrossConsumerDispatchWithFullBuffers () throws InterruptedException
+  {
+    // Two consumers with a single slot each, that is full while the consumer
+    // processes it
+    final AsynchronousRingBufferEventDispatcher aDispatcher = new AsynchronousRingBufferEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                                                                        2,
+                                                                                                        1,
+                                                                                                        EWaitStrategy.PARK,
+                                                                                                        null);
+    try
+    {
+      final CountDownLatch aBothProcessing = new CountDownLatch (2);
+      final CountDownLatch aDone = new CountDownLatch (2 + 2 * 5);
+      final MockCrossDispatchingObserver aObserverA = new MockCrossDispatchingObserver (aDispatcher,
+                                                                                        aBothProcessing,
+                                                                                        aDone);
+      // Find an observer that is notified by the other consumer
+      MockCrossDispatchingObserver aObserverB;
+      do
+      {
+        aObserverB = new MockCrossDispatchingObserver (aDispatcher, aBothProcessing, aDone);
+      } while (aObserverB.getConsumerIndex (2) == aObserverA.getConsumerIndex (2));
+
+      final IEventObserverQueue aQueueA = AbstractEventHelper.getObserverQueueFactory ().create ();
+      aQueueA.addObserver (aObserverA);
+      final IEventObserverQueue aQueueB = AbstractEventHelper.getObserverQueueFactory ().create ();
+      aQueueB.addObserver (aObserverB);
+      aObserverA.m_aTargetQueue = aQueueB;
+      aObserverB.m_aTargetQueue = aQueueA;
+
+      // Each consumer dispatches into the full buffer of the other one
+      aDispatcher.dispatch (new MockEvent (0), aQueueA, null);
+      aDispatcher.dispatch (new MockEvent (0), aQueueB, null);
+      assertTrue (aDone.await (10, TimeUnit.SECONDS));
+    }
+    finally
+    {
+      aDispatcher.stop ();
+    }
+  }
+
+  @Test
+  public void testException () throws InterruptedException
+  {
+    final AsynchronousRingBufferEventDispatcher aDispatcher = new AsynchronousRingBufferEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                                                                        null);
+    try
+    {
+      final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+      aQueue.addObserver (new AbstractEventObserver (true, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          throw new MockRuntimeException ();
+        }
+      });
+      final CountDownLatch aDone = new CountDownLatch (1);
+      final AtomicInteger aExceptions = new AtomicInteger ();
+      aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, new INonThrowingRunnableWithParameter <Object> ()
+      {
+        public void run (final Object aResult)
+        {
+          for (final Object o : (List <?>) aResult)
+            if (o instanceof EventObservingExceptionWrapper)
+              aExceptions.incrementAndGet ();
+          aDone.countDown ();
+        }
+      });
+      assertTrue (aDone.await (10, TimeUnit.SECONDS));
+      assertEquals (1, aExceptions.get ());
+    }
+    finally
+    {
+      aDispatcher.stop ();
+    }
+
+    // Dispatching after stop fails
+    final IEventObserverQueue aQueue = AbstractEventHelper.getObserverQueueFactory ().create ();
+    aQueue.addObserver (new AbstractEventObserver (false, EV_TYPE)
+    {
+      public void onEvent (@Nonnull final IEvent aEvent,
+                           @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+      {}
+    });
+    try
+    {
+      aDispatcher.dispatch (new BaseEvent (EV_TYPE), aQueue, null);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testInvalid ()
+  {
+    try
+    {
+      new AsynchronousRingBufferEventDispatcher (AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class),
+                                                 1,
+                                                 1000,
+                                                 EWaitStrategy.PARK,
+                                                 null);
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected - no power of 2
+    }
+  }
+}
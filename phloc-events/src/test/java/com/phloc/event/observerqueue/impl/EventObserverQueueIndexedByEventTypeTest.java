@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.observerqueue.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.junit.Test;
+
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.collections.ContainerHelper;
+import com.phloc.event.EEventObserverHandlerType;
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventObserver;
+import com.phloc.event.IEventType;
+import com.phloc.event.impl.AbstractEventObserver;
+import com.phloc.event.impl.AbstractOnlyOnceEventObserver;
+import com.phloc.event.impl.BaseEvent;
+import com.phloc.event.impl.EventTypeRegistry;
+import com.phloc.event.impl.helper.SynchronousEventHelper;
+import com.phloc.event.sync.mgr.impl.UnidirectionalSynchronousMulticastEventManager;
+
+/**
+ * Test class for class {@link EventObserverQueueIndexedByEventType}.
+ * 
+ * @author philip
+ */
+public final class EventObserverQueueIndexedByEventTypeTest
+{
+  private static final IEventType EV_TYPE1 = EventTypeRegistry.createEventType (EventObserverQueueIndexedByEventTypeTest.class.getName () +
+                                                                                "1");
+  private static final IEventType EV_TYPE2 = EventTypeRegistry.createEventType (EventObserverQueueIndexedByEventTypeTest.class.getName () +
+                                                                                "2");
+  private static final IEventType EV_TYPE3 = EventTypeRegistry.createEventType (EventObserverQueueIndexedByEventTypeTest.class.getName () +
+                                                                                "3");
+
+  private static final class MockTypedObserver extends AbstractEventObserver
+  {
+    private final AtomicInteger m_aCalls = new AtomicInteger ();
+
+    MockTypedObserver (@Nonnull final IEventType... aEventTypes)
+    {
+      super (false, aEventTypes);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent,
+                         @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+    {
+      m_aCalls.incrementAndGet ();
+    }
+  }
+
+  private static final class MockOnlyOnceObserver extends AbstractOnlyOnceEventObserver
+  {
+    private final AtomicInteger m_aCalls = new AtomicInteger ();
+
+    MockOnlyOnceObserver (@Nonnull final IEventType aEventType)
+    {
+      super (false, aEventType);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent,
+                         @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+    {
+      m_aCalls.incrementAndGet ();
+    }
+  }
+
+  /**
+   * An observer that is not typed and therefore needs to be asked for every
+   * event.
+   */
+  private static final class MockUntypedObserver implements IEventObserver
+  {
+    private final AtomicInteger m_aChecks = new AtomicInteger ();
+    private final AtomicInteger m_aCalls = new AtomicInteger ();
+
+    @Nonnull
+    public EEventObserverHandlerType canHandleEvent (@Nonnull final IEvent aEvent)
+    {
+      m_aChecks.incrementAndGet ();
+      return EEventObserverHandlerType.handleNoReturnIfMatches (aEvent, EV_TYPE3);
+    }
+
+    public void onEvent (@Nonnull final IEvent aEvent,
+                         @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+    {
+      m_aCalls.incrementAndGet ();
+    }
+  }
+
+  @Test
+  public void testRouting ()
+  {
+    final EventObserverQueueIndexedByEventType aQueue = new EventObserverQueueIndexedByEventType ();
+    assertTrue (aQueue.isEmpty ());
+    assertTrue (aQueue.getAllObservers (EV_TYPE1).isEmpty ());
+
+    final MockTypedObserver a = new MockTypedObserver (EV_TYPE1);
+    final MockUntypedObserver u = new MockUntypedObserver ();
+    final MockTypedObserver b = new MockTypedObserver (EV_TYPE2);
+    final MockTypedObserver c = new MockTypedObserver (EV_TYPE1, EV_TYPE2);
+    assertTrue (aQueue.addObserver (a).isChanged ());
+    assertTrue (aQueue.addObserver (u).isChanged ());
+    assertTrue (aQueue.addObserver (b).isChanged ());
+    assertTrue (aQueue.addObserver (c).isChanged ());
+    assertTrue (aQueue.addObserver (c).isUnchanged ());
+    assertFalse (aQueue.isEmpty ());
+
+    // Order of registration is maintained
+    assertEquals (ContainerHelper.newList (a, u, b, c), aQueue.getAllObservers ());
+    assertEquals (ContainerHelper.newList (a, u, c), aQueue.getAllObservers (EV_TYPE1));
+    assertEquals (ContainerHelper.newList (u, b, c), aQueue.getAllObservers (EV_TYPE2));
+    assertEquals (ContainerHelper.newList ((IEventObserver) u), aQueue.getAllObservers (EV_TYPE3));
+
+    // The returned lists are copies
+    aQueue.getAllObservers (EV_TYPE1).clear ();
+    assertEquals (3, aQueue.getAllObservers (EV_TYPE1).size ());
+
+    assertTrue (aQueue.removeObserver (u).isChanged ());
+    assertTrue (aQueue.removeObserver (u).isUnchanged ());
+    assertEquals (ContainerHelper.newList (a, c), aQueue.getAllObservers (EV_TYPE1));
+    assertTrue (aQueue.getAllObservers (EV_TYPE3).isEmpty ());
+
+    assertTrue (aQueue.removeObserver (c).isChanged ());
+    assertEquals (ContainerHelper.newList ((IEventObserver) b), aQueue.getAllObservers (EV_TYPE2));
+  }
+
+  @Test
+  public void testDispatch ()
+  {
+    final UnidirectionalSynchronousMulticastEventManager aMgr = SynchronousEventHelper.createUnidirectionalMulticastEventManager ();
+    final MockTypedObserver [] aOthers = new MockTypedObserver [500];
+    for (int i = 0; i < aOthers.length; ++i)
+    {
+      aOthers[i] = new MockTypedObserver (EV_TYPE2);
+      aMgr.registerObserver (aOthers[i]);
+    }
+    final MockTypedObserver a = new MockTypedObserver (EV_TYPE1);
+    final MockUntypedObserver u = new MockUntypedObserver ();
+    final MockOnlyOnceObserver o = new MockOnlyOnceObserver (EV_TYPE1);
+    aMgr.registerObserver (a);
+    aMgr.registerObserver (u);
+    aMgr.registerObserver (o);
+
+    aMgr.trigger (new BaseEvent (EV_TYPE1));
+    aMgr.trigger (new BaseEvent (EV_TYPE1));
+    assertEquals (2, a.m_aCalls.get ());
+    // Only once observer was removed after the first event
+    assertEquals (1, o.m_aCalls.get ());
+    // Untyped observers are always asked
+    assertEquals (2, u.m_aChecks.get ());
+    assertEquals (0, u.m_aCalls.get ());
+    for (final MockTypedObserver aOther : aOthers)
+      assertEquals (0, aOther.m_aCalls.get ());
+
+    aMgr.trigger (new BaseEvent (EV_TYPE3));
+    assertEquals (3, u.m_aChecks.get ());
+    assertEquals (1, u.m_aCalls.get ());
+    assertEquals (2, a.m_aCalls.get ());
+
+    aMgr.trigger (new BaseEvent (EV_TYPE2));
+    for (final MockTypedObserver aOther : aOthers)
+      assertEquals (1, aOther.m_aCalls.get ());
+  }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.supplementary.benchmark;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.aggregate.IAggregatorFactory;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.commons.timing.StopWatch;
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventType;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.parallel.DefaultAsynchronousPooledParallelEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.queue.DefaultAsynchronousQueueEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.serial.DefaultAsynchronousSerialEventDispatcherFactory;
+import com.phloc.event.async.mgr.impl.BidirectionalAsynchronousMulticastEventManager;
+import com.phloc.event.impl.AbstractEventObserver;
+import com.phloc.event.impl.BaseEvent;
+import com.phloc.event.impl.EventTypeRegistry;
+import com.phloc.event.impl.helper.AbstractEventHelper;
+import com.phloc.event.resultaggregator.impl.DispatchResultAggregatorUseAll;
+
+/**
+ * Measures the throughput of a bidirectional asynchronous multicast event
+ * manager: each event is handled by a set of observers that all deliver a
+ * result, and the event counts as processed when the aggregated result was
+ * delivered to the overall result callback.
+ * 
+ * @author philip
+ */
+public final class BenchmarkBidirectionalAsynchronousMulticast
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (BenchmarkBidirectionalAsynchronousMulticast.class);
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (BenchmarkBidirectionalAsynchronousMulticast.class.getName ());
+  private static final int OBSERVERS = 8;
+  private static final int EVENTS = 20000;
+  private static final int RUNS = 5;
+
+  private BenchmarkBidirectionalAsynchronousMulticast ()
+  {}
+
+  private static double _runOnce (@Nonnull final IAsynchronousEventDispatcherFactory aDispatcherFactory) throws InterruptedException
+  {
+    final BidirectionalAsynchronousMulticastEventManager aMgr = new BidirectionalAsynchronousMulticastEventManager (AbstractEventHelper.getObserverQueueFactory (),
+                                                                                                                    aDispatcherFactory);
+    try
+    {
+      for (int i = 0; i < OBSERVERS; ++i)
+        aMgr.registerObserver (new AbstractEventObserver (true, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent,
+                               @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+          {
+            aResultCallback.run (aEvent);
+          }
+        });
+
+      final CountDownLatch aDone = new CountDownLatch (EVENTS);
+      final INonThrowingRunnableWithParameter <Object> aOverallCB = new INonThrowingRunnableWithParameter <Object> ()
+      {
+        public void run (final Object aResult)
+        {
+          aDone.countDown ();
+        }
+      };
+
+      final StopWatch aSW = new StopWatch (true);
+      for (int i = 0; i < EVENTS; ++i)
+        aMgr.trigger (new BaseEvent (EV_TYPE), aOverallCB);
+      aDone.await ();
+      return EVENTS * 1000d / Math.max (1, aSW.stopAndGetMillis ());
+    }
+    finally
+    {
+      aMgr.stop ();
+    }
+  }
+
+  private static void _benchmark (@Nonnull final String sName,
+                                  @Nonnull final IAsynchronousEventDispatcherFactory aDispatcherFactory) throws InterruptedException
+  {
+    // Warm up
+    _runOnce (aDispatcherFactory);
+
+    double dBest = 0;
+    for (int i = 0; i < RUNS; ++i)
+      dBest = Math.max (dBest, _runOnce (aDispatcherFactory));
+    s_aLogger.info (sName + ": " + (long) dBest + " events/s with " + OBSERVERS + " observers each");
+  }
+
+  public static void main (final String [] aArgs) throws InterruptedException
+  {
+    final IAggregatorFactory <Object, Object> aAggFactory = AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseAll.class);
+    _benchmark ("Queue", new DefaultAsynchronousQueueEventDispatcherFactory (aAggFactory, null));
+    _benchmark ("Serial", new DefaultAsynchronousSerialEventDispatcherFactory (aAggFactory, null));
+    _benchmark ("Pooled parallel", new DefaultAsynchronousPooledParallelEventDispatcherFactory (aAggFactory, null));
+  }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2006-2015 phloc systems
+ * http://www.phloc.com
+ * office[at]phloc[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.phloc.event.supplementary.benchmark;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.phloc.commons.aggregate.IAggregatorFactory;
+import com.phloc.commons.callback.INonThrowingRunnableWithParameter;
+import com.phloc.event.IEvent;
+import com.phloc.event.IEventType;
+import com.phloc.event.async.dispatch.IAsynchronousEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.queue.DefaultAsynchronousQueueEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.ringbuffer.DefaultAsynchronousRingBufferEventDispatcherFactory;
+import com.phloc.event.async.dispatch.impl.ringbuffer.EWaitStrategy;
+import com.phloc.event.async.mgr.impl.UnidirectionalAsynchronousMulticastEventManager;
+import com.phloc.event.impl.AbstractEventObserver;
+import com.phloc.event.impl.BaseEvent;
+import com.phloc.event.impl.EventTypeRegistry;
+import com.phloc.event.impl.helper.AbstractEventHelper;
+import com.phloc.event.resultaggregator.impl.DispatchResultAggregatorUseFirst;
+
+/**
+ * Compares the end-to-end throughput and latency of the queue based and the
+ * ring buffer based asynchronous event dispatchers.
+ * <ul>
+ * <li>Throughput: many events are triggered in a row, each handled by several
+ * observers. Measured until the last observer received the last event.</li>
+ * <li>Latency: a single event is triggered and the time until the observer
+ * receives it is measured. The next event is only triggered afterwards.</li>
+ * </ul>
+ * 
+ * @author philip
+ */
+public final class BenchmarkRingBufferEventDispatcher
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (BenchmarkRingBufferEventDispatcher.class);
+  private static final IEventType EV_TYPE = EventTypeRegistry.createEventType (BenchmarkRingBufferEventDispatcher.class.getName ());
+  private static final int OBSERVERS = 8;
+  private static final int EVENTS = 100000;
+  private static final int LATENCY_SAMPLES = 20000;
+
+  /**
+   * Event that remembers its creation time
+   */
+  private static final class TimedEvent extends BaseEvent
+  {
+    private final long m_nCreationNanos = System.nanoTime ();
+
+    TimedEvent ()
+    {
+      super (EV_TYPE);
+    }
+  }
+
+  private BenchmarkRingBufferEventDispatcher ()
+  {}
+
+  private static long _measureThroughput (@Nonnull final IAsynchronousEventDispatcherFactory aDispatcherFactory) throws InterruptedException
+  {
+    final UnidirectionalAsynchronousMulticastEventManager aMgr = new UnidirectionalAsynchronousMulticastEventManager (AbstractEventHelper.getObserverQueueFactory (),
+                                                                                                                      aDispatcherFactory);
+    try
+    {
+      final CountDownLatch aDone = new CountDownLatch (OBSERVERS * EVENTS);
+      for (int i = 0; i < OBSERVERS; ++i)
+        aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+        {
+          public void onEvent (@Nonnull final IEvent aEvent,
+                               @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+          {
+            aDone.countDown ();
+          }
+        });
+
+      final long nStart = System.nanoTime ();
+      for (int i = 0; i < EVENTS; ++i)
+        aMgr.trigger (new BaseEvent (EV_TYPE));
+      aDone.await ();
+      return EVENTS * 1000000000L / Math.max (1, System.nanoTime () - nStart);
+    }
+    finally
+    {
+      aMgr.stop ();
+    }
+  }
+
+  @Nonnull
+  private static long [] _measureLatency (@Nonnull final IAsynchronousEventDispatcherFactory aDispatcherFactory)
+  {
+    final UnidirectionalAsynchronousMulticastEventManager aMgr = new UnidirectionalAsynchronousMulticastEventManager (AbstractEventHelper.getObserverQueueFactory (),
+                                                                                                                      aDispatcherFactory);
+    try
+    {
+      final long [] aLatencies = new long [LATENCY_SAMPLES];
+      final AtomicInteger aReceived = new AtomicInteger ();
+      aMgr.registerObserver (new AbstractEventObserver (false, EV_TYPE)
+      {
+        public void onEvent (@Nonnull final IEvent aEvent,
+                             @Nullable final INonThrowingRunnableWithParameter <Object> aResultCallback)
+        {
+          final int nIndex = aReceived.get ();
+          aLatencies[nIndex] = System.nanoTime () - ((TimedEvent) aEvent).m_nCreationNanos;
+          aReceived.set (nIndex + 1);
+        }
+      });
+
+      for (int i = 0; i < LATENCY_SAMPLES; ++i)
+      {
+        aMgr.trigger (new TimedEvent ());
+        while (aReceived.get () <= i)
+          Thread.yield ();
+      }
+      Arrays.sort (aLatencies);
+      return aLatencies;
+    }
+    finally
+    {
+      aMgr.stop ();
+    }
+  }
+
+  private static void _benchmark (@Nonnull final String sName,
+                                  @Nonnull final IAsynchronousEventDispatcherFactory aDispatcherFactory) throws InterruptedException
+  {
+    // Warm up
+    _measureThroughput (aDispatcherFactory);
+    _measureLatency (aDispatcherFactory);
+
+    final long nThroughput = _measureThroughput (aDispatcherFactory);
+    final long [] aLatencies = _measureLatency (aDispatcherFactory);
+    s_aLogger.info (sName +
+                    ": " +
+                    nThroughput +
+                    " events/s with " +
+                    OBSERVERS +
+                    " observers; latency median " +
+                    aLatencies[aLatencies.length / 2] / 1000 +
+                    " us, 99% " +
+                    aLatencies[aLatencies.length * 99 / 100] / 1000 +
+                    " us");
+  }
+
+  public static void main (final String [] aArgs) throws InterruptedException
+  {
+    final IAggregatorFactory <Object, Object> aAggFactory = AbstractEventHelper.createDispatchResultAggregatorFactory (DispatchResultAggregatorUseFirst.class);
+    _benchmark ("Queue", new DefaultAsynchronousQueueEventDispatcherFactory (aAggFactory, null));
+    for (final EWaitStrategy eWaitStrategy : EWaitStrategy.values ())
+      _benchmark ("Ring buffer " + eWaitStrategy,
+                  new DefaultAsynchronousRingBufferEventDispatcherFactory (aAggFactory,
+                                                                           1,
+                                                                           1024,
+                                                                           eWaitStrategy,
+                                                                           null));
+  }
+}
@@ -26,7 +26,11 @@ import com.phloc.settings.ISettings;
 import com.phloc.settings.factory.ISettingsFactory;
 
 /**
- * A cache for the Settings
+ * A cache for the Settings.<br>
+ * Note: this cache is still based on {@link AbstractNotifyingCache}, because
+ * phloc-settings is built against the released phloc-commons 4.3.3, which does
+ * not contain <code>AbstractConcurrentNotifyingCache</code> yet. It can be
+ * switched without API changes once the dependency is updated.
  * 
  * @author Philip Helger
  */